@@ -2,16 +2,18 @@ package jpabook.jpashop.Controller;
 
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberListDto;
 import jpabook.jpashop.service.MemberService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @Controller
 @RequiredArgsConstructor
@@ -43,10 +45,20 @@ public class MemberController {
 
     }
 
+    /**
+     * keyset 페이징, 다음 링크에 마지막 회원 id 를 넘긴다
+     */
     @GetMapping("/members")
-    public String list(Model model) {
-        List<Member> members = memberService.findMember();
-        model.addAttribute("members", members);
+    public String list(@RequestParam(required = false) Long afterId,
+                       @RequestParam(defaultValue = "20") int size,
+                       Model model) {
+        Slice<MemberListDto> members = memberService.findMembersAfter(afterId, size);
+        model.addAttribute("members", members.getContent());
+        model.addAttribute("totalCount", memberService.countMembers());
+        model.addAttribute("size", members.getSize());
+        if (members.hasNext()) {
+            model.addAttribute("nextAfterId", members.getContent().get(members.getNumberOfElements() - 1).getId());
+        }
         return "members/memberList";
     }
 }
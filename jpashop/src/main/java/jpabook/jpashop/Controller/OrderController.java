@@ -1,13 +1,15 @@
 package jpabook.jpashop.Controller;
 
 import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderSearch;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.OrderListDto;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.batch.OrderGroupCommitter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +23,8 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OrderGroupCommitter orderGroupCommitter;
+    private final OrderListRowCache orderListRowCache;
 
     @GetMapping("/order")
     public String createForm(Model model) {
@@ -38,15 +42,28 @@ public class OrderController {
                         @RequestParam("itemId") Long itemId,
                         @RequestParam("count") int count) {
 
-        orderService.order(memberId, itemId, count);
+        orderGroupCommitter.order(memberId, itemId, count); // 묶음 커밋이 꺼져 있으면 orderService.order
 
         return "redirect:/orders";
     }
 
+    /**
+     * 주문 목록 화면, 최신 주문부터 keyset 페이징 (다음 링크에 마지막 주문 id 를 넘긴다)
+     * 행은 주문 id + version 으로 캐시된 html 을 그대로 쓴다
+     * 보관된 주문은 목록에 없다 -> 검색 범위가 보관 주문과 겹치면 화면에 안내한다
+     */
     @GetMapping("/orders")
-    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
-        model.addAttribute("orders", orders);
+    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch,
+                            @RequestParam(required = false) Long beforeId,
+                            @RequestParam(defaultValue = "20") int size,
+                            Model model) {
+        Slice<OrderListDto> orders = orderService.findOrderListPage(orderSearch, beforeId, size);
+        model.addAttribute("rows", orderListRowCache.render(orders.getContent()));
+        model.addAttribute("size", orders.getSize());
+        model.addAttribute("archiveExcluded", orderService.excludesArchive(orderSearch));
+        if (orders.hasNext()) {
+            model.addAttribute("nextBeforeId", orders.getContent().get(orders.getNumberOfElements() - 1).getOrderId());
+        }
 
         return "/order/orderList";
     }
@@ -0,0 +1,99 @@
+package jpabook.jpashop.Controller;
+
+import jpabook.jpashop.repository.OrderListDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 주문 목록 화면의 행(order/orderRow) html 캐시
+ * 키는 주문 id + version, 주문이 바뀌면 hibernate 가 version 을 올리므로 새로 그린다.
+ * 회원명, 상품명은 주문 version 과 상관없이 바뀔 수 있어서 그린 행의 값을 같이 두고 다르면 새로 그린다.
+ * 최근에 쓴 순서로 max-size 개까지 둔다 (LRU)
+ */
+@Component
+public class OrderListRowCache {
+
+    private static final String ROW_TEMPLATE = "order/orderRow";
+
+    private final ITemplateEngine templateEngine;
+    private final Map<List<Long>, Entry> rows;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OrderListRowCache(ITemplateEngine templateEngine,
+                             @Value("${jpashop.order-list.row-cache-size:10000}") int maxSize) {
+        this.templateEngine = templateEngine;
+        this.rows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Long>, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public List<String> render(List<OrderListDto> orders) {
+        List<String> html = new ArrayList<>(orders.size());
+        for (OrderListDto order : orders) {
+            List<Long> key = List.of(order.getOrderId(), order.getVersion());
+            Entry entry;
+            synchronized (rows) {
+                entry = rows.get(key);
+            }
+            if (entry != null && entry.order.equals(order)) {
+                hits.increment();
+            } else {
+                misses.increment();
+                entry = new Entry(order, templateEngine.process(ROW_TEMPLATE, context(order)));
+                synchronized (rows) {
+                    rows.put(key, entry);
+                }
+            }
+            html.add(entry.html);
+        }
+        return html;
+    }
+
+    public void clear() {
+        synchronized (rows) {
+            rows.clear();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        synchronized (rows) {
+            map.put("size", rows.size());
+        }
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        map.put("hits", hit);
+        map.put("misses", total - hit);
+        map.put("hitRatio", total == 0 ? 0.0 : (double) hit / total);
+        return map;
+    }
+
+    private static Context context(OrderListDto order) {
+        Context context = new Context(Locale.KOREA);
+        context.setVariable("order", order);
+        return context;
+    }
+
+    private static class Entry {
+        private final OrderListDto order;
+        private final String html;
+
+        Entry(OrderListDto order, String html) {
+            this.order = order;
+            this.html = html;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package jpabook.jpashop;
 
+import jpabook.jpashop.datasource.DatabaseSnapshot;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,11 +27,21 @@ import javax.persistence.EntityManager;
 @RequiredArgsConstructor
 public class InitDb {
     private final InitService initService;
+    private final DatabaseSnapshot databaseSnapshot;
+    private final ApplicationStartup applicationStartup;
 
     @PostConstruct
     public void init() {
-        initService.dbInit1();
-        initService.dbInit2();
+        if (!databaseSnapshot.isFresh() || databaseSnapshot.isRestored()) {
+            return; // 이번 기동에서 새로 만든 db 에만 넣는다 (이미 데이터가 있거나 스냅샷에 초기 데이터까지 들어있다)
+        }
+        StartupStep step = applicationStartup.start("jpashop.init-db");
+        try {
+            initService.dbInit1();
+            initService.dbInit2();
+        } finally {
+            step.end(); // 실패해도 단계는 닫는다
+        }
     }
 
     @Component
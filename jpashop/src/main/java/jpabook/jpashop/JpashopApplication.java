@@ -3,16 +3,29 @@ package jpabook.jpashop;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class JpashopApplication {
 
-	public static void main(String[] args) {
-		SpringApplication.run(JpashopApplication.class, args);
+	/**
+	 * 기동 단계 기록 버퍼 크기 (빈 하나가 단계 1~2개), 넘치면 뒤의 단계는 버린다 -> internal/startup
+	 */
+	static final int STARTUP_STEPS = 10000;
 
+	public static void main(String[] args) {
+		application().run(args);
+	}
 
+	public static SpringApplication application() {
+		SpringApplication application = new SpringApplication(JpashopApplication.class);
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+		return application;
 	}
+
 	@Bean
 	Hibernate5Module hibernate5Module(){
 		Hibernate5Module hibernate5Module = new Hibernate5Module();
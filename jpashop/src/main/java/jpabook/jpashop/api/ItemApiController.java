@@ -0,0 +1,71 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.ItemChange;
+import jpabook.jpashop.service.batch.ItemBulkUpdater;
+import jpabook.jpashop.service.batch.ItemCatalogImporter;
+import jpabook.jpashop.service.batch.ItemCatalogReader;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private final ItemBulkUpdater itemBulkUpdater;
+    private final ItemCatalogImporter itemCatalogImporter;
+
+    /**
+     * 상품 가격/재고 일괄 변경 (전체 가격 조정, 재고 동기화)
+     * price, stockQuantity 중 안 보낸 값은 그대로 둔다. 없는 상품 id 는 건너뛰고 결과의 missingItemIds 로 알려준다.
+     */
+    @PutMapping("api/v1/items/bulk")
+    public ItemBulkUpdater.Result bulkUpdateItems(@RequestBody @Valid BulkUpdateItemsRequest request) {
+        List<ItemChange> changes = request.getItems().stream()
+                .map(i -> new ItemChange(i.getItemId(), i.getPrice(), i.getStockQuantity()))
+                .collect(Collectors.toList());
+        return itemBulkUpdater.update(changes);
+    }
+
+    /**
+     * 상품 카탈로그 일괄 등록, 요청 본문을 그대로 스트림으로 읽는다 (파일을 메모리에 올리지 않는다)
+     * format: csv | jsonl, errorMode: per-row | atomic (없으면 설정값)
+     */
+    @PostMapping("api/v1/items/import")
+    public ItemCatalogImporter.Result importItems(@RequestParam(defaultValue = "csv") String format,
+                                                 @RequestParam(required = false) String errorMode,
+                                                 HttpServletRequest request) throws IOException {
+        return itemCatalogImporter.importCatalog(request.getInputStream(),
+                ItemCatalogReader.Format.from(format),
+                errorMode == null ? null : ItemCatalogImporter.ErrorMode.from(errorMode));
+    }
+
+    @Data
+    static class BulkUpdateItemsRequest {
+        @NotEmpty
+        private List<@Valid ItemChangeRequest> items;
+    }
+
+    @Data
+    static class ItemChangeRequest {
+        @NotNull
+        private Long itemId;
+        @PositiveOrZero
+        private Integer price;
+        @PositiveOrZero
+        private Integer stockQuantity;
+    }
+}
@@ -1,10 +1,14 @@
 package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberListDto;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -23,23 +27,61 @@ public class MemberApiController {
         return memberService.findMember();
     }
 
+    /**
+     * 앞에서부터 limit 명(최대 MemberService.MAX_PAGE_SIZE)의 이름만, 더 있으면 hasNext=true
+     * 전체 목록은 v3(offset) 또는 v4(keyset) 페이징으로 조회한다
+     */
+    @Deprecated
     @GetMapping("api/v2/members")
-    public Result membersV2() { // 리스트를 json 반환할때는 한번 감싸서 반환 이렇게 안하면 유연성이 떨어짐
-        List<Member> findMembers = memberService.findMember();
-        List<MemberDto> collect = findMembers.stream()
-                .map(m -> new MemberDto(m.getName()))
+    public Result membersV2(@RequestParam(defaultValue = "100") int limit) { // 리스트를 json 반환할때는 한번 감싸서 반환 이렇게 안하면 유연성이 떨어짐
+        Slice<String> names = memberService.findMemberNames(limit); // 이름 컬럼만 조회
+        List<MemberDto> collect = names.stream()
+                .map(MemberDto::new)
                 .collect(Collectors.toList());
 
-        return new Result(collect.size(), collect);
+        return new Result(collect.size(), names.hasNext(), collect);
+    }
+
+    /**
+     * offset 페이징 (page, size, sort), count 쿼리 없이 Slice 로 다음 페이지 여부만 알려준다
+     * totalCount 는 캐시된 추정값
+     */
+    @GetMapping("api/v3/members")
+    public PageResult<MemberListDto> membersV3(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        Slice<MemberListDto> slice = memberService.findMemberSlice(pageable);
+        return new PageResult<>(memberService.countMembers(), slice.getNumber(), slice.getSize(), slice.hasNext(), slice.getContent());
+    }
+
+    /**
+     * keyset 페이징, 응답의 nextAfterId 를 다음 요청의 afterId 로 넘긴다 -> 몇 번째 페이지든 같은 비용
+     */
+    @GetMapping("api/v4/members")
+    public KeysetResult<MemberListDto> membersV4(@RequestParam(required = false) Long afterId,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        Slice<MemberListDto> slice = memberService.findMembersAfter(afterId, size);
+        List<MemberListDto> content = slice.getContent();
+        Long nextAfterId = slice.hasNext() ? content.get(content.size() - 1).getId() : null;
+        return new KeysetResult<>(memberService.countMembers(), slice.getSize(), slice.hasNext(), nextAfterId, content);
     }
 
     @Data
     @AllArgsConstructor
     static class Result<T> {
         private int count;
+        private boolean hasNext;
         private T data;
     }
 
+    @Data
+    @AllArgsConstructor
+    static class KeysetResult<T> {
+        private long totalCount;
+        private int size;
+        private boolean hasNext;
+        private Long nextAfterId;
+        private List<T> data;
+    }
+
     @Data
     @AllArgsConstructor
     static class MemberDto {
@@ -0,0 +1,179 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.Controller.OrderListRowCache;
+import jpabook.jpashop.datasource.DataSourceRouteStatistics;
+import jpabook.jpashop.monitoring.MetricsRegistry;
+import jpabook.jpashop.monitoring.SessionStatistics;
+import jpabook.jpashop.monitoring.SqlStatisticsListener;
+import jpabook.jpashop.monitoring.StartupReport;
+import jpabook.jpashop.monitoring.StatementBudgetInterceptor;
+import jpabook.jpashop.outbox.OutboxDispatcher;
+import jpabook.jpashop.repository.archive.OrderArchiveBounds;
+import jpabook.jpashop.service.batch.OrderGroupCommitter;
+import jpabook.jpashop.service.view.OrderViewProjector;
+import jpabook.jpashop.repository.support.CountCache;
+import jpabook.jpashop.repository.support.QueryCoalescer;
+import jpabook.jpashop.service.limit.ConcurrencyLimiters;
+import jpabook.jpashop.service.query.OrderLoadingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 내부 운영용 조회 api
+ * 외부에 노출하지 않는 것을 전제로 한다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MonitoringApiController {
+
+    private final QueryCoalescer queryCoalescer;
+    private final ConcurrencyLimiters concurrencyLimiters;
+    private final MetricsRegistry metricsRegistry;
+    private final StatementBudgetInterceptor statementBudgetInterceptor;
+    private final SqlStatisticsListener sqlStatisticsListener;
+    private final DataSourceRouteStatistics dataSourceRouteStatistics;
+    private final OrderArchiveBounds orderArchiveBounds;
+    private final OutboxDispatcher outboxDispatcher;
+    private final OrderViewProjector orderViewProjector;
+    private final OrderGroupCommitter orderGroupCommitter;
+    private final CountCache countCache;
+    private final OrderListRowCache orderListRowCache;
+    private final OrderLoadingService orderLoadingService;
+    private final StartupReport startupReport;
+    private final SessionStatistics sessionStatistics;
+
+    /**
+     * 지연시간 p50/p99/p999
+     * prefix: http. , repository. , transaction. , jdbc.
+     */
+    @GetMapping("internal/metrics")
+    public Map<String, Map<String, Object>> metrics(@RequestParam(value = "prefix", required = false) String prefix) {
+        return metricsRegistry.snapshot(prefix);
+    }
+
+    /**
+     * 엔드포인트별 요청당 sql 실행 수와 예산 초과 횟수
+     */
+    @GetMapping("internal/statements")
+    public Map<String, Map<String, Object>> statements() {
+        return statementBudgetInterceptor.snapshot();
+    }
+
+    /**
+     * 하이버네이트 세션 통계 상위 n 개 (jpashop.session-stats.sample-rate 비율의 요청/트랜잭션만)
+     * by: endpoint(기본), transaction
+     * sort: entityLoads(기본), collectionFetches, flushes, cacheMisses, statements, count
+     */
+    @GetMapping("internal/session-stats")
+    public Map<String, Object> sessionStats(@RequestParam(value = "by", defaultValue = "endpoint") String by,
+                                            @RequestParam(value = "n", defaultValue = "20") int n,
+                                            @RequestParam(value = "sort", defaultValue = "entityLoads") String sort) {
+        return sessionStatistics.top(by, n, sort);
+    }
+
+    /**
+     * sql 모양별 실행 통계 상위 n 개
+     * sort: total(누적시간, 기본), count, max, p99
+     */
+    @GetMapping("internal/sql/top")
+    public List<Map<String, Object>> sqlTop(@RequestParam(value = "n", defaultValue = "20") int n,
+                                            @RequestParam(value = "sort", defaultValue = "total") String sort) {
+        return sqlStatisticsListener.top(n, sort);
+    }
+
+    /**
+     * 기준시간(jpashop.sql.slow-threshold-ms)보다 느렸던 최근 쿼리와 바인딩 값
+     */
+    @GetMapping("internal/sql/slow")
+    public List<SqlStatisticsListener.SlowQuery> sqlSlow() {
+        return sqlStatisticsListener.slowQueries();
+    }
+
+    /**
+     * 풀(primary, replica-N)별 커넥션 획득 수, sql 실행 수와 비율
+     */
+    @GetMapping("internal/datasource")
+    public Map<String, Map<String, Object>> datasource() {
+        return dataSourceRouteStatistics.snapshot();
+    }
+
+    /**
+     * 보관 테이블에 들어 있는 주문일 범위
+     */
+    @GetMapping("internal/archive")
+    public Map<String, Object> archive() {
+        return orderArchiveBounds.snapshot();
+    }
+
+    /**
+     * 아웃박스 컨슈머별 처리 위치와 밀린 이벤트 수
+     */
+    @GetMapping("internal/outbox")
+    public Map<String, Map<String, Object>> outbox() {
+        return outboxDispatcher.snapshot();
+    }
+
+    @GetMapping("internal/order-view")
+    public Map<String, Object> orderView() {
+        return orderViewProjector.snapshot();
+    }
+
+    /**
+     * order_view 를 원본(orders, orders_archive)에서 다시 만든다 (복구용)
+     */
+    @PostMapping("internal/order-view/rebuild")
+    public Map<String, Object> rebuildOrderView() {
+        orderViewProjector.rebuild();
+        return orderViewProjector.snapshot();
+    }
+
+    /**
+     * 주문 묶음 커밋: 묶음 수, 평균 묶음 크기, 따로 다시 실행한 횟수
+     */
+    @GetMapping("internal/group-commit")
+    public Map<String, Object> groupCommit() {
+        return orderGroupCommitter.snapshot();
+    }
+
+    @GetMapping("internal/order-list-cache")
+    public Map<String, Object> orderListCache() {
+        return orderListRowCache.snapshot();
+    }
+
+    /**
+     * v7 주문 조회 방식별 선택 횟수, 지연시간, 예상 대비 실제 비율과 비용 모델 상태
+     */
+    @GetMapping("internal/order-loading")
+    public Map<String, Object> orderLoading() {
+        return orderLoadingService.snapshot();
+    }
+
+    @GetMapping("internal/count-cache")
+    public Map<String, Map<String, Object>> countCache() {
+        return countCache.snapshot();
+    }
+
+    @GetMapping("internal/coalescing")
+    public Map<String, Map<String, Object>> coalescing() {
+        return queryCoalescer.snapshot();
+    }
+
+    @GetMapping("internal/limiters")
+    public Map<String, Map<String, Object>> limiters() {
+        return concurrencyLimiters.snapshot();
+    }
+
+    /**
+     * 기동 단계 시작 순서대로 + 자기 시간이 긴 빈 상위 n 개, 준비 완료 시간과 힙
+     */
+    @GetMapping("internal/startup")
+    public Map<String, Object> startup(@RequestParam(value = "n", defaultValue = "20") int n) {
+        return startupReport.snapshot(n);
+    }
+}
@@ -1,32 +1,53 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import jpabook.jpashop.domain.*;
+import jpabook.jpashop.repository.OrderFetchPlan;
 import jpabook.jpashop.repository.OrderRepository;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
-import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.batch.OrderBulkCanceler;
+import jpabook.jpashop.service.query.OrderLoadingService;
 import jpabook.jpashop.service.query.OrderQueryService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.*;
-
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderService orderService;
+    private final OrderLoadingService orderLoadingService;
+    private final OrderBulkCanceler orderBulkCanceler;
 
     /**
      * v1 엔티티 직접노출
@@ -123,6 +144,44 @@ public class OrderApiController {
         return new Result(result);
     }
 
+    /**
+     * v3.2 조회 계획(entity graph) 선택
+     * v3.1 과 같은 방식(xToOne 조인 + 컬렉션 배치 로딩)을 메서드를 새로 만들지 않고 검색조건과 조합해서 쓴다.
+     * plan=SUMMARY 는 member, delivery 까지, DETAIL 은 주문상품까지 미리 올린다.
+     * 이름과 경로를 섞어 조합할 수 있다 -> plan=member,orderItems.item
+     * Query: DETAIL 기준 주문 1번, orderItems 1번, item 1번 (페이지 크기 100 이하)
+     */
+    @GetMapping("api/v3.2/orders")
+    public Result orderV3_plan(@ModelAttribute OrderSearch orderSearch,
+                               @RequestParam(value = "plan", defaultValue = "DETAIL") OrderFetchPlan plan,
+                               @RequestParam(value = "offset", defaultValue = "0") int offset,
+                               @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<Order> orders = orderService.findOrders(orderSearch, plan, offset, limit);
+        List<OrderDto> result = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+
+        return new Result(result);
+    }
+
+    /**
+     * v3.3 검색 (상태 여러개, 주문일, 상품 id/이름, 최소 금액, 배송 상태) + 페이지
+     * 목록은 size + 1 개만 읽고, totalCount 는 검색조건별로 캐시된 건수(추정값)
+     * 검색은 orders 테이블만 본다 -> 주문일 범위가 보관된 주문과 겹치면 archiveExcluded = true (보관 주문은 v4~v7 로 조회)
+     */
+    @GetMapping("api/v3.3/orders")
+    public SearchResult<OrderDto> orderV3_search(@ModelAttribute OrderSearch orderSearch,
+                                                 @RequestParam(value = "page", defaultValue = "0") int page,
+                                                 @RequestParam(value = "size", defaultValue = "20") int size) {
+        Slice<Order> slice = orderService.searchOrders(orderSearch, OrderFetchPlan.DETAIL, page, size);
+        List<OrderDto> result = slice.getContent().stream()
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+        return new SearchResult<>(
+                new PageResult<>(orderService.countOrders(orderSearch), slice.getNumber(), slice.getSize(), slice.hasNext(), result),
+                orderService.excludesArchive(orderSearch));
+    }
+
     /**
      * v4 jpa에서 dto 직접조회
      * Query: 루트 1번, 컬렉션 N 번 실행
@@ -132,10 +191,12 @@ public class OrderApiController {
      * ToMany(1:N) 관계는 조인하면 row 수가 증가한다.
      * row 수가 증가하지 않는 ToOne 관계는 조인으로 최적화 하기 쉬우므로 한번에 조회하고,
      * ToMany 관계는 최적화 하기 어려우므로 findOrderItems() 같은 별도의 메서드로 조회한다.
+     * v4~v6 은 from, to(주문일, yyyy-MM-dd) 로 범위를 줄 수 있다. 범위가 보관된 주문과 겹칠 때만 보관 테이블도 조회한다.
      */
     @GetMapping("api/v4/orders")
-    public Result ordersV4() {
-       return new Result(orderQueryRepository.findOrderQueryDtos());
+    public Result ordersV4(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                          @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+       return new Result(orderQueryRepository.findOrderQueryDtos(OrderDateRange.ofDates(from, to)));
     }
 
     /**
@@ -146,13 +207,15 @@ public class OrderApiController {
      * MAP을 사용해서 매칭 성능 향상(O(1))
      */
     @GetMapping("api/v5/orders")
-    public Result ordersV5() {
-        return new Result(orderQueryRepository.findAllByDto_optimization());
+    public Result ordersV5(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                          @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return new Result(orderQueryRepository.findAllByDto_optimization(OrderDateRange.ofDates(from, to)));
     }
 
     /**
      * v6
-     * groupingBy 할때 OrderQueryDto에 @EqualsAndHashCode(of="orderId") 어떤것으로 묶을지 알려주는 것
+     * 주문상품 행을 OrderFlatColumns 로 받는다: 주문 정보는 주문마다 한번, 문자열/주소는 사전으로 중복 제거
+     * 행마다 dto 를 만들어 groupingBy 하지 않고 주문별로 모인 열을 그대로 json 으로 쓴다
      *
      * Query: 1번
      * 단점
@@ -162,17 +225,81 @@ public class OrderApiController {
      * 페이징 불가능
      */
     @GetMapping("api/v6/orders")
-    public Result ordersV6() {
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-        List<OrderQueryDto> collect = flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
-                .collect(toList());
+    public Result ordersV6(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                          @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return new Result(orderQueryRepository.findFlatColumns(OrderDateRange.ofDates(from, to)));
+    }
 
+    /**
+     * v7 v3.1, v5, v6 조인 조회와 order_view(읽기가 켜져 있을 때) 중 요청마다 예상 비용이 가장 싼 방식으로 조회 (OrderLoadingService)
+     * 주문 수, 주문당 상품 수가 바뀌면 고르는 방식도 바뀐다.
+     */
+    @GetMapping("api/v7/orders")
+    public Result ordersV7(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                          @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return new Result(orderLoadingService.findOrders(OrderDateRange.ofDates(from, to)));
+    }
 
-        return new Result(collect);
+    /**
+     * 주문상품 단위 csv 내보내기
+     * scanFlat(StatelessSession 스캔)으로 읽는 대로 바로 쓴다 -> 주문 수와 상관없이 힙을 쓰지 않는다.
+     */
+    @GetMapping("api/v1/orders/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        OrderDateRange range = OrderDateRange.ofDates(from, to);
+        StreamingResponseBody body = out -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("orderId,name,orderDate,orderStatus,city,street,zipcode,itemName,orderPrice,count\n");
+            orderQueryRepository.scanFlat(range, 0, o -> {
+                try {
+                    Address address = o.getAddress();
+                    writer.write(o.getOrderId() + "," + csv(o.getName()) + "," + o.getOrderDate() + "," + o.getOrderStatus() + ","
+                            + csv(address == null ? null : address.getCity()) + "," + csv(address == null ? null : address.getStreet()) + ","
+                            + csv(address == null ? null : address.getZipcode()) + "," + csv(o.getItemName()) + ","
+                            + o.getOrderPrice() + "," + o.getCount() + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=orders.csv")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    /**
+     * 주문 일괄 취소 (id 목록), 배송 완료/없는 주문은 건너뛰고 결과로 알려준다
+     */
+    @PostMapping("api/v1/orders/cancel")
+    public OrderBulkCanceler.Result cancelOrders(@RequestBody @Valid BulkCancelOrdersRequest request) {
+        return orderBulkCanceler.cancel(request.getOrderIds());
+    }
+
+    /**
+     * 주문 일괄 취소 (검색 조건, v3.3 검색과 같은 조건), 조건이 하나도 없으면 거절
+     */
+    @PostMapping("api/v1/orders/cancel/search")
+    public OrderBulkCanceler.Result cancelOrders(@RequestBody OrderSearch orderSearch) {
+        return orderBulkCanceler.cancel(orderSearch);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @Data
+    static class BulkCancelOrdersRequest {
+        @NotEmpty
+        private List<@NotNull Long> orderIds;
     }
 
     @Data
@@ -181,6 +308,17 @@ public class OrderApiController {
         private T data;
     }
 
+    /**
+     * 페이지 필드는 그대로 펼쳐서 내보내고 보관 주문 제외 여부만 더한다
+     */
+    @Getter
+    @AllArgsConstructor
+    static class SearchResult<T> {
+        @JsonUnwrapped
+        private PageResult<T> page;
+        private boolean archiveExcluded;
+    }
+
 
     @Getter
     static class OrderDto {
@@ -0,0 +1,20 @@
+package jpabook.jpashop.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * offset 페이징 응답 (회원 v3, 주문 v3.3 검색)
+ * totalCount 는 캐시된 추정값일 수 있다
+ */
+@Data
+@AllArgsConstructor
+public class PageResult<T> {
+    private long totalCount;
+    private int page;
+    private int size;
+    private boolean hasNext;
+    private List<T> data;
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.datasource;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 풀(primary, replica-N)별 커넥션 획득 수와 sql 실행 수, 전체 대비 비율
+ * replica 설정이 없으면 전부 primary 로 집계된다.
+ */
+@Component
+public class DataSourceRouteStatistics extends SimpleJdbcEventListener {
+
+    private final Map<String, LongAdder> connections = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> statements = new ConcurrentHashMap<>();
+
+    void connectionAcquired(String route) {
+        connections.computeIfAbsent(route, r -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        statements.computeIfAbsent(ReplicaRoutingDataSource.currentRoute(), r -> new LongAdder()).increment();
+    }
+
+    public long statements(String route) {
+        LongAdder count = statements.get(route);
+        return count == null ? 0 : count.sum();
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        long total = statements.values().stream().mapToLong(LongAdder::sum).sum();
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        statements.forEach((route, count) -> {
+            Map<String, Object> map = new TreeMap<>();
+            map.put("statements", count.sum());
+            map.put("connections", connections.getOrDefault(route, new LongAdder()).sum());
+            map.put("statementShare", total == 0 ? 0.0 : (double) count.sum() / total);
+            result.put(route, map);
+        });
+        return result;
+    }
+}
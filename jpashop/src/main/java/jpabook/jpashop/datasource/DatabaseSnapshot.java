@@ -0,0 +1,226 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 빠른 기동: 스키마 + 초기 데이터를 h2 스크립트(gzip) 스냅샷에서 한번에 복원한다
+ * 빈 db 로 기동할 때마다 flyway 마이그레이션 + InitDb 가 엔티티를 한 건씩 넣는 대신 RUNSCRIPT 한번으로 끝난다.
+ * 스냅샷 파일 이름에 모델 해시(flyway 스크립트, @Entity/@Embeddable 클래스, 초기 데이터 클래스의 바이트코드)를 넣어서
+ * 셋 중 하나라도 바뀌면 파일이 없는 것으로 보고 평소처럼 만든 뒤 기동이 끝나면 새 스냅샷을 남긴다.
+ * 이미 테이블이 있는 db(flyway 이력이 있는 db, 예전에 ddl-auto 로 만든 db)는 건드리지 않고 평소처럼 마이그레이션만 한다.
+ */
+@Slf4j
+@Component
+public class DatabaseSnapshot implements FlywayMigrationStrategy {
+
+    private static final String FILE_PREFIX = "jpashop-";
+    private static final String FILE_SUFFIX = ".sql.gz";
+    private static final String[] SEED_CLASSES = {"jpabook.jpashop.InitDb", "jpabook.jpashop.InitDb$InitService"};
+
+    private final DataSource dataSource;
+    private final ApplicationStartup applicationStartup;
+    private final boolean enabled;
+    private final Path directory;
+
+    @Getter
+    private volatile boolean fresh; // 테이블 하나 없는 빈 db 에서 시작했으면 InitDb 가 초기 데이터를 넣는다
+    @Getter
+    private volatile boolean restored; // 스냅샷에서 복원했으면 InitDb 는 건너뛴다
+    private volatile boolean created; // 빈 db 에 처음부터 만들었으면 기동 후 스냅샷을 남긴다
+    private volatile String modelHash;
+
+    public DatabaseSnapshot(DataSource dataSource,
+                            ApplicationStartup applicationStartup,
+                            @Value("${jpashop.snapshot.enabled:false}") boolean enabled,
+                            @Value("${jpashop.snapshot.directory:build/db-snapshot}") String directory) {
+        this.dataSource = dataSource;
+        this.applicationStartup = applicationStartup;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+    }
+
+    @Override
+    public void migrate(Flyway flyway) {
+        StartupStep step = applicationStartup.start("jpashop.flyway.migrate");
+        try {
+            DataSource target = flyway.getConfiguration().getDataSource();
+            fresh = isEmpty(target);
+            restored = enabled && fresh && restore(target);
+            created = enabled && fresh && !restored;
+            // 복원했으면 이력이 같이 들어와서 적용할 스크립트가 없다
+            int applied = flyway.migrate().migrationsExecuted;
+            step.tag("source", restored ? "snapshot" : "migration")
+                    .tag("migrations", String.valueOf(applied));
+        } finally {
+            step.end();
+        }
+    }
+
+    /**
+     * 현재 모델 해시의 스냅샷이 있으면 복원하고 true
+     */
+    public boolean restore(DataSource target) {
+        Path file = snapshotFile();
+        if (!Files.exists(file)) {
+            log.info("db 스냅샷 없음 {}, 마이그레이션과 초기 데이터로 만든다", file);
+            return false;
+        }
+        long start = System.nanoTime();
+        new JdbcTemplate(target).execute("runscript from '" + sqlPath(file) + "' compression gzip");
+        log.info("db 스냅샷 복원 {}, {}ms", file, (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    /**
+     * 기동(InitDb, order_view 재생성 등)이 다 끝난 뒤 스냅샷을 남긴다
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void writeIfCreated() {
+        if (created) {
+            write(dataSource);
+            created = false;
+        }
+    }
+
+    /**
+     * 임시 파일에 쓰고 이름을 바꾼다 -> 동시에 기동한 다른 프로세스가 쓰다 만 파일을 읽지 않는다
+     * 모델 해시가 다른 예전 스냅샷은 지운다.
+     */
+    public Path write(DataSource source) {
+        Path file = snapshotFile();
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+            Files.delete(temp); // h2 가 직접 만든다
+            long start = System.nanoTime();
+            new JdbcTemplate(source).execute("script to '" + sqlPath(temp) + "' compression gzip");
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path old : files.filter(p -> isSnapshot(p) && !p.equals(file)).collect(Collectors.toList())) {
+                    Files.deleteIfExists(old);
+                }
+            }
+            log.info("db 스냅샷 저장 {} ({}KB), {}ms", file, Files.size(file) / 1024, (System.nanoTime() - start) / 1_000_000);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("db 스냅샷 저장 실패: " + file, e);
+        }
+    }
+
+    public Path snapshotFile() {
+        return directory.resolve(FILE_PREFIX + modelHash() + FILE_SUFFIX);
+    }
+
+    /**
+     * flyway 스크립트 + @Entity/@Embeddable 클래스 + 초기 데이터 클래스 바이트코드의 sha-256 앞 16자리
+     */
+    public String modelHash() {
+        if (modelHash == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+                List<Resource> migrations = new ArrayList<>(Arrays.asList(resolver.getResources("classpath*:db/migration/*.sql")));
+                migrations.sort(Comparator.comparing(Resource::getFilename));
+                for (Resource migration : migrations) {
+                    update(digest, migration.getFilename(), migration.getInputStream());
+                }
+                for (String className : modelClasses()) {
+                    update(digest, className, resolver.getClassLoader().getResourceAsStream(className.replace('.', '/') + ".class"));
+                }
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest.digest()) {
+                    hex.append(String.format("%02x", b));
+                }
+                modelHash = hex.substring(0, 16);
+            } catch (IOException e) {
+                throw new UncheckedIOException("모델 해시 계산 실패", e);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return modelHash;
+    }
+
+    private static TreeSet<String> modelClasses() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                return true; // 추상 엔티티(Item)도 포함
+            }
+        };
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Embeddable.class));
+        TreeSet<String> classes = scanner.findCandidateComponents("jpabook.jpashop").stream()
+                .map(BeanDefinition::getBeanClassName)
+                .collect(Collectors.toCollection(TreeSet::new));
+        classes.addAll(Arrays.asList(SEED_CLASSES));
+        return classes;
+    }
+
+    private static void update(MessageDigest digest, String name, InputStream in) throws IOException {
+        digest.update(name.getBytes());
+        if (in != null) {
+            try (InputStream input = in) {
+                digest.update(StreamUtils.copyToByteArray(input));
+            }
+        }
+    }
+
+    /**
+     * 현재 스키마에 테이블이 하나도 없으면 빈 db (flyway 이력이 없어도 ddl-auto 로 만든 테이블이 있으면 빈 db 가 아니다)
+     */
+    private static boolean isEmpty(DataSource target) {
+        Integer tables = new JdbcTemplate(target).queryForObject(
+                "select count(*) from information_schema.tables where table_schema = schema() and table_type = 'TABLE'", Integer.class);
+        return tables == null || tables == 0;
+    }
+
+    private static boolean isSnapshot(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+    }
+
+    private static String sqlPath(Path file) {
+        return file.toAbsolutePath().toString().replace("'", "''");
+    }
+}
@@ -0,0 +1,83 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 자기가 방금 쓴 데이터는 복제 지연과 상관없이 보이도록
+ * 쓰기 트랜잭션이 커넥션을 얻으면 마지막 쓰기 시각을 쿠키로 내려주고,
+ * 이 쿠키가 window 안이면 읽기 전용 트랜잭션도 primary 로 보낸다.
+ * 로그인이 없어서 회원 대신 클라이언트(쿠키) 단위로 구분한다. 서버에 따로 저장하는 상태는 없다.
+ */
+public class ReadYourWrites {
+
+    static final String COOKIE_NAME = "jpashop-last-write";
+    private static final String REQUEST_ATTRIBUTE = ReadYourWrites.class.getName() + ".lastWrite";
+
+    private final long windowMillis;
+
+    public ReadYourWrites(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void markWrite() {
+        ServletRequestAttributes attributes = currentRequest();
+        if (attributes == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        attributes.setAttribute(REQUEST_ATTRIBUTE, now, RequestAttributes.SCOPE_REQUEST);
+
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (windowMillis + 999) / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    public boolean isRecentWriter() {
+        ServletRequestAttributes attributes = currentRequest();
+        if (attributes == null || windowMillis <= 0) {
+            return false;
+        }
+        Object sameRequest = attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (sameRequest != null) {
+            return true;
+        }
+        return withinWindow(lastWriteCookie(attributes.getRequest()));
+    }
+
+    private boolean withinWindow(long lastWrite) {
+        return lastWrite > 0 && System.currentTimeMillis() - lastWrite <= windowMillis;
+    }
+
+    private long lastWriteCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private ServletRequestAttributes currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? (ServletRequestAttributes) attributes : null;
+    }
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * jpashop.datasource.replica.urls 가 있을때만 읽기/쓰기 분리
+ * 풀은 빈으로 등록하지 않는다 -> p6spy 가 안쪽 풀과 바깥 DataSource 를 두번 감싸지 않도록
+ * primary 는 spring.datasource.*, spring.datasource.hikari.* 설정을 그대로 쓰고
+ * replica 는 url 만 다르고 계정/풀 설정은 primary 와 같다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.replica", name = "urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 DataSourceRouteStatistics statistics, ReadYourWrites readYourWrites,
+                                 @Value("${jpashop.datasource.replica.urls}") List<String> replicaUrls) {
+        HikariDataSource primary = createPool(properties, environment, properties.determineUrl(), ReplicaRoutingDataSource.PRIMARY);
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(createPool(properties, environment, replicaUrls.get(i), "replica-" + i));
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, readYourWrites, statistics);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    /**
+     * 라우팅과 조회 합치기(QueryCoalescer)가 같은 판단을 쓴다
+     */
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${jpashop.datasource.read-your-writes-window-ms:2000}") long readYourWritesWindowMillis) {
+        return new ReadYourWrites(readYourWritesWindowMillis);
+    }
+
+    /**
+     * 기본값(HOLD)이면 OSIV 세션이 요청 끝까지 처음 얻은 커넥션을 잡고 있어서
+     * 읽기 전용 트랜잭션 다음의 쓰기가 replica 커넥션으로 나갈 수 있다 -> 트랜잭션마다 커넥션을 반납하고 새로 라우팅
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandlingCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private HikariDataSource createPool(DataSourceProperties properties, Environment environment, String url, String poolName) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+}
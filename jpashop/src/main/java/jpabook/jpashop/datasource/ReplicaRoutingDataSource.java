@@ -0,0 +1,87 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 replica 로, 나머지는 primary 로 보내는 DataSource
+ * replica 가 여러개면 돌아가면서 보낸다.
+ * LazyConnectionDataSourceProxy 는 p6spy 가 커넥션을 받자마자 getMetaData 를 호출해서 쓸 수 없다 -> TransactionRouting
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<String> currentRoute = ThreadLocal.withInitial(() -> PRIMARY);
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final Map<Object, Object> targets = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ReadYourWrites readYourWrites;
+    private final DataSourceRouteStatistics statistics;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    ReadYourWrites readYourWrites, DataSourceRouteStatistics statistics) {
+        this.readYourWrites = readYourWrites;
+        this.statistics = statistics;
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            targets.put(key, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * 지금 스레드가 마지막으로 커넥션을 얻은 풀 이름 (통계용)
+     */
+    public static String currentRoute() {
+        return currentRoute.get();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String route = route();
+        currentRoute.set(route);
+        statistics.connectionAcquired(route);
+        return route;
+    }
+
+    /**
+     * 트랜잭션 밖(OSIV 지연로딩 등)은 primary, 쓰기 트랜잭션은 primary + 쓰기 시각 기록
+     * 커밋 전에 기록하므로 롤백되어도 잠깐 primary 로 읽을 뿐이다.
+     */
+    private String route() {
+        Boolean readOnly = TransactionRouting.current();
+        if (readOnly == null) {
+            return PRIMARY;
+        }
+        if (!readOnly) {
+            readYourWrites.markWrite();
+            return PRIMARY;
+        }
+        if (replicaKeys.isEmpty() || readYourWrites.isRecentWriter()) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Object target : targets.values()) {
+            if (target instanceof Closeable) {
+                ((Closeable) target).close();
+            }
+        }
+    }
+}
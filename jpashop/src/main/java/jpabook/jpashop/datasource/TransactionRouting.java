@@ -0,0 +1,33 @@
+package jpabook.jpashop.datasource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 지금 스레드에서 시작 중/진행 중인 트랜잭션의 readOnly 여부
+ * TransactionSynchronizationManager 의 readOnly 는 doBegin 이 끝난 뒤에 설정되는데
+ * 커넥션은 doBegin 안에서 얻기 때문에 트랜잭션 매니저가 doBegin 전에 직접 넣어준다. (MetricsJpaTransactionManager)
+ * REQUIRES_NEW 로 중첩될 수 있어서 스택으로 관리한다.
+ */
+public final class TransactionRouting {
+
+    private static final ThreadLocal<Deque<Boolean>> readOnly = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private TransactionRouting() {
+    }
+
+    public static void begin(boolean transactionReadOnly) {
+        readOnly.get().push(transactionReadOnly);
+    }
+
+    public static void end() {
+        readOnly.get().poll();
+    }
+
+    /**
+     * 트랜잭션 밖이면 null
+     */
+    public static Boolean current() {
+        return readOnly.get().peek();
+    }
+}
@@ -40,6 +40,12 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;//주문상태 [ORDER, CANCEL]
 
+    @Setter(AccessLevel.NONE)
+    private int totalPrice; // 주문상품 금액 합계, 주문상품을 추가할 때 같이 더한다 (최소 금액 검색 인덱스용)
+
+    @Version
+    private Long version; // 변경될 때마다 올라간다, 목록 화면 행 캐시 키로 쓴다
+
     //==연관관계 편의 메서드==// 양방향일 때 쓰면 좋음 양쪽에 세팅할 내용을 한쪽에서 해결
     public void setMember(Member member) {
         this.member = member;
@@ -48,6 +54,7 @@ public class Order {
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
         orderItem.setOrder(this);
+        totalPrice += orderItem.getTotalPrice();
     }
     public void setDelivery(Delivery delivery) {
         this.delivery = delivery;
@@ -87,11 +94,10 @@ public class Order {
 
     /**
      * 전체 주문 가격 조회
+     * 저장된 합계를 쓴다 -> 주문상품을 읽지 않는다
      */
     public int getTotalPrice() {
-        return orderItems.stream()
-                .mapToInt(OrderItem::getTotalPrice)
-                .sum();
+        return totalPrice;
     }
     // 위 와 같은 내용
 //    public int getTotalPrice() {
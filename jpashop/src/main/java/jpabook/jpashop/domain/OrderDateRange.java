@@ -0,0 +1,62 @@
+package jpabook.jpashop.domain;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 주문일시 조회 범위 [from, to)
+ * from, to 가 null 이면 그쪽은 제한 없음
+ * 검색조건 키(조회 합치기, 건수 캐시)에 들어가므로 값이 같으면 같고 toString 도 같다
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class OrderDateRange {
+
+    private static final OrderDateRange ALL = new OrderDateRange(null, null);
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private OrderDateRange(LocalDateTime from, LocalDateTime to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public static OrderDateRange all() {
+        return ALL;
+    }
+
+    public static OrderDateRange between(LocalDateTime from, LocalDateTime to) {
+        return new OrderDateRange(from, to);
+    }
+
+    /**
+     * 날짜로 받을때는 종료일 당일까지 포함
+     */
+    public static OrderDateRange ofDates(LocalDate fromDate, LocalDate toDate) {
+        return new OrderDateRange(
+                fromDate == null ? null : fromDate.atStartOfDay(),
+                toDate == null ? null : toDate.plusDays(1).atStartOfDay());
+    }
+
+    public static OrderDateRange lastDays(int days) {
+        return new OrderDateRange(LocalDateTime.now().minusDays(days), null);
+    }
+
+    public boolean isUnbounded() {
+        return from == null && to == null;
+    }
+
+    /**
+     * [min, max] 구간의 데이터와 겹칠 수 있는지
+     */
+    public boolean overlaps(LocalDateTime min, LocalDateTime max) {
+        return (from == null || !max.isBefore(from))
+                && (to == null || min.isBefore(to));
+    }
+}
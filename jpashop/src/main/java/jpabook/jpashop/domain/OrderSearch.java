@@ -2,10 +2,41 @@ package jpabook.jpashop.domain;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 @Getter @Setter
 public class OrderSearch {
 
     private String memberName;//회원이름
     private OrderStatus orderStatus; // 주문 상태[ORDER, CANCEL]
+    private Set<OrderStatus> orderStatuses; // 여러 상태 중 하나 (orderStatus 와 같이 주면 둘 다 만족)
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate orderDateFrom; // 주문일 시작 (포함)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate orderDateTo; // 주문일 끝 (포함)
+
+    private Long itemId; // 이 상품을 포함한 주문
+    private String itemName; // 상품명이 이걸로 시작하는 상품을 포함한 주문
+    private Integer minTotalPrice; // 주문 금액 합계 이상
+    private DeliveryStatus deliveryStatus; // 배송 상태[READY, COMP]
+
+    public OrderDateRange getDateRange() {
+        return OrderDateRange.ofDates(orderDateFrom, orderDateTo);
+    }
+
+    /**
+     * 같은 검색인지 비교하는 키 (조회 합치기, 건수 캐시)
+     */
+    public List<Object> conditions() {
+        // 상태 집합은 넣은 순서와 상관없이 같은 키가 되도록 enum 순서로
+        Set<OrderStatus> statuses = orderStatuses == null || orderStatuses.isEmpty() ? orderStatuses : EnumSet.copyOf(orderStatuses);
+        return Arrays.asList(memberName, orderStatus, statuses, getDateRange(), itemId, itemName, minTotalPrice, deliveryStatus);
+    }
 }
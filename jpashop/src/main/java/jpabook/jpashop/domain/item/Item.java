@@ -20,6 +20,7 @@ public abstract class Item {
     @Column(name = "item_id")
     private Long id;
 
+    private String sku; // 상품 코드(자연키), 카탈로그 일괄 등록시 upsert 기준
     private String name;
     private int price;
     private int stockQuantity;
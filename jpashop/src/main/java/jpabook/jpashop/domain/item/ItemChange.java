@@ -0,0 +1,18 @@
+package jpabook.jpashop.domain.item;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 상품 가격/재고 일괄 변경 한 건, null 인 값은 그대로 둔다
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ItemChange {
+
+    private final Long itemId;
+    private final Integer price;
+    private final Integer stockQuantity;
+}
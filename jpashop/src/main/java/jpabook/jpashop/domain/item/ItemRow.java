@@ -0,0 +1,33 @@
+package jpabook.jpashop.domain.item;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 상품 테이블 한 행 (카탈로그 일괄 등록용), 엔티티를 거치지 않고 jdbc batch 로 넣는다
+ * dtype 은 Book(B), Album(A), Movie(M) 의 DiscriminatorValue
+ * categories 가 null 이면 기존 카테고리 연결을 그대로 둔다
+ */
+@Getter @Setter
+@ToString
+public class ItemRow {
+
+    private Long itemId;
+    private String dtype;
+    private String sku;
+    private String name;
+    private int price;
+    private int stockQuantity;
+
+    private String author;
+    private String isbn;
+    private String artist;
+    private String etc;
+    private String director;
+    private String actor;
+
+    private List<String> categories;
+}
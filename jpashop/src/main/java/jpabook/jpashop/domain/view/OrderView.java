@@ -0,0 +1,65 @@
+package jpabook.jpashop.domain.view;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 조회용 비정규화 행 (주문 + 회원명 + 배송지 + 주문상품)
+ * 원본은 orders / orders_archive 이고 이 테이블은 언제든 다시 만들 수 있다.
+ */
+@Entity
+@Table(name = "order_view")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderView {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    private Long memberId;
+
+    private String memberName;
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address; // 배송지
+
+    @Lob
+    @Column(name = "order_lines")
+    private String lines; // OrderViewLine json 배열
+
+    private boolean archived; // orders_archive 로 옮겨진 주문
+
+    private LocalDateTime updatedAt;
+
+    public OrderView(Long orderId, Long memberId, String memberName, LocalDateTime orderDate,
+                     OrderStatus status, Address address, String lines, boolean archived) {
+        this.orderId = orderId;
+        this.memberId = memberId;
+        this.memberName = memberName;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.address = address;
+        this.lines = lines;
+        this.archived = archived;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.domain.view;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * order_view.order_lines 에 json 으로 들어가는 주문상품 한 줄
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderViewLine {
+
+    private Long itemId;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 카탈로그 일괄 등록을 파일 단위(atomic)로 할 때 잘못된 행이 있어서 전체를 되돌릴 때 사용
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ItemImportException extends RuntimeException{
+    public ItemImportException() {
+        super();
+    }
+
+    public ItemImportException(String message) {
+        super(message);
+    }
+
+    public ItemImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ItemImportException(Throwable cause) {
+        super(cause);
+    }
+}
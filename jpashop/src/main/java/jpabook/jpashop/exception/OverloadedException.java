@@ -0,0 +1,26 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 동시 처리 한도를 넘어서 대기시키지 않고 바로 거절할 때 사용
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OverloadedException extends RuntimeException{
+    public OverloadedException() {
+        super();
+    }
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+
+    public OverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OverloadedException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 요청 하나에서 실행한 sql 수가 설정한 예산을 넘었을 때 (N+1 감지)
+ */
+public class StatementBudgetExceededException extends RuntimeException{
+    public StatementBudgetExceededException() {
+        super();
+    }
+
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+
+    public StatementBudgetExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StatementBudgetExceededException(Throwable cause) {
+        super(cause);
+    }
+}
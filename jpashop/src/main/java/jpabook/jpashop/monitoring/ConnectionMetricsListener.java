@@ -0,0 +1,32 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * 커넥션 풀에서 커넥션을 얻는데 걸린 시간
+ * p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록해준다.
+ */
+@Component
+public class ConnectionMetricsListener extends JdbcEventListener {
+
+    private final LatencyHistogram acquisition;
+    private final LatencyHistogram failedAcquisition;
+
+    public ConnectionMetricsListener(MetricsRegistry metricsRegistry) {
+        this.acquisition = metricsRegistry.histogram("jdbc.connection.acquire");
+        this.failedAcquisition = metricsRegistry.histogram("jdbc.connection.acquire.failed");
+    }
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        if (e == null) {
+            acquisition.record(connectionInformation.getTimeToGetConnectionNs());
+        } else {
+            failedAcquisition.record(connectionInformation.getTimeToGetConnectionNs());
+        }
+    }
+}
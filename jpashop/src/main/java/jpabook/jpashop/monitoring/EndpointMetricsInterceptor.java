@@ -0,0 +1,61 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 컨트롤러 메서드별 처리시간 (뷰 렌더링 포함)
+ * 이름은 "http.컨트롤러.메서드" 로 남긴다.
+ * 시작 시각은 요청 속성(Long 박싱) 대신 스레드별 StartTimes 에 둔다 -> 요청마다 객체를 만들지 않는다.
+ * 비동기 처리는 요청 스레드를 반납할 때 꺼내서 버리고, 결과를 쓰는 재디스패치 시간만 잰다.
+ */
+@Component
+@RequiredArgsConstructor
+public class EndpointMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final ThreadLocal<StartTimes> startTimes = ThreadLocal.withInitial(StartTimes::new);
+
+    private final MetricsRegistry metricsRegistry;
+    private final Map<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            startTimes.get().push(histogram(((HandlerMethod) handler).getMethod()), System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StartTimes current = startTimes.get();
+        if (handler instanceof HandlerMethod && !current.isEmpty()) {
+            current.discard();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        StartTimes current = startTimes.get();
+        if (handler instanceof HandlerMethod && !current.isEmpty()) {
+            current.popAndRecord(System.nanoTime());
+        }
+    }
+
+    private LatencyHistogram histogram(Method method) {
+        LatencyHistogram histogram = histograms.get(method);
+        if (histogram != null) {
+            return histogram;
+        }
+        return histograms.computeIfAbsent(method, m ->
+                metricsRegistry.histogram("http." + m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+    }
+}
@@ -0,0 +1,139 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 고정 메모리 로그 버킷 히스토그램 (HdrHistogram 과 같은 방식)
+ * 2의 거듭제곱 구간마다 SUB_BUCKETS 개로 나눠서 상대오차가 약 3% 이내다.
+ * record 는 락을 잡지 않고 객체도 만들지 않는다 -> 요청 경로에서 바로 호출해도 된다.
+ * 단위는 나노초, 최대 약 18분(2^40ns)까지 기록하고 그 이상은 마지막 버킷에 넣는다.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * coordinated omission 보정 (HdrHistogram recordValueWithExpectedInterval)
+     * expectedIntervalNanos 마다 요청을 보내야 하는데 응답이 늦어서 보내지 못한 요청들이
+     * 겪었을 지연(nanos - interval, nanos - 2 * interval, ...)을 같이 기록한다.
+     */
+    public void recordCorrected(long nanos, long expectedIntervalNanos) {
+        record(nanos);
+        if (expectedIntervalNanos <= 0) {
+            return;
+        }
+        for (long missed = nanos - expectedIntervalNanos; missed >= expectedIntervalNanos; missed -= expectedIntervalNanos) {
+            record(missed);
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * percentile 은 0~100, 해당 버킷의 상한값을 반환 (max 보다 크지 않게)
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        return percentile(snapshot, total, percentile);
+    }
+
+    /**
+     * p50, p99, p999 를 한번에 계산 (버킷 배열을 한번만 읽는다)
+     */
+    public Map<String, Object> summary() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", total);
+        map.put("meanMillis", total == 0 ? 0.0 : toMillis(totalNanos.get() / total));
+        map.put("p50Millis", toMillis(percentile(snapshot, total, 50)));
+        map.put("p99Millis", toMillis(percentile(snapshot, total, 99)));
+        map.put("p999Millis", toMillis(percentile(snapshot, total, 99.9)));
+        map.put("maxMillis", toMillis(maxNanos.get()));
+        return map;
+    }
+
+    private long percentile(long[] snapshot, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (1L << (shift + SUB_BUCKET_BITS)) + ((long) subBucket << shift);
+        return lower + (1L << shift) - 1;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
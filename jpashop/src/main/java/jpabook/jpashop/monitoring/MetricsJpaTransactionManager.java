@@ -0,0 +1,75 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.datasource.TransactionRouting;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 물리 트랜잭션 시작(doBegin)부터 정리(doCleanupAfterCompletion)까지 걸린 시간
+ * 이름은 트랜잭션 이름(@Transactional 메서드)으로 남긴다. ex) transaction.OrderService.order
+ * REQUIRES_NEW 로 중첩되어도 같은 스레드에서 시작/종료 순서가 반대이므로 스택(StartTimes, 트랜잭션마다 할당 없음)으로 관리한다.
+ * 커넥션을 얻기 전에 readOnly 여부를 TransactionRouting 에 넣어서 replica 라우팅에 쓴다.
+ * 하이버네이트 세션 통계(SessionCounters)도 같은 시작/종료에 맞춰 트랜잭션별로 모은다.
+ */
+public class MetricsJpaTransactionManager extends JpaTransactionManager {
+
+    private static final ThreadLocal<StartTimes> running = ThreadLocal.withInitial(StartTimes::new);
+
+    private final transient MetricsRegistry metricsRegistry;
+    private final transient SessionStatistics sessionStatistics;
+    private final transient Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public MetricsJpaTransactionManager(EntityManagerFactory emf, MetricsRegistry metricsRegistry, SessionStatistics sessionStatistics) {
+        super(emf);
+        this.metricsRegistry = metricsRegistry;
+        this.sessionStatistics = sessionStatistics;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        TransactionRouting.begin(definition.isReadOnly());
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException | Error e) {
+            TransactionRouting.end();
+            throw e;
+        }
+        running.get().push(histogram(definition.getName()), System.nanoTime());
+        SessionCounters.beginTransaction(sessionStatistics.startTransaction(
+                definition.getName() == null ? null : shortName(definition.getName())));
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            TransactionRouting.end();
+            StartTimes startTimes = running.get();
+            if (!startTimes.isEmpty()) {
+                startTimes.popAndRecord(System.nanoTime());
+                sessionStatistics.recordTransaction(SessionCounters.endTransaction());
+            }
+        }
+    }
+
+    private LatencyHistogram histogram(String name) {
+        String key = name == null ? "unnamed" : name;
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        return histograms.computeIfAbsent(key, k -> metricsRegistry.histogram("transaction." + shortName(k)));
+    }
+
+    // jpabook.jpashop.service.OrderService.order -> OrderService.order
+    private static String shortName(String name) {
+        int method = name.lastIndexOf('.');
+        int type = method > 0 ? name.lastIndexOf('.', method - 1) : -1;
+        return name.substring(type + 1);
+    }
+}
@@ -0,0 +1,43 @@
+package jpabook.jpashop.monitoring;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 프로세스 내부 지연시간 지표 저장소
+ * 이름별 히스토그램은 처음 한번만 만들고, 이후 기록은 LatencyHistogram.record 만 호출한다.
+ * 호출하는 쪽에서 히스토그램을 들고 있으면 맵 조회도 생략할 수 있다.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    public void record(String name, long nanos) {
+        histogram(name).record(nanos);
+    }
+
+    /**
+     * 이름순 p50/p99/p999 요약
+     */
+    public Map<String, Map<String, Object>> snapshot(String prefix) {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        histograms.forEach((name, histogram) -> {
+            if (prefix == null || name.startsWith(prefix)) {
+                result.put(name, histogram.summary());
+            }
+        });
+        return result;
+    }
+}
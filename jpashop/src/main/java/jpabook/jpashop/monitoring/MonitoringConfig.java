@@ -0,0 +1,55 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.persistence.EntityManagerFactory;
+
+@Configuration
+@RequiredArgsConstructor
+public class MonitoringConfig implements WebMvcConfigurer {
+
+    private final EndpointMetricsInterceptor endpointMetricsInterceptor;
+    private final StatementBudgetInterceptor statementBudgetInterceptor;
+    private final SessionStatisticsInterceptor sessionStatisticsInterceptor;
+
+    /**
+     * 스프링 부트 기본 JpaTransactionManager 대신 트랜잭션 시간을 기록하는 것으로 교체
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         MetricsRegistry metricsRegistry,
+                                                         SessionStatistics sessionStatistics,
+                                                         ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        MetricsJpaTransactionManager transactionManager = new MetricsJpaTransactionManager(entityManagerFactory, metricsRegistry, sessionStatistics);
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(StatementCountingInspector statementCountingInspector) {
+        return properties -> properties.put("hibernate.session_factory.statement_inspector", statementCountingInspector);
+    }
+
+    /**
+     * 세션마다 SessionCountingListener 를 붙인다 (하이버네이트가 클래스 이름으로 만든다)
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sessionEventsCustomizer() {
+        return properties -> properties.put("hibernate.session.events.auto", SessionCountingListener.class.getName());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(endpointMetricsInterceptor);
+        registry.addInterceptor(statementBudgetInterceptor);
+        registry.addInterceptor(sessionStatisticsInterceptor);
+    }
+}
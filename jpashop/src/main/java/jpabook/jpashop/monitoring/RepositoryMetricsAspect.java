@@ -0,0 +1,56 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * repository 메서드별 처리시간
+ * MemberRepository 처럼 spring data jpa 프록시는 구현 메서드가 JpaRepository 에 있으므로
+ * 이름은 repository 패키지의 인터페이스 이름으로 남긴다. ex) repository.MemberRepository.findAll
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private final MetricsRegistry metricsRegistry;
+    private final Map<Class<?>, Map<Method, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+    @Around("(within(jpabook.jpashop.repository..*) && !within(jpabook.jpashop.repository.support..*))" +
+            " || this(org.springframework.data.repository.Repository)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            histogram(joinPoint).record(System.nanoTime() - start);
+        }
+    }
+
+    private LatencyHistogram histogram(ProceedingJoinPoint joinPoint) {
+        Class<?> type = joinPoint.getThis().getClass();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        return histograms.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> metricsRegistry.histogram(
+                        "repository." + repositoryName(joinPoint.getThis().getClass()) + "." + m.getName()));
+    }
+
+    private String repositoryName(Class<?> proxyType) {
+        for (Class<?> type : proxyType.getInterfaces()) {
+            if (type.getName().startsWith("jpabook.jpashop.repository")) {
+                return type.getSimpleName();
+            }
+        }
+        String name = proxyType.getSimpleName();
+        int cglib = name.indexOf("$$");
+        return cglib > 0 ? name.substring(0, cglib) : name;
+    }
+}
@@ -0,0 +1,71 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.exception.StatementBudgetExceededException;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 요청 하나에서 실행된 sql 수와 모양별 반복 횟수
+ * 요청 스레드에서만 사용한다 (ThreadLocal).
+ */
+@Getter
+public class RequestStatements {
+
+    private static final ThreadLocal<RequestStatements> current = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final int budget;
+    private final boolean failOnExceed;
+    private final Map<String, Integer> shapes = new HashMap<>();
+    private int count;
+
+    private RequestStatements(String endpoint, int budget, boolean failOnExceed) {
+        this.endpoint = endpoint;
+        this.budget = budget;
+        this.failOnExceed = failOnExceed;
+    }
+
+    public static RequestStatements begin(String endpoint, int budget, boolean failOnExceed) {
+        RequestStatements statements = new RequestStatements(endpoint, budget, failOnExceed);
+        current.set(statements);
+        return statements;
+    }
+
+    public static RequestStatements end() {
+        RequestStatements statements = current.get();
+        current.remove();
+        return statements;
+    }
+
+    public static RequestStatements current() {
+        return current.get();
+    }
+
+    void record(String sql) {
+        count++;
+        shapes.merge(SqlShapes.normalize(sql), 1, Integer::sum);
+        if (failOnExceed && count > budget) {
+            throw new StatementBudgetExceededException(
+                    endpoint + " 요청의 sql 실행 수가 예산(" + budget + ")을 넘었습니다. 반복된 sql: " + repeatedShapes());
+        }
+    }
+
+    public boolean isOverBudget() {
+        return count > budget;
+    }
+
+    /**
+     * 두 번 이상 실행된 모양만, 많이 실행된 순서로
+     */
+    public Map<String, Integer> repeatedShapes() {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(e -> repeated.put(e.getKey(), e.getValue()));
+        return repeated;
+    }
+}
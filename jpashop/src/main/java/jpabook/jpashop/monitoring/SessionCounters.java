@@ -0,0 +1,155 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 요청 하나, 트랜잭션 하나 동안 하이버네이트 세션이 한 일 (엔티티 로딩, 컬렉션 초기화, flush, 2차 캐시 조회, sql 실행)
+ * 요청 스레드에서만 사용한다 (ThreadLocal).
+ * 요청 안에서 트랜잭션이 열리면 두 곳에 다 센다. REQUIRES_NEW 로 중첩되면 가장 안쪽 트랜잭션에만 센다.
+ */
+@Getter
+public class SessionCounters {
+
+    private static final ThreadLocal<SessionCounters> request = new ThreadLocal<>();
+    private static final ThreadLocal<Deque<SessionCounters>> transactions = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final String name;
+    private long entityLoads;
+    private long collectionFetches;
+    private long flushes;
+    private long partialFlushes; // 쿼리 전 auto flush
+    private long flushedEntities;
+    private long cacheHits;
+    private long cacheMisses;
+    private long statements;
+
+    public SessionCounters(String name) {
+        this.name = name;
+    }
+
+    /**
+     * counters 가 null 이면 표본에서 빠진 요청, 요청 안의 트랜잭션도 기록하지 않는다
+     */
+    public static void beginRequest(SessionCounters counters) {
+        request.set(counters == null ? Skipped.INSTANCE : counters);
+    }
+
+    public static SessionCounters endRequest() {
+        SessionCounters counters = request.get();
+        request.remove();
+        return counters == Skipped.INSTANCE ? null : counters;
+    }
+
+    /**
+     * 요청 밖(스케줄러, 배치)이면 null
+     */
+    public static Boolean isRequestSampled() {
+        SessionCounters counters = request.get();
+        return counters == null ? null : counters != Skipped.INSTANCE;
+    }
+
+    /**
+     * 시작/종료 짝을 맞추기 위해 기록하지 않는 트랜잭션(null)도 자리를 차지한다
+     */
+    public static void beginTransaction(SessionCounters counters) {
+        transactions.get().push(counters == null ? Skipped.INSTANCE : counters);
+    }
+
+    public static SessionCounters endTransaction() {
+        SessionCounters counters = transactions.get().poll();
+        return counters == Skipped.INSTANCE ? null : counters;
+    }
+
+    static void entityLoaded() {
+        SessionCounters r = request();
+        SessionCounters t = transaction();
+        if (r != null) {
+            r.entityLoads++;
+        }
+        if (t != null) {
+            t.entityLoads++;
+        }
+    }
+
+    static void collectionFetched() {
+        SessionCounters r = request();
+        SessionCounters t = transaction();
+        if (r != null) {
+            r.collectionFetches++;
+        }
+        if (t != null) {
+            t.collectionFetches++;
+        }
+    }
+
+    static void flushed(int entities, boolean partial) {
+        SessionCounters r = request();
+        SessionCounters t = transaction();
+        if (r != null) {
+            r.countFlush(entities, partial);
+        }
+        if (t != null) {
+            t.countFlush(entities, partial);
+        }
+    }
+
+    static void cacheGet(boolean hit) {
+        SessionCounters r = request();
+        SessionCounters t = transaction();
+        if (r != null) {
+            r.countCacheGet(hit);
+        }
+        if (t != null) {
+            t.countCacheGet(hit);
+        }
+    }
+
+    static void statementExecuted() {
+        SessionCounters r = request();
+        SessionCounters t = transaction();
+        if (r != null) {
+            r.statements++;
+        }
+        if (t != null) {
+            t.statements++;
+        }
+    }
+
+    private static SessionCounters request() {
+        SessionCounters r = request.get();
+        return r == Skipped.INSTANCE ? null : r;
+    }
+
+    private static SessionCounters transaction() {
+        SessionCounters t = transactions.get().peek();
+        return t == Skipped.INSTANCE ? null : t;
+    }
+
+    private void countFlush(int entities, boolean partial) {
+        if (partial) {
+            partialFlushes++;
+        } else {
+            flushes++;
+        }
+        flushedEntities += entities;
+    }
+
+    private void countCacheGet(boolean hit) {
+        if (hit) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+        }
+    }
+
+    private static class Skipped extends SessionCounters {
+        static final Skipped INSTANCE = new Skipped();
+
+        Skipped() {
+            super("(skipped)");
+        }
+    }
+}
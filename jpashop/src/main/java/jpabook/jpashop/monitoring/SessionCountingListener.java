@@ -0,0 +1,36 @@
+package jpabook.jpashop.monitoring;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * 세션마다 하나씩 만들어지는 하이버네이트 세션 이벤트 리스너 (hibernate.session.events.auto)
+ * flush, 2차 캐시 조회, sql 실행을 현재 요청/트랜잭션의 SessionCounters 에 센다.
+ * 표본에서 빠졌거나 요청/트랜잭션 밖이면 ThreadLocal 조회만 하고 끝난다.
+ */
+public class SessionCountingListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SessionCounters.statementExecuted();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SessionCounters.statementExecuted();
+    }
+
+    @Override
+    public void cacheGetEnd(boolean hit) {
+        SessionCounters.cacheGet(hit);
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        SessionCounters.flushed(numberOfEntities, false);
+    }
+
+    @Override
+    public void partialFlushEnd(int numberOfEntities, int numberOfCollections) {
+        SessionCounters.flushed(numberOfEntities, true);
+    }
+}
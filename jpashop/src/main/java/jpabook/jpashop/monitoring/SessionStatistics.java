@@ -0,0 +1,166 @@
+package jpabook.jpashop.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 하이버네이트 세션 통계를 엔드포인트(컨트롤러 메서드)별, 트랜잭션(@Transactional 메서드)별로 합친다
+ * - sample-rate 비율의 요청/트랜잭션만 센다. 요청 안의 트랜잭션은 요청과 같이 표본에 들어가거나 빠진다.
+ * - 표 하나에 max-entries 개까지만 저장하고 넘치면 "(other)" 로 합친다
+ *   크기 확인과 추가가 한번에 일어나지 않아서 새 이름이 동시에 들어오면 max-entries 를 몇 개 넘을 수 있다 (대략적인 상한)
+ */
+@Component
+public class SessionStatistics {
+
+    static final String OTHER = "(other)";
+
+    private final double sampleRate;
+    private final int maxEntries;
+    private final Map<String, Row> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Row> transactions = new ConcurrentHashMap<>();
+
+    public SessionStatistics(@Value("${jpashop.session-stats.sample-rate:1.0}") double sampleRate,
+                             @Value("${jpashop.session-stats.max-entries:500}") int maxEntries) {
+        this.sampleRate = sampleRate;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 표본이면 새 카운터, 아니면 null
+     */
+    public SessionCounters startRequest(String endpoint) {
+        return sampled() ? new SessionCounters(endpoint) : null;
+    }
+
+    public SessionCounters startTransaction(String name) {
+        Boolean requestSampled = SessionCounters.isRequestSampled();
+        boolean sampled = requestSampled == null ? sampled() : requestSampled;
+        return sampled ? new SessionCounters(name == null ? "unnamed" : name) : null;
+    }
+
+    public void recordRequest(SessionCounters counters) {
+        if (counters != null) {
+            rowOf(endpoints, counters.getName()).add(counters);
+        }
+    }
+
+    public void recordTransaction(SessionCounters counters) {
+        if (counters != null) {
+            rowOf(transactions, counters.getName()).add(counters);
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private Row rowOf(Map<String, Row> table, String name) {
+        Row row = table.get(name);
+        if (row != null) {
+            return row;
+        }
+        return table.size() < maxEntries
+                ? table.computeIfAbsent(name, k -> new Row())
+                : table.computeIfAbsent(OTHER, k -> new Row());
+    }
+
+    /**
+     * by: endpoint(기본), transaction
+     * sort: entityLoads(기본), collectionFetches, flushes, cacheMisses, statements, count - 합계 기준
+     */
+    public Map<String, Object> top(String by, int n, String sort) {
+        boolean byTransaction = "transaction".equals(by);
+        Map<String, Row> table = byTransaction ? transactions : endpoints;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("by", byTransaction ? "transaction" : "endpoint");
+        result.put("sampleRate", sampleRate);
+        List<Map<String, Object>> rows = table.entrySet().stream()
+                .map(e -> e.getValue().toMap(e.getKey()))
+                .sorted(Comparator.comparingLong((Map<String, Object> m) -> (Long) m.get(sortKey(sort))).reversed())
+                .limit(n)
+                .collect(Collectors.toList());
+        result.put("rows", rows);
+        return result;
+    }
+
+    public void reset() {
+        endpoints.clear();
+        transactions.clear();
+    }
+
+    private static String sortKey(String sort) {
+        if (sort == null) {
+            return "entityLoads";
+        }
+        switch (sort) {
+            case "collectionFetches":
+            case "flushes":
+            case "cacheMisses":
+            case "statements":
+            case "count":
+                return sort;
+            default:
+                return "entityLoads";
+        }
+    }
+
+    static class Row {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder entityLoads = new LongAdder();
+        private final LongAdder collectionFetches = new LongAdder();
+        private final LongAdder flushes = new LongAdder();
+        private final LongAdder partialFlushes = new LongAdder();
+        private final LongAdder flushedEntities = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final AtomicLong maxEntityLoads = new AtomicLong();
+
+        void add(SessionCounters counters) {
+            count.increment();
+            entityLoads.add(counters.getEntityLoads());
+            collectionFetches.add(counters.getCollectionFetches());
+            flushes.add(counters.getFlushes());
+            partialFlushes.add(counters.getPartialFlushes());
+            flushedEntities.add(counters.getFlushedEntities());
+            cacheHits.add(counters.getCacheHits());
+            cacheMisses.add(counters.getCacheMisses());
+            statements.add(counters.getStatements());
+            maxEntityLoads.accumulateAndGet(counters.getEntityLoads(), Math::max);
+        }
+
+        Map<String, Object> toMap(String name) {
+            long total = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", name);
+            map.put("count", total);
+            map.put("entityLoads", entityLoads.sum());
+            map.put("avgEntityLoads", average(entityLoads, total));
+            map.put("maxEntityLoads", maxEntityLoads.get());
+            map.put("collectionFetches", collectionFetches.sum());
+            map.put("avgCollectionFetches", average(collectionFetches, total));
+            map.put("flushes", flushes.sum());
+            map.put("partialFlushes", partialFlushes.sum());
+            map.put("flushedEntities", flushedEntities.sum());
+            map.put("cacheHits", cacheHits.sum());
+            map.put("cacheMisses", cacheMisses.sum());
+            map.put("statements", statements.sum());
+            map.put("avgStatements", average(statements, total));
+            return map;
+        }
+
+        private static double average(LongAdder sum, long count) {
+            return count == 0 ? 0.0 : (double) sum.sum() / count;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Optional;
+
+/**
+ * 요청 시작에 세션 카운터를 열고, 뷰 렌더링(open-in-view 지연로딩)까지 끝난 뒤 엔드포인트별로 합친다
+ * 이름은 "컨트롤러.메서드" ex) OrderApiController.ordersV4
+ * 비동기 처리(StreamingResponseBody 내보내기 등)는 요청 스레드를 반납할 때 카운터를 요청 속성으로 옮겨두고,
+ * 결과를 쓰는 비동기 재디스패치에서 이어서 센 뒤 한 요청으로 기록한다. (응답 본문을 쓰는 다른 스레드의 작업은 세지 않는다)
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionStatisticsInterceptor implements AsyncHandlerInterceptor {
+
+    static final String ASYNC_COUNTERS_ATTRIBUTE = SessionStatisticsInterceptor.class.getName() + ".counters";
+
+    private final SessionStatistics sessionStatistics;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Object suspended = request.getAttribute(ASYNC_COUNTERS_ATTRIBUTE);
+        if (request.getDispatcherType() == DispatcherType.ASYNC && suspended != null) {
+            request.removeAttribute(ASYNC_COUNTERS_ATTRIBUTE);
+            SessionCounters.beginRequest(((Optional<SessionCounters>) suspended).orElse(null));
+            return true;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        SessionCounters.beginRequest(sessionStatistics.startRequest(
+                handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName()));
+        return true;
+    }
+
+    /**
+     * afterCompletion 대신 불린다 -> ThreadLocal 을 비우지 않으면 같은 스레드의 다음 요청에 섞인다
+     * 표본에서 빠진 요청(null)도 재디스패치에서 다시 뽑지 않도록 Optional 로 남긴다
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            request.setAttribute(ASYNC_COUNTERS_ATTRIBUTE, Optional.ofNullable(SessionCounters.endRequest()));
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        sessionStatistics.recordRequest(SessionCounters.endRequest());
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.regex.Pattern;
+
+/**
+ * sql 을 모양(shape)으로 정규화
+ * 리터럴은 ? 로 바꾸고, in 절의 파라미터 개수는 하나로 합치고, 공백/대소문자를 맞춘다.
+ * select ... where id in (?, ?, ?) 와 in (?, ?) 는 같은 모양이 된다 -> 배치 조회와 N+1 을 같은 묶음으로 센다.
+ */
+public final class SqlShapes {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern VALUES_LIST = Pattern.compile("(?i)\\bvalues\\s*(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))(?:\\s*,\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlShapes() {
+    }
+
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        shape = IN_LIST.matcher(shape).replaceAll("in (?...)");
+        shape = VALUES_LIST.matcher(shape).replaceAll("values $1...");
+        return shape.toLowerCase();
+    }
+}
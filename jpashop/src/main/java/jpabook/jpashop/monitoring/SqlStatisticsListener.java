@@ -0,0 +1,176 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * sql 모양별 실행 통계와 느린 쿼리 샘플 (p6spy 리스너)
+ * 운영에서도 켜둘 수 있도록 실행마다 하는 일은 맵 조회와 atomic 연산뿐이다.
+ * - 정규화 결과는 원본 sql 로 캐시한다 (PreparedStatement 라 원본 종류가 많지 않다)
+ * - 모양 수는 max-shapes 까지만 저장하고 넘치면 "(other)" 로 합친다
+ * - 바인딩 값이 들어간 sql 은 느린 쿼리일 때만 만든다
+ * - slow-samples 가 0 이면 느린 쿼리 샘플을 남기지 않는다
+ */
+@Component
+public class SqlStatisticsListener extends SimpleJdbcEventListener {
+
+    static final String OTHER = "(other)";
+    private static final int MAX_CACHED_SQL = 4096;
+
+    private final int maxShapes;
+    private final long slowThresholdNanos;
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final Map<String, ShapeStats> bySql = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<SlowQuery> slowQueries;
+    private final AtomicLong slowQuerySequence = new AtomicLong();
+
+    public SqlStatisticsListener(@Value("${jpashop.sql.max-shapes:500}") int maxShapes,
+                                 @Value("${jpashop.sql.slow-threshold-ms:100}") long slowThresholdMillis,
+                                 @Value("${jpashop.sql.slow-samples:100}") int slowSamples) {
+        this.maxShapes = maxShapes;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.slowQueries = new AtomicReferenceArray<>(Math.max(slowSamples, 0));
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String sql = statementInformation.getSql();
+        if (sql == null || sql.isEmpty()) {
+            return;
+        }
+        ShapeStats stats = statsOf(sql);
+        stats.record(timeElapsedNanos, e != null);
+
+        if (slowQueries.length() > 0 && timeElapsedNanos >= slowThresholdNanos) {
+            RequestStatements request = RequestStatements.current();
+            long sequence = slowQuerySequence.getAndIncrement();
+            slowQueries.set((int) (sequence % slowQueries.length()), new SlowQuery(
+                    LocalDateTime.now(), timeElapsedNanos / 1_000_000.0, stats.shape,
+                    statementInformation.getSqlWithValues(), request == null ? null : request.getEndpoint()));
+        }
+    }
+
+    private ShapeStats statsOf(String sql) {
+        ShapeStats stats = bySql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String shape = SqlShapes.normalize(sql);
+        stats = shapes.get(shape);
+        if (stats == null) {
+            stats = shapes.size() < maxShapes
+                    ? shapes.computeIfAbsent(shape, ShapeStats::new)
+                    : shapes.computeIfAbsent(OTHER, ShapeStats::new);
+        }
+        if (bySql.size() < MAX_CACHED_SQL) {
+            bySql.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * sort: total(기본), count, max, p99
+     */
+    public List<Map<String, Object>> top(int n, String sort) {
+        Comparator<Map<String, Object>> comparator = Comparator.comparingDouble(m -> ((Number) m.get(sortKey(sort))).doubleValue());
+        return shapes.values().stream()
+                .map(ShapeStats::toMap)
+                .sorted(comparator.reversed())
+                .limit(n)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 최근 느린 쿼리, 최신순
+     */
+    public List<SlowQuery> slowQueries() {
+        List<SlowQuery> result = new ArrayList<>();
+        long last = slowQuerySequence.get();
+        for (long i = last - 1; i >= Math.max(0, last - slowQueries.length()); i--) {
+            SlowQuery slowQuery = slowQueries.get((int) (i % slowQueries.length()));
+            if (slowQuery != null) {
+                result.add(slowQuery);
+            }
+        }
+        return result;
+    }
+
+    public void reset() {
+        shapes.clear();
+        bySql.clear();
+        for (int i = 0; i < slowQueries.length(); i++) {
+            slowQueries.set(i, null);
+        }
+    }
+
+    private static String sortKey(String sort) {
+        if ("count".equals(sort)) {
+            return "count";
+        }
+        if ("max".equals(sort)) {
+            return "maxMillis";
+        }
+        if ("p99".equals(sort)) {
+            return "p99Millis";
+        }
+        return "totalMillis";
+    }
+
+    static class ShapeStats {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        ShapeStats(String shape) {
+            this.shape = shape;
+        }
+
+        void record(long nanos, boolean error) {
+            count.increment();
+            if (error) {
+                errors.increment();
+            }
+            histogram.record(nanos);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("shape", shape);
+            map.put("count", count.sum());
+            map.put("errors", errors.sum());
+            map.put("totalMillis", histogram.getTotalNanos() / 1_000_000.0);
+            map.put("maxMillis", histogram.getMaxNanos() / 1_000_000.0);
+            map.put("p99Millis", histogram.percentile(99) / 1_000_000.0);
+            return map;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SlowQuery {
+        private LocalDateTime executedAt;
+        private double elapsedMillis;
+        private String shape;
+        private String sqlWithValues;
+        private String endpoint;
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.Arrays;
+
+/**
+ * 스레드 하나의 시작 시각 스택 (ThreadLocal 에 담아서 쓴다)
+ * 시각은 long 배열에, 같이 기록할 히스토그램은 배열에 그대로 넣는다 -> 요청/트랜잭션 시작마다 객체를 만들지 않는다.
+ * forward, REQUIRES_NEW 처럼 중첩되어도 같은 스레드에서 시작/종료 순서가 반대이므로 스택으로 충분하다.
+ */
+final class StartTimes {
+
+    private long[] nanos = new long[8];
+    private LatencyHistogram[] histograms = new LatencyHistogram[8];
+    private int size;
+
+    void push(LatencyHistogram histogram, long startNanos) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+            histograms = Arrays.copyOf(histograms, size * 2);
+        }
+        nanos[size] = startNanos;
+        histograms[size] = histogram;
+        size++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 가장 최근 시작을 기록 없이 꺼낸다
+     */
+    void discard() {
+        size--;
+        histograms[size] = null;
+    }
+
+    /**
+     * 가장 최근 시작을 꺼내서 지금까지 걸린 시간을 같이 넣은 히스토그램에 남긴다
+     */
+    void popAndRecord(long nowNanos) {
+        LatencyHistogram histogram = histograms[size - 1];
+        discard();
+        histogram.record(nowNanos - nanos[size]);
+    }
+}
@@ -0,0 +1,119 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 기동 단계별 시간
+ * JpashopApplication 이 BufferingApplicationStartup 으로 띄웠을 때만 단계가 기록된다 (테스트 컨텍스트는 기록하지 않는다).
+ * - phases: 빈 생성을 뺀 단계(컨텍스트 refresh, 빈 후처리, flyway, InitDb ...) 시작 순서대로
+ * - slowestBeans: 빈 생성 중 자기 시간(안에서 만든 다른 빈 시간을 뺀 것)이 긴 순서
+ * 준비 완료 시점의 JVM 기동 후 경과 시간과 힙 사용량도 같이 남긴다.
+ */
+@Slf4j
+@Component
+public class StartupReport {
+
+    private static final String BEAN_STEP = "spring.beans.instantiate";
+
+    private final ApplicationStartup applicationStartup;
+
+    private volatile long readyMillis;
+    private volatile long heapUsedBytes;
+
+    public StartupReport(ApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        heapUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        log.info("기동 완료: JVM 시작 후 {}ms, 힙 사용 {}MB", readyMillis, heapUsedBytes / (1024 * 1024));
+    }
+
+    /**
+     * JVM 시작부터 ApplicationReadyEvent 까지
+     */
+    public long getReadyMillis() {
+        return readyMillis;
+    }
+
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    public Map<String, Object> snapshot(int top) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("readyMillis", readyMillis);
+        map.put("heapUsedAtReadyMb", heapUsedBytes / (1024 * 1024));
+        map.put("heapUsedNowMb", heap.getUsed() / (1024 * 1024));
+        if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+            map.put("recording", false);
+            return map;
+        }
+        StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+
+        // 자기 시간 = 전체 시간 - 바로 아래 단계들의 시간
+        Map<Long, Duration> children = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            Long parentId = event.getStartupStep().getParentId();
+            if (parentId != null) {
+                children.merge(parentId, event.getDuration(), Duration::plus);
+            }
+        }
+
+        map.put("recording", true);
+        map.put("steps", events.size());
+        map.put("phases", events.stream()
+                .filter(e -> !e.getStartupStep().getName().startsWith("spring.beans."))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getStartTime))
+                .map(e -> row(timeline.getStartTime(), e, children))
+                .collect(Collectors.toList()));
+        map.put("slowestBeans", events.stream()
+                .filter(e -> e.getStartupStep().getName().equals(BEAN_STEP))
+                .sorted(Comparator.comparing((StartupTimeline.TimelineEvent e) -> self(e, children)).reversed())
+                .limit(top)
+                .map(e -> row(timeline.getStartTime(), e, children))
+                .collect(Collectors.toList()));
+        return map;
+    }
+
+    private static Map<String, Object> row(Instant origin, StartupTimeline.TimelineEvent event, Map<Long, Duration> children) {
+        StartupStep step = event.getStartupStep();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("name", step.getName());
+        List<String> tags = new ArrayList<>();
+        step.getTags().forEach(tag -> tags.add(tag.getKey() + "=" + tag.getValue()));
+        row.put("tags", tags);
+        row.put("startMillis", Duration.between(origin, event.getStartTime()).toMillis());
+        row.put("durationMillis", event.getDuration().toMillis());
+        row.put("selfMillis", self(event, children).toMillis());
+        return row;
+    }
+
+    private static Duration self(StartupTimeline.TimelineEvent event, Map<Long, Duration> children) {
+        Duration self = event.getDuration().minus(children.getOrDefault(event.getStartupStep().getId(), Duration.ZERO));
+        return self.isNegative() ? Duration.ZERO : self;
+    }
+}
@@ -0,0 +1,93 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 요청 시작에 sql 카운트를 열고, 뷰 렌더링(지연로딩)까지 끝난 뒤 예산을 확인한다.
+ * 마지막 요청의 sql 수는 request attribute 로도 남긴다 -> 테스트에서 확인용
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatementBudgetInterceptor implements HandlerInterceptor {
+
+    public static final String STATEMENT_COUNT_ATTRIBUTE = "jpashop.statementCount";
+
+    private final StatementBudgetProperties properties;
+    private final Map<String, EndpointStatements> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (properties.isEnabled() && handler instanceof HandlerMethod) {
+            String endpoint = endpointName((HandlerMethod) handler);
+            RequestStatements.begin(endpoint, properties.budgetOf(endpoint),
+                    properties.getMode() == StatementBudgetProperties.Mode.FAIL);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStatements statements = RequestStatements.end();
+        if (statements == null) {
+            return;
+        }
+        request.setAttribute(STATEMENT_COUNT_ATTRIBUTE, statements.getCount());
+        endpoints.computeIfAbsent(statements.getEndpoint(), e -> new EndpointStatements()).add(statements);
+
+        if (statements.isOverBudget()) {
+            log.warn("sql 예산 초과 endpoint={} count={} budget={} repeated={}",
+                    statements.getEndpoint(), statements.getCount(), statements.getBudget(), statements.repeatedShapes());
+        }
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        endpoints.forEach((endpoint, stat) -> result.put(endpoint, stat.toMap(properties.budgetOf(endpoint))));
+        return result;
+    }
+
+    private String endpointName(HandlerMethod handlerMethod) {
+        return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+    }
+
+    static class EndpointStatements {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final AtomicInteger max = new AtomicInteger();
+
+        void add(RequestStatements request) {
+            requests.increment();
+            statements.add(request.getCount());
+            if (request.isOverBudget()) {
+                overBudget.increment();
+            }
+            max.accumulateAndGet(request.getCount(), Math::max);
+        }
+
+        Map<String, Object> toMap(int budget) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long total = requests.sum();
+            map.put("requests", total);
+            map.put("budget", budget);
+            map.put("avgStatements", total == 0 ? 0.0 : (double) statements.sum() / total);
+            map.put("maxStatements", max.get());
+            map.put("overBudget", overBudget.sum());
+            return map;
+        }
+    }
+}
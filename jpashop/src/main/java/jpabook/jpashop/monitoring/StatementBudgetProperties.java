@@ -0,0 +1,33 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청당 sql 실행 수 예산
+ * endpoints 키는 "컨트롤러.메서드" ex) OrderApiController.ordersV4
+ */
+@Component
+@ConfigurationProperties(prefix = "jpashop.statement-budget")
+@Getter @Setter
+public class StatementBudgetProperties {
+
+    private boolean enabled = true;
+    private Mode mode = Mode.LOG;
+    private int defaultBudget = 30;
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    public int budgetOf(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultBudget);
+    }
+
+    public enum Mode {
+        LOG, // 요청이 끝나면 예산 초과를 로그로 남긴다
+        FAIL // 예산을 넘는 sql 을 실행하려는 순간 예외를 던진다
+    }
+}
@@ -0,0 +1,21 @@
+package jpabook.jpashop.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * 하이버네이트가 실행하는 sql 을 현재 요청(RequestStatements)에 기록
+ * 요청 밖(InitDb, 배치 등)에서 실행된 sql 은 세지 않는다.
+ */
+@Component
+public class StatementCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatements statements = RequestStatements.current();
+        if (statements != null) {
+            statements.record(sql);
+        }
+        return sql;
+    }
+}
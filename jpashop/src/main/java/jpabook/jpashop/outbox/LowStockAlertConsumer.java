@@ -0,0 +1,75 @@
+package jpabook.jpashop.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 재고 부족 알림
+ * 이벤트에 담긴 변경 후 재고만 보고 판단한다 -> item 테이블을 조회하지 않는다.
+ * 같은 이벤트를 다시 받아도 결과가 같다 (상품별 마지막 재고로 덮어쓴다).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LowStockAlertConsumer implements OutboxConsumer {
+
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties properties;
+
+    private final Map<Long, Integer> lowStockItems = new ConcurrentHashMap<>();
+
+    @Override
+    public String name() {
+        return "low-stock-alert";
+    }
+
+    @Override
+    public void consume(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            JsonNode payload = read(event.getPayload());
+            if (event.getType() == OutboxEventType.ITEM_UPDATED) {
+                check(payload.get("itemId").asLong(), payload.get("stock").asInt());
+            } else {
+                for (JsonNode item : payload.get("items")) {
+                    if (item.hasNonNull("stock")) { // 일괄 변경은 가격만 바뀐 상품도 있다
+                        check(item.get("itemId").asLong(), item.get("stock").asInt());
+                    }
+                }
+            }
+        }
+    }
+
+    private void check(Long itemId, int stock) {
+        if (stock > properties.getLowStockThreshold()) {
+            lowStockItems.remove(itemId);
+            return;
+        }
+        if (lowStockItems.put(itemId, stock) == null) {
+            log.warn("재고 부족: 상품 {} 재고 {}", itemId, stock);
+        }
+    }
+
+    /**
+     * 상품 id -> 마지막으로 확인한 재고
+     */
+    public Map<Long, Integer> getLowStockItems() {
+        return new TreeMap<>(lowStockItems);
+    }
+
+    private JsonNode read(String payload) {
+        try {
+            return objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("아웃박스 payload 읽기 실패: " + payload, e);
+        }
+    }
+}
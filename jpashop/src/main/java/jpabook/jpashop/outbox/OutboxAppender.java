@@ -0,0 +1,32 @@
+package jpabook.jpashop.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 호출한 쪽 트랜잭션 안에서 이벤트를 남긴다 -> 주문이 롤백되면 이벤트도 같이 사라진다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxAppender {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OutboxEventType type, Long aggregateId, Object payload) {
+        outboxRepository.save(new OutboxEvent(type, aggregateId, toJson(payload)));
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("아웃박스 payload 변환 실패", e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.outbox;
+
+import java.util.List;
+
+/**
+ * 아웃박스 이벤트를 받는 컨슈머 (빈으로 등록하면 OutboxDispatcher 가 찾아서 넘겨준다)
+ * 최소 한 번 전달이다 -> 예외를 던지면 같은 배치를 다시 받는다. 같은 이벤트를 두 번 받아도 괜찮게 만들어야 한다.
+ * 대부분 id 순서지만 gap-timeout 보다 늦게 커밋된 이벤트는 뒤 번호보다 나중에 온다.
+ */
+public interface OutboxConsumer {
+
+    /**
+     * 처리 위치를 저장하는 키, 바꾸면 처음부터 다시 받는다
+     */
+    String name();
+
+    void consume(List<OutboxEvent> events);
+}
@@ -0,0 +1,200 @@
+package jpabook.jpashop.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 아웃박스 이벤트를 컨슈머별 처리 위치부터 배치로 넘긴다.
+ * - 배치 하나 = 트랜잭션 하나: 처리 위치 행을 잠그고, 컨슈머가 성공하면 위치를 옮긴다. 실패하면 롤백 -> 다음에 같은 배치를 다시 받는다.
+ * - 빈 번호: 이벤트 id 는 커밋 순서가 아니라 채번 순서다. 전용 시퀀스라 번호가 빠진 곳은 아직 커밋 안 된(또는 롤백된) 트랜잭션이므로
+ *   거기서 멈추고, 빠진 번호 뒤 이벤트가 gap-timeout 보다 오래되면 건너뛴다. 건너뛴 번호는 outbox_gap 에 남겨서
+ *   그 뒤에 커밋되면 다음 배치 앞에 붙여 넘긴다 (트랜잭션이 gap-timeout 보다 오래 걸려도 빠뜨리지 않는다, 순서만 늦다).
+ *   retention 이 지나도 안 나타난 번호는 롤백으로 보고 지운다.
+ * - 배압: 배치 크기와 주기당 배치 수로 한번에 넘기는 양을 제한하고, 실패한 컨슈머는 재시도 간격을 두 배씩 늘린다.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxRepository outboxRepository;
+    private final List<OutboxConsumer> consumers;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, ConsumerState> states = new ConcurrentHashMap<>();
+
+    public OutboxDispatcher(OutboxRepository outboxRepository, ObjectProvider<OutboxConsumer> consumers,
+                            OutboxProperties properties, TransactionTemplate transactionTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.consumers = consumers.orderedStream().collect(Collectors.toList());
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.consumers.forEach(consumer -> states.put(consumer.name(), new ConsumerState()));
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.outbox.poll-interval-ms:500}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            dispatch();
+        }
+    }
+
+    /**
+     * 모든 컨슈머에 밀린 이벤트를 넘기고, 넘긴 이벤트 수를 반환
+     */
+    public synchronized int dispatch() {
+        int total = 0;
+        for (OutboxConsumer consumer : consumers) {
+            total += dispatch(consumer);
+        }
+        purge();
+        return total;
+    }
+
+    private int dispatch(OutboxConsumer consumer) {
+        ConsumerState state = states.get(consumer.name());
+        if (System.currentTimeMillis() < state.retryAt) {
+            return 0;
+        }
+        int delivered = 0;
+        try {
+            for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+                Integer size = transactionTemplate.execute(status -> deliverBatch(consumer));
+                delivered += size;
+                if (size < properties.getBatchSize()) {
+                    break;
+                }
+            }
+            state.succeeded();
+        } catch (RuntimeException e) {
+            state.failed(properties.getMaxBackoffMillis());
+            log.warn("아웃박스 컨슈머 {} 처리 실패, {}ms 후 재시도", consumer.name(), state.backoffMillis, e);
+        }
+        state.delivered.add(delivered);
+        return delivered;
+    }
+
+    private int deliverBatch(OutboxConsumer consumer) {
+        OutboxOffset offset = outboxRepository.findOffsetForUpdate(consumer.name());
+        List<OutboxEvent> late = outboxRepository.findLateEvents(consumer.name(), properties.getBatchSize());
+        LocalDateTime gapExpiredBefore = LocalDateTime.now().minusNanos(properties.getGapTimeoutMillis() * 1_000_000);
+        List<OutboxEvent> events = committedPrefix(offset.getLastEventId(),
+                outboxRepository.findAfter(offset.getLastEventId(), properties.getBatchSize()), gapExpiredBefore);
+        if (late.isEmpty() && events.isEmpty()) {
+            return 0;
+        }
+        List<OutboxEvent> batch = new ArrayList<>(late);
+        batch.addAll(events);
+        consumer.consume(batch);
+        if (!late.isEmpty()) {
+            outboxRepository.deleteGaps(consumer.name(), late.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+        }
+        if (!events.isEmpty()) {
+            outboxRepository.saveGaps(consumer.name(), skippedIds(offset.getLastEventId(), events));
+            offset.advance(events.get(events.size() - 1).getId());
+        }
+        return batch.size();
+    }
+
+    /**
+     * afterId 다음부터 번호가 이어지는 이벤트까지만 반환
+     * 빠진 번호 바로 뒤 이벤트가 gapExpiredBefore 이전에 만들어졌으면 빠진 번호는 건너뛴다 (skippedIds 로 기록)
+     */
+    static List<OutboxEvent> committedPrefix(long afterId, List<OutboxEvent> events, LocalDateTime gapExpiredBefore) {
+        long expected = afterId + 1;
+        int end = 0;
+        for (OutboxEvent event : events) {
+            if (event.getId() != expected && !event.getCreatedAt().isBefore(gapExpiredBefore)) {
+                break;
+            }
+            expected = event.getId() + 1;
+            end++;
+        }
+        return events.subList(0, end);
+    }
+
+    /**
+     * committedPrefix 가 건너뛴 번호
+     */
+    static List<Long> skippedIds(long afterId, List<OutboxEvent> prefix) {
+        List<Long> skipped = new ArrayList<>();
+        long expected = afterId + 1;
+        for (OutboxEvent event : prefix) {
+            for (long id = expected; id < event.getId(); id++) {
+                skipped.add(id);
+            }
+            expected = event.getId() + 1;
+        }
+        return skipped;
+    }
+
+    private void purge() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxRepository.deleteGapsSkippedBefore(LocalDateTime.now().minusMinutes(properties.getRetentionMinutes()));
+            List<OutboxOffset> offsets = outboxRepository.findOffsets();
+            if (offsets.isEmpty() || offsets.size() < consumers.size()) {
+                return;
+            }
+            long consumedByAll = offsets.stream().mapToLong(OutboxOffset::getLastEventId).min().getAsLong();
+            outboxRepository.deleteConsumed(consumedByAll, LocalDateTime.now().minusMinutes(properties.getRetentionMinutes()));
+        });
+    }
+
+    /**
+     * 컨슈머별 처리 위치와 밀린 이벤트 수(lag)
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            Long last = outboxRepository.findLastEventId();
+            long lastEventId = last == null ? 0 : last;
+            Map<String, Long> offsets = new LinkedHashMap<>();
+            outboxRepository.findOffsets().forEach(o -> offsets.put(o.getConsumer(), o.getLastEventId()));
+            Map<String, Long> gaps = new LinkedHashMap<>();
+            outboxRepository.countGapsByConsumer().forEach(row -> gaps.put((String) row[0], (Long) row[1]));
+            for (OutboxConsumer consumer : consumers) {
+                ConsumerState state = states.get(consumer.name());
+                long offset = offsets.getOrDefault(consumer.name(), 0L);
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("offset", offset);
+                map.put("lagEvents", Math.max(0, lastEventId - offset));
+                map.put("skippedIds", gaps.getOrDefault(consumer.name(), 0L)); // 건너뛰고 늦은 커밋을 기다리는 번호 수
+                map.put("delivered", state.delivered.sum());
+                map.put("failures", state.failures);
+                map.put("retryAt", state.retryAt);
+                result.put(consumer.name(), map);
+            }
+        });
+        return result;
+    }
+
+    private static class ConsumerState {
+        private final LongAdder delivered = new LongAdder();
+        private volatile long retryAt;
+        private volatile long backoffMillis;
+        private volatile long failures;
+
+        void succeeded() {
+            backoffMillis = 0;
+            retryAt = 0;
+        }
+
+        void failed(long maxBackoffMillis) {
+            failures++;
+            backoffMillis = Math.min(maxBackoffMillis, backoffMillis == 0 ? 100 : backoffMillis * 2);
+            retryAt = System.currentTimeMillis() + backoffMillis;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package jpabook.jpashop.outbox;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 아웃박스 이벤트
+ * payload 는 컨슈머가 orders 를 다시 조회하지 않아도 되도록 필요한 값만 담은 json 이다.
+ * id 는 전용 시퀀스에서 하나씩 받는다 -> 번호가 빠졌으면 그 이벤트의 트랜잭션이 아직 안 끝났거나 롤백된 것이다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 1)
+    @Column(name = "event_id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType type;
+
+    private Long aggregateId; // 주문 id 또는 상품 id
+
+    @Lob
+    private String payload;
+
+    private LocalDateTime createdAt;
+
+    public OutboxEvent(OutboxEventType type, Long aggregateId, String payload) {
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+}
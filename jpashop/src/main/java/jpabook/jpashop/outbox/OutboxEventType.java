@@ -0,0 +1,5 @@
+package jpabook.jpashop.outbox;
+
+public enum OutboxEventType {
+    ORDER_PLACED, ORDER_CANCELED, ITEM_UPDATED, ITEMS_BULK_UPDATED, ORDERS_BULK_CANCELED
+}
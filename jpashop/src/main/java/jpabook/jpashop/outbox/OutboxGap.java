@@ -0,0 +1,46 @@
+package jpabook.jpashop.outbox;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 컨슈머가 기다리다 건너뛴 빈 이벤트 번호
+ * 그 번호의 이벤트가 늦게 커밋되면 다음 배치에 같이 넘기고 지운다. 보관시간이 지나도 안 나타나면 롤백된 번호로 보고 지운다.
+ */
+@Entity
+@IdClass(OutboxGap.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxGap {
+
+    @Id
+    private String consumer;
+
+    @Id
+    private long eventId;
+
+    private LocalDateTime skippedAt;
+
+    public OutboxGap(String consumer, long eventId) {
+        this.consumer = consumer;
+        this.eventId = eventId;
+        this.skippedAt = LocalDateTime.now();
+    }
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String consumer;
+        private long eventId;
+    }
+}
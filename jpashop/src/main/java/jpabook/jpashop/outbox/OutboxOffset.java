@@ -0,0 +1,34 @@
+package jpabook.jpashop.outbox;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * 컨슈머별 처리 위치
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxOffset {
+
+    @Id
+    private String consumer;
+
+    private long lastEventId;
+
+    private LocalDateTime updatedAt;
+
+    public OutboxOffset(String consumer) {
+        this.consumer = consumer;
+    }
+
+    public void advance(long lastEventId) {
+        this.lastEventId = lastEventId;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
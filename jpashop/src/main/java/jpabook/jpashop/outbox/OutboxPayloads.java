@@ -0,0 +1,116 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemChange;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 이벤트별 payload, 컨슈머가 다시 조회하지 않아도 되게 변경 후 재고까지 담는다
+ */
+public final class OutboxPayloads {
+
+    private OutboxPayloads() {
+    }
+
+    public static Map<String, Object> orderPlaced(Order order) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("memberId", order.getMember().getId());
+        payload.put("orderDate", order.getOrderDate().toString());
+        payload.put("totalPrice", order.getTotalPrice());
+        payload.put("items", items(order.getOrderItems()));
+        return payload;
+    }
+
+    public static Map<String, Object> orderCanceled(Order order) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("memberId", order.getMember().getId());
+        payload.put("items", items(order.getOrderItems()));
+        return payload;
+    }
+
+    /**
+     * 일괄 취소된 주문 id 와 되돌린 상품별 수량, 되돌린 후 재고
+     */
+    public static Map<String, Object> ordersBulkCanceled(List<Long> orderIds, Map<Long, Integer> returned, Map<Long, Integer> stocks) {
+        List<Map<String, Object>> items = returned.entrySet().stream()
+                .map(e -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("itemId", e.getKey());
+                    item.put("count", e.getValue());
+                    item.put("stock", stocks.get(e.getKey()));
+                    return item;
+                })
+                .collect(Collectors.toList());
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderIds", orderIds);
+        payload.put("items", items);
+        return payload;
+    }
+
+    /**
+     * renamed: 상품명이 바뀌었으면 true (order_view 재생성 대상)
+     */
+    public static Map<String, Object> itemUpdated(Item item, boolean renamed) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("itemId", item.getId());
+        payload.put("name", item.getName());
+        payload.put("renamed", renamed);
+        payload.put("price", item.getPrice());
+        payload.put("stock", item.getStockQuantity());
+        return payload;
+    }
+
+    /**
+     * 일괄 변경된 상품들, 바뀌지 않은 값(null)은 넣지 않는다
+     */
+    public static Map<String, Object> itemsBulkUpdated(List<ItemChange> changes) {
+        return itemsBulkUpdated(changes, Set.of());
+    }
+
+    /**
+     * renamed 에 있는 상품은 renamed: true (order_view 재생성 대상)
+     */
+    public static Map<String, Object> itemsBulkUpdated(List<ItemChange> changes, Set<Long> renamed) {
+        List<Map<String, Object>> items = changes.stream()
+                .map(c -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("itemId", c.getItemId());
+                    if (c.getPrice() != null) {
+                        item.put("price", c.getPrice());
+                    }
+                    if (c.getStockQuantity() != null) {
+                        item.put("stock", c.getStockQuantity());
+                    }
+                    if (renamed.contains(c.getItemId())) {
+                        item.put("renamed", true);
+                    }
+                    return item;
+                })
+                .collect(Collectors.toList());
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("items", items);
+        return payload;
+    }
+
+    private static List<Map<String, Object>> items(List<OrderItem> orderItems) {
+        return orderItems.stream()
+                .map(oi -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("itemId", oi.getItem().getId());
+                    item.put("count", oi.getCount());
+                    item.put("orderPrice", oi.getOrderPrice());
+                    item.put("stock", oi.getItem().getStockQuantity());
+                    return item;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.outbox;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.outbox")
+@Getter @Setter
+public class OutboxProperties {
+
+    private boolean enabled = true;
+    private int batchSize = 100; // 컨슈머에 한번에 넘기는 이벤트 수
+    private int maxBatchesPerRun = 10; // 한 주기에 컨슈머당 최대 배치 수, 나머지는 다음 주기로
+    private long gapTimeoutMillis = 10000; // 빠진 이벤트 번호를 커밋 안 된 트랜잭션으로 보고 기다리는 시간, 지나면 건너뛰고 늦게 커밋되면 그때 넘긴다 (outbox_gap)
+    private long maxBackoffMillis = 60000; // 컨슈머 실패시 재시도 간격 최대값
+    private long retentionMinutes = 60; // 모든 컨슈머가 처리한 이벤트 보관 시간, 건너뛴 번호도 이 시간까지 기다린다
+    private int lowStockThreshold = 10;
+}
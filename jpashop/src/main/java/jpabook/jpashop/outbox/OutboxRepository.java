@@ -0,0 +1,116 @@
+package jpabook.jpashop.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    private final EntityManager em;
+
+    public void save(OutboxEvent event) {
+        em.persist(event);
+    }
+
+    /**
+     * afterId 다음 이벤트부터 id 순으로
+     */
+    public List<OutboxEvent> findAfter(long afterId, int limit) {
+        return em.createQuery(
+                        "select e from OutboxEvent e" +
+                                " where e.id > :afterId" +
+                                " order by e.id", OutboxEvent.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 컨슈머가 건너뛴 번호 중 늦게 커밋되어 나타난 이벤트, id 순으로
+     */
+    public List<OutboxEvent> findLateEvents(String consumer, int limit) {
+        return em.createQuery(
+                        "select e from OutboxEvent e" +
+                                " where e.id in (select g.eventId from OutboxGap g where g.consumer = :consumer)" +
+                                " order by e.id", OutboxEvent.class)
+                .setParameter("consumer", consumer)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public void saveGaps(String consumer, List<Long> eventIds) {
+        for (Long eventId : eventIds) {
+            em.persist(new OutboxGap(consumer, eventId));
+        }
+    }
+
+    public int deleteGaps(String consumer, List<Long> eventIds) {
+        return em.createQuery(
+                        "delete from OutboxGap g" +
+                                " where g.consumer = :consumer" +
+                                " and g.eventId in :eventIds")
+                .setParameter("consumer", consumer)
+                .setParameter("eventIds", eventIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 보관시간이 지나도 나타나지 않은 번호는 롤백된 것으로 보고 지운다
+     */
+    public int deleteGapsSkippedBefore(LocalDateTime skippedBefore) {
+        return em.createQuery("delete from OutboxGap g where g.skippedAt < :skippedBefore")
+                .setParameter("skippedBefore", skippedBefore)
+                .executeUpdate();
+    }
+
+    /**
+     * 컨슈머별 아직 기다리는 빈 번호 수
+     */
+    public List<Object[]> countGapsByConsumer() {
+        return em.createQuery("select g.consumer, count(g) from OutboxGap g group by g.consumer", Object[].class)
+                .getResultList();
+    }
+
+    public Long findLastEventId() {
+        return em.createQuery("select max(e.id) from OutboxEvent e", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * 처리 위치 행을 잠근다 -> 서버가 여러 대여도 한 컨슈머의 배치는 한 곳에서만 처리된다.
+     */
+    public OutboxOffset findOffsetForUpdate(String consumer) {
+        OutboxOffset offset = em.find(OutboxOffset.class, consumer, LockModeType.PESSIMISTIC_WRITE);
+        if (offset == null) {
+            offset = new OutboxOffset(consumer);
+            em.persist(offset);
+            em.flush();
+        }
+        return offset;
+    }
+
+    public List<OutboxOffset> findOffsets() {
+        return em.createQuery("select o from OutboxOffset o", OutboxOffset.class)
+                .getResultList();
+    }
+
+    /**
+     * 모든 컨슈머가 처리했고 보관기간이 지난 이벤트 삭제, 어느 컨슈머든 건너뛰고 기다리는 번호는 남긴다
+     */
+    public int deleteConsumed(long upToId, LocalDateTime createdBefore) {
+        return em.createQuery(
+                        "delete from OutboxEvent e" +
+                                " where e.id <= :upToId" +
+                                " and e.createdAt < :createdBefore" +
+                                " and e.id not in (select g.eventId from OutboxGap g)")
+                .setParameter("upToId", upToId)
+                .setParameter("createdBefore", createdBefore)
+                .executeUpdate();
+    }
+}
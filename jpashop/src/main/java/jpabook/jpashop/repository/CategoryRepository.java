@@ -0,0 +1,55 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+
+    public void save(Category category) {
+        em.persist(category);
+    }
+
+    /**
+     * 이름 -> 카테고리 id, 같은 이름이 여러개면 먼저 만들어진 것
+     */
+    public Map<String, Long> findIdsByNames(Collection<String> names) {
+        Map<String, Long> result = new HashMap<>();
+        if (names.isEmpty()) {
+            return result;
+        }
+        em.createQuery("select c.name, min(c.id) from Category c where c.name in :names group by c.name", Object[].class)
+                .setParameter("names", names)
+                .getResultList()
+                .forEach(row -> result.put((String) row[0], (Long) row[1]));
+        return result;
+    }
+
+    /**
+     * 상품들의 카테고리 연결 삭제 (jdbc batch)
+     */
+    public void deleteItemLinks(List<Long> itemIds) {
+        jdbcTemplate.batchUpdate("delete from category_item where item_id = ?",
+                itemIds.stream().map(id -> new Object[]{id}).collect(Collectors.toList()));
+    }
+
+    /**
+     * 카테고리-상품 연결 추가 (jdbc batch), links 는 {categoryId, itemId}
+     */
+    public void insertItemLinks(List<Object[]> links) {
+        jdbcTemplate.batchUpdate("insert into category_item (category_id, item_id) values (?, ?)", links);
+    }
+}
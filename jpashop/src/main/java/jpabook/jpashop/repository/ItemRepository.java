@@ -1,17 +1,30 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemChange;
+import jpabook.jpashop.domain.item.ItemRow;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
 
+    private static final int IN_LIST_SIZE = 1000;
+
     private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
 
     public void save(Item item) {
         if (item.getId() == null) { // 신규등록
@@ -29,4 +42,108 @@ public class ItemRepository {
         return em.createQuery("select i from Item i", Item.class)
                 .getResultList();
     }
+
+    /**
+     * 가격/재고 일괄 변경, jdbc batch 한번으로 보낸다 (엔티티를 읽지 않는다)
+     * 영속성 컨텍스트에 올라와 있는 상품은 값이 달라지므로 호출한 쪽에서 clear 해야 한다.
+     * 반환값은 건별 변경된 행 수 (0 이면 없는 상품)
+     */
+    public int[] bulkUpdate(List<ItemChange> changes) {
+        List<Object[]> args = changes.stream()
+                .map(c -> new Object[]{c.getPrice(), c.getStockQuantity(), c.getItemId()})
+                .collect(Collectors.toList());
+        return jdbcTemplate.batchUpdate(
+                "update item set price = coalesce(?, price), stock_quantity = coalesce(?, stock_quantity) where item_id = ?",
+                args, new int[]{Types.INTEGER, Types.INTEGER, Types.BIGINT});
+    }
+
+    /**
+     * 상품별 재고 증가, jdbc batch 한번 (상품 id 순서로 보내야 동시에 도는 일괄 작업끼리 락 순서가 같다)
+     * 영속성 컨텍스트는 호출한 쪽에서 clear 해야 한다.
+     */
+    public int[] addStock(Map<Long, Integer> quantities) {
+        List<Object[]> args = quantities.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .collect(Collectors.toList());
+        return jdbcTemplate.batchUpdate("update item set stock_quantity = stock_quantity + ? where item_id = ?",
+                args, new int[]{Types.INTEGER, Types.BIGINT});
+    }
+
+    /**
+     * 상품 id -> 현재 재고, in 절은 IN_LIST_SIZE 개씩 나눠서 보낸다
+     */
+    public Map<Long, Integer> findStocks(Collection<Long> itemIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        List<Long> list = new ArrayList<>(itemIds);
+        for (int from = 0; from < list.size(); from += IN_LIST_SIZE) {
+            List<Long> part = list.subList(from, Math.min(from + IN_LIST_SIZE, list.size()));
+            jdbcTemplate.query(
+                    "select item_id, stock_quantity from item where item_id in (" + String.join(",", Collections.nCopies(part.size(), "?")) + ")",
+                    rs -> {
+                        result.put(rs.getLong("item_id"), rs.getInt("stock_quantity"));
+                    },
+                    part.toArray());
+        }
+        return result;
+    }
+
+    /**
+     * 상품 코드로 기존 상품 조회 (id, dtype, 이름만 채운다), in 절은 IN_LIST_SIZE 개씩 나눠서 보낸다
+     */
+    public Map<String, ItemRow> findRowsBySku(Collection<String> skus) {
+        Map<String, ItemRow> result = new HashMap<>();
+        List<String> list = new ArrayList<>(skus);
+        for (int from = 0; from < list.size(); from += IN_LIST_SIZE) {
+            List<String> part = list.subList(from, Math.min(from + IN_LIST_SIZE, list.size()));
+            jdbcTemplate.query(
+                    "select item_id, dtype, sku, name from item where sku in (" + String.join(",", Collections.nCopies(part.size(), "?")) + ")",
+                    rs -> {
+                        ItemRow row = new ItemRow();
+                        row.setItemId(rs.getLong("item_id"));
+                        row.setDtype(rs.getString("dtype"));
+                        row.setSku(rs.getString("sku"));
+                        row.setName(rs.getString("name"));
+                        result.put(row.getSku(), row);
+                    },
+                    part.toArray());
+        }
+        return result;
+    }
+
+    /**
+     * hibernate_sequence 에서 id 를 count 개 한번에 받는다 (엔티티 persist 와 같은 시퀀스)
+     * system_range 는 h2 전용이다. 다른 db 로 옮기면 바꿔야 한다 (postgresql: select nextval('hibernate_sequence') from generate_series(1, ?))
+     */
+    public List<Long> nextIds(int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList("select next value for hibernate_sequence from system_range(1, ?)", Long.class, count);
+    }
+
+    /**
+     * 신규 상품 jdbc batch insert, itemId 는 미리 채워져 있어야 한다
+     */
+    public void insertRows(List<ItemRow> rows) {
+        jdbcTemplate.batchUpdate(
+                "insert into item (item_id, dtype, sku, name, price, stock_quantity, author, isbn, artist, etc, director, actor)"
+                        + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                rows.stream().map(r -> new Object[]{r.getItemId(), r.getDtype(), r.getSku(), r.getName(), r.getPrice(), r.getStockQuantity(),
+                        r.getAuthor(), r.getIsbn(), r.getArtist(), r.getEtc(), r.getDirector(), r.getActor()}).collect(Collectors.toList()),
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.INTEGER,
+                        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR});
+    }
+
+    /**
+     * 기존 상품 값 전체 교체 jdbc batch update, 영속성 컨텍스트는 호출한 쪽에서 clear 해야 한다
+     */
+    public void updateRows(List<ItemRow> rows) {
+        jdbcTemplate.batchUpdate(
+                "update item set name = ?, price = ?, stock_quantity = ?, author = ?, isbn = ?, artist = ?, etc = ?, director = ?, actor = ?"
+                        + " where item_id = ?",
+                rows.stream().map(r -> new Object[]{r.getName(), r.getPrice(), r.getStockQuantity(),
+                        r.getAuthor(), r.getIsbn(), r.getArtist(), r.getEtc(), r.getDirector(), r.getActor(), r.getItemId()}).collect(Collectors.toList()),
+                new int[]{Types.VARCHAR, Types.INTEGER, Types.INTEGER,
+                        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT});
+    }
 }
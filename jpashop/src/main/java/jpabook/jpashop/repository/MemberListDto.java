@@ -0,0 +1,24 @@
+package jpabook.jpashop.repository;
+
+import lombok.Data;
+
+/**
+ * 회원 목록 한 행, 엔티티 대신 필요한 컬럼만 select 한다 (영속성 컨텍스트에 올라가지 않는다)
+ */
+@Data
+public class MemberListDto {
+
+    private Long id;
+    private String name;
+    private String city;
+    private String street;
+    private String zipcode;
+
+    public MemberListDto(Long id, String name, String city, String street, String zipcode) {
+        this.id = id;
+        this.name = name;
+        this.city = city;
+        this.street = street;
+        this.zipcode = zipcode;
+    }
+}
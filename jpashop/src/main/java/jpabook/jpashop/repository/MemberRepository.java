@@ -1,7 +1,11 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -12,4 +16,22 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
 
     //jpa가 findByOOO 되어있으면 select from Member m where m.OOO = ? 이렇게 jpql을 만든다
     List<Member> findByName(String name);
+
+    @Query("select m.name from Member m order by m.id")
+    Slice<String> findAllNames(Pageable pageable);
+
+    /**
+     * offset 페이징, Slice 라서 count 쿼리 없이 size + 1 개만 읽어서 다음 페이지 여부를 안다
+     */
+    @Query("select new jpabook.jpashop.repository.MemberListDto(m.id, m.name, m.address.city, m.address.street, m.address.zipcode)"
+            + " from Member m")
+    Slice<MemberListDto> findListBy(Pageable pageable);
+
+    /**
+     * keyset 페이징, afterId 다음부터 pk 인덱스로 바로 찾아가므로 몇 번째 페이지든 비용이 같다
+     * 크기는 pageable 의 size 만 쓴다 (page 는 0)
+     */
+    @Query("select new jpabook.jpashop.repository.MemberListDto(m.id, m.name, m.address.city, m.address.street, m.address.zipcode)"
+            + " from Member m where m.id > :afterId order by m.id")
+    List<MemberListDto> findListAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -0,0 +1,137 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * 용도별 주문 조회 계획 = 미리 올릴 연관관계 경로의 집합
+ * 경로는 조합할 수 있다 -> OrderFetchPlan.of("member", "orderItems"), SUMMARY.with("orderItems.item")
+ * xToOne(member, delivery)은 경로를 모아 만든 엔티티 그래프 하나로 같은 쿼리에서 조인해서 가져오고,
+ * 컬렉션(orderItems, orderItems.item)은 조회 후 default_batch_fetch_size 단위 in 쿼리로 초기화한다.
+ * 그래프에 컬렉션을 넣지 않으므로 limit/offset 이 항상 db 에서 처리된다 (메모리 페이징 없음).
+ */
+@EqualsAndHashCode
+@ToString
+public final class OrderFetchPlan {
+
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+
+    private static final Set<String> TO_ONE_PATHS = Set.of("member", "delivery");
+    private static final String ORDER_ITEMS = "orderItems";
+    private static final String ORDER_ITEMS_ITEM = "orderItems.item";
+
+    /**
+     * 주문만, 연관관계는 지연로딩
+     */
+    public static final OrderFetchPlan NONE = new OrderFetchPlan(Collections.emptySortedSet());
+    /**
+     * 주문 + member, delivery
+     */
+    public static final OrderFetchPlan SUMMARY = NONE.with("member", "delivery");
+    /**
+     * SUMMARY + orderItems, item (배치 로딩)
+     */
+    public static final OrderFetchPlan DETAIL = SUMMARY.with(ORDER_ITEMS_ITEM);
+
+    private final SortedSet<String> paths;
+
+    private OrderFetchPlan(SortedSet<String> paths) {
+        this.paths = Collections.unmodifiableSortedSet(paths);
+    }
+
+    public static OrderFetchPlan of(String... paths) {
+        return NONE.with(paths);
+    }
+
+    /**
+     * 요청 파라미터 변환용 (스프링이 valueOf(String) 으로 변환한다)
+     * 계획 이름(NONE, SUMMARY, DETAIL)과 경로를 쉼표로 섞어 쓸 수 있다 -> plan=SUMMARY,orderItems
+     */
+    public static OrderFetchPlan valueOf(String value) {
+        OrderFetchPlan plan = NONE;
+        for (String token : value.split(",")) {
+            String name = token.trim();
+            switch (name.toUpperCase(Locale.ROOT)) {
+                case "": case "NONE": break;
+                case "SUMMARY": plan = plan.with(SUMMARY); break;
+                case "DETAIL": plan = plan.with(DETAIL); break;
+                default: plan = plan.with(name);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 경로를 더한 새 계획, orderItems.item 은 orderItems 를 포함한다
+     */
+    public OrderFetchPlan with(String... more) {
+        SortedSet<String> merged = new TreeSet<>(paths);
+        for (String path : more) {
+            if (!TO_ONE_PATHS.contains(path) && !ORDER_ITEMS.equals(path) && !ORDER_ITEMS_ITEM.equals(path)) {
+                throw new IllegalArgumentException("알 수 없는 조회 경로: " + path);
+            }
+            merged.add(path);
+            if (ORDER_ITEMS_ITEM.equals(path)) {
+                merged.add(ORDER_ITEMS);
+            }
+        }
+        return new OrderFetchPlan(merged);
+    }
+
+    public OrderFetchPlan with(OrderFetchPlan other) {
+        return with(other.paths.toArray(new String[0]));
+    }
+
+    public Set<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * 쿼리나 em.find 에 넘길 힌트, xToOne 경로를 그래프 하나로 합친다
+     */
+    public Map<String, Object> hints(EntityManager em) {
+        Map<String, Object> hints = new HashMap<>();
+        String[] toOne = paths.stream().filter(TO_ONE_PATHS::contains).toArray(String[]::new);
+        if (toOne.length > 0) {
+            EntityGraph<Order> graph = em.createEntityGraph(Order.class);
+            graph.addAttributeNodes(toOne);
+            hints.put(FETCH_GRAPH, graph);
+        }
+        return hints;
+    }
+
+    /**
+     * 조회가 끝난 주문의 컬렉션 초기화
+     * 첫 접근에서 배치 크기만큼 한번에 in 쿼리로 올라온다 -> orderItems 1번, item 1번
+     */
+    public List<Order> initialize(List<Order> orders) {
+        if (!paths.contains(ORDER_ITEMS)) {
+            return orders;
+        }
+        boolean items = paths.contains(ORDER_ITEMS_ITEM);
+        for (Order order : orders) {
+            Hibernate.initialize(order.getOrderItems());
+            if (!items) {
+                continue;
+            }
+            for (OrderItem orderItem : order.getOrderItems()) {
+                Hibernate.initialize(orderItem.getItem());
+            }
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 화면 한 행 (대표상품은 첫 주문상품)
+ */
+@Data
+public class OrderListDto {
+
+    private Long orderId;
+    private Long version;
+    private String memberName;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+    private OrderStatus status;
+    private LocalDateTime orderDate;
+
+    public OrderListDto(Long orderId, Long version, String memberName, String itemName, int orderPrice, int count,
+                        OrderStatus status, LocalDateTime orderDate) {
+        this.orderId = orderId;
+        this.version = version;
+        this.memberName = memberName;
+        this.itemName = itemName;
+        this.orderPrice = orderPrice;
+        this.count = count;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
+}
@@ -1,24 +1,41 @@
 package jpabook.jpashop.repository;
 
+import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.QItem;
+import jpabook.jpashop.repository.support.OrderDateQueries;
+import jpabook.jpashop.repository.support.QueryCoalescer;
+import jpabook.jpashop.repository.support.StatelessScanner;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
 
     private final EntityManager em;
+    private final QueryCoalescer queryCoalescer;
+    private final StatelessScanner statelessScanner;
 
     public void save(Order order) {
         em.persist(order);
@@ -28,7 +45,68 @@ public class OrderRepository {
         return em.find(Order.class, id);
     }
 
-    public List<Order> findAll(OrderSearch orderSearch){
+    /**
+     * 조회 계획에 맞춰 연관관계까지 한번에 조회
+     */
+    public Order findOne(Long id, OrderFetchPlan plan) {
+        Order order = em.find(Order.class, id, plan.hints(em));
+        if (order != null) {
+            plan.initialize(List.of(order));
+        }
+        return order;
+    }
+
+    /**
+     * 보관 테이블로 옮겨진 주문은 엔티티 검색 대상이 아니다 -> 주문일 범위가 있으면 orders 의 주문일 인덱스만 탄다.
+     * 범위가 보관 주문과 겹치면 빠진 주문이 있다는 걸 응답에 알려준다 (OrderService.excludesArchive)
+     * 같은 검색조건으로 동시에 들어온 요청은 검색 쿼리를 한번만 실행한다.
+     * 엔티티는 각자의 영속성 컨텍스트에 있어야 하므로 leader 는 자기 엔티티를 그대로 쓰고,
+     * 나머지는 공유받은 order id 로 pk in 쿼리만 날려서 자기 영속성 컨텍스트에 올린다.
+     */
+    public List<Order> findAll(OrderSearch orderSearch) {
+        return findAll(orderSearch, OrderFetchPlan.NONE, 0, 1000);
+    }
+
+    public List<Order> findAll(OrderSearch orderSearch, OrderFetchPlan plan) {
+        return findAll(orderSearch, plan, 0, 1000);
+    }
+
+    /**
+     * 결과는 최신 주문부터 (order_id desc), 모든 findAll 이 같은 순서다.
+     * 조회 계획(plan)은 쿼리 모양을 바꾸지 않는다 -> 계획이 달라도 같은 검색이면 합쳐서 실행한다.
+     */
+    public List<Order> findAll(OrderSearch orderSearch, OrderFetchPlan plan, int offset, int limit) {
+        List<List<Order>> own = new ArrayList<>(1);
+        List<Long> orderIds = queryCoalescer.coalesce("OrderRepository.findAll", () -> {
+            List<Order> orders = search(orderSearch, plan, offset, limit);
+            own.add(orders);
+            return orders.stream().map(Order::getId).collect(Collectors.toList());
+        }, UnaryOperator.identity(), orderSearch.conditions(), offset, limit);
+
+        if (!own.isEmpty()) {
+            return plan.initialize(own.get(0));
+        }
+        return plan.initialize(findAllByIds(orderIds, plan));
+    }
+
+    private List<Order> findAllByIds(List<Long> orderIds, OrderFetchPlan plan) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TypedQuery<Order> query = em.createQuery(
+                        "select o from Order o where o.id in :orderIds", Order.class)
+                .setParameter("orderIds", orderIds);
+        plan.hints(em).forEach(query::setHint);
+        Map<Long, Order> orderMap = query
+                .getResultList().stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        // 검색 쿼리 결과 순서를 그대로 유지
+        return orderIds.stream()
+                .map(orderMap::get)
+                .collect(Collectors.toList());
+    }
+
+    private List<Order> search(OrderSearch orderSearch, OrderFetchPlan plan, int offset, int limit){
 
         /**
          * 값이 다 있다는 가정하에 코드 동적쿼리x
@@ -47,25 +125,151 @@ public class OrderRepository {
          */
         JPAQueryFactory query = new JPAQueryFactory(em);
         QOrder order = QOrder.order;
-        QMember member = QMember.member;
 
         // 이게 jpql로 바꿔서 실행이 된다.
         // 장점 컴파일시점에 오타가 잡힌다.
-        return query
+        JPAQuery<Order> search = query
                 .select(order)
                 .from(order)
+                .where(conditions(orderSearch)) //상태가 똑같으면 컨디션이 없을때 null로 반환되기 때문에 where에서 안써서 버림
+                .orderBy(order.id.desc())
+                .offset(offset)
+                .limit(limit);
+        plan.hints(em).forEach(search::setHint);
+        return search.fetch();
+    }
+
+    /**
+     * findAll 과 같은 조건의 건수, 보관 주문은 세지 않는다 (페이지 전체 건수는 OrderService 가 CountCache 로 캐시)
+     */
+    public long count(OrderSearch orderSearch) {
+        JPAQueryFactory query = new JPAQueryFactory(em);
+        QOrder order = QOrder.order;
+        Long count = query
+                .select(order.count())
+                .from(order)
+                .where(conditions(orderSearch))
+                .fetchOne();
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 주문 목록 화면 한 페이지, 최신 주문부터 (keyset: beforeId 보다 오래된 주문)
+     * 엔티티 대신 화면에 보이는 컬럼만 쿼리 하나로 읽는다. 대표상품(첫 주문상품)은 상관 서브쿼리로 주문마다 하나만 조인한다.
+     */
+    public List<OrderListDto> findListPage(OrderSearch orderSearch, Long beforeId, int limit) {
+        JPAQueryFactory query = new JPAQueryFactory(em);
+        QOrder order = QOrder.order;
+        QMember member = QMember.member;
+        QOrderItem orderItem = QOrderItem.orderItem;
+        QOrderItem firstItem = new QOrderItem("firstItem");
+        QItem item = QItem.item;
+
+        return query
+                .select(Projections.constructor(OrderListDto.class,
+                        order.id, order.version, member.name, item.name, orderItem.orderPrice, orderItem.count,
+                        order.status, order.orderDate))
+                .from(order)
                 .join(order.member, member)
-                .where(statusEq(orderSearch.getOrderStatus()), nameLike(orderSearch.getMemberName())) //상태가 똑같으면 컨디션이 없을때 null로 반환되기 때문에 where에서 안써서 버림
-                .limit(1000)
+                .join(order.orderItems, orderItem)
+                .join(orderItem.item, item)
+                .where(orderItem.id.eq(JPAExpressions.select(firstItem.id.min()).from(firstItem).where(firstItem.order.eq(order))),
+                        beforeId == null ? null : order.id.lt(beforeId))
+                .where(conditions(orderSearch))
+                .orderBy(order.id.desc())
+                .limit(limit)
+                .fetch();
+    }
+
+    //== 일괄 취소 ==//
+
+    /**
+     * 검색 조건에 맞는 주문 id, afterId 다음부터 id 순서로 limit 개 (일괄 취소 대상을 청크로 나눠서 찾는다)
+     */
+    public List<Long> findIds(OrderSearch orderSearch, long afterId, int limit) {
+        JPAQueryFactory query = new JPAQueryFactory(em);
+        QOrder order = QOrder.order;
+        return query
+                .select(order.id)
+                .from(order)
+                .where(conditions(orderSearch))
+                .where(order.id.gt(afterId))
+                .orderBy(order.id.asc())
+                .limit(limit)
                 .fetch();
     }
 
+    /**
+     * 취소 가능 여부 확인용 [주문 id, 주문 상태, 배송 상태], 쿼리 한번
+     * 주문 행에 쓰기 락을 잡아서 확인하고 바꾸는 사이에 다른 취소/배송 완료가 끼어들지 못하게 한다.
+     */
+    public List<Object[]> findStatusesForUpdate(List<Long> orderIds) {
+        return em.createQuery(
+                        "select o.id, o.status, d.status" +
+                                " from Order o" +
+                                " join o.delivery d" +
+                                " where o.id in :orderIds", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 주문 상태를 update 한번으로 취소로 바꾼다, 목록 화면 행 캐시가 바뀐 걸 알도록 version 도 올린다
+     * 영속성 컨텍스트를 거치지 않으므로 호출한 쪽에서 clear 해야 한다.
+     */
+    public int cancelAll(List<Long> orderIds) {
+        return em.createQuery(
+                        "update Order o set o.status = :cancel, o.version = o.version + 1" +
+                                " where o.id in :orderIds and o.status = :order")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문들의 상품별 수량 합계 (상품 id 순서) -> 재고를 상품마다 한번씩만 되돌린다
+     */
+    public Map<Long, Integer> sumCountByItem(List<Long> orderIds) {
+        List<Object[]> rows = em.createQuery(
+                        "select oi.item.id, sum(oi.count)" +
+                                " from OrderItem oi" +
+                                " where oi.order.id in :orderIds" +
+                                " group by oi.item.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        Map<Long, Integer> counts = new TreeMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+
+    /**
+     * 검색 조건 전체, 값이 없는 조건은 null -> where 에서 빠진다
+     * 상품 조건은 in 서브쿼리: 상품 인덱스로 주문 id 를 먼저 찾고 주문은 pk 로 읽는다. 조인이 아니라서 주문상품 수만큼 주문이 늘어나지 않는다.
+     */
+    private BooleanExpression[] conditions(OrderSearch orderSearch) {
+        OrderDateRange range = orderSearch.getDateRange();
+        return new BooleanExpression[]{
+                statusEq(orderSearch.getOrderStatus()), statusIn(orderSearch.getOrderStatuses()),
+                nameLike(orderSearch.getMemberName()),
+                orderDateGoe(range), orderDateLt(range),
+                itemIdEq(orderSearch.getItemId()), itemNameStartsWith(orderSearch.getItemName()),
+                totalPriceGoe(orderSearch.getMinTotalPrice()), deliveryStatusEq(orderSearch.getDeliveryStatus())};
+    }
+
     //동적쿼리로 하려면 이렇게 메소드 만든다
+    //회원 조건도 in 서브쿼리: 회원 이름 인덱스로 회원 id 를 찾고 주문은 (member_id) 인덱스로 읽는다. 검색과 건수에 회원 조인이 필요 없다.
     private BooleanExpression nameLike(String memberName) {
         if (!StringUtils.hasText(memberName)) {
             return null;
         }
-        return QMember.member.name.like(memberName);
+        QMember searchMember = new QMember("searchMember");
+        return QOrder.order.member.id.in(JPAExpressions.select(searchMember.id)
+                .from(searchMember)
+                .where(searchMember.name.like(memberName)));
     }
 
     //condition 추가 동적쿼리용
@@ -76,6 +280,67 @@ public class OrderRepository {
         return QOrder.order.status.eq(statusCond);
     }
 
+    private BooleanExpression statusIn(Set<OrderStatus> statuses) {
+        if (statuses == null || statuses.isEmpty()) {
+            return null;
+        }
+        return QOrder.order.status.in(statuses);
+    }
+
+    //상품 조건: order_item (item_id, order_id) 인덱스
+    private BooleanExpression itemIdEq(Long itemId) {
+        if (itemId == null) {
+            return null;
+        }
+        QOrderItem orderItem = new QOrderItem("searchItem");
+        return QOrder.order.id.in(JPAExpressions.select(orderItem.order.id)
+                .from(orderItem)
+                .where(orderItem.item.id.eq(itemId)));
+    }
+
+    //상품명 앞부분 일치: item (name) 인덱스
+    private BooleanExpression itemNameStartsWith(String itemName) {
+        if (!StringUtils.hasText(itemName)) {
+            return null;
+        }
+        QOrderItem orderItem = new QOrderItem("searchItem");
+        QItem item = new QItem("searchItemItem");
+        return QOrder.order.id.in(JPAExpressions.select(orderItem.order.id)
+                .from(orderItem)
+                .join(orderItem.item, item)
+                .where(item.name.startsWith(itemName)));
+    }
+
+    private BooleanExpression totalPriceGoe(Integer minTotalPrice) {
+        if (minTotalPrice == null) {
+            return null;
+        }
+        return QOrder.order.totalPrice.goe(minTotalPrice);
+    }
+
+    //배송 상태: 배송과 조인, delivery (status, delivery_id) 인덱스에서 시작해서 주문은 (delivery_id) 인덱스로 읽는다
+    private BooleanExpression deliveryStatusEq(DeliveryStatus deliveryStatus) {
+        if (deliveryStatus == null) {
+            return null;
+        }
+        return QOrder.order.delivery.status.eq(deliveryStatus);
+    }
+
+    //주문일 범위 조건
+    private BooleanExpression orderDateGoe(OrderDateRange range) {
+        if (range.getFrom() == null) {
+            return null;
+        }
+        return QOrder.order.orderDate.goe(range.getFrom());
+    }
+
+    private BooleanExpression orderDateLt(OrderDateRange range) {
+        if (range.getTo() == null) {
+            return null;
+        }
+        return QOrder.order.orderDate.lt(range.getTo());
+    }
+
     /**
      * 프로젝트 할 때 스프링 부트,
      * spring data jpa, 쿼리 dsl은 꼭 사용 실무에서 생산성을 극대화하며 코드도 깔끔하고 컴파일시점에 문법오류도 잡아줘서 개발을 깔끔하게 할 수 있다.
@@ -163,6 +428,31 @@ public class OrderRepository {
         ).getResultList();
     }
 
+    /**
+     * 주문일 범위 버전 (v3.1 방식), 컬렉션은 지연로딩 + default_batch_fetch_size
+     */
+    public List<Order> findAllWithMemberDelivery(OrderDateRange range) {
+        return OrderDateQueries.create(em,
+                "select o from Order o" +
+                        " join fetch o.member m" +
+                        " join fetch o.delivery d", "o.orderDate", range, Order.class)
+                .getResultList();
+    }
+
+    /**
+     * 배치용 전체 스캔: 주문 + member, delivery (StatelessSession, forward-only 커서)
+     * 넘겨받은 주문은 영속성 컨텍스트에 없다 -> orderItems 같은 지연로딩은 안 된다. 주문상품까지 필요하면 OrderQueryRepository.scanFlat
+     * fetchSize 가 0 이하면 jpashop.scan.fetch-size
+     */
+    public long scan(OrderDateRange range, int fetchSize, Consumer<Order> consumer) {
+        return statelessScanner.scan(session -> OrderDateQueries.bind(session.createQuery(
+                OrderDateQueries.jpql(
+                        "select o from Order o" +
+                                " join fetch o.member m" +
+                                " join fetch o.delivery d", "o.orderDate", range) +
+                        " order by o.id", Order.class), range), fetchSize, consumer);
+    }
+
     /**
      *collection을 조인하는 예제
      * Order와 orderItem을 조인하면
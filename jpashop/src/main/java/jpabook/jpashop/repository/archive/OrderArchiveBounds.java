@@ -0,0 +1,45 @@
+package jpabook.jpashop.repository.archive;
+
+import jpabook.jpashop.domain.OrderDateRange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 보관 테이블에 들어 있는 주문일시 범위 (파티션 프루닝용 메타데이터)
+ * 조회 범위가 이 범위와 겹치지 않으면 보관 테이블은 아예 조회하지 않는다.
+ * 기동 시점과 OrderArchiver 가 옮길 때마다 다시 읽는다. 다른 서버가 옮긴 것은 다음 실행 주기에 반영된다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderArchiveBounds {
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile LocalDateTime[] bounds;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        bounds = transactionTemplate.execute(status -> orderArchiveRepository.findOrderDateBounds());
+    }
+
+    public boolean mayContain(OrderDateRange range) {
+        LocalDateTime[] current = bounds;
+        return current != null && range.overlaps(current[0], current[1]);
+    }
+
+    public Map<String, Object> snapshot() {
+        LocalDateTime[] current = bounds;
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("oldestOrderDate", current == null ? null : current[0]);
+        map.put("newestOrderDate", current == null ? null : current[1]);
+        return map;
+    }
+}
@@ -0,0 +1,103 @@
+package jpabook.jpashop.repository.archive;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 주문 -> 보관 테이블 이동
+ * 한 배치는 insert ... select 와 delete 로 sql 몇 번에 끝낸다 (엔티티를 올리지 않는다).
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+
+    private final EntityManager em;
+
+    /**
+     * cutoff 이전 주문 중 취소됐거나 배송 완료된 것 -> 더 이상 바뀌지 않는 주문
+     */
+    public List<Long> findArchivableOrderIds(LocalDateTime cutoff, int limit) {
+        return em.createQuery(
+                        "select o.id from Order o" +
+                                " join o.delivery d" +
+                                " where o.orderDate < :cutoff" +
+                                " and (o.status = :canceled or d.status = :completed)" +
+                                " order by o.id", Long.class)
+                .setParameter("cutoff", cutoff)
+                .setParameter("canceled", OrderStatus.CANCEL)
+                .setParameter("completed", DeliveryStatus.COMP)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 보관 테이블로 복사한 뒤 원래 테이블에서 지운다. 같은 트랜잭션 안에서 호출해야 한다.
+     * 벌크 연산이라 영속성 컨텍스트는 비운다.
+     */
+    public int moveToArchive(List<Long> orderIds, LocalDateTime archivedAt) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        em.flush();
+
+        @SuppressWarnings("unchecked")
+        List<Number> deliveryIds = em.createNativeQuery(
+                        "select delivery_id from orders where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+
+        int moved = em.createNativeQuery(
+                        "insert into orders_archive (order_id, member_id, order_date, status, city, street, zipcode, delivery_status, archived_at)" +
+                                " select o.order_id, o.member_id, o.order_date, o.status, d.city, d.street, d.zipcode, d.status, :archivedAt" +
+                                " from orders o" +
+                                " left join delivery d on d.delivery_id = o.delivery_id" +
+                                " where o.order_id in (:orderIds)")
+                .setParameter("archivedAt", archivedAt)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.createNativeQuery(
+                        "insert into order_item_archive (order_item_id, order_id, item_id, order_price, count)" +
+                                " select oi.order_item_id, oi.order_id, oi.item_id, oi.order_price, oi.count" +
+                                " from order_item oi" +
+                                " where oi.order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        em.createNativeQuery("delete from order_item where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.createNativeQuery("delete from orders where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        if (!deliveryIds.isEmpty()) {
+            em.createNativeQuery("delete from delivery where delivery_id in (:deliveryIds)")
+                    .setParameter("deliveryIds", deliveryIds)
+                    .executeUpdate();
+        }
+        // order_view 행은 그대로 두고 보관 표시만 (보관 주문도 order_view 에서 조회한다)
+        em.createNativeQuery("update order_view set archived = true where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.clear();
+        return moved;
+    }
+
+    /**
+     * 보관 주문의 주문일시 최소/최대, 비어 있으면 null
+     */
+    public LocalDateTime[] findOrderDateBounds() {
+        Object[] bounds = em.createQuery(
+                        "select min(a.orderDate), max(a.orderDate) from ArchivedOrder a", Object[].class)
+                .getSingleResult();
+        if (bounds[0] == null) {
+            return null;
+        }
+        return new LocalDateTime[]{(LocalDateTime) bounds[0], (LocalDateTime) bounds[1]};
+    }
+}
@@ -0,0 +1,334 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * v6 조회 결과(주문상품 행)를 열 단위로 담는다
+ * OrderFlatDto 는 행마다 회원 이름, 주소, 주문일을 다시 들고 있고 id, 주문일도 객체라서 행이 많으면 힙 대부분이 중복이다.
+ * - 주문 열: 주문마다 한번 (id, 주문일 epoch 나노초는 long, 상태는 byte, 이름/주소는 사전 번호)
+ * - 주문상품 열: 행마다 (상품 이름 사전 번호, 가격, 수량), 주문별로 붙여 두고 lineStart ~ lineEnd 로 나눈다
+ * - 사전: 같은 문자열, 같은 주소는 객체 하나만 둔다
+ * 주문은 처음 나온 순서. 만든 뒤에는 바뀌지 않으므로 합쳐진 조회(QueryCoalescer)끼리 같이 써도 된다.
+ * json 은 List<OrderQueryDto> 와 같은 모양으로 바로 쓴다 (중간 dto 를 만들지 않는다).
+ */
+public final class OrderFlatColumns implements JsonSerializable {
+
+    private static final int NONE = -1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final long[] orderIds;
+    private final long[] orderDates;
+    private final byte[] statuses;
+    private final int[] names;
+    private final int[] addresses;
+    private final int[] lineStarts; // 길이 주문 수 + 1
+
+    private final int[] itemNames;
+    private final int[] orderPrices;
+    private final int[] counts;
+
+    private final String[] strings; // 회원 이름, 상품 이름 같이 쓰는 사전
+    private final Address[] addressDictionary;
+
+    private OrderFlatColumns(Builder b, int[] lineStarts, int[] itemNames, int[] orderPrices, int[] counts) {
+        this.orderIds = Arrays.copyOf(b.orderIds, b.orders);
+        this.orderDates = Arrays.copyOf(b.orderDates, b.orders);
+        this.statuses = Arrays.copyOf(b.statuses, b.orders);
+        this.names = Arrays.copyOf(b.names, b.orders);
+        this.addresses = Arrays.copyOf(b.addresses, b.orders);
+        this.lineStarts = lineStarts;
+        this.itemNames = itemNames;
+        this.orderPrices = orderPrices;
+        this.counts = counts;
+        this.strings = b.strings.toArray(new String[0]);
+        this.addressDictionary = b.addressList.toArray(new Address[0]);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static OrderFlatColumns of(List<OrderFlatDto> rows) {
+        Builder builder = builder();
+        rows.forEach(builder::add);
+        return builder.build();
+    }
+
+    //== 조회 ==//
+
+    public int orderCount() {
+        return orderIds.length;
+    }
+
+    public int lineCount() {
+        return itemNames.length;
+    }
+
+    public long orderId(int order) {
+        return orderIds[order];
+    }
+
+    public String name(int order) {
+        return string(names[order]);
+    }
+
+    public LocalDateTime orderDate(int order) {
+        long value = orderDates[order];
+        if (value == NO_DATE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(value, NANOS_PER_SECOND), (int) Math.floorMod(value, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    public OrderStatus orderStatus(int order) {
+        byte status = statuses[order];
+        return status == NONE ? null : STATUSES[status];
+    }
+
+    public Address address(int order) {
+        int code = addresses[order];
+        return code == NONE ? null : addressDictionary[code];
+    }
+
+    public int lineStart(int order) {
+        return lineStarts[order];
+    }
+
+    public int lineEnd(int order) {
+        return lineStarts[order + 1];
+    }
+
+    public String itemName(int line) {
+        return string(itemNames[line]);
+    }
+
+    public int orderPrice(int line) {
+        return orderPrices[line];
+    }
+
+    public int count(int line) {
+        return counts[line];
+    }
+
+    private String string(int code) {
+        return code == NONE ? null : strings[code];
+    }
+
+    //== 변환 ==//
+
+    /**
+     * v6 묶기 결과: 주문마다 OrderQueryDto 하나, 상품 행은 주문상품 dto 로
+     */
+    public List<OrderQueryDto> toOrderQueryDtos() {
+        List<OrderQueryDto> result = new ArrayList<>(orderCount());
+        for (int o = 0; o < orderCount(); o++) {
+            long orderId = orderIds[o];
+            List<OrderItemQueryDto> orderItems = new ArrayList<>(lineEnd(o) - lineStart(o));
+            for (int l = lineStart(o); l < lineEnd(o); l++) {
+                orderItems.add(new OrderItemQueryDto(orderId, itemName(l), orderPrices[l], counts[l]));
+            }
+            result.add(new OrderQueryDto(orderId, name(o), orderDate(o), orderStatus(o), address(o), orderItems));
+        }
+        return result;
+    }
+
+    /**
+     * 기존 행 단위 결과 (주문별로 모인 순서)
+     */
+    public List<OrderFlatDto> toFlatDtos() {
+        List<OrderFlatDto> result = new ArrayList<>(lineCount());
+        for (int o = 0; o < orderCount(); o++) {
+            for (int l = lineStart(o); l < lineEnd(o); l++) {
+                result.add(new OrderFlatDto(orderIds[o], name(o), orderDate(o), orderStatus(o), address(o), itemName(l), orderPrices[l], counts[l]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * OrderQueryDto 목록과 같은 필드 순서, 주문일/상태/주소는 설정된 ObjectMapper 직렬화를 그대로 쓴다
+     */
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartArray();
+        for (int o = 0; o < orderCount(); o++) {
+            gen.writeStartObject();
+            gen.writeNumberField("orderId", orderIds[o]);
+            gen.writeStringField("name", name(o));
+            provider.defaultSerializeField("orderDate", orderDate(o), gen);
+            provider.defaultSerializeField("orderStatus", orderStatus(o), gen);
+            provider.defaultSerializeField("address", address(o), gen);
+            gen.writeArrayFieldStart("orderItems");
+            for (int l = lineStart(o); l < lineEnd(o); l++) {
+                gen.writeStartObject();
+                gen.writeStringField("itemName", itemName(l));
+                gen.writeNumberField("orderPrice", orderPrices[l]);
+                gen.writeNumberField("count", counts[l]);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        serialize(gen, provider);
+    }
+
+    /**
+     * 행을 받는 순서대로 쌓는다. 주문별로 모여서 오지 않아도 build() 에서 주문별로 모은다.
+     */
+    public static final class Builder {
+
+        private final Map<Long, Integer> orderIndex = new HashMap<>();
+        private final Map<String, Integer> stringCodes = new HashMap<>();
+        private final Map<List<String>, Integer> addressCodes = new HashMap<>(); // Address 는 equals 가 없다
+        private final List<String> strings = new ArrayList<>();
+        private final List<Address> addressList = new ArrayList<>();
+
+        private long[] orderIds = new long[64];
+        private long[] orderDates = new long[64];
+        private byte[] statuses = new byte[64];
+        private int[] names = new int[64];
+        private int[] addresses = new int[64];
+        private int orders;
+
+        private int[] lineOrders = new int[64];
+        private int[] itemNames = new int[64];
+        private int[] orderPrices = new int[64];
+        private int[] counts = new int[64];
+        private int lines;
+        private boolean grouped = true;
+        private int lastOrder = NONE;
+
+        private Builder() {
+        }
+
+        public Builder add(OrderFlatDto row) {
+            return add(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(), row.getAddress(),
+                    row.getItemName(), row.getOrderPrice(), row.getCount());
+        }
+
+        public Builder add(long orderId, String name, LocalDateTime orderDate, OrderStatus status, Address address,
+                           String itemName, int orderPrice, int count) {
+            return line(order(orderId, name, orderDate, status, address), itemName, orderPrice, count);
+        }
+
+        /**
+         * 처음 보는 주문이면 주문 열에 넣는다, 주문 번호(0부터) 반환
+         */
+        public int order(long orderId, String name, LocalDateTime orderDate, OrderStatus status, Address address) {
+            // 같은 주문의 행이 이어서 오는 경우가 대부분 -> 맵 조회 생략
+            if (lastOrder != NONE && orderIds[lastOrder] == orderId) {
+                return lastOrder;
+            }
+            Integer index = orderIndex.get(orderId);
+            if (index == null) {
+                index = orders;
+                if (orders == orderIds.length) {
+                    int capacity = orders * 2;
+                    orderIds = Arrays.copyOf(orderIds, capacity);
+                    orderDates = Arrays.copyOf(orderDates, capacity);
+                    statuses = Arrays.copyOf(statuses, capacity);
+                    names = Arrays.copyOf(names, capacity);
+                    addresses = Arrays.copyOf(addresses, capacity);
+                }
+                orderIds[orders] = orderId;
+                orderDates[orders] = orderDate == null ? NO_DATE
+                        : orderDate.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + orderDate.getNano();
+                statuses[orders] = status == null ? NONE : (byte) status.ordinal();
+                names[orders] = stringCode(name);
+                addresses[orders] = addressCode(address);
+                orderIndex.put(orderId, index);
+                orders++;
+            }
+            lastOrder = index;
+            return index;
+        }
+
+        public Builder line(int order, String itemName, int orderPrice, int count) {
+            if (lines == lineOrders.length) {
+                int capacity = lines * 2;
+                lineOrders = Arrays.copyOf(lineOrders, capacity);
+                itemNames = Arrays.copyOf(itemNames, capacity);
+                orderPrices = Arrays.copyOf(orderPrices, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            if (lines > 0 && order < lineOrders[lines - 1]) {
+                grouped = false;
+            }
+            lineOrders[lines] = order;
+            itemNames[lines] = stringCode(itemName);
+            orderPrices[lines] = orderPrice;
+            counts[lines] = count;
+            lines++;
+            return this;
+        }
+
+        /**
+         * 주문 번호별 행 수로 시작 위치를 잡고(counting sort), 섞여 들어왔으면 주문별로 다시 놓는다
+         */
+        public OrderFlatColumns build() {
+            int[] lineStarts = new int[orders + 1];
+            for (int l = 0; l < lines; l++) {
+                lineStarts[lineOrders[l] + 1]++;
+            }
+            for (int o = 0; o < orders; o++) {
+                lineStarts[o + 1] += lineStarts[o];
+            }
+            if (grouped) {
+                return new OrderFlatColumns(this, lineStarts,
+                        Arrays.copyOf(itemNames, lines), Arrays.copyOf(orderPrices, lines), Arrays.copyOf(counts, lines));
+            }
+            int[] next = Arrays.copyOf(lineStarts, orders);
+            int[] sortedItemNames = new int[lines];
+            int[] sortedOrderPrices = new int[lines];
+            int[] sortedCounts = new int[lines];
+            for (int l = 0; l < lines; l++) {
+                int position = next[lineOrders[l]]++;
+                sortedItemNames[position] = itemNames[l];
+                sortedOrderPrices[position] = orderPrices[l];
+                sortedCounts[position] = counts[l];
+            }
+            return new OrderFlatColumns(this, lineStarts, sortedItemNames, sortedOrderPrices, sortedCounts);
+        }
+
+        private int stringCode(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            return stringCodes.computeIfAbsent(value, v -> {
+                strings.add(v);
+                return strings.size() - 1;
+            });
+        }
+
+        private int addressCode(Address address) {
+            if (address == null) {
+                return NONE;
+            }
+            return addressCodes.computeIfAbsent(Arrays.asList(address.getCity(), address.getStreet(), address.getZipcode()), k -> {
+                addressList.add(address);
+                return addressList.size() - 1;
+            });
+        }
+    }
+}
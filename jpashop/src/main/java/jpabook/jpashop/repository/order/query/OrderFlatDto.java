@@ -29,4 +29,8 @@ public class OrderFlatDto {
         this.orderPrice = orderPrice;
         this.count = count;
     }
+
+    public OrderFlatDto copy() {
+        return new OrderFlatDto(orderId, name, orderDate, orderStatus, address, itemName, orderPrice, count);
+    }
 }
@@ -18,4 +18,8 @@ public class OrderItemQueryDto {
         this.orderPrice = orderPrice;
         this.count = count;
     }
+
+    public OrderItemQueryDto copy() {
+        return new OrderItemQueryDto(orderId, itemName, orderPrice, count);
+    }
 }
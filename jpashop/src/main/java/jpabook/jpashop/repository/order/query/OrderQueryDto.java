@@ -7,6 +7,7 @@ import lombok.EqualsAndHashCode;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Data
 @EqualsAndHashCode(of="orderId")
@@ -35,4 +36,12 @@ public class OrderQueryDto {
         this.address = address;
         this.orderItems = orderItems;
     }
+
+    /**
+     * 합쳐진 조회(QueryCoalescer)에서 호출마다 따로 주는 복사본, 주문상품 목록까지 복사한다
+     */
+    public OrderQueryDto copy() {
+        return new OrderQueryDto(orderId, name, orderDate, orderStatus, address,
+                orderItems == null ? null : orderItems.stream().map(OrderItemQueryDto::copy).collect(Collectors.toList()));
+    }
 }
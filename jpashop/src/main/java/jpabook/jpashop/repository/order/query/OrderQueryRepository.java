@@ -1,32 +1,131 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.repository.archive.OrderArchiveBounds;
+import jpabook.jpashop.repository.order.view.OrderViewProperties;
+import jpabook.jpashop.repository.order.view.OrderViewRepository;
+import jpabook.jpashop.repository.support.OrderDateQueries;
+import jpabook.jpashop.repository.support.QueryCoalescer;
+import jpabook.jpashop.repository.support.StatelessScanner;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * jpashop.order-view.read-enabled 이면 order_view 한 테이블에서 읽는다 (OrderViewRepository).
+ * 끄면 아래 조인 조회를 쓴다.
+ * 주문일 범위를 받으면 orders 는 주문일 인덱스 범위로 조회하고,
+ * 보관 테이블(orders_archive)은 범위가 보관된 주문일과 겹칠 때만 조회해서 결과 뒤에 붙인다.
+ */
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final QueryCoalescer queryCoalescer;
+    private final OrderArchiveBounds orderArchiveBounds;
+    private final OrderViewRepository orderViewRepository;
+    private final OrderViewProperties orderViewProperties;
+    private final StatelessScanner statelessScanner;
 
-
+    // 같은 조회가 동시에 여러개 들어오면 쿼리는 한번만 실행하고 결과를 나눠 받는다. (dto 는 호출마다 복사본)
     public List<OrderQueryDto> findOrderQueryDtos() {
-        List<OrderQueryDto> result = findOrders();
+        return findOrderQueryDtos(OrderDateRange.all());
+    }
+
+    public List<OrderQueryDto> findOrderQueryDtos(OrderDateRange range) {
+        return queryCoalescer.coalesce("OrderQueryRepository.findOrderQueryDtos", () -> orderViewProperties.isReadEnabled()
+                ? orderViewRepository.findOrderQueryDtos(range) : findOrderQueryDtosInternal(range), OrderQueryDto::copy, range);
+    }
+
+    public List<OrderQueryDto> findAllByDto_optimization() {
+        return findAllByDto_optimization(OrderDateRange.all());
+    }
+
+    public List<OrderQueryDto> findAllByDto_optimization(OrderDateRange range) {
+        return queryCoalescer.coalesce("OrderQueryRepository.findAllByDto_optimization", () -> orderViewProperties.isReadEnabled()
+                ? orderViewRepository.findOrderQueryDtos(range) : findAllByDto_optimizationInternal(range), OrderQueryDto::copy, range);
+    }
+
+    public List<OrderFlatDto> findAllByDto_flat() {
+        return findAllByDto_flat(OrderDateRange.all());
+    }
+
+    public List<OrderFlatDto> findAllByDto_flat(OrderDateRange range) {
+        return queryCoalescer.coalesce("OrderQueryRepository.findAllByDto_flat", () -> orderViewProperties.isReadEnabled()
+                ? orderViewRepository.findFlatDtos(range) : findAllByDto_flatInternal(range), OrderFlatDto::copy, range);
+    }
+
+    /**
+     * v6 와 같은 행을 OrderFlatColumns 로 (행마다 dto 를 남기지 않는다)
+     * 조인 조회는 결과를 스트림으로 읽으므로 다 읽을 때까지 커넥션이 열려 있어야 한다 -> 읽기 전용 트랜잭션
+     */
+    @Transactional(readOnly = true)
+    public OrderFlatColumns findFlatColumns(OrderDateRange range) {
+        return queryCoalescer.coalesceValue("OrderQueryRepository.findFlatColumns", () -> orderViewProperties.isReadEnabled()
+                ? orderViewRepository.findFlatColumns(range) : findFlatColumnsInternal(range), range);
+    }
+
+    /**
+     * order_view 와 합치기(coalescer)를 거치지 않는 조인 조회 -> 조회 방식을 직접 고르는 OrderLoadingService 용
+     */
+    public List<OrderQueryDto> findAllByDto_optimizationJoin(OrderDateRange range) {
+        return findAllByDto_optimizationInternal(range);
+    }
+
+    @Transactional(readOnly = true)
+    public OrderFlatColumns findFlatColumnsJoin(OrderDateRange range) {
+        return findFlatColumnsInternal(range);
+    }
+
+    /**
+     * 배치용 주문상품 단위 스캔 (v6 와 같은 행), 보관 주문은 범위가 겹칠 때 뒤에 이어서
+     * StatelessSession + forward-only 커서라 결과를 모아두지 않고 행마다 consumer 로 넘긴다.
+     */
+    public long scanFlat(OrderDateRange range, int fetchSize, Consumer<OrderFlatDto> consumer) {
+        long rows = statelessScanner.scan(session -> OrderDateQueries.bind(session.createQuery(
+                OrderDateQueries.jpql(
+                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " join o.orderItems oi" +
+                                " join oi.item i", "o.orderDate", range) +
+                        " order by o.id", OrderFlatDto.class), range), fetchSize, consumer);
+        if (orderArchiveBounds.mayContain(range)) {
+            rows += statelessScanner.scan(session -> OrderDateQueries.bind(session.createQuery(
+                    OrderDateQueries.jpql(
+                            "select new jpabook.jpashop.repository.order.query.OrderFlatDto(a.id, m.name, a.orderDate, a.status, a.address, i.name, ai.orderPrice, ai.count)" +
+                                    " from ArchivedOrderItem ai" +
+                                    " join ai.order a" +
+                                    " join a.member m" +
+                                    " join ai.item i", "a.orderDate", range) +
+                            " order by a.id", OrderFlatDto.class), range), fetchSize, consumer);
+        }
+        return rows;
+    }
+
+    private List<OrderQueryDto> findOrderQueryDtosInternal(OrderDateRange range) {
+        List<OrderQueryDto> result = findOrders(range);
 
         result.forEach(o->{
             List<OrderItemQueryDto> orderItems = findOrderItems(o.getOrderId());
             o.setOrderItems(orderItems);
         });
+        result.addAll(findArchivedOrders(range));
         return result;
     }
 
-    public List<OrderQueryDto> findAllByDto_optimization() {
-        List<OrderQueryDto> result = findOrders();
+    private List<OrderQueryDto> findAllByDto_optimizationInternal(OrderDateRange range) {
+        List<OrderQueryDto> result = findOrders(range);
 
         // in절 날리기 위해 orderId 리스트 만드는 것
         List<Long> orderIds = result.stream()
@@ -49,6 +148,7 @@ public class OrderQueryRepository {
         //루프를 돌려 OrderItems에 담는다
         //핵심은 메모리에 올려둔 맵에서 찾아서 넣어준는것
         result.forEach(o->o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        result.addAll(findArchivedOrders(range));
         return result;
     }
 
@@ -62,24 +162,100 @@ public class OrderQueryRepository {
                 .getResultList();
     }
 
-    private List<OrderQueryDto> findOrders() {
-        return em.createQuery(
+    private List<OrderQueryDto> findOrders(OrderDateRange range) {
+        return createQuery(
                         "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)"+
                                 " from Order o" +
                                 " join o.member m" +
-                                " join o.delivery d", OrderQueryDto.class)
+                                " join o.delivery d", "o.orderDate", range, OrderQueryDto.class)
                 .getResultList();
     }
 
 
-    public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery(
+    private List<OrderFlatDto> findAllByDto_flatInternal(OrderDateRange range) {
+        List<OrderFlatDto> result = createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i", "o.orderDate", range, OrderFlatDto.class)
+                .getResultList();
+
+        if (orderArchiveBounds.mayContain(range)) {
+            result.addAll(createQuery(
+                    "select new jpabook.jpashop.repository.order.query.OrderFlatDto(a.id, m.name, a.orderDate, a.status, a.address, i.name, ai.orderPrice, ai.count)" +
+                            " from ArchivedOrderItem ai" +
+                            " join ai.order a" +
+                            " join a.member m" +
+                            " join ai.item i", "a.orderDate", range, OrderFlatDto.class)
+                    .getResultList());
+        }
+        return result;
+    }
+
+    /**
+     * findAllByDto_flatInternal 과 같은 쿼리, 결과를 목록으로 받지 않고 스크롤하면서 열에 쌓는다
+     */
+    private OrderFlatColumns findFlatColumnsInternal(OrderDateRange range) {
+        OrderFlatColumns.Builder builder = OrderFlatColumns.builder();
+        try (Stream<OrderFlatDto> rows = createQuery(
                 "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
                         " from Order o" +
                         " join o.member m" +
                         " join o.delivery d" +
                         " join o.orderItems oi" +
-                        " join oi.item i", OrderFlatDto.class)
+                        " join oi.item i", "o.orderDate", range, OrderFlatDto.class)
+                .getResultStream()) {
+            rows.forEach(builder::add);
+        }
+
+        if (orderArchiveBounds.mayContain(range)) {
+            try (Stream<OrderFlatDto> rows = createQuery(
+                    "select new jpabook.jpashop.repository.order.query.OrderFlatDto(a.id, m.name, a.orderDate, a.status, a.address, i.name, ai.orderPrice, ai.count)" +
+                            " from ArchivedOrderItem ai" +
+                            " join ai.order a" +
+                            " join a.member m" +
+                            " join ai.item i", "a.orderDate", range, OrderFlatDto.class)
+                    .getResultStream()) {
+                rows.forEach(builder::add);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 보관 주문은 주문상품까지 in 쿼리로 한번에 (범위가 겹치지 않으면 쿼리 없음)
+     */
+    private List<OrderQueryDto> findArchivedOrders(OrderDateRange range) {
+        if (!orderArchiveBounds.mayContain(range)) {
+            return List.of();
+        }
+        List<OrderQueryDto> archived = createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderQueryDto(a.id, m.name, a.orderDate, a.status, a.address)" +
+                        " from ArchivedOrder a" +
+                        " join a.member m", "a.orderDate", range, OrderQueryDto.class)
                 .getResultList();
+        if (archived.isEmpty()) {
+            return archived;
+        }
+
+        List<Long> orderIds = archived.stream()
+                .map(OrderQueryDto::getOrderId)
+                .collect(Collectors.toList());
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(ai.order.id, i.name, ai.orderPrice, ai.count)" +
+                                " from ArchivedOrderItem ai" +
+                                " join ai.item i" +
+                                " where ai.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList().stream()
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+        archived.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return archived;
+    }
+
+    private <T> TypedQuery<T> createQuery(String jpql, String orderDatePath, OrderDateRange range, Class<T> type) {
+        return OrderDateQueries.create(em, jpql, orderDatePath, range, type);
     }
 }
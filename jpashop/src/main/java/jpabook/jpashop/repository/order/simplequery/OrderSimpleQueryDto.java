@@ -32,4 +32,8 @@ public class OrderSimpleQueryDto {
         this.address = address;
 
     }
+
+    public OrderSimpleQueryDto copy() {
+        return new OrderSimpleQueryDto(orderId, name, orderDate, orderStatus, address);
+    }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package jpabook.jpashop.repository.order.simplequery;
 
+import jpabook.jpashop.repository.order.view.OrderViewProperties;
+import jpabook.jpashop.repository.order.view.OrderViewRepository;
+import jpabook.jpashop.repository.support.QueryCoalescer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
@@ -11,8 +14,16 @@ import java.util.List;
 public class OrderSimpleQueryRepository {
 
     private final EntityManager em;
+    private final QueryCoalescer queryCoalescer;
+    private final OrderViewRepository orderViewRepository;
+    private final OrderViewProperties orderViewProperties;
 
     public List<OrderSimpleQueryDto> findOrderDtos() {
+        return queryCoalescer.coalesce("OrderSimpleQueryRepository.findOrderDtos", () -> orderViewProperties.isReadEnabled()
+                ? orderViewRepository.findSimpleQueryDtos() : findOrderDtosInternal(), OrderSimpleQueryDto::copy);
+    }
+
+    private List<OrderSimpleQueryDto> findOrderDtosInternal() {
         return em.createQuery(
                         "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)"+
                                 " from Order o" +
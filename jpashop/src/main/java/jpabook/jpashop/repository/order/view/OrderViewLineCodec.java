@@ -0,0 +1,42 @@
+package jpabook.jpashop.repository.order.view;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.view.OrderViewLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 주문상품 목록 <-> order_lines json
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderViewLineCodec {
+
+    private static final TypeReference<List<OrderViewLine>> LINES = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public String write(List<OrderViewLine> lines) {
+        try {
+            return objectMapper.writeValueAsString(lines);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("주문상품 json 변환 실패", e);
+        }
+    }
+
+    public List<OrderViewLine> read(String json) {
+        if (json == null) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json, LINES);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("order_view 주문상품 json 읽기 실패: " + json, e);
+        }
+    }
+}
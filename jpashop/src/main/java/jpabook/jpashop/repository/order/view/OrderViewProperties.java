@@ -0,0 +1,16 @@
+package jpabook.jpashop.repository.order.view;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.order-view")
+@Getter @Setter
+public class OrderViewProperties {
+
+    private boolean readEnabled = true; // 주문 조회 api 를 order_view 에서 읽는다, 끄면 기존 조인 조회
+    private boolean rebuildIfEmpty = true; // 기동시 order_view 가 비어있고 주문이 있으면 재생성
+    private int rebuildBatchSize = 500; // 재생성 트랜잭션 하나에 처리할 주문 수
+}
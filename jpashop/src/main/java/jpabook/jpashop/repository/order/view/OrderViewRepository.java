@@ -0,0 +1,255 @@
+package jpabook.jpashop.repository.order.view;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.view.OrderView;
+import jpabook.jpashop.domain.view.OrderViewLine;
+import jpabook.jpashop.repository.order.query.OrderFlatColumns;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.support.OrderDateQueries;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 조회는 order_view 한 테이블만 읽는다 (주문일 범위는 idx_order_view_order_date).
+ * 보관된 주문도 order_view 에 남아 있어서 보관 테이블을 따로 조회하지 않는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderViewRepository {
+
+    private final EntityManager em;
+    private final OrderViewLineCodec codec;
+
+    //== 조회 ==//
+
+    public List<OrderQueryDto> findOrderQueryDtos(OrderDateRange range) {
+        return findViews(range).stream()
+                .map(v -> new OrderQueryDto(v.getOrderId(), v.getMemberName(), v.getOrderDate(), v.getStatus(), v.getAddress(),
+                        codec.read(v.getLines()).stream()
+                                .map(line -> new OrderItemQueryDto(v.getOrderId(), line.getItemName(), line.getOrderPrice(), line.getCount()))
+                                .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+    }
+
+    public List<OrderFlatDto> findFlatDtos(OrderDateRange range) {
+        List<OrderFlatDto> result = new ArrayList<>();
+        for (OrderView v : findViews(range)) {
+            for (OrderViewLine line : codec.read(v.getLines())) {
+                result.add(new OrderFlatDto(v.getOrderId(), v.getMemberName(), v.getOrderDate(), v.getStatus(), v.getAddress(),
+                        line.getItemName(), line.getOrderPrice(), line.getCount()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * findFlatDtos 와 같은 행을 열 단위로, 주문 정보는 주문마다 한번만 넣는다
+     */
+    public OrderFlatColumns findFlatColumns(OrderDateRange range) {
+        OrderFlatColumns.Builder builder = OrderFlatColumns.builder();
+        for (OrderView v : findViews(range)) {
+            List<OrderViewLine> lines = codec.read(v.getLines());
+            if (lines.isEmpty()) {
+                continue;
+            }
+            int order = builder.order(v.getOrderId(), v.getMemberName(), v.getOrderDate(), v.getStatus(), v.getAddress());
+            for (OrderViewLine line : lines) {
+                builder.line(order, line.getItemName(), line.getOrderPrice(), line.getCount());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 주문상품 json 은 읽지 않는다, 기존 조회처럼 보관된 주문은 뺀다
+     */
+    public List<OrderSimpleQueryDto> findSimpleQueryDtos() {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(v.orderId, v.memberName, v.orderDate, v.status, v.address)" +
+                                " from OrderView v" +
+                                " where v.archived = false", OrderSimpleQueryDto.class)
+                .getResultList();
+    }
+
+    // 읽기 전용 힌트 -> 스냅샷을 만들지 않는다
+    private List<OrderView> findViews(OrderDateRange range) {
+        return OrderDateQueries.create(em, "select v from OrderView v", "v.orderDate", range, OrderView.class)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+    }
+
+    public long count() {
+        return em.createQuery("select count(v) from OrderView v", Long.class).getSingleResult();
+    }
+
+    //== 증분 갱신 ==//
+
+    public void save(OrderView view) {
+        em.persist(view);
+    }
+
+    public int updateStatus(Long orderId, OrderStatus status) {
+        return em.createQuery("update OrderView v set v.status = :status, v.updatedAt = :now where v.orderId = :orderId")
+                .setParameter("status", status)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("orderId", orderId)
+                .executeUpdate();
+    }
+
+    public int updateStatuses(List<Long> orderIds, OrderStatus status) {
+        return em.createQuery("update OrderView v set v.status = :status, v.updatedAt = :now where v.orderId in :orderIds")
+                .setParameter("status", status)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    public int updateMemberName(Long memberId, String memberName) {
+        return em.createQuery("update OrderView v set v.memberName = :memberName, v.updatedAt = :now where v.memberId = :memberId")
+                .setParameter("memberName", memberName)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    /**
+     * 다시 만들 행을 먼저 잠근다 -> 이 행을 증분 갱신 중인 트랜잭션(취소, 회원명 변경)이 있으면 커밋될 때까지 기다렸다가 원본을 읽는다
+     */
+    public List<Long> lockByIds(List<Long> orderIds) {
+        return em.createQuery("select v.orderId from OrderView v where v.orderId in :orderIds", Long.class)
+                .setParameter("orderIds", orderIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    public int deleteByIds(List<Long> orderIds) {
+        return em.createQuery("delete from OrderView v where v.orderId in :orderIds")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 재생성 중 한번도 갱신되지 않은 행 = 원본이 없어진 주문
+     */
+    public int deleteUpdatedBefore(LocalDateTime time) {
+        return em.createQuery("delete from OrderView v where v.updatedAt < :time")
+                .setParameter("time", time)
+                .executeUpdate();
+    }
+
+    //== 원본(orders, orders_archive)에서 만들기 ==//
+
+    public List<Long> findOrderIdsAfter(long afterId, int limit) {
+        return em.createQuery("select o.id from Order o where o.id > :afterId order by o.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Long> findArchivedOrderIdsAfter(long afterId, int limit) {
+        return em.createQuery("select a.id from ArchivedOrder a where a.id > :afterId order by a.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 상품들이 들어간 주문 id, afterId 다음부터 id 순서로 limit 개 (order_item (item_id, order_id) 인덱스)
+     */
+    public List<Long> findOrderIdsContainingItems(List<Long> itemIds, long afterId, int limit) {
+        return em.createQuery(
+                        "select distinct oi.order.id from OrderItem oi" +
+                                " where oi.item.id in :itemIds and oi.order.id > :afterId" +
+                                " order by oi.order.id", Long.class)
+                .setParameter("itemIds", itemIds)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Long> findArchivedOrderIdsContainingItems(List<Long> itemIds, long afterId, int limit) {
+        return em.createQuery(
+                        "select distinct ai.order.id from ArchivedOrderItem ai" +
+                                " where ai.item.id in :itemIds and ai.order.id > :afterId" +
+                                " order by ai.order.id", Long.class)
+                .setParameter("itemIds", itemIds)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 주문 1번 + 주문상품 in 1번으로 만든다 (엔티티를 올리지 않는다)
+     */
+    public List<OrderView> buildFromOrders(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> orders = em.createQuery(
+                        "select o.id, m.id, m.name, o.orderDate, o.status, d.address" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " where o.id in :orderIds", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        List<Object[]> lines = em.createQuery(
+                        "select oi.order.id, i.id, i.name, oi.orderPrice, oi.count" +
+                                " from OrderItem oi" +
+                                " join oi.item i" +
+                                " where oi.order.id in :orderIds" +
+                                " order by oi.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        return build(orders, lines, false);
+    }
+
+    public List<OrderView> buildFromArchive(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> orders = em.createQuery(
+                        "select a.id, m.id, m.name, a.orderDate, a.status, a.address" +
+                                " from ArchivedOrder a" +
+                                " join a.member m" +
+                                " where a.id in :orderIds", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        List<Object[]> lines = em.createQuery(
+                        "select ai.order.id, i.id, i.name, ai.orderPrice, ai.count" +
+                                " from ArchivedOrderItem ai" +
+                                " join ai.item i" +
+                                " where ai.order.id in :orderIds" +
+                                " order by ai.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        return build(orders, lines, true);
+    }
+
+    private List<OrderView> build(List<Object[]> orders, List<Object[]> lines, boolean archived) {
+        Map<Long, List<OrderViewLine>> linesByOrder = new LinkedHashMap<>();
+        for (Object[] row : lines) {
+            linesByOrder.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(new OrderViewLine((Long) row[1], (String) row[2], (Integer) row[3], (Integer) row[4]));
+        }
+        return orders.stream()
+                .map(row -> new OrderView((Long) row[0], (Long) row[1], (String) row[2], (LocalDateTime) row[3],
+                        (OrderStatus) row[4], (Address) row[5], codec.write(linesByOrder.getOrDefault((Long) row[0], List.of())), archived))
+                .collect(Collectors.toList());
+    }
+}
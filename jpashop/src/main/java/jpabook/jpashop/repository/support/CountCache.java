@@ -0,0 +1,112 @@
+package jpabook.jpashop.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 목록 화면의 전체 건수 캐시
+ * ttl 동안은 저장된 값을 그대로 주고, 지나면 호출한 스레드 하나만 다시 세고 나머지는 이전 값을 받는다 -> count(*) 가 요청마다 돌지 않는다.
+ * 등록/삭제는 adjust 로 바로 더해서 ttl 안에서도 크게 어긋나지 않게 한다. 정확한 값이 아니라 추정값이다.
+ * 검색조건별 건수처럼 키가 계속 늘어날 수 있어서 maxEntries 가 차면 ttl 이 지난 키를 지우고, 그래도 차 있으면 캐시 없이 센다.
+ */
+@Component
+public class CountCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public CountCache(@Value("${jpashop.count-cache.ttl-ms:10000}") long ttlMillis,
+                      @Value("${jpashop.count-cache.max-entries:1000}") int maxEntries) {
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.maxEntries = maxEntries;
+    }
+
+    public long count(String key, LongSupplier counter) {
+        if (!entries.containsKey(key) && entries.size() >= maxEntries) {
+            long now = System.nanoTime();
+            entries.values().removeIf(e -> e.loaded && now - e.countedAt > ttlNanos);
+            if (entries.size() >= maxEntries) {
+                return counter.getAsLong();
+            }
+        }
+        Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+        if (!entry.loaded) {
+            synchronized (entry) {
+                if (!entry.loaded) {
+                    entry.refresh(counter);
+                }
+            }
+        } else if (System.nanoTime() - entry.countedAt > ttlNanos && entry.refreshing.compareAndSet(false, true)) {
+            try {
+                entry.refresh(counter);
+            } finally {
+                entry.refreshing.set(false);
+            }
+        }
+        return entry.value.get();
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에 반영한다 (롤백되면 그대로)
+     */
+    public void adjust(String key, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(key, delta);
+                }
+            });
+        } else {
+            apply(key, delta);
+        }
+    }
+
+    public void evict(String key) {
+        entries.remove(key);
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        entries.forEach((key, entry) -> {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("value", entry.value.get());
+            map.put("ageMillis", !entry.loaded ? null : (System.nanoTime() - entry.countedAt) / 1_000_000);
+            map.put("refreshes", entry.refreshes.get());
+            result.put(key, map);
+        });
+        return result;
+    }
+
+    private void apply(String key, long delta) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.value.addAndGet(delta);
+        }
+    }
+
+    private static class Entry {
+        private final AtomicLong value = new AtomicLong();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final AtomicLong refreshes = new AtomicLong();
+        private volatile long countedAt;
+        private volatile boolean loaded;
+
+        void refresh(LongSupplier counter) {
+            value.set(counter.getAsLong());
+            countedAt = System.nanoTime();
+            loaded = true;
+            refreshes.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package jpabook.jpashop.repository.support;
+
+import jpabook.jpashop.domain.OrderDateRange;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+/**
+ * 주문일 범위 조건을 붙인 jpql 쿼리 생성 (범위가 있을 때만 where 조건 추가)
+ */
+public final class OrderDateQueries {
+
+    private OrderDateQueries() {
+    }
+
+    public static <T> TypedQuery<T> create(EntityManager em, String jpql, String orderDatePath, OrderDateRange range, Class<T> type) {
+        return bind(em.createQuery(jpql(jpql, orderDatePath, range), type), range);
+    }
+
+    public static String jpql(String jpql, String orderDatePath, OrderDateRange range) {
+        StringBuilder query = new StringBuilder(jpql);
+        if (range.getFrom() != null) {
+            query.append(" where ").append(orderDatePath).append(" >= :from");
+        }
+        if (range.getTo() != null) {
+            query.append(range.getFrom() == null ? " where " : " and ").append(orderDatePath).append(" < :to");
+        }
+        return query.toString();
+    }
+
+    public static <Q extends Query> Q bind(Q query, OrderDateRange range) {
+        if (range.getFrom() != null) {
+            query.setParameter("from", range.getFrom());
+        }
+        if (range.getTo() != null) {
+            query.setParameter("to", range.getTo());
+        }
+        return query;
+    }
+}
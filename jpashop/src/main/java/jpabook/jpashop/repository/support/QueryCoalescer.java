@@ -0,0 +1,213 @@
+package jpabook.jpashop.repository.support;
+
+import jpabook.jpashop.datasource.ReadYourWrites;
+import lombok.Getter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 동일한 조회 쿼리 동시 실행 합치기(single-flight)
+ * 같은 키로 동시에 들어온 호출은 먼저 들어온 호출(leader)의 실행 결과를 같이 받는다.
+ * 결과는 캐시하지 않는다 -> 실행이 끝나면 키를 바로 지우기 때문에 다음 호출은 다시 DB를 조회한다.
+ * replica 를 쓸 때 방금 쓴 클라이언트(ReadYourWrites)는 primary 에서 읽어야 하므로 합치지 않는다
+ * -> replica 에서 읽은 leader 의 결과를 받으면 자기가 쓴 데이터가 안 보일 수 있다.
+ */
+@Component
+public class QueryCoalescer {
+
+    private final Map<List<Object>, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final BooleanSupplier readsOwnWrites;
+
+    public QueryCoalescer() {
+        this(() -> false);
+    }
+
+    /**
+     * ReadYourWrites 는 replica 설정이 있을 때만 빈으로 있다 (없으면 모든 조회가 primary)
+     */
+    @Autowired
+    public QueryCoalescer(ObjectProvider<ReadYourWrites> readYourWrites) {
+        this(() -> {
+            ReadYourWrites current = readYourWrites.getIfAvailable();
+            return current != null && current.isRecentWriter();
+        });
+    }
+
+    QueryCoalescer(BooleanSupplier readsOwnWrites) {
+        this.readsOwnWrites = readsOwnWrites;
+    }
+
+    /**
+     * 쓰기 트랜잭션 안이거나 최근에 쓴 클라이언트면 자기가 쓴 데이터를 봐야 하므로 합치지 않고 바로 실행한다.
+     * 결과를 나눠 받았으면 호출마다 copy 로 원소를 복사한 목록을 받는다 (leader 포함, 원본은 아무도 갖지 않는다)
+     * -> 한 호출이 dto 를 바꿔도 다른 호출의 결과는 그대로다. 원소가 바뀌지 않는 값(Long, String)이면 UnaryOperator.identity()
+     */
+    public <T> List<T> coalesce(String queryName, Supplier<List<T>> query, UnaryOperator<T> copy, Object... params) {
+        return run(queryName, () -> Collections.unmodifiableList(query.get()), list -> copy(list, copy), params);
+    }
+
+    /**
+     * 목록이 아닌 결과용, 여러 호출이 같은 객체를 받으므로 결과는 바뀌지 않는 객체(예: OrderFlatColumns)여야 한다
+     */
+    public <T> T coalesceValue(String queryName, Supplier<T> query, Object... params) {
+        return run(queryName, query, null, params);
+    }
+
+    private <T> T run(String queryName, Supplier<T> query, UnaryOperator<T> copy, Object[] params) {
+        Stats stat = stats.computeIfAbsent(queryName, k -> new Stats());
+        stat.calls.increment();
+
+        if (inReadWriteTransaction() || readsOwnWrites.getAsBoolean()) {
+            stat.bypassed.increment();
+            return query.get();
+        }
+
+        List<Object> key = key(queryName, params);
+        Flight mine = new Flight();
+        Flight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            if (running.follow()) {
+                stat.shared.increment();
+                T shared = join(running.result);
+                return copy == null ? shared : copy.apply(shared);
+            }
+            // leader 가 막 끝내고 결과를 가져간 실행 -> 직접 실행한다
+            stat.executions.increment();
+            return query.get();
+        }
+
+        stat.executions.increment();
+        T result;
+        try {
+            result = query.get();
+            mine.result.complete(result);
+        } catch (RuntimeException | Error e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+        // 나눠 받은 호출이 있으면 원본은 그대로 두고 leader 도 복사본을 쓴다
+        return mine.close() && copy != null ? copy.apply(result) : result;
+    }
+
+    private static <T> List<T> copy(List<T> list, UnaryOperator<T> copy) {
+        List<T> copied = new ArrayList<>(list.size());
+        for (T element : list) {
+            copied.add(copy.apply(element));
+        }
+        return Collections.unmodifiableList(copied);
+    }
+
+    /**
+     * 쿼리 이름별 합치기 비율
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        stats.forEach((name, stat) -> result.put(name, stat.toMap()));
+        return result;
+    }
+
+    public Stats stats(String queryName) {
+        return stats.getOrDefault(queryName, new Stats());
+    }
+
+    private boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private List<Object> key(String queryName, Object[] params) {
+        Object[] key = new Object[params.length + 1];
+        key[0] = queryName;
+        System.arraycopy(params, 0, key, 1, params.length);
+        return Arrays.asList(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T join(CompletableFuture<Object> running) {
+        try {
+            return (T) running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("조회 대기 중 인터럽트 발생", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * 실행 하나와 결과를 받아간 호출 수, leader 가 close 하면 -1 이 되고 더는 받아갈 수 없다
+     */
+    private static class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final AtomicInteger followers = new AtomicInteger();
+
+        boolean follow() {
+            int n;
+            do {
+                n = followers.get();
+                if (n < 0) {
+                    return false;
+                }
+            } while (!followers.compareAndSet(n, n + 1));
+            return true;
+        }
+
+        boolean close() {
+            return followers.getAndSet(-1) > 0;
+        }
+    }
+
+    @Getter
+    public static class Stats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder shared = new LongAdder();
+        private final LongAdder bypassed = new LongAdder();
+
+        /**
+         * 전체 호출 중 다른 호출의 결과를 받아간 비율
+         */
+        public double coalescingRatio() {
+            long total = calls.sum();
+            return total == 0 ? 0.0 : (double) shared.sum() / total;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("calls", calls.sum());
+            map.put("executions", executions.sum());
+            map.put("shared", shared.sum());
+            map.put("bypassed", bypassed.sum());
+            map.put("coalescingRatio", coalescingRatio());
+            return map;
+        }
+    }
+}
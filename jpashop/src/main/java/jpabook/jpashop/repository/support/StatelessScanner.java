@@ -0,0 +1,67 @@
+package jpabook.jpashop.repository.support;
+
+import jpabook.jpashop.datasource.TransactionRouting;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 대량 조회 배치(리포트, 내보내기)용 스캔
+ * StatelessSession 이라 1차 캐시와 변경감지 스냅샷이 없다 -> 읽은 행은 consumer 가 놓으면 바로 GC 대상이다.
+ * forward-only 커서로 fetch-size 행씩 가져오므로 테이블 전체를 돌아도 힙이 늘지 않는다.
+ * 지연로딩은 안 되므로 필요한 연관은 쿼리에서 fetch join 하거나 dto 로 조회한다.
+ * 읽기 전용 트랜잭션으로 보고 라우팅하므로 복제본이 있으면 복제본에서 읽는다.
+ */
+@Component
+public class StatelessScanner {
+
+    private final SessionFactory sessionFactory;
+    private final int defaultFetchSize;
+
+    public StatelessScanner(EntityManagerFactory entityManagerFactory,
+                            @Value("${jpashop.scan.fetch-size:500}") int defaultFetchSize) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.defaultFetchSize = defaultFetchSize;
+    }
+
+    public int getDefaultFetchSize() {
+        return defaultFetchSize;
+    }
+
+    /**
+     * query 로 만든 쿼리를 스크롤하면서 행마다 consumer 호출, 읽은 행 수를 반환
+     * fetchSize 가 0 이하면 기본값(jpashop.scan.fetch-size)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> long scan(Function<StatelessSession, Query<T>> query, int fetchSize, Consumer<? super T> consumer) {
+        TransactionRouting.begin(true);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            long rows = 0;
+            try (ScrollableResults results = query.apply(session)
+                    .setFetchSize(fetchSize > 0 ? fetchSize : defaultFetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    consumer.accept((T) results.get(0));
+                    rows++;
+                }
+            } finally {
+                // 읽기만 했으므로 커밋/롤백 결과는 같다, 실패했어도 커넥션을 돌려주기 위해 끝낸다
+                transaction.rollback();
+            }
+            return rows;
+        } finally {
+            TransactionRouting.end();
+        }
+    }
+}
@@ -2,12 +2,16 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.outbox.OutboxAppender;
+import jpabook.jpashop.outbox.OutboxEventType;
+import jpabook.jpashop.outbox.OutboxPayloads;
 import jpabook.jpashop.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
@@ -15,6 +19,7 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final OutboxAppender outboxAppender;
 
     @Transactional
     public void saveItem(Item item) {
@@ -29,9 +34,12 @@ public class ItemService {
         Item findItem = itemRepository.findOne(itemId); //영속성 엔티티를 불러온다
         // 값을 넣어준다
 //        findItem.change(id, name, price, stockQuantity); <-- 이런식으로 만들어라 setter 사용 자제
+        boolean renamed = !Objects.equals(name, findItem.getName());
         findItem.setName(name);
         findItem.setPrice(price);
         findItem.setStockQuantity(stockQuantity);
+        // 상품명이 바뀌면 이 상품이 들어간 주문의 order_view 는 이벤트를 받은 컨슈머가 다시 만든다 (OrderViewItemRenameConsumer)
+        outboxAppender.append(OutboxEventType.ITEM_UPDATED, findItem.getId(), OutboxPayloads.itemUpdated(findItem, renamed));
         // set 사용하는것보다 change 메서드를 addstock처럼 만들어서 따로 관리해주는 것이 좋다
         
         // Transactional에의해 commit 된다
@@ -1,8 +1,15 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberListDto;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.support.CountCache;
+import jpabook.jpashop.service.view.OrderViewProjector;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,8 +20,13 @@ import java.util.List;
 @RequiredArgsConstructor // final 있는 필드 가지고 생성자를 만들어줌 최종 방법
 public class MemberService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final String MEMBER_COUNT = "member";
+
 //    @Autowired
     private final MemberRepository memberRepository;
+    private final OrderViewProjector orderViewProjector;
+    private final CountCache countCache;
 
 //    @Autowired // 세터 인젝션 이방식 장점은 테스트 코드 작성시 mock 사용가능 단점은 런타임에 누군가 변경할 위험
 //    public void setMemberRepository(MemberRepository memberRepository) {
@@ -34,6 +46,7 @@ public class MemberService {
     public Long join(Member member) {
         validateDuplicateMember(member); // 중복 회원 검증 이 방법도 동시에 똑같은 이름이 들어오면 문제 발생 따라서 이름에는 unique 제약조건 적용
         memberRepository.save(member);
+        countCache.adjust(MEMBER_COUNT, 1);
         return member.getId();
     }
 
@@ -50,6 +63,37 @@ public class MemberService {
         return memberRepository.findAll();
     }
 
+    /**
+     * id 순 앞에서부터 limit 명의 이름, count 쿼리 없이 limit + 1 개를 읽어서 더 있는지 안다
+     */
+    public Slice<String> findMemberNames(int limit) {
+        return memberRepository.findAllNames(PageRequest.of(0, Math.min(Math.max(limit, 1), MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * offset 페이징, 뒤 페이지일수록 건너뛰는 행이 많아진다 -> 깊은 페이지는 findMembersAfter
+     */
+    public Slice<MemberListDto> findMemberSlice(Pageable pageable) {
+        return memberRepository.findListBy(pageable);
+    }
+
+    /**
+     * keyset 페이징, afterId 가 null 이면 처음부터. size + 1 개를 읽어서 다음 페이지 여부를 안다
+     */
+    public Slice<MemberListDto> findMembersAfter(Long afterId, int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<MemberListDto> rows = memberRepository.findListAfter(afterId == null ? 0L : afterId, PageRequest.of(0, limit + 1));
+        boolean hasNext = rows.size() > limit;
+        return new SliceImpl<>(hasNext ? rows.subList(0, limit) : rows, PageRequest.of(0, limit), hasNext);
+    }
+
+    /**
+     * 전체 회원 수 (CountCache, ttl 안에서는 추정값)
+     */
+    public long countMembers() {
+        return countCache.count(MEMBER_COUNT, memberRepository::count);
+    }
+
     public Member findOne(Long memberId) {
         return memberRepository.findById(memberId).get();
     }
@@ -58,5 +102,6 @@ public class MemberService {
     public void update(Long id, String name) {
         Member member = memberRepository.findById(id).get();
         member.setName(name);
+        orderViewProjector.memberRenamed(id, name); // order_view 의 회원명도 같이
     }
 }
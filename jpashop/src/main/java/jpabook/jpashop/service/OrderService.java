@@ -4,9 +4,22 @@ import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderFetchPlan;
+import jpabook.jpashop.repository.OrderListDto;
+import jpabook.jpashop.outbox.OutboxAppender;
+import jpabook.jpashop.outbox.OutboxEventType;
+import jpabook.jpashop.outbox.OutboxPayloads;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.archive.OrderArchiveBounds;
+import jpabook.jpashop.repository.support.CountCache;
+import jpabook.jpashop.service.view.OrderViewProjector;
+import jpabook.jpashop.service.limit.ConcurrencyLimited;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -16,13 +29,22 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final String ORDER_COUNT = "orders";
+
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final OutboxAppender outboxAppender;
+    private final OrderViewProjector orderViewProjector;
+    private final CountCache countCache;
+    private final OrderArchiveBounds orderArchiveBounds;
 
     /**
      * 주문
+     * 과부하시 item 락, 커넥션 대기로 쌓이지 않도록 동시 실행 수를 제한한다 (취소와 한도 공유)
      */
+    @ConcurrencyLimited("order")
     @Transactional
     public Long order(Long memberId, Long itemId, int count) {
 
@@ -30,6 +52,15 @@ public class OrderService {
         Member member = memberRepository.findById(memberId).get();
         Item item = itemRepository.findOne(itemId);
 
+        return place(member, item, count);
+    }
+
+    /**
+     * 조회가 끝난 회원, 상품으로 주문 생성
+     * 묶음 커밋(OrderGroupCommitter)은 검증을 먼저 하고 이 메서드를 한 트랜잭션 안에서 여러번 호출한다.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Long place(Member member, Item item, int count) {
         //배송정보 생성
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
@@ -42,22 +73,81 @@ public class OrderService {
 
         //주문 저장
         orderRepository.save(order); // order만 저장해줘도 cascade 설정때문에 orderitem이랑 delivery랑 자동으로 persist 해줌
+
+        //같은 트랜잭션에서 조회용 order_view, 아웃박스 이벤트 저장
+        orderViewProjector.orderPlaced(order);
+        outboxAppender.append(OutboxEventType.ORDER_PLACED, order.getId(), OutboxPayloads.orderPlaced(order));
+        // 조건 없는 전체 건수만, 검색조건별 건수는 ttl 까지 그대로 (countOrders)
+        countCache.adjust(countKey(new OrderSearch()), 1);
         return order.getId();
     }
 
     /**
      * 주문 취소
      */
+    @ConcurrencyLimited("order")
     @Transactional
     public void cancelOrder(Long orderId) {
-        //주문 엔티티 조회
-        Order order = orderRepository.findOne(orderId);
+        //주문 엔티티 조회 (취소는 배송상태, 주문상품 재고를 모두 건드린다)
+        Order order = orderRepository.findOne(orderId, OrderFetchPlan.DETAIL);
         //주문 취소
         order.cancle();
+        orderViewProjector.orderCanceled(order);
+        outboxAppender.append(OutboxEventType.ORDER_CANCELED, order.getId(), OutboxPayloads.orderCanceled(order));
     }
 
     //검색
     public List<Order> findOrders(OrderSearch orderSearch) {
         return orderRepository.findAll(orderSearch);
     }
+
+    /**
+     * 조회 계획을 골라서 검색, 페이지 크기는 MAX_PAGE_SIZE 까지
+     */
+    public List<Order> findOrders(OrderSearch orderSearch, OrderFetchPlan plan, int offset, int limit) {
+        return orderRepository.findAll(orderSearch, plan, Math.max(offset, 0), Math.min(Math.max(limit, 1), MAX_PAGE_SIZE));
+    }
+
+    /**
+     * 검색 한 페이지 (최신 주문부터), size + 1 개를 읽어서 다음 페이지 여부를 안다 -> count 쿼리 없음
+     */
+    public Slice<Order> searchOrders(OrderSearch orderSearch, OrderFetchPlan plan, int page, int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        List<Order> rows = orderRepository.findAll(orderSearch, plan, pageNumber * limit, limit + 1);
+        boolean hasNext = rows.size() > limit;
+        return new SliceImpl<>(hasNext ? rows.subList(0, limit) : rows, PageRequest.of(pageNumber, limit), hasNext);
+    }
+
+    /**
+     * 검색 건수 (CountCache, 검색조건별로 ttl 안에서는 추정값)
+     * 조건 없는 전체 건수만 주문할 때 바로 더한다.
+     * 검색조건이 있는 건수는 주문/취소가 어느 키에 들어가는지 따지지 않고 ttl(jpashop.count-cache.ttl-ms)이 지나 다시 셀 때 맞춰진다
+     * -> 그 사이에는 실제보다 적거나 많을 수 있다.
+     */
+    public long countOrders(OrderSearch orderSearch) {
+        return countCache.count(countKey(orderSearch), () -> orderRepository.count(orderSearch));
+    }
+
+    /**
+     * 검색(findOrders, searchOrders, countOrders, 목록 화면)은 orders 테이블만 본다.
+     * 검색 범위가 보관된 주문과 겹치면 true -> 보관 주문은 결과와 건수에서 빠졌다고 응답에 알려준다 (보관 주문은 v4~v7 에서 조회)
+     */
+    public boolean excludesArchive(OrderSearch orderSearch) {
+        return orderArchiveBounds.mayContain(orderSearch.getDateRange());
+    }
+
+    private static String countKey(OrderSearch orderSearch) {
+        return ORDER_COUNT + orderSearch.conditions();
+    }
+
+    /**
+     * 주문 목록 화면 keyset 페이징, beforeId 가 null 이면 최신 주문부터. size + 1 개를 읽어서 다음 페이지 여부를 안다
+     */
+    public Slice<OrderListDto> findOrderListPage(OrderSearch orderSearch, Long beforeId, int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<OrderListDto> rows = orderRepository.findListPage(orderSearch, beforeId, limit + 1);
+        boolean hasNext = rows.size() > limit;
+        return new SliceImpl<>(hasNext ? rows.subList(0, limit) : rows, PageRequest.of(0, limit), hasNext);
+    }
 }
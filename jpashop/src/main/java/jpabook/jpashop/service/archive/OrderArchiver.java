@@ -0,0 +1,101 @@
+package jpabook.jpashop.service.archive;
+
+import jpabook.jpashop.repository.archive.OrderArchiveBounds;
+import jpabook.jpashop.repository.archive.OrderArchiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 오래된 완료/취소 주문을 보관 테이블로 옮긴다.
+ * 배치 하나가 트랜잭션 하나 -> 락을 짧게 잡고, 중간에 실패해도 앞 배치는 옮겨진 상태로 남는다.
+ * 한 번 실행에 max-batches-per-run 배치까지만 옮기고 나머지는 다음 주기로 넘긴다.
+ */
+@Slf4j
+@Service
+public class OrderArchiver {
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final OrderArchiveBounds orderArchiveBounds;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int afterDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMillis;
+
+    public OrderArchiver(OrderArchiveRepository orderArchiveRepository,
+                         OrderArchiveBounds orderArchiveBounds,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${jpashop.archive.enabled:false}") boolean enabled,
+                         @Value("${jpashop.archive.after-days:90}") int afterDays,
+                         @Value("${jpashop.archive.batch-size:100}") int batchSize,
+                         @Value("${jpashop.archive.max-batches-per-run:50}") int maxBatchesPerRun,
+                         @Value("${jpashop.archive.pause-ms:50}") long pauseMillis) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.orderArchiveBounds = orderArchiveBounds;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.afterDays = afterDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.archive.interval-ms:600000}",
+            initialDelayString = "${jpashop.archive.interval-ms:600000}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archive(LocalDateTime.now().minusDays(afterDays));
+        } catch (RuntimeException e) {
+            log.error("주문 보관 이동 실패", e);
+        }
+    }
+
+    /**
+     * cutoff 이전 주문을 옮기고 옮긴 주문 수를 반환
+     */
+    public int archive(LocalDateTime cutoff) {
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer moved = transactionTemplate.execute(status -> {
+                    List<Long> orderIds = orderArchiveRepository.findArchivableOrderIds(cutoff, batchSize);
+                    return orderArchiveRepository.moveToArchive(orderIds, LocalDateTime.now());
+                });
+                total += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+                pause();
+            }
+        } finally {
+            orderArchiveBounds.refresh();
+        }
+        if (total > 0) {
+            log.info("주문 {}건 보관 테이블로 이동 (주문일 {} 이전)", total, cutoff);
+        }
+        return total;
+    }
+
+    // 다른 트랜잭션이 락을 잡을 틈을 준다
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
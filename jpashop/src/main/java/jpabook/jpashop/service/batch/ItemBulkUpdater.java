@@ -0,0 +1,119 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.domain.item.ItemChange;
+import jpabook.jpashop.outbox.OutboxAppender;
+import jpabook.jpashop.outbox.OutboxEventType;
+import jpabook.jpashop.outbox.OutboxPayloads;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 상품 가격/재고 일괄 변경
+ * chunk-size 건씩 트랜잭션 하나, 그 안에서 update 를 jdbc batch 한번으로 보낸다 -> 상품을 읽지 않고 영속성 컨텍스트도 커지지 않는다.
+ * 변경 내용은 같은 트랜잭션에서 아웃박스 이벤트(ITEMS_BULK_UPDATED)로 남겨서 재고를 보는 컨슈머가 따라오게 하고,
+ * 청크마다 영속성 컨텍스트를 비운다. (2차 캐시는 쓰지 않으므로 비울 것이 없다, 켜게 되면 여기서 Item 을 evict 해야 한다)
+ * 드라이버가 건수 대신 SUCCESS_NO_INFO 를 주면 반영된 것으로 본다 -> 그때는 없는 상품 id 를 알 수 없다.
+ * 청크 단위로 커밋되므로 중간에 실패하면 앞 청크까지는 반영된 상태로 남는다.
+ */
+@Slf4j
+@Service
+public class ItemBulkUpdater {
+
+    private static final int ITEMS_PER_EVENT = 50; // 컨슈머가 한번에 처리하는 이벤트가 너무 커지지 않게
+
+    private final ItemRepository itemRepository;
+    private final OutboxAppender outboxAppender;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+    private final int chunkSize;
+
+    public ItemBulkUpdater(ItemRepository itemRepository,
+                           OutboxAppender outboxAppender,
+                           TransactionTemplate transactionTemplate,
+                           EntityManager em,
+                           @Value("${jpashop.item.bulk-update.chunk-size:1000}") int chunkSize) {
+        this.itemRepository = itemRepository;
+        this.outboxAppender = outboxAppender;
+        this.transactionTemplate = transactionTemplate;
+        this.em = em;
+        this.chunkSize = chunkSize;
+    }
+
+    public Result update(List<ItemChange> changes) {
+        long start = System.nanoTime();
+        Result result = new Result(changes.size());
+        for (int from = 0; from < changes.size(); from += chunkSize) {
+            List<ItemChange> chunk = changes.subList(from, Math.min(from + chunkSize, changes.size()));
+            int[] counts = transactionTemplate.execute(status -> updateChunk(chunk));
+            result.chunkDone(chunk, counts);
+        }
+        result.finish(System.nanoTime() - start);
+        log.info("상품 일괄 변경 요청 {}건, 변경 {}건, {}ms", result.requested, result.updated, result.elapsedMillis);
+        return result;
+    }
+
+    private int[] updateChunk(List<ItemChange> chunk) {
+        int[] counts = itemRepository.bulkUpdate(chunk);
+        List<ItemChange> applied = new ArrayList<>(chunk.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (applied(counts[i])) {
+                applied.add(chunk.get(i));
+            }
+        }
+        for (int from = 0; from < applied.size(); from += ITEMS_PER_EVENT) {
+            List<ItemChange> items = applied.subList(from, Math.min(from + ITEMS_PER_EVENT, applied.size()));
+            outboxAppender.append(OutboxEventType.ITEMS_BULK_UPDATED, null, OutboxPayloads.itemsBulkUpdated(items));
+        }
+        em.flush();
+        em.clear();
+        return counts;
+    }
+
+    /**
+     * jdbc batch 의 건수 하나가 반영된 것인지
+     */
+    static boolean applied(int count) {
+        return count > 0 || count == Statement.SUCCESS_NO_INFO;
+    }
+
+    @Getter
+    public static class Result {
+        private static final int MAX_MISSING_IDS = 100;
+
+        private final int requested;
+        private int updated;
+        private int chunks;
+        private final List<Long> missingItemIds = new ArrayList<>(); // 없는 상품 id, 앞에서부터 MAX_MISSING_IDS 개까지
+        private long elapsedMillis;
+        private double itemsPerSecond;
+
+        Result(int requested) {
+            this.requested = requested;
+        }
+
+        void chunkDone(List<ItemChange> chunk, int[] counts) {
+            chunks++;
+            for (int i = 0; i < counts.length; i++) {
+                if (applied(counts[i])) {
+                    updated++;
+                } else if (missingItemIds.size() < MAX_MISSING_IDS) {
+                    missingItemIds.add(chunk.get(i).getItemId());
+                }
+            }
+        }
+
+        void finish(long elapsedNanos) {
+            elapsedMillis = elapsedNanos / 1_000_000;
+            itemsPerSecond = elapsedNanos == 0 ? 0 : requested * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package jpabook.jpashop.service.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.ItemChange;
+import jpabook.jpashop.domain.item.ItemRow;
+import jpabook.jpashop.exception.ItemImportException;
+import jpabook.jpashop.outbox.OutboxAppender;
+import jpabook.jpashop.outbox.OutboxEventType;
+import jpabook.jpashop.outbox.OutboxPayloads;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 상품 카탈로그 일괄 등록 (csv, jsonl)
+ * 파일을 한 행씩 읽어서 chunk-size 건씩 상품 코드(sku)로 upsert 한다 -> 기존 상품은 한번에 조회, 신규 id 는 시퀀스에서 한번에 받고
+ * insert/update 는 각각 jdbc batch 한번, 청크마다 flush/clear 해서 파일 크기와 상관없이 메모리가 일정하다.
+ * error-mode
+ *  - per-row: 잘못된 행만 건너뛰고 결과의 errors 로 알려준다. 청크 단위로 커밋된다.
+ *    청크를 쓰다가 db 오류가 나면(동시에 같은 sku 가 등록된 경우 등) 그 청크를 되돌리고 한 행씩 다시 써서 실패한 행만 거절한다.
+ *  - atomic: 파일 전체를 트랜잭션 하나로 처리하고 잘못된 행이 하나라도 있으면 전부 되돌린다.
+ * 기존 상품의 가격/재고/이름 변경은 아웃박스 이벤트(ITEMS_BULK_UPDATED)로 남긴다. 이름 변경은 컨슈머가 order_view 에 반영한다.
+ */
+@Slf4j
+@Service
+public class ItemCatalogImporter {
+
+    private static final int ITEMS_PER_EVENT = 50; // 컨슈머가 한번에 처리하는 이벤트가 너무 커지지 않게
+
+    public enum ErrorMode {
+        PER_ROW, ATOMIC;
+
+        public static ErrorMode from(String value) {
+            try {
+                return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ItemImportException("알 수 없는 errorMode: " + value);
+            }
+        }
+    }
+
+    private final ItemRepository itemRepository;
+    private final CategoryRepository categoryRepository;
+    private final OutboxAppender outboxAppender;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final ErrorMode defaultErrorMode;
+
+    public ItemCatalogImporter(ItemRepository itemRepository,
+                               CategoryRepository categoryRepository,
+                               OutboxAppender outboxAppender,
+                               TransactionTemplate transactionTemplate,
+                               EntityManager em,
+                               ObjectMapper objectMapper,
+                               @Value("${jpashop.item.import.chunk-size:5000}") int chunkSize,
+                               @Value("${jpashop.item.import.error-mode:per-row}") String defaultErrorMode) {
+        this.itemRepository = itemRepository;
+        this.categoryRepository = categoryRepository;
+        this.outboxAppender = outboxAppender;
+        this.transactionTemplate = transactionTemplate;
+        this.em = em;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.defaultErrorMode = ErrorMode.from(defaultErrorMode);
+    }
+
+    /**
+     * errorMode 가 null 이면 설정값(jpashop.item.import.error-mode)
+     */
+    public Result importCatalog(InputStream in, ItemCatalogReader.Format format, ErrorMode errorMode) {
+        long start = System.nanoTime();
+        ErrorMode mode = errorMode == null ? defaultErrorMode : errorMode;
+        Result result = new Result(format, mode);
+        Map<String, Long> categoryIds = new HashMap<>();
+        try (ItemCatalogReader reader = new ItemCatalogReader(in, format, objectMapper)) {
+            if (mode == ErrorMode.ATOMIC) {
+                transactionTemplate.executeWithoutResult(status -> readAll(reader, result, categoryIds));
+            } else {
+                readAll(reader, result, categoryIds);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        result.finish(System.nanoTime() - start);
+        log.info("상품 카탈로그 등록 {}행, 신규 {}건, 변경 {}건, 거절 {}건, {}ms",
+                result.rows, result.inserted, result.updated, result.rejected, result.elapsedMillis);
+        return result;
+    }
+
+    private void readAll(ItemCatalogReader reader, Result result, Map<String, Long> categoryIds) {
+        List<ItemRow> chunk = new ArrayList<>(chunkSize);
+        ItemRow row;
+        while ((row = nextValidRow(reader, result)) != null) {
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                write(chunk, result, categoryIds);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            write(chunk, result, categoryIds);
+        }
+    }
+
+    private ItemRow nextValidRow(ItemCatalogReader reader, Result result) {
+        while (true) {
+            try {
+                ItemRow row = reader.next();
+                if (row != null) {
+                    result.rows++;
+                }
+                return row;
+            } catch (IllegalArgumentException e) {
+                result.rows++;
+                result.reject(reader.getLine() + "행: " + e.getMessage());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void write(List<ItemRow> chunk, Result result, Map<String, Long> categoryIds) {
+        result.chunks++;
+        if (result.errorMode == ErrorMode.ATOMIC) {
+            result.add(writeChunk(chunk, categoryIds)); // 이미 파일 전체 트랜잭션 안
+            return;
+        }
+        Set<String> committedCategories = new HashSet<>(categoryIds.keySet());
+        try {
+            result.add(transactionTemplate.execute(status -> writeChunk(chunk, categoryIds)));
+        } catch (DataAccessException | PersistenceException e) {
+            log.warn("상품 카탈로그 청크 {}행 쓰기 실패, 한 행씩 다시 씀: {}", chunk.size(), e.getMessage());
+            // 롤백된 트랜잭션에서 만든 카테고리 id 는 버린다
+            categoryIds.keySet().retainAll(committedCategories);
+            for (ItemRow row : chunk) {
+                try {
+                    result.add(transactionTemplate.execute(status -> writeChunk(List.of(row), categoryIds)));
+                    committedCategories.addAll(categoryIds.keySet());
+                } catch (DataAccessException | PersistenceException rowError) {
+                    categoryIds.keySet().retainAll(committedCategories);
+                    result.reject("sku " + row.getSku() + ": 저장 실패 (" + NestedExceptionUtils.getMostSpecificCause(rowError).getMessage() + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * 청크 하나를 쓰고 결과를 반환한다, result 에는 호출한 쪽이 트랜잭션이 끝난 뒤 반영
+     */
+    private ChunkResult writeChunk(List<ItemRow> chunk, Map<String, Long> categoryIds) {
+        ChunkResult result = new ChunkResult();
+        // 청크 안에서 같은 sku 가 다시 나오면 뒤의 행으로 덮어쓴다
+        Map<String, ItemRow> bySku = new LinkedHashMap<>();
+        chunk.forEach(row -> bySku.put(row.getSku(), row));
+        Map<String, ItemRow> existing = itemRepository.findRowsBySku(bySku.keySet());
+
+        List<ItemRow> inserts = new ArrayList<>();
+        List<ItemRow> updates = new ArrayList<>();
+        Set<Long> renamed = new HashSet<>();
+        for (ItemRow row : bySku.values()) {
+            ItemRow old = existing.get(row.getSku());
+            if (old == null) {
+                inserts.add(row);
+            } else if (!old.getDtype().equals(row.getDtype())) {
+                result.errors.add("sku " + row.getSku() + ": 상품 종류를 바꿀 수 없습니다 (" + old.getDtype() + " -> " + row.getDtype() + ")");
+            } else {
+                row.setItemId(old.getItemId());
+                updates.add(row);
+                if (!Objects.equals(old.getName(), row.getName())) {
+                    renamed.add(old.getItemId());
+                }
+            }
+        }
+
+        List<Long> ids = itemRepository.nextIds(inserts.size());
+        for (int i = 0; i < inserts.size(); i++) {
+            inserts.get(i).setItemId(ids.get(i));
+        }
+        itemRepository.insertRows(inserts);
+        itemRepository.updateRows(updates);
+        linkCategories(inserts, updates, categoryIds);
+
+        // 신규 상품은 아직 아무도 보고 있지 않으므로 이벤트는 기존 상품 변경분만
+        // 이름이 바뀐 상품은 renamed 로 표시 -> order_view 는 컨슈머가 이벤트 배치마다 한번에 다시 만든다 (OrderViewItemRenameConsumer)
+        for (int from = 0; from < updates.size(); from += ITEMS_PER_EVENT) {
+            List<ItemChange> changes = new ArrayList<>();
+            for (ItemRow row : updates.subList(from, Math.min(from + ITEMS_PER_EVENT, updates.size()))) {
+                changes.add(new ItemChange(row.getItemId(), row.getPrice(), row.getStockQuantity()));
+            }
+            outboxAppender.append(OutboxEventType.ITEMS_BULK_UPDATED, null, OutboxPayloads.itemsBulkUpdated(changes, renamed));
+        }
+
+        em.flush();
+        em.clear();
+        // 청크 안에서 덮어쓴 중복 행은 변경으로 센다
+        int rejectedRows = bySku.size() - inserts.size() - updates.size();
+        result.inserted = inserts.size();
+        result.updated = chunk.size() - inserts.size() - rejectedRows;
+        return result;
+    }
+
+    /**
+     * categories 열이 있는 행만 연결을 교체한다, 없는 카테고리는 만든다
+     */
+    private void linkCategories(List<ItemRow> inserts, List<ItemRow> updates, Map<String, Long> categoryIds) {
+        Set<String> missing = new LinkedHashSet<>();
+        List<Long> relinked = new ArrayList<>();
+        List<ItemRow> rows = new ArrayList<>();
+        for (ItemRow row : inserts) {
+            if (row.getCategories() != null) {
+                rows.add(row);
+            }
+        }
+        for (ItemRow row : updates) {
+            if (row.getCategories() != null) {
+                rows.add(row);
+                relinked.add(row.getItemId());
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        for (ItemRow row : rows) {
+            row.getCategories().stream().filter(c -> !categoryIds.containsKey(c)).forEach(missing::add);
+        }
+        if (!missing.isEmpty()) {
+            categoryIds.putAll(categoryRepository.findIdsByNames(missing));
+            for (String name : missing) {
+                if (!categoryIds.containsKey(name)) {
+                    Category category = new Category();
+                    category.setName(name);
+                    categoryRepository.save(category);
+                    categoryIds.put(name, category.getId());
+                }
+            }
+            em.flush();
+        }
+
+        List<Object[]> links = new ArrayList<>();
+        for (ItemRow row : rows) {
+            row.getCategories().forEach(c -> links.add(new Object[]{categoryIds.get(c), row.getItemId()}));
+        }
+        categoryRepository.deleteItemLinks(relinked);
+        categoryRepository.insertItemLinks(links);
+    }
+
+    private static class ChunkResult {
+        private int inserted;
+        private int updated;
+        private final List<String> errors = new ArrayList<>();
+    }
+
+    @Getter
+    public static class Result {
+        private static final int MAX_ERRORS = 100;
+
+        private final ItemCatalogReader.Format format;
+        private final ErrorMode errorMode;
+        private int rows;
+        private int inserted;
+        private int updated;
+        private int rejected;
+        private int chunks;
+        private final List<String> errors = new ArrayList<>(); // 앞에서부터 MAX_ERRORS 개까지
+        private long elapsedMillis;
+        private double rowsPerSecond;
+
+        Result(ItemCatalogReader.Format format, ErrorMode errorMode) {
+            this.format = format;
+            this.errorMode = errorMode;
+        }
+
+        void add(ChunkResult chunk) {
+            inserted += chunk.inserted;
+            updated += chunk.updated;
+            chunk.errors.forEach(this::reject);
+        }
+
+        void reject(String error) {
+            if (errorMode == ErrorMode.ATOMIC) {
+                throw new ItemImportException(error + " (파일 전체를 되돌렸습니다)");
+            }
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        void finish(long elapsedNanos) {
+            elapsedMillis = elapsedNanos / 1_000_000;
+            rowsPerSecond = elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
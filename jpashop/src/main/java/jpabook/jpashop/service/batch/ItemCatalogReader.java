@@ -0,0 +1,279 @@
+package jpabook.jpashop.service.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.item.ItemRow;
+import jpabook.jpashop.exception.ItemImportException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 카탈로그 파일을 한 행씩 읽어서 ItemRow 로 바꾼다 (파일 전체를 메모리에 올리지 않는다)
+ * 열 이름: type(book|album|movie), sku, name, price, stockQuantity, author, isbn, artist, etc, director, actor, categories
+ * csv 는 첫 줄이 헤더, 따옴표 필드("a,b", "" 이스케이프)는 되지만 필드 안의 줄바꿈은 안된다.
+ * jsonl 은 한 줄에 json 객체 하나, categories 는 배열이나 | 로 구분한 문자열
+ * sku 가 비어있는 책은 isbn 을 상품 코드로 쓴다.
+ */
+public class ItemCatalogReader implements Closeable {
+
+    private static final int MAX_SKU_LENGTH = 64;
+    private static final int MAX_LENGTH = 255;
+
+    public enum Format {
+        CSV, JSONL;
+
+        public static Format from(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ItemImportException("알 수 없는 파일 형식: " + value);
+            }
+        }
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private Map<String, Integer> header;
+    private int line;
+
+    public ItemCatalogReader(InputStream in, Format format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 다음 행, 파일 끝이면 null
+     * 행을 해석할 수 없으면 IllegalArgumentException, 다음 호출은 그 다음 행부터 읽는다.
+     * csv 헤더가 잘못되면 파일 전체를 읽을 수 없으므로 ItemImportException
+     */
+    public ItemRow next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            if (line == 1 && text.startsWith("\uFEFF")) {
+                text = text.substring(1);
+            }
+        } while (text.isBlank() || (format == Format.CSV && header == null && readHeader(text)));
+
+        return format == Format.CSV ? csvRow(text) : jsonRow(text);
+    }
+
+    /**
+     * 마지막으로 읽은 줄 번호 (1부터)
+     */
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean readHeader(String text) {
+        List<String> names = splitCsv(text);
+        header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(normalize(names.get(i)), i);
+        }
+        if (!header.containsKey("type") || !header.containsKey("name")) {
+            throw new ItemImportException("csv 헤더에 type, name 열이 있어야 합니다: " + text);
+        }
+        return true;
+    }
+
+    private ItemRow csvRow(String text) {
+        List<String> values = splitCsv(text);
+        return toRow(name -> {
+            Integer index = header.get(name);
+            return index == null || index >= values.size() ? null : values.get(index);
+        }, null);
+    }
+
+    private ItemRow jsonRow(String text) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("json 형식 오류: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("json 객체가 아닙니다");
+        }
+        Map<String, JsonNode> fields = new HashMap<>();
+        node.fields().forEachRemaining(e -> fields.put(normalize(e.getKey()), e.getValue()));
+        JsonNode categories = fields.get("categories");
+        List<String> categoryList = null;
+        if (categories != null && categories.isArray()) {
+            categoryList = new ArrayList<>();
+            for (JsonNode category : categories) {
+                categoryList.add(category.asText());
+            }
+        }
+        return toRow(name -> {
+            JsonNode value = fields.get(name);
+            return value == null || value.isNull() || value.isContainerNode() ? null : value.asText();
+        }, categoryList);
+    }
+
+    private ItemRow toRow(Function<String, String> field, List<String> categoryList) {
+        ItemRow row = new ItemRow();
+        row.setDtype(dtype(field.apply("type")));
+        row.setName(text(field, "name", MAX_LENGTH, true));
+        row.setPrice(number(field, "price"));
+        row.setStockQuantity(number(field, "stockquantity"));
+        switch (row.getDtype()) {
+            case "B":
+                row.setAuthor(text(field, "author", MAX_LENGTH, false));
+                row.setIsbn(text(field, "isbn", MAX_LENGTH, false));
+                break;
+            case "A":
+                row.setArtist(text(field, "artist", MAX_LENGTH, false));
+                row.setEtc(text(field, "etc", MAX_LENGTH, false));
+                break;
+            default:
+                row.setDirector(text(field, "director", MAX_LENGTH, false));
+                row.setActor(text(field, "actor", MAX_LENGTH, false));
+        }
+
+        String sku = text(field, "sku", MAX_SKU_LENGTH, false);
+        if (sku == null && row.getIsbn() != null && row.getIsbn().length() <= MAX_SKU_LENGTH) {
+            sku = row.getIsbn();
+        }
+        if (sku == null) {
+            throw new IllegalArgumentException("sku 가 없습니다 (책은 isbn 으로 대신할 수 있습니다)");
+        }
+        row.setSku(sku);
+
+        if (categoryList == null) {
+            String categories = field.apply("categories");
+            if (categories != null && !categories.isBlank()) {
+                categoryList = Arrays.asList(categories.split("\\|"));
+            }
+        }
+        if (categoryList != null) {
+            row.setCategories(categoryList.stream()
+                    .map(String::trim)
+                    .filter(c -> !c.isEmpty())
+                    .peek(c -> checkLength("categories", c, MAX_LENGTH))
+                    .distinct()
+                    .collect(Collectors.toList()));
+        }
+        return row;
+    }
+
+    private static String dtype(String type) {
+        if (type == null) {
+            throw new IllegalArgumentException("type 이 없습니다");
+        }
+        switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "book":
+            case "b":
+                return "B";
+            case "album":
+            case "a":
+                return "A";
+            case "movie":
+            case "m":
+                return "M";
+            default:
+                throw new IllegalArgumentException("알 수 없는 type: " + type);
+        }
+    }
+
+    private static String text(Function<String, String> field, String name, int maxLength, boolean required) {
+        String value = field.apply(name);
+        if (value == null || value.isBlank()) {
+            if (required) {
+                throw new IllegalArgumentException(name + " 이 없습니다");
+            }
+            return null;
+        }
+        value = value.trim();
+        checkLength(name, value, maxLength);
+        return value;
+    }
+
+    private static int number(Function<String, String> field, String name) {
+        String value = field.apply(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " 이 없습니다");
+        }
+        int number;
+        try {
+            number = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " 이 숫자가 아닙니다: " + value);
+        }
+        if (number < 0) {
+            throw new IllegalArgumentException(name + " 은 0 이상이어야 합니다: " + value);
+        }
+        return number;
+    }
+
+    private static void checkLength(String name, String value, int maxLength) {
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(name + " 이 " + maxLength + "자를 넘습니다");
+        }
+    }
+
+    /**
+     * 열 이름은 대소문자, _ 를 무시한다 (stockQuantity, stock_quantity)
+     */
+    private static String normalize(String name) {
+        return name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> splitCsv(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("닫히지 않은 따옴표");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
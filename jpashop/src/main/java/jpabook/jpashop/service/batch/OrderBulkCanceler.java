@@ -0,0 +1,226 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderSearch;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.outbox.OutboxAppender;
+import jpabook.jpashop.outbox.OutboxEventType;
+import jpabook.jpashop.outbox.OutboxPayloads;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.archive.OrderArchiveBounds;
+import jpabook.jpashop.service.view.OrderViewProjector;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 주문 일괄 취소 (캠페인 전체 취소 같은 경우)
+ * 주문을 엔티티로 올려서 하나씩 cancle 하면 주문 수 x 주문상품 수만큼 조회/변경이 나간다.
+ * 여기서는 chunk-size 건씩 트랜잭션 하나로
+ * - 주문/배송 상태를 쿼리 한번으로 확인하고 (주문 행 쓰기 락)
+ * - 주문 상태를 update 한번으로 바꾸고
+ * - 재고는 상품별 수량을 합쳐서 상품마다 한번씩 jdbc batch 로 되돌린다.
+ * order_view, 아웃박스(ORDERS_BULK_CANCELED)도 같은 트랜잭션에서 반영한다.
+ * 배송 완료된 주문과 이미 취소된 주문은 건너뛰고 결과로 알려준다. 청크 단위로 커밋되므로 중간에 실패하면 앞 청크까지는 취소된 상태로 남는다.
+ */
+@Slf4j
+@Service
+public class OrderBulkCanceler {
+
+    private static final int ENTRIES_PER_EVENT = 50; // 이벤트 하나에 넣는 주문 id, 상품 수 -> 컨슈머가 한번에 받는 묶음(batch-size 개 이벤트)이 너무 커지지 않게
+
+    private final OrderRepository orderRepository;
+    private final ItemRepository itemRepository;
+    private final OrderViewProjector orderViewProjector;
+    private final OutboxAppender outboxAppender;
+    private final OrderArchiveBounds orderArchiveBounds;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+    private final int chunkSize;
+
+    public OrderBulkCanceler(OrderRepository orderRepository,
+                             ItemRepository itemRepository,
+                             OrderViewProjector orderViewProjector,
+                             OutboxAppender outboxAppender,
+                             OrderArchiveBounds orderArchiveBounds,
+                             TransactionTemplate transactionTemplate,
+                             EntityManager em,
+                             @Value("${jpashop.order.bulk-cancel.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.itemRepository = itemRepository;
+        this.orderViewProjector = orderViewProjector;
+        this.outboxAppender = outboxAppender;
+        this.orderArchiveBounds = orderArchiveBounds;
+        this.transactionTemplate = transactionTemplate;
+        this.em = em;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 주문 id 로 취소, 중복 id 는 한번만 센다
+     */
+    public Result cancel(Collection<Long> orderIds) {
+        long start = System.nanoTime();
+        List<Long> ids = new ArrayList<>(new TreeSet<>(orderIds));
+        Result result = new Result();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            result.chunkDone(transactionTemplate.execute(status -> cancelChunk(chunk)));
+        }
+        return finish(result, start);
+    }
+
+    /**
+     * 검색 조건에 맞는 주문 전체 취소, id 순서로 청크마다 다음 대상을 찾는다
+     * 조건이 하나도 없으면 전체 주문이 대상이 되므로 막는다.
+     * orders 테이블만 찾는다. 보관 주문은 이미 취소/배송 완료라 취소 대상이 아니지만 범위가 겹치면 결과에 archiveExcluded 로 알려준다.
+     */
+    public Result cancel(OrderSearch orderSearch) {
+        if (orderSearch.conditions().equals(new OrderSearch().conditions())) {
+            throw new IllegalArgumentException("검색 조건 없이 일괄 취소할 수 없습니다.");
+        }
+        long start = System.nanoTime();
+        Result result = new Result();
+        result.archiveExcluded = orderArchiveBounds.mayContain(orderSearch.getDateRange());
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            Chunk chunk = transactionTemplate.execute(status ->
+                    cancelChunk(orderRepository.findIds(orderSearch, from, chunkSize)));
+            if (chunk.orderIds.isEmpty()) {
+                break;
+            }
+            result.chunkDone(chunk);
+            if (chunk.orderIds.size() < chunkSize) {
+                break;
+            }
+            afterId = chunk.orderIds.get(chunk.orderIds.size() - 1);
+        }
+        return finish(result, start);
+    }
+
+    private Chunk cancelChunk(List<Long> orderIds) {
+        Chunk chunk = new Chunk(orderIds);
+        if (orderIds.isEmpty()) {
+            return chunk;
+        }
+        Set<Long> found = new HashSet<>();
+        List<Long> cancelable = new ArrayList<>();
+        for (Object[] row : orderRepository.findStatusesForUpdate(orderIds)) {
+            Long orderId = (Long) row[0];
+            found.add(orderId);
+            if (row[1] == OrderStatus.CANCEL) {
+                chunk.alreadyCanceled++;
+            } else if (row[2] == DeliveryStatus.COMP) {
+                chunk.shippedOrderIds.add(orderId);
+            } else {
+                cancelable.add(orderId);
+            }
+        }
+        for (Long orderId : orderIds) {
+            if (!found.contains(orderId)) {
+                chunk.missingOrderIds.add(orderId);
+            }
+        }
+
+        if (!cancelable.isEmpty()) {
+            chunk.canceled = orderRepository.cancelAll(cancelable);
+            Map<Long, Integer> returned = orderRepository.sumCountByItem(cancelable);
+            itemRepository.addStock(returned);
+            chunk.restockedItems = returned.size();
+            appendEvents(cancelable, returned, itemRepository.findStocks(returned.keySet()));
+            orderViewProjector.ordersCanceled(cancelable);
+        }
+        em.flush();
+        em.clear();
+        return chunk;
+    }
+
+    /**
+     * 주문 id, 상품을 ENTRIES_PER_EVENT 개씩 나눠서 이벤트 여러개로 남긴다
+     */
+    private void appendEvents(List<Long> orderIds, Map<Long, Integer> returned, Map<Long, Integer> stocks) {
+        List<Map.Entry<Long, Integer>> items = new ArrayList<>(returned.entrySet());
+        for (int from = 0; from < Math.max(orderIds.size(), items.size()); from += ENTRIES_PER_EVENT) {
+            List<Long> ids = orderIds.subList(Math.min(from, orderIds.size()), Math.min(from + ENTRIES_PER_EVENT, orderIds.size()));
+            Map<Long, Integer> part = new LinkedHashMap<>();
+            for (Map.Entry<Long, Integer> item : items.subList(Math.min(from, items.size()), Math.min(from + ENTRIES_PER_EVENT, items.size()))) {
+                part.put(item.getKey(), item.getValue());
+            }
+            outboxAppender.append(OutboxEventType.ORDERS_BULK_CANCELED, null, OutboxPayloads.ordersBulkCanceled(ids, part, stocks));
+        }
+    }
+
+    private Result finish(Result result, long start) {
+        result.finish(System.nanoTime() - start);
+        log.info("주문 일괄 취소 요청 {}건, 취소 {}건, 배송완료 {}건, 이미취소 {}건, {}ms",
+                result.requested, result.canceled, result.shipped, result.alreadyCanceled, result.elapsedMillis);
+        return result;
+    }
+
+    /**
+     * 청크 하나의 처리 결과, 트랜잭션이 커밋된 뒤에 Result 에 더한다
+     */
+    private static class Chunk {
+        private final List<Long> orderIds;
+        private int canceled;
+        private int alreadyCanceled;
+        private int restockedItems;
+        private final List<Long> shippedOrderIds = new ArrayList<>();
+        private final List<Long> missingOrderIds = new ArrayList<>();
+
+        Chunk(List<Long> orderIds) {
+            this.orderIds = orderIds;
+        }
+    }
+
+    @Getter
+    public static class Result {
+        private static final int MAX_IDS = 100;
+
+        private int requested;
+        private int canceled;
+        private int alreadyCanceled;
+        private int shipped;
+        private int restockedItems; // 청크별 재고를 되돌린 상품 수의 합
+        private int chunks;
+        private final List<Long> shippedOrderIds = new ArrayList<>(); // 배송 완료라 취소하지 못한 주문 id, 앞에서부터 MAX_IDS 개까지
+        private final List<Long> missingOrderIds = new ArrayList<>(); // 없는(보관된) 주문 id, 앞에서부터 MAX_IDS 개까지
+        private boolean archiveExcluded; // 검색 취소에서 범위가 보관 주문과 겹쳐서 보관 주문은 찾지 않았음
+        private long elapsedMillis;
+        private double ordersPerSecond;
+
+        void chunkDone(Chunk chunk) {
+            chunks++;
+            requested += chunk.orderIds.size();
+            canceled += chunk.canceled;
+            alreadyCanceled += chunk.alreadyCanceled;
+            shipped += chunk.shippedOrderIds.size();
+            restockedItems += chunk.restockedItems;
+            addUpTo(shippedOrderIds, chunk.shippedOrderIds);
+            addUpTo(missingOrderIds, chunk.missingOrderIds);
+        }
+
+        private static void addUpTo(List<Long> target, List<Long> ids) {
+            target.addAll(ids.subList(0, Math.min(ids.size(), Math.max(0, MAX_IDS - target.size()))));
+        }
+
+        void finish(long elapsedNanos) {
+            elapsedMillis = elapsedNanos / 1_000_000;
+            ordersPerSecond = elapsedNanos == 0 ? 0 : canceled * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OverloadedException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.limit.AdaptiveConcurrencyLimiter;
+import jpabook.jpashop.service.limit.ConcurrencyLimiters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 묶음 커밋(group commit)
+ * 동시에 들어온 주문을 max-wait-ms 동안 또는 batch-size 개까지 모아서 트랜잭션 하나로 저장한다 -> 커밋(로그 fsync)이 주문 수가 아니라 묶음 수만큼.
+ * - 묶음 안의 주문은 먼저 검증(회원, 상품, 재고)하고 통과한 것만 저장한다. 검증 실패는 그 주문만 실패.
+ * - 묶음 트랜잭션이 그래도 실패하면(flush/커밋 오류) 주문마다 따로 다시 실행한다 -> 나쁜 주문 하나가 나머지를 실패시키지 않는다.
+ * - 동시 주문 한도("order", OrderService.order 와 공유)는 order() 에서 건다. 기다리는 주문도 한도를 차지하므로 큐에 무한정 쌓이지 않는다.
+ *   묶음을 기다리는 시간은 일부러 늘린 지연이라 처리시간 표본으로 쓰지 않고, 대기 시간 초과만 과부하 신호로 넘긴다.
+ * - 호출한 쪽은 timeout-ms 까지만 기다린다. 그 전에 묶음에 안 들어간 주문은 포기(저장 안 함)하고 503,
+ *   묶음 스레드가 이미 가져간(claimed) 주문은 저장될 수 있으므로 포기하지 않고 커밋 결과를 끝까지 기다린다.
+ *   가져가기와 포기는 주문마다 상태 하나를 CAS 로 바꿔서 둘 중 하나만 이긴다.
+ * 꺼져 있으면(jpashop.order.group-commit.enabled=false) OrderService.order 를 그대로 호출한다.
+ */
+@Slf4j
+@Component
+public class OrderGroupCommitter implements DisposableBean {
+
+    private final OrderService orderService;
+    private final MemberRepository memberRepository;
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrencyLimiters concurrencyLimiters;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<OrderRequest> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder lateCommits = new LongAdder();
+
+    public OrderGroupCommitter(OrderService orderService,
+                               MemberRepository memberRepository,
+                               ItemRepository itemRepository,
+                               TransactionTemplate transactionTemplate,
+                               ConcurrencyLimiters concurrencyLimiters,
+                               @Value("${jpashop.order.group-commit.enabled:false}") boolean enabled,
+                               @Value("${jpashop.order.group-commit.batch-size:32}") int batchSize,
+                               @Value("${jpashop.order.group-commit.max-wait-ms:5}") long maxWaitMillis,
+                               @Value("${jpashop.order.group-commit.timeout-ms:5000}") long timeoutMillis,
+                               @Value("${jpashop.order.group-commit.queue-capacity:10000}") int queueCapacity) {
+        this.orderService = orderService;
+        this.memberRepository = memberRepository;
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flusher = new Thread(this::flushLoop, "order-group-commit");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            flusher.start();
+        }
+    }
+
+    /**
+     * 주문하고 커밋될 때까지 기다린다
+     */
+    public Long order(Long memberId, Long itemId, int count) {
+        if (!enabled) {
+            return orderService.order(memberId, itemId, count);
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiters.get("order").acquire();
+        OrderRequest request = enqueue(memberId, itemId, count);
+        try {
+            Long orderId = await(request);
+            permit.ignore();
+            return orderId;
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            permit.dropped();
+            throw new OverloadedException("주문 묶음 커밋을 " + timeoutMillis + "ms 안에 마치지 못했습니다.", e);
+        } catch (ExecutionException e) {
+            permit.ignore();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.abandon();
+            permit.ignore();
+            throw new IllegalStateException("주문 커밋 대기 중 인터럽트", e);
+        }
+    }
+
+    /**
+     * timeout-ms 안에 묶음에 안 들어갔으면 포기하고 TimeoutException,
+     * 이미 묶음에 들어갔으면 저장됐을 수 있으므로 커밋이 끝날 때까지 기다린다.
+     */
+    private Long await(OrderRequest request) throws ExecutionException, InterruptedException, TimeoutException {
+        try {
+            return request.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (request.abandon()) {
+                throw e;
+            }
+            lateCommits.increment();
+            return request.future.get();
+        }
+    }
+
+    /**
+     * 큐가 가득 차면 바로 실패 (호출한 쪽이 재시도)
+     * 동시 실행 한도와 대기 시간 제한을 거치지 않는다
+     */
+    public CompletableFuture<Long> submit(Long memberId, Long itemId, int count) {
+        return enqueue(memberId, itemId, count).future;
+    }
+
+    private OrderRequest enqueue(Long memberId, Long itemId, int count) {
+        OrderRequest request = new OrderRequest(memberId, itemId, count);
+        if (!queue.offer(request)) {
+            request.future.completeExceptionally(new OverloadedException("주문 묶음 큐가 가득 찼습니다."));
+        }
+        return request;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                OrderRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<OrderRequest> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    OrderRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("주문 묶음 처리 실패", e);
+            }
+        }
+    }
+
+    void commit(List<OrderRequest> requests) {
+        List<OrderRequest> batch = requests.stream()
+                .filter(OrderRequest::claim) // 기다리다 포기한 주문은 빠진다
+                .collect(Collectors.toList());
+        if (batch.isEmpty()) {
+            return;
+        }
+        batches.increment();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::placeIfValid));
+        } catch (RuntimeException e) {
+            log.warn("주문 묶음 커밋 실패, 주문 {}건을 따로 다시 실행", batch.size(), e);
+            fallbacks.increment();
+            for (OrderRequest request : batch) {
+                try {
+                    request.future.complete(placeAlone(request));
+                } catch (RuntimeException alone) {
+                    request.future.completeExceptionally(alone);
+                }
+            }
+            return;
+        }
+        for (OrderRequest request : batch) {
+            if (request.error != null) {
+                rejected.increment();
+                request.future.completeExceptionally(request.error);
+            } else {
+                committed.increment();
+                request.future.complete(request.orderId);
+            }
+        }
+    }
+
+    /**
+     * 예외를 던지지 않고 검증한다 -> 던지면 묶음 트랜잭션 전체가 rollback-only 가 된다.
+     * 재고는 영속성 컨텍스트의 상품으로 보므로 앞 주문이 뺀 재고가 반영된다.
+     */
+    private void placeIfValid(OrderRequest request) {
+        request.orderId = null;
+        request.error = null;
+        Member member = memberRepository.findById(request.memberId).orElse(null);
+        Item item = itemRepository.findOne(request.itemId);
+        if (member == null || item == null) {
+            request.error = new IllegalArgumentException("회원 또는 상품이 없습니다. memberId=" + request.memberId + ", itemId=" + request.itemId);
+        } else if (request.count <= 0 || item.getStockQuantity() < request.count) {
+            request.error = new NotEnoughStockException("need more stock");
+        } else {
+            request.orderId = orderService.place(member, item, request.count);
+        }
+    }
+
+    /**
+     * 주문 하나를 트랜잭션 하나로 저장
+     * 한도는 호출한 쪽이 order() 에서 이미 잡았으므로 OrderService.order 를 거치지 않는다 (묶음 스레드가 한도에 걸려 거절되지 않게)
+     */
+    private Long placeAlone(OrderRequest request) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> placeIfValid(request));
+        } catch (RuntimeException e) {
+            rejected.increment();
+            throw e;
+        }
+        if (request.error != null) {
+            rejected.increment();
+            throw request.error;
+        }
+        committed.increment();
+        return request.orderId;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        long batchCount = batches.sum();
+        map.put("enabled", enabled);
+        map.put("queued", queue.size());
+        map.put("batches", batchCount);
+        map.put("committed", committed.sum());
+        map.put("rejected", rejected.sum());
+        map.put("fallbacks", fallbacks.sum());
+        map.put("timedOut", timedOut.sum());
+        map.put("lateCommits", lateCommits.sum());
+        map.put("avgBatchSize", batchCount == 0 ? 0.0 : (double) (committed.sum() + rejected.sum()) / batchCount);
+        return map;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        flusher.join(1000);
+        OrderRequest request;
+        while ((request = queue.poll()) != null) {
+            request.future.completeExceptionally(new IllegalStateException("서버 종료로 주문이 처리되지 않았습니다."));
+        }
+    }
+
+    static class OrderRequest {
+        private static final int WAITING = 0;
+        private static final int CLAIMED = 1;
+        private static final int ABANDONED = 2;
+
+        final Long memberId;
+        final Long itemId;
+        final int count;
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        Long orderId;
+        RuntimeException error;
+
+        OrderRequest(Long memberId, Long itemId, int count) {
+            this.memberId = memberId;
+            this.itemId = itemId;
+            this.count = count;
+        }
+
+        /**
+         * 묶음 스레드가 커밋할 묶음에 넣기 전에 호출, 이미 포기(또는 submit 한 쪽이 취소)한 주문이면 false
+         */
+        boolean claim() {
+            return !future.isCancelled() && state.compareAndSet(WAITING, CLAIMED);
+        }
+
+        /**
+         * 호출한 쪽이 기다리기를 그만둘 때 호출, 이미 묶음에 들어갔으면 false (결과를 기다려야 한다)
+         */
+        boolean abandon() {
+            if (!state.compareAndSet(WAITING, ABANDONED)) {
+                return false;
+            }
+            future.cancel(false);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package jpabook.jpashop.service.limit;
+
+import jpabook.jpashop.exception.OverloadedException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 지연시간 기반 AIMD 동시성 제한
+ * 처리시간이 최소 처리시간(minRtt) * tolerance 이하면 한도를 조금씩 늘리고(additive increase)
+ * 넘어가거나 타임아웃이 나면 한도를 비율로 줄인다(multiplicative decrease).
+ * 줄이는 건 한 구간에 한번: 마지막으로 줄인 뒤에 시작한 요청의 결과만 다시 줄일 수 있다
+ * (같은 순간에 몰렸다 끝난 요청 N개가 한도를 ratio^N 으로 깎지 않게).
+ * minRtt 는 probeInterval 개 표본마다 그 구간의 최소값으로 다시 정한다 (처리시간이 늘어난 뒤에도 기준이 옛 값에 묶이지 않게).
+ * 한도를 넘는 요청은 줄세우지 않고 바로 OverloadedException 으로 거절한다.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final int probeInterval;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile int limit;
+
+    // 아래 값은 onSample 에서만 바뀐다 (synchronized)
+    private double estimatedLimit;
+    private long minRttNanos = Long.MAX_VALUE;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private long samples;
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double tolerance, double backoffRatio, int probeInterval) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.probeInterval = probeInterval;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * 한도 안이면 허가를 받고, 넘으면 바로 거절
+     */
+    public Permit acquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                throw new OverloadedException(name + " 요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해 주세요.");
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtStart, long startNanos) {
+        samples++;
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        // 기준값이 계속 낮게 고정되지 않도록 구간마다 그 구간의 최소값으로 다시 잡는다
+        if (samples % probeInterval == 0) {
+            minRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+        }
+
+        if (rttNanos > minRttNanos * tolerance) {
+            decrease(startNanos);
+        } else if (inFlightAtStart * 2 >= estimatedLimit) {
+            // 한도를 절반도 안쓰고 있을때는 늘릴 근거가 없다
+            estimatedLimit = Math.min(maxLimit, estimatedLimit + 1.0 / estimatedLimit);
+        }
+        limit = (int) estimatedLimit;
+    }
+
+    private synchronized void onDropped(long startNanos) {
+        dropped.increment();
+        decrease(startNanos);
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 마지막으로 줄이기 전에 시작한 요청은 이미 줄인 원인과 같은 구간이라 다시 줄이지 않는다
+     */
+    private void decrease(long startNanos) {
+        if (startNanos - lastDecreaseNanos <= 0 && lastDecreaseNanos != Long.MIN_VALUE) {
+            return;
+        }
+        estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+        lastDecreaseNanos = System.nanoTime();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("limit", limit);
+        map.put("inFlight", inFlight.get());
+        map.put("accepted", accepted.sum());
+        map.put("rejected", rejected.sum());
+        map.put("dropped", dropped.sum());
+        synchronized (this) {
+            map.put("minRttMillis", minRttNanos == Long.MAX_VALUE ? null : minRttNanos / 1_000_000.0);
+        }
+        return map;
+    }
+
+    /**
+     * 요청 하나의 허가
+     * 끝나면 success, dropped, ignore 중 하나를 꼭 호출해야 한다.
+     */
+    public class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        // 정상 처리 -> 처리시간을 한도 계산에 반영
+        public void success() {
+            inFlight.decrementAndGet();
+            onSample(System.nanoTime() - startNanos, inFlightAtStart, startNanos);
+        }
+
+        // 락 대기/커넥션 타임아웃 같은 과부하 신호 -> 한도 감소
+        public void dropped() {
+            inFlight.decrementAndGet();
+            onDropped(startNanos);
+        }
+
+        // 재고부족 같은 비즈니스 예외 -> 한도 계산에 반영하지 않음
+        public void ignore() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.service.limit;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * 트랜잭션보다 바깥에서 실행해야 거절된 요청이 커넥션을 잡지 않는다
+ * -> 트랜잭션 어드바이저(LOWEST_PRECEDENCE)보다 높은 우선순위
+ */
+@Aspect
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class ConcurrencyLimitAspect {
+
+    private final ConcurrencyLimiters concurrencyLimiters;
+
+    @Around("@annotation(concurrencyLimited)")
+    public Object limit(ProceedingJoinPoint joinPoint, ConcurrencyLimited concurrencyLimited) throws Throwable {
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiters.get(concurrencyLimited.value()).acquire();
+        try {
+            Object result = joinPoint.proceed();
+            permit.success();
+            return result;
+        } catch (TransientDataAccessException | TransactionException e) {
+            // 락 획득 실패, 쿼리 타임아웃, 커넥션 획득 실패
+            permit.dropped();
+            throw e;
+        } catch (Throwable e) {
+            permit.ignore();
+            throw e;
+        }
+    }
+}
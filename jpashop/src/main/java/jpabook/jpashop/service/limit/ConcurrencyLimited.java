@@ -0,0 +1,17 @@
+package jpabook.jpashop.service.limit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 메서드에 적용된 동시 실행 수를 AdaptiveConcurrencyLimiter 로 제한
+ * value 가 같은 메서드끼리 한도를 같이 쓴다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConcurrencyLimited {
+
+    String value();
+}
@@ -0,0 +1,38 @@
+package jpabook.jpashop.service.limit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ConcurrencyLimiters {
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Value("${jpashop.limiter.initial-limit:20}")
+    private int initialLimit;
+    @Value("${jpashop.limiter.min-limit:2}")
+    private int minLimit;
+    @Value("${jpashop.limiter.max-limit:200}")
+    private int maxLimit;
+    @Value("${jpashop.limiter.tolerance:2.0}")
+    private double tolerance;
+    @Value("${jpashop.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+    @Value("${jpashop.limiter.probe-interval:1000}")
+    private int probeInterval;
+
+    public AdaptiveConcurrencyLimiter get(String name) {
+        return limiters.computeIfAbsent(name, n ->
+                new AdaptiveConcurrencyLimiter(n, initialLimit, minLimit, maxLimit, tolerance, backoffRatio, probeInterval));
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        limiters.forEach((name, limiter) -> result.put(name, limiter.snapshot()));
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+package jpabook.jpashop.service.query;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 조회 방식별 예상 비용(마이크로초)
+ * 범위 종류(rangeKey)별로 최근 결과의 주문 수와 주문당 주문상품 수(fan-out)를 지수평균으로 들고 있다가 다음 요청의 비용을 추정한다.
+ * 예상 = sql 실행 수 x 실행당 비용 + 읽는 행 수 x 행당 비용, 범위 종류 + 방식마다 실제/예상 비율(scale)을 다시 곱해서 보정한다.
+ * (같은 방식도 결과 크기에 따라 예상이 빗나가는 정도가 달라서 scale 을 범위 종류별로 따로 둔다)
+ * - BATCH: 1 + 주문상품 배치 + 상품 배치 번, 엔티티로 주문 + 주문상품 + 상품을 올린다 (행당 비용이 dto 보다 크다)
+ * - IN_QUERY: 2번, 주문 + 주문상품
+ * - FLAT: 1번, 주문상품 수만큼 주문 컬럼이 중복된 넓은 행 + 메모리 묶기
+ * - VIEW: 1번, 주문당 1행 + 주문상품 json 해석
+ */
+public class OrderLoadCostModel {
+
+    private static final double ALPHA = 0.2;
+    private static final double FLAT_ROW_WIDTH = 2.0;
+    // 처음 보는 범위는 이 정도로 가정
+    private static final double DEFAULT_ORDERS = 100;
+    private static final double DEFAULT_FAN_OUT = 2;
+
+    private final double statementMicros;
+    private final double rowMicros;
+    private final double entityMicros;
+    private final int batchSize;
+
+    private final Map<String, RangeStats> ranges = new HashMap<>();
+
+    public OrderLoadCostModel(double statementMicros, double rowMicros, double entityMicros, int batchSize) {
+        this.statementMicros = statementMicros;
+        this.rowMicros = rowMicros;
+        this.entityMicros = entityMicros;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * 보정 전 예상 비용
+     */
+    public double estimateMicros(OrderLoadStrategy strategy, double orders, double fanOut) {
+        double items = orders * fanOut;
+        switch (strategy) {
+            case BATCH:
+                return (1 + 2 * Math.ceil(orders / batchSize)) * statementMicros + (orders + 2 * items) * entityMicros;
+            case IN_QUERY:
+                return 2 * statementMicros + (orders + items) * rowMicros;
+            case FLAT:
+                return statementMicros + items * FLAT_ROW_WIDTH * rowMicros;
+            case VIEW:
+                return statementMicros + (orders + items) * rowMicros;
+            default:
+                throw new IllegalArgumentException(strategy.name());
+        }
+    }
+
+    /**
+     * allowed 중 보정 후 가장 싼 방식, explore 면 두번째로 싼 방식 (보정값이 오래되지 않게 가끔 다른 방식도 실행)
+     */
+    public synchronized Choice choose(String rangeKey, Set<OrderLoadStrategy> allowed, boolean explore) {
+        RangeStats stat = ranges.getOrDefault(rangeKey, new RangeStats());
+        Choice best = null;
+        Choice second = null;
+        for (OrderLoadStrategy strategy : allowed) {
+            double estimate = estimateMicros(strategy, stat.orders, stat.fanOut) * stat.scale(strategy);
+            Choice choice = new Choice(strategy, estimate);
+            if (best == null || estimate < best.estimatedMicros) {
+                second = best;
+                best = choice;
+            } else if (second == null || estimate < second.estimatedMicros) {
+                second = choice;
+            }
+        }
+        return explore && second != null ? second : best;
+    }
+
+    /**
+     * 실행 결과 반영: 범위별 주문 수/fan-out, 범위별 + 방식별 실제/예상 비율
+     */
+    public synchronized void observe(String rangeKey, OrderLoadStrategy strategy, int orders, int items, long nanos) {
+        double fanOut = orders == 0 ? 0 : (double) items / orders;
+        RangeStats stat = ranges.get(rangeKey);
+        if (stat == null) {
+            stat = new RangeStats();
+            stat.orders = orders;
+            stat.fanOut = orders == 0 ? DEFAULT_FAN_OUT : fanOut;
+            ranges.put(rangeKey, stat);
+        } else {
+            stat.orders = ewma(stat.orders, orders);
+            stat.fanOut = orders == 0 ? stat.fanOut : ewma(stat.fanOut, fanOut);
+        }
+
+        double estimate = estimateMicros(strategy, orders, fanOut);
+        if (estimate > 0) {
+            stat.scale.merge(strategy, (nanos / 1000.0) / estimate, OrderLoadCostModel::ewma);
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        Map<String, Object> rangeMap = new LinkedHashMap<>();
+        ranges.forEach((key, stat) -> rangeMap.put(key, Map.of("orders", stat.orders, "fanOut", stat.fanOut,
+                "scale", new EnumMap<>(stat.scale))));
+        map.put("ranges", rangeMap);
+        return map;
+    }
+
+    private static double ewma(double old, double now) {
+        return old + ALPHA * (now - old);
+    }
+
+    /**
+     * 범위 종류 하나의 최근 결과 크기와 방식별 보정값 (아직 실행하지 않은 방식은 1)
+     */
+    private static class RangeStats {
+        private double orders = DEFAULT_ORDERS;
+        private double fanOut = DEFAULT_FAN_OUT;
+        private final Map<OrderLoadStrategy, Double> scale = new EnumMap<>(OrderLoadStrategy.class);
+
+        double scale(OrderLoadStrategy strategy) {
+            return scale.getOrDefault(strategy, 1.0);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class Choice {
+        private final OrderLoadStrategy strategy;
+        private final double estimatedMicros;
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.service.query;
+
+/**
+ * 주문 + 주문상품 조회 방식 (OrderApiController v3.1, v5, v6 의 조인 조회, order_view)
+ */
+public enum OrderLoadStrategy {
+
+    /**
+     * v3.1 xToOne 페치 조인 + 컬렉션 배치 로딩, 엔티티를 dto 로 변환 (보관 주문은 못 읽는다)
+     */
+    BATCH,
+    /**
+     * v5 주문 1번 + 주문상품 in 쿼리 1번
+     */
+    IN_QUERY,
+    /**
+     * v6 주문상품 단위 조인 1번 후 메모리에서 묶기
+     */
+    FLAT,
+    /**
+     * order_view 1번, 주문상품은 json 컬럼 (jpashop.order-view.read-enabled 일 때만 고른다)
+     */
+    VIEW
+}
@@ -0,0 +1,186 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.monitoring.LatencyHistogram;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.archive.OrderArchiveBounds;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.view.OrderViewProperties;
+import jpabook.jpashop.repository.order.view.OrderViewRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 + 주문상품 조회를 요청마다 가장 싼 방식(v3.1, v5, v6 조인 조회, order_view)으로 실행
+ * 방식은 OrderLoadCostModel 이 최근 결과 크기와 fan-out 으로 고르고, 고른 방식과 실제 시간을 다시 모델에 넣는다.
+ * 모델이 고른 방식이 그대로 실행되도록 조인 조회는 order_view 설정과 합치기(coalescer)를 거치지 않고 직접 부르고,
+ * order_view 는 읽기가 켜져 있을 때만 후보(VIEW)에 넣는다.
+ * 방식별 선택 횟수, 지연시간, 예상 대비 실제 비율은 /internal/order-loading 에서 본다.
+ * 결과는 방식과 상관없이 같다 (주문 id 순)
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderLoadingService {
+
+    private final OrderRepository orderRepository;
+    private final OrderQueryRepository orderQueryRepository;
+    private final OrderArchiveBounds orderArchiveBounds;
+    private final OrderViewRepository orderViewRepository;
+    private final OrderViewProperties orderViewProperties;
+    private final OrderLoadCostModel costModel;
+    private final int exploreEvery;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<OrderLoadStrategy, Stats> stats = new EnumMap<>(OrderLoadStrategy.class);
+
+    public OrderLoadingService(OrderRepository orderRepository,
+                               OrderQueryRepository orderQueryRepository,
+                               OrderArchiveBounds orderArchiveBounds,
+                               OrderViewRepository orderViewRepository,
+                               OrderViewProperties orderViewProperties,
+                               @Value("${jpashop.order-loading.statement-micros:300}") double statementMicros,
+                               @Value("${jpashop.order-loading.row-micros:2}") double rowMicros,
+                               @Value("${jpashop.order-loading.entity-micros:8}") double entityMicros,
+                               @Value("${spring.jpa.properties.hibernate.default_batch_fetch_size:100}") int batchSize,
+                               @Value("${jpashop.order-loading.explore-every:50}") int exploreEvery) {
+        this.orderRepository = orderRepository;
+        this.orderQueryRepository = orderQueryRepository;
+        this.orderArchiveBounds = orderArchiveBounds;
+        this.orderViewRepository = orderViewRepository;
+        this.orderViewProperties = orderViewProperties;
+        this.costModel = new OrderLoadCostModel(statementMicros, rowMicros, entityMicros, batchSize);
+        this.exploreEvery = exploreEvery;
+        for (OrderLoadStrategy strategy : OrderLoadStrategy.values()) {
+            stats.put(strategy, new Stats());
+        }
+    }
+
+    public List<OrderQueryDto> findOrders(OrderDateRange range) {
+        Set<OrderLoadStrategy> allowed = EnumSet.of(OrderLoadStrategy.IN_QUERY, OrderLoadStrategy.FLAT);
+        // 보관 주문은 엔티티로 못 읽는다 -> 범위가 보관 주문과 겹치면 BATCH 제외
+        if (!orderArchiveBounds.mayContain(range)) {
+            allowed.add(OrderLoadStrategy.BATCH);
+        }
+        if (orderViewProperties.isReadEnabled()) {
+            allowed.add(OrderLoadStrategy.VIEW);
+        }
+        boolean explore = exploreEvery > 0 && requests.incrementAndGet() % exploreEvery == 0;
+        OrderLoadCostModel.Choice choice = costModel.choose(rangeKey(range), allowed, explore);
+        return load(range, choice.getStrategy(), choice.getEstimatedMicros());
+    }
+
+    /**
+     * 방식 지정 (비교, 점검용), 결과는 모델에도 반영된다
+     */
+    public List<OrderQueryDto> findOrders(OrderDateRange range, OrderLoadStrategy strategy) {
+        return load(range, strategy, Double.NaN);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        Map<String, Object> strategies = new LinkedHashMap<>();
+        stats.forEach((strategy, stat) -> strategies.put(strategy.name(), stat.toMap()));
+        map.put("strategies", strategies);
+        map.put("model", costModel.snapshot());
+        return map;
+    }
+
+    private List<OrderQueryDto> load(OrderDateRange range, OrderLoadStrategy strategy, double estimatedMicros) {
+        long start = System.nanoTime();
+        List<OrderQueryDto> result;
+        switch (strategy) {
+            case BATCH:
+                result = loadBatch(range);
+                break;
+            case IN_QUERY:
+                result = new ArrayList<>(orderQueryRepository.findAllByDto_optimizationJoin(range));
+                break;
+            case FLAT:
+                result = orderQueryRepository.findFlatColumnsJoin(range).toOrderQueryDtos();
+                break;
+            case VIEW:
+                result = new ArrayList<>(orderViewRepository.findOrderQueryDtos(range));
+                break;
+            default:
+                throw new IllegalArgumentException(strategy.name());
+        }
+        result.sort(Comparator.comparing(OrderQueryDto::getOrderId));
+        long nanos = System.nanoTime() - start;
+
+        int items = result.stream().mapToInt(o -> o.getOrderItems() == null ? 0 : o.getOrderItems().size()).sum();
+        costModel.observe(rangeKey(range), strategy, result.size(), items, nanos);
+        stats.get(strategy).record(nanos, estimatedMicros);
+        return result;
+    }
+
+    /**
+     * v3.1 방식: member, delivery 페치 조인 + orderItems, item 배치 로딩
+     */
+    private List<OrderQueryDto> loadBatch(OrderDateRange range) {
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(range);
+        return orders.stream()
+                .map(o -> new OrderQueryDto(o.getId(), o.getMember().getName(), o.getOrderDate(), o.getStatus(),
+                        o.getDelivery().getAddress(),
+                        o.getOrderItems().stream()
+                                .map(oi -> new OrderItemQueryDto(o.getId(), oi.getItem().getName(), oi.getOrderPrice(), oi.getCount()))
+                                .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 결과 크기가 비슷할 범위끼리 통계를 같이 쓴다: 전체, 한쪽만 열린 범위, 닫힌 범위는 일수의 2의 거듭제곱 구간
+     */
+    static String rangeKey(OrderDateRange range) {
+        if (range.isUnbounded()) {
+            return "all";
+        }
+        if (range.getFrom() == null || range.getTo() == null) {
+            return range.getFrom() == null ? "until" : "since";
+        }
+        long days = Math.max(Duration.between(range.getFrom(), range.getTo()).toDays(), 1);
+        return "days<=" + Long.highestOneBit(days) * 2;
+    }
+
+    static class Stats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong chosen = new AtomicLong();
+        private final DoubleAdder estimatedMicros = new DoubleAdder();
+        private final DoubleAdder actualMicros = new DoubleAdder();
+
+        void record(long nanos, double estimate) {
+            latency.record(nanos);
+            // 직접 지정한 실행은 예상값이 없다
+            if (!Double.isNaN(estimate)) {
+                chosen.incrementAndGet();
+                estimatedMicros.add(estimate);
+                actualMicros.add(nanos / 1000.0);
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>(latency.summary());
+            map.put("chosen", chosen.get());
+            double estimated = estimatedMicros.sum();
+            // 1 보다 크면 모델이 이 방식을 싸게 보고 있다
+            map.put("actualToEstimated", estimated == 0 ? 0.0 : actualMicros.sum() / estimated);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package jpabook.jpashop.service.view;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.outbox.OutboxConsumer;
+import jpabook.jpashop.outbox.OutboxEvent;
+import jpabook.jpashop.outbox.OutboxEventType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 상품명 변경을 order_view 에 반영한다 (ITEM_UPDATED, ITEMS_BULK_UPDATED 의 renamed)
+ * 상품을 바꾼 트랜잭션은 이벤트만 남기고 끝나고, 상품이 들어간 주문은 여기서 배치마다 한번에 다시 만든다.
+ * 원본에서 다시 만드는 것이라 같은 이벤트를 다시 받아도 결과가 같다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderViewItemRenameConsumer implements OutboxConsumer {
+
+    private final OrderViewProjector orderViewProjector;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String name() {
+        return "order-view-item-renamed";
+    }
+
+    @Override
+    public void consume(List<OutboxEvent> events) {
+        Set<Long> itemIds = new TreeSet<>();
+        for (OutboxEvent event : events) {
+            if (event.getType() == OutboxEventType.ITEM_UPDATED) {
+                JsonNode payload = read(event.getPayload());
+                if (payload.path("renamed").asBoolean()) {
+                    itemIds.add(payload.get("itemId").asLong());
+                }
+            } else if (event.getType() == OutboxEventType.ITEMS_BULK_UPDATED) {
+                for (JsonNode item : read(event.getPayload()).get("items")) {
+                    if (item.path("renamed").asBoolean()) {
+                        itemIds.add(item.get("itemId").asLong());
+                    }
+                }
+            }
+        }
+        orderViewProjector.itemsRenamed(itemIds);
+    }
+
+    private JsonNode read(String payload) {
+        try {
+            return objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("아웃박스 payload 읽기 실패: " + payload, e);
+        }
+    }
+}
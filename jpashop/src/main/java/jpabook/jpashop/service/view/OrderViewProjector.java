@@ -0,0 +1,190 @@
+package jpabook.jpashop.service.view;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.view.OrderView;
+import jpabook.jpashop.domain.view.OrderViewLine;
+import jpabook.jpashop.repository.order.view.OrderViewLineCodec;
+import jpabook.jpashop.repository.order.view.OrderViewProperties;
+import jpabook.jpashop.repository.order.view.OrderViewRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * order_view 갱신
+ * - 증분: 주문/취소/회원명 변경을 호출한 쪽 트랜잭션 안에서 반영한다 -> 원본과 같이 커밋/롤백된다.
+ * - 상품명 변경: 상품이 들어간 주문 수만큼 일이 커서 아웃박스 이벤트로 미룬다 (OrderViewItemRenameConsumer -> itemsRenamed)
+ * - 재생성: orders, orders_archive 를 id 순서로 배치마다 트랜잭션 하나로 다시 만든다.
+ *   행을 지우고 시작하지 않아서 재생성 중에도 조회가 비지 않고, 끝나면 원본이 없어진 행만 지운다.
+ *   배치마다 order_view 행을 먼저 잠그고 원본을 읽는다 -> 그 사이 끝난 취소/이름 변경을 예전 값으로 덮어쓰지 않는다.
+ */
+@Slf4j
+@Service
+public class OrderViewProjector {
+
+    private final OrderViewRepository orderViewRepository;
+    private final OrderViewLineCodec codec;
+    private final OrderViewProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+
+    private volatile Map<String, Object> lastRebuild = Map.of();
+
+    public OrderViewProjector(OrderViewRepository orderViewRepository,
+                              OrderViewLineCodec codec,
+                              OrderViewProperties properties,
+                              PlatformTransactionManager transactionManager,
+                              EntityManager em) {
+        this.orderViewRepository = orderViewRepository;
+        this.codec = codec;
+        this.properties = properties;
+        // 재생성 배치는 아웃박스 컨슈머 트랜잭션 안에서 불려도 배치마다 따로 커밋한다
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.em = em;
+    }
+
+    /**
+     * 방금 저장한 주문, 메모리에 있는 엔티티로 만든다 (추가 조회 없음)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderPlaced(Order order) {
+        orderViewRepository.save(toView(order));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderCanceled(Order order) {
+        if (orderViewRepository.updateStatus(order.getId(), order.getStatus()) == 0) {
+            // 재생성 전에 만들어진 주문이면 지금 만든다
+            orderViewRepository.save(toView(order));
+        }
+    }
+
+    /**
+     * 일괄 취소된 주문, update 한번. 재생성 전에 만들어진 주문이 섞여 있으면 원본에서 다시 만든다
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ordersCanceled(List<Long> orderIds) {
+        if (orderViewRepository.updateStatuses(orderIds, OrderStatus.CANCEL) < orderIds.size()) {
+            replace(orderIds, orderViewRepository::buildFromOrders);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void memberRenamed(Long memberId, String name) {
+        orderViewRepository.updateMemberName(memberId, name);
+    }
+
+    /**
+     * 상품명이 바뀐 상품들이 들어간 주문을 다시 만든다 (OrderViewItemRenameConsumer 가 이벤트 배치마다 한번 호출)
+     * 주문 id 는 rebuild-batch-size 씩 keyset 으로 찾아서 청크마다 새 트랜잭션 -> in 목록 크기와 트랜잭션 길이가 주문 수와 상관없다
+     */
+    public int itemsRenamed(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(itemIds);
+        return rebuild((afterId, limit) -> orderViewRepository.findOrderIdsContainingItems(ids, afterId, limit), orderViewRepository::buildFromOrders)
+                + rebuild((afterId, limit) -> orderViewRepository.findArchivedOrderIdsContainingItems(ids, afterId, limit), orderViewRepository::buildFromArchive);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!properties.isRebuildIfEmpty()) {
+            return;
+        }
+        Boolean empty = transactionTemplate.execute(status ->
+                orderViewRepository.count() == 0 && !orderViewRepository.findOrderIdsAfter(0, 1).isEmpty());
+        if (Boolean.TRUE.equals(empty)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 전체 재생성, 다시 만든 주문 수를 반환
+     */
+    public synchronized int rebuild() {
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        int orders = rebuild((afterId, limit) -> orderViewRepository.findOrderIdsAfter(afterId, limit), orderViewRepository::buildFromOrders);
+        int archived = rebuild((afterId, limit) -> orderViewRepository.findArchivedOrderIdsAfter(afterId, limit), orderViewRepository::buildFromArchive);
+        Integer removed = transactionTemplate.execute(status -> orderViewRepository.deleteUpdatedBefore(startedAt));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rebuiltAt", startedAt.toString());
+        result.put("orders", orders);
+        result.put("archivedOrders", archived);
+        result.put("removed", removed);
+        result.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+        lastRebuild = result;
+        log.info("order_view 재생성 완료 {}", result);
+        return orders + archived;
+    }
+
+    private int rebuild(BiFunction<Long, Integer, List<Long>> nextIds, Function<List<Long>, List<OrderView>> builder) {
+        int total = 0;
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            List<Long> orderIds = transactionTemplate.execute(status -> {
+                List<Long> ids = nextIds.apply(from, properties.getRebuildBatchSize());
+                replace(ids, builder);
+                em.flush();
+                em.clear();
+                return ids;
+            });
+            total += orderIds.size();
+            if (orderIds.size() < properties.getRebuildBatchSize()) {
+                return total;
+            }
+            afterId = orderIds.get(orderIds.size() - 1);
+        }
+    }
+
+    private void replace(List<Long> orderIds, Function<List<Long>, List<OrderView>> builder) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        orderViewRepository.lockByIds(orderIds);
+        List<OrderView> views = builder.apply(orderIds);
+        if (views.isEmpty()) {
+            return;
+        }
+        orderViewRepository.deleteByIds(views.stream().map(OrderView::getOrderId).collect(Collectors.toList()));
+        views.forEach(orderViewRepository::save);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("readEnabled", properties.isReadEnabled());
+        map.put("rows", transactionTemplate.execute(status -> orderViewRepository.count()));
+        map.put("lastRebuild", lastRebuild);
+        return map;
+    }
+
+    private OrderView toView(Order order) {
+        List<OrderViewLine> lines = order.getOrderItems().stream()
+                .map(oi -> new OrderViewLine(oi.getItem().getId(), oi.getItem().getName(), oi.getOrderPrice(), oi.getCount()))
+                .collect(Collectors.toList());
+        return new OrderView(order.getId(), order.getMember().getId(), order.getMember().getName(), order.getOrderDate(),
+                order.getStatus(), order.getDelivery().getAddress(), codec.write(lines), false);
+    }
+}
@@ -0,0 +1,36 @@
+-- 오래된 완료/취소 주문 보관 테이블 (OrderArchiver), ddl-auto 로 만든 기존 스키마에는 없던 것
+create table orders_archive (
+    order_id bigint not null,
+    member_id bigint,
+    order_date timestamp,
+    status varchar(255),
+    city varchar(255),
+    street varchar(255),
+    zipcode varchar(255),
+    delivery_status varchar(255),
+    archived_at timestamp,
+    primary key (order_id)
+);
+
+create table order_item_archive (
+    order_item_id bigint not null,
+    order_id bigint,
+    item_id bigint,
+    order_price integer not null,
+    count integer not null,
+    primary key (order_item_id)
+);
+
+alter table orders_archive add constraint fk_orders_archive_member foreign key (member_id) references member;
+alter table order_item_archive add constraint fk_order_item_archive_order foreign key (order_id) references orders_archive;
+alter table order_item_archive add constraint fk_order_item_archive_item foreign key (item_id) references item;
+
+-- 주문일 범위 조회 (보관 대상 찾기, 범위 조회의 hot/보관 양쪽)
+create index idx_orders_order_date on orders (order_date);
+create index idx_orders_archive_order_date on orders_archive (order_date);
+
+-- 외래키 쪽 조인/ in 조회 (회원별 보관 주문, 보관 주문별 주문상품)
+create index idx_orders_archive_member_id on orders_archive (member_id);
+create index idx_order_item_archive_order_id on order_item_archive (order_id);
+-- 상품명 변경시 보관 주문 중 해당 상품이 들어간 주문 찾기
+create index idx_order_item_archive_item_id on order_item_archive (item_id);
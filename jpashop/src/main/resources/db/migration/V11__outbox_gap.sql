@@ -0,0 +1,9 @@
+-- 컨슈머가 건너뛴 빈 이벤트 번호: 늦게 커밋된 이벤트를 나중에라도 넘긴다 (최소 한 번 전달)
+create table outbox_gap (
+    consumer varchar(100) not null,
+    event_id bigint not null,
+    skipped_at timestamp,
+    primary key (consumer, event_id)
+);
+
+create index idx_outbox_gap_skipped_at on outbox_gap (skipped_at);
@@ -0,0 +1,73 @@
+-- ddl-auto: create 로 만들던 스키마 그대로
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table member (
+    member_id bigint not null,
+    name varchar(255),
+    city varchar(255),
+    street varchar(255),
+    zipcode varchar(255),
+    primary key (member_id)
+);
+
+create table item (
+    dtype varchar(31) not null,
+    item_id bigint not null,
+    name varchar(255),
+    price integer not null,
+    stock_quantity integer not null,
+    artist varchar(255),
+    etc varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    actor varchar(255),
+    director varchar(255),
+    primary key (item_id)
+);
+
+create table category (
+    category_id bigint not null,
+    name varchar(255),
+    parent_id bigint,
+    primary key (category_id)
+);
+
+create table category_item (
+    category_id bigint not null,
+    item_id bigint not null
+);
+
+create table delivery (
+    delivery_id bigint not null,
+    city varchar(255),
+    street varchar(255),
+    zipcode varchar(255),
+    status varchar(255),
+    primary key (delivery_id)
+);
+
+create table orders (
+    order_id bigint not null,
+    member_id bigint,
+    delivery_id bigint,
+    order_date timestamp,
+    status varchar(255),
+    primary key (order_id)
+);
+
+create table order_item (
+    order_item_id bigint not null,
+    order_id bigint,
+    item_id bigint,
+    order_price integer not null,
+    count integer not null,
+    primary key (order_item_id)
+);
+
+alter table category add constraint fk_category_parent foreign key (parent_id) references category;
+alter table category_item add constraint fk_category_item_category foreign key (category_id) references category;
+alter table category_item add constraint fk_category_item_item foreign key (item_id) references item;
+alter table orders add constraint fk_orders_member foreign key (member_id) references member;
+alter table orders add constraint fk_orders_delivery foreign key (delivery_id) references delivery;
+alter table order_item add constraint fk_order_item_order foreign key (order_id) references orders;
+alter table order_item add constraint fk_order_item_item foreign key (item_id) references item;
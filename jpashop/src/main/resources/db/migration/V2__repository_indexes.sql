@@ -0,0 +1,13 @@
+-- 리포지토리 쿼리 접근 경로별 인덱스 (QueryPlanTest 가 실행계획으로 확인한다)
+
+-- OrderRepository.findAll: 상태 검색 + 주문일 범위
+create index idx_orders_status_order_date on orders (status, order_date);
+
+-- MemberRepository.findByName, 주문 검색의 회원명 like '이름%'
+create index idx_member_name on member (name);
+
+-- 외래키 쪽 조인/ in 조회 (회원별 주문, 주문별 주문상품)
+create index idx_orders_member_id on orders (member_id);
+create index idx_orders_delivery_id on orders (delivery_id);
+create index idx_order_item_order_id on order_item (order_id);
+create index idx_order_item_item_id on order_item (item_id);
@@ -0,0 +1,19 @@
+-- 트랜잭션 아웃박스: 주문/상품 변경과 같은 트랜잭션에서 이벤트를 남긴다
+create table outbox_event (
+    event_id bigint not null,
+    type varchar(50) not null,
+    aggregate_id bigint,
+    payload varchar(4000),
+    created_at timestamp not null,
+    primary key (event_id)
+);
+
+-- 컨슈머별 마지막으로 처리한 이벤트 id
+create table outbox_offset (
+    consumer varchar(100) not null,
+    last_event_id bigint not null,
+    updated_at timestamp,
+    primary key (consumer)
+);
+
+create index idx_outbox_event_created_at on outbox_event (created_at);
@@ -0,0 +1,19 @@
+-- 주문 조회용 비정규화 테이블: 주문 1건 = 1행, 회원명/배송지/주문상품(json 배열)을 같이 저장
+-- 주문/취소/회원명·상품명 변경 때 같은 트랜잭션에서 갱신하고, 어긋나면 재생성한다 (/internal/order-view/rebuild)
+create table order_view (
+    order_id bigint not null,
+    member_id bigint not null,
+    member_name varchar(255),
+    order_date timestamp,
+    status varchar(255),
+    city varchar(255),
+    street varchar(255),
+    zipcode varchar(255),
+    order_lines varchar(4000),
+    archived boolean not null,
+    updated_at timestamp not null,
+    primary key (order_id)
+);
+
+create index idx_order_view_order_date on order_view (order_date);
+create index idx_order_view_member_id on order_view (member_id);
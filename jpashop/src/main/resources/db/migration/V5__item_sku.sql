@@ -0,0 +1,6 @@
+-- 카탈로그 일괄 등록(ItemCatalogImporter)은 상품 코드로 upsert 한다
+alter table item add column sku varchar(64);
+create unique index uk_item_sku on item (sku);
+
+-- 카테고리 이름으로 찾아서 연결
+create index idx_category_name on category (name);
@@ -0,0 +1,2 @@
+-- 주문 목록 화면의 행 캐시(OrderListRowCache) 키, 주문이 바뀔 때마다 hibernate 가 올린다
+alter table orders add column version bigint default 0 not null;
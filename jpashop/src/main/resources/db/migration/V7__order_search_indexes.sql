@@ -0,0 +1,15 @@
+-- 주문 검색 조건 확장: 여러 상태, 상품, 최소 금액, 배송 상태
+alter table orders add column total_price integer default 0 not null;
+
+update orders o set total_price = coalesce(
+        (select sum(oi.order_price * oi.count) from order_item oi where oi.order_id = o.order_id), 0);
+
+-- 최소 금액
+create index idx_orders_total_price on orders (total_price);
+-- 상품으로 찾기: 상품 -> 주문 id 까지 인덱스만 읽는다 (item_id 단독 인덱스를 대신한다)
+create index idx_order_item_item_id_order_id on order_item (item_id, order_id);
+drop index idx_order_item_item_id;
+-- 상품명 앞부분 검색
+create index idx_item_name on item (name);
+-- 배송 상태 + 주문 조인
+create index idx_delivery_status on delivery (status, delivery_id);
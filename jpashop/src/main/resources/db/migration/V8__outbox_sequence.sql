@@ -0,0 +1,10 @@
+-- 아웃박스 이벤트 전용 시퀀스: 번호가 이어지므로 빠진 번호는 아직 커밋 안 된(또는 롤백된) 이벤트다
+create sequence outbox_event_seq start with 1;
+
+-- 이미 쓴 id (남아 있는 이벤트, 컨슈머 처리 위치) 다음부터
+alter sequence outbox_event_seq restart with (
+    select greatest(coalesce(max(e.event_id), 0), coalesce((select max(o.last_event_id) from outbox_offset o), 0)) + 1
+    from outbox_event e);
+
+-- payload json 길이 제한 없음
+alter table outbox_event alter column payload clob;
@@ -0,0 +1,2 @@
+-- 주문상품이 많은 주문도 order_lines json 이 잘리지 않도록
+alter table order_view alter column order_lines clob;
@@ -0,0 +1,23 @@
+package jpabook.jpashop;
+
+import org.junit.jupiter.api.Tag;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 처리량, 지연시간, 힙 사용량을 재는 테스트
+ * 결과가 기계와 GC 에 따라 달라지므로 기본 test 작업에서는 빠지고 ./gradlew benchmark 로만 실행한다.
+ * 기능 확인은 같은 대상의 *Test 에 작은 데이터로 둔다.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Tag(Benchmark.TAG)
+public @interface Benchmark {
+
+    String TAG = "benchmark";
+}
@@ -0,0 +1,125 @@
+package jpabook.jpashop.Controller;
+
+import jpabook.jpashop.SpringBenchmark;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 주문 목록 화면을 주문 1만건, 100만건에서 그리는 시간 (keyset 페이징 + 행 캐시라서 주문 수와 상관없이 비슷해야 한다)
+ * 메모리 h2 는 컨텍스트가 닫혀도 남아있으므로(DB_CLOSE_DELAY=-1) 끝나면 db 를 닫는다.
+ * ./gradlew benchmark --tests '*OrderListPageBenchmark'
+ */
+@SpringBenchmark
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderListPageBenchmark {
+
+    static final long FIRST_ID = 20_000_000L;
+    static final int MEMBERS = 1000;
+    static final int ITEMS = 100;
+
+    @Autowired MockMvc mockMvc;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired OrderListRowCache orderListRowCache;
+
+    static int seeded;
+
+    /**
+     * 100만건 delete 는 너무 느리고 truncate 로는 메모리가 바로 안 줄어든다 -> 이 컨텍스트 전용 db 라서 통째로 닫는다
+     */
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.execute("shutdown");
+    }
+
+    @Test
+    public void 렌더링_시간_1만건_100만건() throws Exception {
+        seed(10_000);
+        long[] small = measure(10_000);
+        seed(1_000_000);
+        long[] large = measure(1_000_000);
+
+        // keyset + 행 캐시라서 주문 수와 상관없이 비슷해야 한다
+        assertThat(large[1]).isLessThan(Math.max(small[1] * 5, 50_000_000L));
+        assertThat(large[2]).isLessThan(Math.max(small[2] * 5, 50_000_000L));
+    }
+
+    /**
+     * {첫 페이지(캐시 비움), 첫 페이지(캐시), 깊은 페이지(캐시)} 중앙값 나노초
+     */
+    private long[] measure(int orders) throws Exception {
+        String deep = "/orders?beforeId=" + (FIRST_ID + orders / 2);
+        for (int i = 0; i < 20; i++) {
+            page("/orders");
+            page(deep);
+        }
+        long[] cold = new long[21];
+        long[] warm = new long[21];
+        long[] deepWarm = new long[21];
+        for (int i = 0; i < cold.length; i++) {
+            orderListRowCache.clear();
+            cold[i] = time("/orders");
+            warm[i] = time("/orders");
+            time(deep);
+            deepWarm[i] = time(deep);
+        }
+        long[] result = {median(cold), median(warm), median(deepWarm)};
+        System.out.printf("order list page, %d orders: first page %.2fms (rows rendered), %.2fms (rows cached), deep page %.2fms (rows cached)%n",
+                orders, result[0] / 1e6, result[1] / 1e6, result[2] / 1e6);
+        return result;
+    }
+
+    private long time(String url) throws Exception {
+        long start = System.nanoTime();
+        page(url);
+        return System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private String page(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    /**
+     * 주문 수가 count 가 될때까지 주문(order_id = FIRST_ID + n)과 배송, 주문상품 1개씩 추가, 10건마다 1건은 취소
+     */
+    private void seed(int count) {
+        if (seeded == 0) {
+            jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode)"
+                    + " select ? + x, 'list-member' || x, '서울', '거리', '123' from system_range(1, ?)", FIRST_ID, MEMBERS);
+            jdbcTemplate.update("insert into item (dtype, item_id, name, price, stock_quantity)"
+                    + " select 'B', ? + x, 'list-book' || x, 1000, 100 from system_range(1, ?)", FIRST_ID, ITEMS);
+        }
+        for (int from = seeded + 1; from <= count; from += 100_000) {
+            int to = Math.min(from + 99_999, count);
+            jdbcTemplate.update("insert into delivery (delivery_id, city, street, zipcode, status)"
+                    + " select ? + x, '서울', '거리', '123', 'READY' from system_range(?, ?)", FIRST_ID, from, to);
+            jdbcTemplate.update("insert into orders (order_id, member_id, delivery_id, order_date, status, version)"
+                    + " select ? + x, ? + mod(x, ?) + 1, ? + x, dateadd('SECOND', x, timestamp '2026-01-01 00:00:00'),"
+                    + " case when mod(x, 10) = 0 then 'CANCEL' else 'ORDER' end, 0 from system_range(?, ?)",
+                    FIRST_ID, FIRST_ID, MEMBERS, FIRST_ID, from, to);
+            jdbcTemplate.update("insert into order_item (order_item_id, order_id, item_id, order_price, count)"
+                    + " select ? + x, ? + x, ? + mod(x, ?) + 1, 1000, 1 from system_range(?, ?)",
+                    FIRST_ID * 2, FIRST_ID, FIRST_ID, ITEMS, from, to);
+        }
+        seeded = Math.max(seeded, count);
+    }
+}
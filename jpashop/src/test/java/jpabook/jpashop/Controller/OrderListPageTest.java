@@ -0,0 +1,138 @@
+package jpabook.jpashop.Controller;
+
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 주문 목록 화면: keyset 페이징 + 행 html 캐시
+ * 주문은 jdbc 로 id 대역을 정해서 넣는다 (시퀀스와 겹치지 않게)
+ * 주문 100만건에서 그리는 시간은 OrderListPageBenchmark
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class OrderListPageTest {
+
+    static final long FIRST_ID = 20_000_000L;
+    static final int MEMBERS = 1000;
+    static final int ITEMS = 100;
+    static final Pattern ROW_ID = Pattern.compile("<tr>\\s*<td>(\\d+)</td>");
+
+    @Autowired MockMvc mockMvc;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired OrderListRowCache orderListRowCache;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+
+    static final int ORDERS = 100;
+
+    static int seeded;
+
+    @Test
+    public void 주문이_바뀐_행만_다시_그린다() throws Exception {
+        //given
+        seed(ORDERS);
+        // 가장 최근 주문은 시드에서 이미 취소 상태 -> 그 다음 주문을 취소한다
+        long newest = jdbcTemplate.queryForObject("select max(order_id) from orders", Long.class);
+        long canceled = newest - 1;
+        orderListRowCache.clear();
+        String before = page("/orders?size=5");
+        long misses = (long) orderListRowCache.snapshot().get("misses");
+        int size = (int) orderListRowCache.snapshot().get("size");
+
+        //when: 같은 페이지를 다시 그리면 전부 캐시, 취소(version 증가)와 회원명 변경은 그 행만 새로 그린다
+        page("/orders?size=5");
+        long missesAfterReload = (long) orderListRowCache.snapshot().get("misses");
+        orderService.cancelOrder(canceled);
+        memberService.update(memberIdOf(newest - 2), "renamed-member");
+        String after = page("/orders?size=5");
+
+        //then
+        assertThat(missesAfterReload).isEqualTo(misses);
+        assertThat((long) orderListRowCache.snapshot().get("misses")).isEqualTo(misses + 2);
+        // 키가 (id, version) 이라 취소한 주문은 새 키로 하나 늘고, 회원명만 바뀐 주문은 같은 키를 덮어쓴다
+        assertThat((int) orderListRowCache.snapshot().get("size")).isEqualTo(size + 1);
+        assertThat(before).contains("javascript:cancel(" + canceled + ")");
+        assertThat(after).doesNotContain("javascript:cancel(" + canceled + ")");
+        assertThat(after).contains("renamed-member");
+    }
+
+    @Test
+    public void 다음_링크로_이어서() throws Exception {
+        //given
+        seed(ORDERS);
+
+        //when
+        String first = page("/orders?size=3&orderStatus=CANCEL");
+        String next = first.substring(first.indexOf("beforeId=") + "beforeId=".length());
+        long beforeId = Long.parseLong(next.substring(0, next.indexOf('"')));
+        String second = page("/orders?size=3&orderStatus=CANCEL&beforeId=" + beforeId);
+
+        //then: 취소 주문만, 앞 페이지 다음부터 (다른 테스트가 취소한 주문이 섞일 수 있어서 db 상태로 확인)
+        assertThat(rowIds(first)).hasSize(3).allMatch(id -> statusOf(id).equals("CANCEL"));
+        assertThat(rowIds(second)).hasSize(3).allMatch(id -> id < beforeId && statusOf(id).equals("CANCEL"));
+    }
+
+    private String page(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    /**
+     * 행의 첫 칸(주문 id)
+     */
+    private static List<Long> rowIds(String html) {
+        return ROW_ID.matcher(html).results()
+                .map(m -> Long.parseLong(m.group(1)))
+                .collect(Collectors.toList());
+    }
+
+    private String statusOf(long orderId) {
+        return jdbcTemplate.queryForObject("select status from orders where order_id = ?", String.class, orderId);
+    }
+
+    private long memberIdOf(long orderId) {
+        return jdbcTemplate.queryForObject("select member_id from orders where order_id = ?", Long.class, orderId);
+    }
+
+    /**
+     * 주문 수가 count 가 될때까지 주문(order_id = FIRST_ID + n)과 배송, 주문상품 1개씩 추가, 10건마다 1건은 취소
+     */
+    private void seed(int count) {
+        if (seeded == 0) {
+            jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode)"
+                    + " select ? + x, 'list-member' || x, '서울', '거리', '123' from system_range(1, ?)", FIRST_ID, MEMBERS);
+            jdbcTemplate.update("insert into item (dtype, item_id, name, price, stock_quantity)"
+                    + " select 'B', ? + x, 'list-book' || x, 1000, 100 from system_range(1, ?)", FIRST_ID, ITEMS);
+        }
+        for (int from = seeded + 1; from <= count; from += 100_000) {
+            int to = Math.min(from + 99_999, count);
+            jdbcTemplate.update("insert into delivery (delivery_id, city, street, zipcode, status)"
+                    + " select ? + x, '서울', '거리', '123', 'READY' from system_range(?, ?)", FIRST_ID, from, to);
+            jdbcTemplate.update("insert into orders (order_id, member_id, delivery_id, order_date, status, version)"
+                    + " select ? + x, ? + mod(x, ?) + 1, ? + x, dateadd('SECOND', x, timestamp '2026-01-01 00:00:00'),"
+                    + " case when mod(x, 10) = 0 then 'CANCEL' else 'ORDER' end, 0 from system_range(?, ?)",
+                    FIRST_ID, FIRST_ID, MEMBERS, FIRST_ID, from, to);
+            jdbcTemplate.update("insert into order_item (order_item_id, order_id, item_id, order_price, count)"
+                    + " select ? + x, ? + x, ? + mod(x, ?) + 1, 1000, 1 from system_range(?, ?)",
+                    FIRST_ID * 2, FIRST_ID, FIRST_ID, ITEMS, from, to);
+        }
+        seeded = Math.max(seeded, count);
+    }
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 애플리케이션을 띄워서 재는 @Benchmark
+ * benchmark 프로필로 sql 로그를 끄고(행이 많으면 로그 쓰는 시간을 재게 된다), 데이터를 많이 넣으므로 끝나면 컨텍스트를 버린다.
+ * 로그 설정을 프로필로 두는 건 properties 를 지정해도 덮어써지지 않게 하려고
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Benchmark
+@SpringBootTest
+@ActiveProfiles("benchmark")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public @interface SpringBenchmark {
+
+    @AliasFor(annotation = SpringBootTest.class, attribute = "properties")
+    String[] properties() default {};
+
+    @AliasFor(annotation = SpringBootTest.class, attribute = "webEnvironment")
+    SpringBootTest.WebEnvironment webEnvironment() default SpringBootTest.WebEnvironment.MOCK;
+}
@@ -0,0 +1,95 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.monitoring.StartupReport;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 기동 시간 벤치마크: 새 JVM 으로 N 번 띄워서 준비 완료 시간(JVM 시작부터)과 기동 직후 힙(gc 후)을 본다
+ * 같은 JVM 에서 여러번 띄우면 클래스 로딩, JIT 가 재사용되어 실제 기동보다 빨라지므로 매번 프로세스를 새로 만든다.
+ * ./gradlew startupBenchmark -Pruns=5
+ * db 는 실행마다 새 메모리 h2, 웹 서버는 임의 포트로 띄운다.
+ */
+public class StartupBenchmark {
+
+    static final String CHILD = "--startup-benchmark-child";
+    static final String RESULT_PREFIX = "startup-benchmark ";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD)) {
+            child();
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        long[] readyMillis = new long[runs];
+        long[] heapMb = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long[] result = runChild();
+            readyMillis[i] = result[0];
+            heapMb[i] = result[1];
+            System.out.printf("run %d: ready %dms, heap after start %dMB%n", i + 1, readyMillis[i], heapMb[i]);
+        }
+        System.out.printf("startup benchmark %d runs: ready median %dms (min %d, max %d), heap median %dMB%n",
+                runs, median(readyMillis), Arrays.stream(readyMillis).min().orElse(0), Arrays.stream(readyMillis).max().orElse(0),
+                median(heapMb));
+    }
+
+    /**
+     * 같은 클래스패스, 같은 JVM 옵션으로 자식 프로세스를 띄우고 결과 줄만 읽는다
+     */
+    private static long[] runChild() throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupBenchmark.class.getName());
+        command.add(CHILD);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    String[] values = line.substring(RESULT_PREFIX.length()).split(" ");
+                    result = new long[]{Long.parseLong(values[0]), Long.parseLong(values[1])};
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            throw new IllegalStateException("기동 실패, exit=" + process.exitValue());
+        }
+        return result;
+    }
+
+    private static void child() {
+        ConfigurableApplicationContext context = JpashopApplication.application().run(
+                "--spring.datasource.url=jdbc:h2:mem:startup-benchmark",
+                "--server.port=0",
+                "--jpashop.archive.enabled=false",
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=info",
+                "--logging.level.org.hibernate.type=info",
+                "--decorator.datasource.p6spy.enable-logging=false");
+        long readyMillis = context.getBean(StartupReport.class).getReadyMillis();
+        System.gc();
+        long heapMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024);
+        System.out.println(RESULT_PREFIX + readyMillis + " " + heapMb);
+        context.close();
+        System.exit(0);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
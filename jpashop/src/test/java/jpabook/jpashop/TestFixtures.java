@@ -0,0 +1,42 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 테스트용 회원, 상품 저장
+ * 서비스(중복 이름 검사, 아웃박스 이벤트)를 거치지 않고 각각 트랜잭션 하나로 바로 커밋한다 -> 다른 스레드, 다른 트랜잭션에서도 보인다.
+ * 테스트에서 @Import(TestFixtures.class) 해서 쓴다.
+ */
+@RequiredArgsConstructor
+public class TestFixtures {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+
+    public Long createMember(String name) {
+        return transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName(name);
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+    }
+
+    public Long createBook(String name, int stock) {
+        return transactionTemplate.execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(10000);
+            book.setStockQuantity(stock);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+}
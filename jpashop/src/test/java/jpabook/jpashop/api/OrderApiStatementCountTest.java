@@ -0,0 +1,167 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.StatementBudgetExceededException;
+import jpabook.jpashop.monitoring.StatementBudgetInterceptor;
+import jpabook.jpashop.monitoring.StatementBudgetProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 주문 api 버전별 요청당 sql 실행 수
+ * 데이터가 늘어나도 실행 수가 그대로인지 확인한다 -> N+1 이 새로 생기면 CI 에서 깨진다.
+ * 지연로딩은 default_batch_fetch_size(100) 단위로 묶이므로 주문, 상품이 각각 100개 이하에서는 고정이다.
+ * 테스트용 application.yml 에는 배치 설정이 없어서 운영 설정과 맞춰준다.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=100",
+        "spring.jpa.properties.hibernate.batch_fetch_style=padded"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class OrderApiStatementCountTest {
+
+    static final int[] ORDER_COUNTS = {5, 20, 45};
+
+    @Autowired MockMvc mockMvc;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired StatementBudgetProperties statementBudgetProperties;
+
+    /**
+     * url -> 주문 수에 따른 기대 sql 수
+     */
+    static Map<String, IntUnaryOperator> expected() {
+        Map<String, IntUnaryOperator> expected = new LinkedHashMap<>();
+        // 주문 1 + member, delivery, orderItems, item 배치 조회 각 1
+        expected.put("/api/v1/orders", n -> 5);
+        expected.put("/api/v2/orders", n -> 5);
+        // 컬렉션 페치 조인 1번
+        expected.put("/api/v3/orders", n -> 1);
+        // 주문+member+delivery 페치 조인 1 + orderItems 배치 1 + item 배치 1
+        expected.put("/api/v3.1/orders", n -> 3);
+        // 조회 계획: 그래프로 member, delivery 조인 1 + orderItems 배치 1 + item 배치 1
+        expected.put("/api/v3.2/orders", n -> 3);
+        expected.put("/api/v3.2/orders?plan=SUMMARY", n -> 3);
+        // 조합한 계획: 그래프로 member 조인 1 + delivery 배치 1 + orderItems 배치 1 + item 배치 1
+        expected.put("/api/v3.2/orders?plan=member,orderItems.item", n -> 4);
+        // 계획 없음: 주문 1 + member, delivery, orderItems, item 배치 조회 각 1
+        expected.put("/api/v3.2/orders?plan=NONE", n -> 5);
+        // 루트 1 + 주문별 orderItems N (알려진 N+1)
+        expected.put("/api/v4/orders", n -> 1 + n);
+        expected.put("/api/v5/orders", n -> 2);
+        expected.put("/api/v6/orders", n -> 1);
+        // 엔티티 직접 노출: delivery 의 order(OneToOne mappedBy 쪽은 지연로딩 불가) 조회 1 추가
+        // totalPrice 는 컬럼이라 직렬화할 때 orderItems 를 읽지 않는다
+        expected.put("/api/v1/simple-orders", n -> 3);
+        // 주문 1 + member, delivery 배치 조회 각 1
+        expected.put("/api/v2/simple-orders", n -> 3);
+        expected.put("/api/v3/simple-orders", n -> 1);
+        expected.put("/api/v4/simple-orders", n -> 1);
+        // 타임리프 화면: 목록 projection 쿼리 1 (keyset 페이징)
+        expected.put("/orders", n -> 1);
+        return expected;
+    }
+
+    @Test
+    public void 데이터가_늘어나도_sql_수_고정() throws Exception {
+        int existing = countOrders();
+        int created = 0;
+        for (int orderCount : ORDER_COUNTS) {
+            //given
+            createOrders(created, orderCount - existing - created);
+            created = orderCount - existing;
+
+            for (Map.Entry<String, IntUnaryOperator> entry : expected().entrySet()) {
+                //when
+                int count = statementCount(entry.getKey());
+
+                //then
+                assertThat(count)
+                        .as("%s (주문 %d개)", entry.getKey(), orderCount)
+                        .isEqualTo(entry.getValue().applyAsInt(orderCount));
+            }
+        }
+    }
+
+    @Test
+    public void 예산초과시_실패모드면_예외() throws Exception {
+        //given
+        statementBudgetProperties.setMode(StatementBudgetProperties.Mode.FAIL);
+        statementBudgetProperties.getEndpoints().put("OrderSimpleApiController.ordersV2", 2);
+
+        try {
+            //then
+            assertThatThrownBy(() -> mockMvc.perform(get("/api/v2/simple-orders")))
+                    .hasRootCauseInstanceOf(StatementBudgetExceededException.class);
+            // 예산 안이면 그대로 통과
+            mockMvc.perform(get("/api/v4/simple-orders")).andExpect(status().isOk());
+        } finally {
+            statementBudgetProperties.setMode(StatementBudgetProperties.Mode.LOG);
+            statementBudgetProperties.getEndpoints().remove("OrderSimpleApiController.ordersV2");
+        }
+    }
+
+    private int statementCount(String url) throws Exception {
+        return (int) mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getRequest()
+                .getAttribute(StatementBudgetInterceptor.STATEMENT_COUNT_ATTRIBUTE);
+    }
+
+    private int countOrders() {
+        return transactionTemplate.execute(status ->
+                em.createQuery("select count(o) from Order o", Long.class).getSingleResult().intValue());
+    }
+
+    /**
+     * 주문마다 다른 회원, 다른 상품 2개
+     */
+    private void createOrders(int start, int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = start; i < start + count; i++) {
+                Member member = new Member();
+                member.setName("statement-member" + i);
+                member.setAddress(new Address("서울", "거리" + i, "123-" + i));
+                em.persist(member);
+
+                Book book1 = createBook("statement-book-a" + i);
+                Book book2 = createBook("statement-book-b" + i);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                Order order = Order.createOrder(member, delivery,
+                        OrderItem.createOrderItem(book1, 10000, 1),
+                        OrderItem.createOrderItem(book2, 20000, 2));
+                em.persist(order);
+            }
+        });
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        return book;
+    }
+}
@@ -0,0 +1,118 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.service.OrderService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 빈 메모리 db 로 두번 기동: 처음은 마이그레이션 + InitDb 후 스냅샷 저장, 두번째는 스냅샷 복원
+ * 이미 테이블이 있는 db 로 기동하면 복원도 초기 데이터도 없이 마이그레이션만 한다
+ */
+class DatabaseSnapshotTest {
+
+    @Test
+    public void 두번째_기동은_스냅샷에서_복원(@TempDir Path directory) throws Exception {
+        //given
+        Path file;
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext first = start("snapshot-first", directory)) {
+            System.out.printf("boot with migration + InitDb: %dms%n", (System.nanoTime() - start) / 1_000_000);
+            DatabaseSnapshot snapshot = first.getBean(DatabaseSnapshot.class);
+            file = snapshot.snapshotFile();
+            assertThat(snapshot.isRestored()).isFalse();
+            assertThat(file).exists();
+            assertThat(file.getFileName().toString()).contains(snapshot.modelHash());
+        }
+
+        //when
+        start = System.nanoTime();
+        try (ConfigurableApplicationContext second = start("snapshot-second", directory)) {
+            System.out.printf("boot from snapshot %s (%d bytes): %dms%n", file.getFileName(), Files.size(file), (System.nanoTime() - start) / 1_000_000);
+
+            //then
+            assertThat(second.getBean(DatabaseSnapshot.class).isRestored()).isTrue();
+            JdbcTemplate jdbcTemplate = second.getBean(JdbcTemplate.class);
+            // InitDb 가 다시 돌지 않았다 (회원 2명 그대로), flyway 이력도 같이 들어왔다
+            assertThat(jdbcTemplate.queryForObject("select count(*) from member", Integer.class)).isEqualTo(2);
+            assertThat(second.getBean(Flyway.class).info().pending()).isEmpty();
+            // 시퀀스도 이어져서 새 주문 id 가 겹치지 않는다
+            Long memberId = jdbcTemplate.queryForObject("select min(member_id) from member", Long.class);
+            Long itemId = jdbcTemplate.queryForObject("select min(item_id) from item", Long.class);
+            Long orderId = second.getBean(OrderService.class).order(memberId, itemId, 1);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from orders", Integer.class)).isEqualTo(3);
+            assertThat(orderId).isNotNull();
+            assertThat(Files.list(directory)).containsExactly(file);
+        }
+    }
+
+    @Test
+    public void 데이터가_있는_db_로_다시_기동하면_초기데이터를_넣지_않음(@TempDir Path directory) throws Exception {
+        //given
+        String database = "init-once;DB_CLOSE_DELAY=-1";
+        try (ConfigurableApplicationContext first = start(database, directory, false)) {
+            assertThat(first.getBean(DatabaseSnapshot.class).isFresh()).isTrue();
+        }
+
+        //when
+        try (ConfigurableApplicationContext second = start(database, directory, false)) {
+            //then
+            assertThat(second.getBean(DatabaseSnapshot.class).isFresh()).isFalse();
+            JdbcTemplate jdbcTemplate = second.getBean(JdbcTemplate.class);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from member", Integer.class)).isEqualTo(2);
+            jdbcTemplate.execute("drop all objects");
+        }
+    }
+
+    @Test
+    public void 예전_ddl_auto_스키마는_V1_으로_보고_나머지를_적용(@TempDir Path directory) throws Exception {
+        //given: ddl-auto 로 만든 스키마 = V1 과 같은 테이블, flyway 이력 없음
+        String database = "legacy-schema;DB_CLOSE_DELAY=-1";
+        DriverManagerDataSource legacy = new DriverManagerDataSource("jdbc:h2:mem:" + database, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__init.sql")).execute(legacy);
+
+        //when
+        try (ConfigurableApplicationContext context = start(database, directory, false, "spring.flyway.baseline-on-migrate=true")) {
+            //then
+            assertThat(context.getBean(DatabaseSnapshot.class).isFresh()).isFalse();
+            assertThat(context.getBean(Flyway.class).info().pending()).isEmpty();
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from orders_archive", Integer.class)).isZero();
+            assertThat(jdbcTemplate.queryForObject("select count(*) from member", Integer.class)).isZero();
+            jdbcTemplate.execute("drop all objects");
+        }
+    }
+
+    private ConfigurableApplicationContext start(String database, Path directory) {
+        return start(database, directory, true);
+    }
+
+    private ConfigurableApplicationContext start(String database, Path directory, boolean snapshot, String... more) {
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + database,
+                        "jpashop.snapshot.enabled=" + snapshot,
+                        "jpashop.snapshot.directory=" + directory,
+                        "jpashop.archive.enabled=false",
+                        "jpashop.outbox.enabled=false",
+                        "logging.level.org.hibernate.SQL=info",
+                        "logging.level.org.hibernate.type=info",
+                        "decorator.datasource.p6spy.enable-logging=false")
+                .properties(more)
+                .run();
+    }
+}
@@ -0,0 +1,93 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.support.QueryCoalescer;
+import jpabook.jpashop.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * replica 대신 같은 메모리 DB 를 가리키는 두번째 풀을 쓴다
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.replica.urls=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.read-your-writes-window-ms=60000"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ReplicaRoutingTest {
+
+    static final String REPLICA = "replica-0";
+    static final String PRIMARY = ReplicaRoutingDataSource.PRIMARY;
+
+    @Autowired MemberService memberService;
+    @Autowired DataSourceRouteStatistics statistics;
+    @Autowired MockMvc mockMvc;
+    @Autowired QueryCoalescer queryCoalescer;
+
+    @Test
+    public void 읽기전용은_replica_쓰기는_primary() throws Exception {
+        //given
+        long primary = statistics.statements(PRIMARY);
+        long replica = statistics.statements(REPLICA);
+
+        //when
+        memberService.findMember();
+
+        //then
+        assertThat(statistics.statements(REPLICA)).isGreaterThan(replica);
+        assertThat(statistics.statements(PRIMARY)).isEqualTo(primary);
+
+        //when
+        Member member = new Member();
+        member.setName("routing");
+        memberService.join(member);
+
+        //then
+        assertThat(statistics.statements(PRIMARY)).isGreaterThan(primary);
+        assertThat(statistics.snapshot()).containsKeys(PRIMARY, REPLICA);
+    }
+
+    @Test
+    public void 자기가_쓴_직후의_읽기는_primary() throws Exception {
+        //given
+        Cookie lastWrite = mockMvc.perform(post("/api/v2/members")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"writer\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(ReadYourWrites.COOKIE_NAME);
+        assertThat(lastWrite).isNotNull();
+
+        //when
+        long replica = statistics.statements(REPLICA);
+        mockMvc.perform(get("/api/v2/members").cookie(lastWrite)).andExpect(status().isOk());
+
+        //then
+        assertThat(statistics.statements(REPLICA)).isEqualTo(replica);
+
+        //when 합치는 조회도 다른 요청(replica 에서 읽은 결과)과 합치지 않는다
+        long bypassed = queryCoalescer.stats("OrderQueryRepository.findAllByDto_optimization").getBypassed().sum();
+        mockMvc.perform(get("/api/v5/orders").cookie(lastWrite)).andExpect(status().isOk());
+
+        //then
+        assertThat(queryCoalescer.stats("OrderQueryRepository.findAllByDto_optimization").getBypassed().sum()).isEqualTo(bypassed + 1);
+
+        //when 다른 클라이언트
+        mockMvc.perform(get("/api/v2/members")).andExpect(status().isOk());
+
+        //then
+        assertThat(statistics.statements(REPLICA)).isGreaterThan(replica);
+    }
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.load;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * tomcat 접근 로그(server.tomcat.accesslog) 읽기
+ * common/combined 형식: 127.0.0.1 - - [19/Oct/2026:06:44:55 +0900] "GET /items HTTP/1.1" 200 1234
+ * application.yml 의 밀리초 패턴: 127.0.0.1 - - [2026-10-19 06:44:55.123] "GET /items HTTP/1.1" 200 1234 5
+ * 요청 시각은 첫 요청 기준 오프셋으로 바꾼다. 형식이 맞지 않는 줄은 건너뛴다.
+ */
+public class AccessLogReplay {
+
+    private static final Pattern LINE = Pattern.compile("\\[([^\\]]+)] \"(\\S+) (\\S+)[^\"]*\"");
+    private static final DateTimeFormatter COMMON = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+    private static final DateTimeFormatter MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class RecordedRequest {
+        private final long offsetNanos; // 첫 요청부터
+        private final String method;
+        private final String path; // 쿼리 포함
+    }
+
+    public static List<RecordedRequest> read(BufferedReader reader) throws IOException {
+        List<long[]> times = new ArrayList<>();
+        List<String[]> requests = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = LINE.matcher(line);
+            if (!matcher.find()) {
+                continue;
+            }
+            Long epochNanos = parseTime(matcher.group(1));
+            if (epochNanos == null) {
+                continue;
+            }
+            times.add(new long[]{epochNanos, times.size()});
+            requests.add(new String[]{matcher.group(2), matcher.group(3)});
+        }
+        // 로그는 응답이 끝난 순서로 찍히므로 요청 시각 순으로 다시 정렬한다
+        times.sort(Comparator.comparingLong((long[] t) -> t[0]).thenComparingLong(t -> t[1]));
+        List<RecordedRequest> result = new ArrayList<>(times.size());
+        for (long[] time : times) {
+            String[] request = requests.get((int) time[1]);
+            result.add(new RecordedRequest(time[0] - times.get(0)[0], request[0], request[1]));
+        }
+        return result;
+    }
+
+    private static Long parseTime(String value) {
+        try {
+            OffsetDateTime time = OffsetDateTime.parse(value, COMMON);
+            return time.toEpochSecond() * 1_000_000_000L + time.getNano();
+        } catch (DateTimeParseException e) {
+            // 밀리초 패턴
+        }
+        try {
+            OffsetDateTime time = LocalDateTime.parse(value, MILLIS).atZone(ZoneId.systemDefault()).toOffsetDateTime();
+            return time.toEpochSecond() * 1_000_000_000L + time.getNano();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.load.AccessLogReplay.RecordedRequest;
+import jpabook.jpashop.load.Workload.Operation;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * http 부하 발생기
+ * 앱을 임의 포트의 내장 서버 + 메모리 h2 로 띄우고 데이터를 넣은 뒤 Workload 비율대로 요청을 보낸다.
+ * - closed: threads 개가 응답을 받으면 다음 요청을 보낸다. rate 를 주면 스레드마다 고정 간격으로 보낸다.
+ * - open: 고정 도착률(rate/s)로 요청을 만들고 connections 개가 처리한다. 밀리면 큐에서 기다린 시간도 지연시간에 들어간다.
+ * - replay: 접근 로그의 요청을 기록된 간격(speed 배속)대로 open 방식으로 보낸다.
+ * ./gradlew loadTest -PloadArgs="--mode=open --rate=200 --duration=30"
+ */
+public class LoadGenerator {
+
+    private static final HttpResponse.BodyHandler<Void> DISCARD = HttpResponse.BodyHandlers.discarding();
+
+    private final Workload workload;
+    private final HttpClient client;
+    private volatile LoadReport report = new LoadReport();
+
+    public LoadGenerator(Workload workload, int connections) {
+        this.workload = workload;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER) // 주문/취소의 redirect 응답까지만 잰다
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(2, connections / 4)))
+                .build();
+    }
+
+    /**
+     * ratePerSecond 가 0 이면 쉬지 않고 보내고 워밍업 평균 응답시간을 보정 간격으로 쓴다
+     */
+    public LoadReport closedLoop(int threads, double ratePerSecond, Duration warmup, Duration duration) throws InterruptedException {
+        long intervalNanos = ratePerSecond > 0 ? (long) (threads * 1e9 / ratePerSecond) : 0;
+        AtomicLong expectedIntervalNanos = new AtomicLong();
+        long end = System.nanoTime() + warmup.toNanos() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long intended = System.nanoTime() + random.nextLong(Math.max(1, intervalNanos)); // 스레드 시작을 흩뜨린다
+                while (System.nanoTime() < end) {
+                    Operation operation = workload.next(random);
+                    HttpRequest request = workload.request(operation, random);
+                    if (intervalNanos > 0) {
+                        sleepUntil(intended);
+                        send(operation, request, intended);
+                        intended += intervalNanos;
+                    } else {
+                        sendCorrected(operation, request, expectedIntervalNanos.get());
+                    }
+                }
+                done.countDown();
+            }, "load-closed-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        if (!warmup.isZero()) {
+            Thread.sleep(warmup.toMillis());
+            expectedIntervalNanos.set(report.meanServiceNanos());
+            report = new LoadReport();
+        }
+        done.await();
+        report.finish();
+        return report;
+    }
+
+    public LoadReport openLoop(double ratePerSecond, int connections, Duration warmup, Duration duration) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        long intervalNanos = (long) (1e9 / ratePerSecond);
+        long start = System.nanoTime();
+        long warmupEnd = start + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+        boolean warm = warmup.isZero();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            if (!warm && intended >= warmupEnd) {
+                report = new LoadReport();
+                warm = true;
+            }
+            sleepUntil(intended);
+            Operation operation = workload.next(random);
+            HttpRequest request = workload.request(operation, random);
+            executor.execute(() -> send(operation, request, intended));
+        }
+        return drain(executor);
+    }
+
+    public LoadReport replay(List<RecordedRequest> requests, double speed, int connections) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        for (RecordedRequest recorded : requests) {
+            long intended = start + (long) (recorded.getOffsetNanos() / speed);
+            sleepUntil(intended);
+            Operation operation = workload.classify(recorded.getMethod(), recorded.getPath());
+            HttpRequest request = workload.replayRequest(operation, recorded.getMethod(), recorded.getPath(), random);
+            executor.execute(() -> send(operation, request, intended));
+        }
+        return drain(executor);
+    }
+
+    private LoadReport drain(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        report.finish();
+        return report;
+    }
+
+    /**
+     * intendedNanos: 이 요청을 보냈어야 하는 시각, 보정 지연시간은 여기부터 잰다
+     */
+    private void send(Operation operation, HttpRequest request, long intendedNanos) {
+        LoadReport current = report;
+        long sent = System.nanoTime();
+        try {
+            int status = client.send(request, DISCARD).statusCode();
+            long now = System.nanoTime();
+            current.record(operation, status, now - sent, now - intendedNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            long now = System.nanoTime();
+            current.recordFailure(operation, now - sent, now - intendedNanos);
+        }
+    }
+
+    /**
+     * 일정 없는 closed loop: 보낸 시각부터 재고 expectedIntervalNanos 로 못 보낸 요청을 채운다
+     */
+    private void sendCorrected(Operation operation, HttpRequest request, long expectedIntervalNanos) {
+        LoadReport current = report;
+        long sent = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request, DISCARD).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            status = 0;
+        }
+        current.recordWithExpectedInterval(operation, status, System.nanoTime() - sent, expectedIntervalNanos);
+    }
+
+    private static void sleepUntil(long nanos) {
+        long remaining;
+        while ((remaining = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * --mode=closed|open|replay --threads=16 --connections=64 --rate=0 --warmup=5 --duration=30
+     * --mix=browse=40,order=20,... --api=/api/v5/orders,/api/v6/orders --replay=access.log --speed=1
+     * --members=100 --items=200 --orders=500
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String mode = options.getOrDefault("mode", "closed");
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        List<String> apiPaths = options.containsKey("api")
+                ? Arrays.asList(options.get("api").split(",")) : Workload.DEFAULT_API_PATHS;
+
+        ConfigurableApplicationContext context = start();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Workload workload = new Workload(URI.create("http://localhost:" + port), options.getOrDefault("mix", Workload.DEFAULT_MIX), apiPaths);
+            workload.seed(context,
+                    Integer.parseInt(options.getOrDefault("members", "100")),
+                    Integer.parseInt(options.getOrDefault("items", "200")),
+                    Integer.parseInt(options.getOrDefault("orders", "500")));
+            LoadGenerator generator = new LoadGenerator(workload, Math.max(threads, connections));
+            LoadReport report;
+            switch (mode) {
+                case "closed":
+                    report = generator.closedLoop(threads, Double.parseDouble(options.getOrDefault("rate", "0")), warmup, duration);
+                    break;
+                case "open":
+                    report = generator.openLoop(Double.parseDouble(options.getOrDefault("rate", "100")), connections, warmup, duration);
+                    break;
+                case "replay":
+                    try (BufferedReader reader = Files.newBufferedReader(Paths.get(options.get("replay")), StandardCharsets.UTF_8)) {
+                        report = generator.replay(AccessLogReplay.read(reader), Double.parseDouble(options.getOrDefault("speed", "1")), connections);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("mode 는 closed, open, replay: " + mode);
+            }
+            System.out.println("mode=" + mode + " " + options);
+            System.out.print(report.format());
+        } finally {
+            context.close();
+        }
+        System.exit(0);
+    }
+
+    static ConfigurableApplicationContext start() {
+        return JpashopApplication.application().run(
+                "--spring.datasource.url=jdbc:h2:mem:load",
+                "--server.port=0",
+                "--jpashop.archive.enabled=false",
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=info",
+                "--logging.level.org.hibernate.type=info",
+                "--decorator.datasource.p6spy.enable-logging=false");
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("옵션 형식은 --이름=값: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
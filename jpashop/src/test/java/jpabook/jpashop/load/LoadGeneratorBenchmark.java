@@ -0,0 +1,63 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.SpringBenchmark;
+import jpabook.jpashop.load.Workload.Operation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 내장 서버에 closed loop, open loop 로 부하를 걸고 결과 표를 출력한다
+ * ./gradlew benchmark --tests '*LoadGeneratorBenchmark'
+ */
+@SpringBenchmark(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadGeneratorBenchmark {
+
+    @LocalServerPort int port;
+    @Autowired ApplicationContext context;
+
+    Workload workload;
+
+    @BeforeEach
+    void seed() {
+        workload = new Workload(URI.create("http://localhost:" + port), Workload.DEFAULT_MIX, Workload.DEFAULT_API_PATHS);
+        workload.seed(context, 5, 5, 20);
+    }
+
+    @Test
+    public void closed_loop_모든_종류() throws Exception {
+        //when
+        LoadReport report = new LoadGenerator(workload, 4).closedLoop(2, 0, Duration.ofMillis(500), Duration.ofSeconds(2));
+        System.out.print(report.format());
+
+        //then
+        for (Operation operation : List.of(Operation.BROWSE_ITEMS, Operation.PLACE_ORDER, Operation.SEARCH_ORDERS, Operation.API_ORDERS)) {
+            assertThat(report.getCount(operation)).as(operation.name()).isPositive();
+        }
+        assertThat(report.getTotalErrors()).isZero();
+        // 보정하면 늦은 응답 동안 못 보낸 요청만큼 건수가 늘어난다
+        assertThat(report.corrected(Operation.BROWSE_ITEMS).getCount()).isGreaterThanOrEqualTo(report.getCount(Operation.BROWSE_ITEMS));
+    }
+
+    @Test
+    public void open_loop_고정_도착률() throws Exception {
+        //when 초당 50건 2초
+        LoadReport report = new LoadGenerator(workload, 8).openLoop(50, 8, Duration.ZERO, Duration.ofSeconds(2));
+        System.out.print(report.format());
+
+        //then 응답이 늦어도 보낸 요청 수는 일정대로, 밀리면 동시 처리 한도(AdaptiveConcurrencyLimiter)가 503 으로 거절할 수 있다
+        assertThat(report.getTotalCount()).isEqualTo(100);
+        for (Operation operation : Operation.values()) {
+            assertThat(report.statuses(operation).keySet()).as(operation.name()).isSubsetOf(200, 302, 503);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.load.AccessLogReplay.RecordedRequest;
+import jpabook.jpashop.load.Workload.Operation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class LoadGeneratorTest {
+
+    @LocalServerPort int port;
+    @Autowired ApplicationContext context;
+
+    Workload workload;
+
+    @BeforeEach
+    void seed() {
+        workload = new Workload(URI.create("http://localhost:" + port), Workload.DEFAULT_MIX, Workload.DEFAULT_API_PATHS);
+        workload.seed(context, 5, 5, 20);
+    }
+
+    @Test
+    public void 접근_로그_재생() throws Exception {
+        //given 응답이 끝난 순서로 찍혀 있다
+        String log = String.join("\n",
+                "127.0.0.1 - - [2026-10-19 06:44:55.300] \"POST /orders/1/cancel HTTP/1.1\" 302 - 12",
+                "127.0.0.1 - - [2026-10-19 06:44:55.100] \"GET /items HTTP/1.1\" 200 1234 3",
+                "not an access log line",
+                "127.0.0.1 - - [2026-10-19 06:44:55.200] \"POST /order HTTP/1.1\" 302 - 8",
+                "127.0.0.1 - - [2026-10-19 06:44:55.250] \"GET /orders?orderStatus=ORDER HTTP/1.1\" 200 999 5",
+                "127.0.0.1 - - [2026-10-19 06:44:55.400] \"GET /api/v3.1/orders?offset=0&limit=5 HTTP/1.1\" 200 999 5");
+        List<RecordedRequest> requests = AccessLogReplay.read(new BufferedReader(new StringReader(log)));
+
+        //when
+        LoadReport report = new LoadGenerator(workload, 4).replay(requests, 1, 4);
+
+        //then
+        assertThat(requests).extracting(RecordedRequest::getPath)
+                .containsExactly("/items", "/order", "/orders?orderStatus=ORDER", "/orders/1/cancel", "/api/v3.1/orders?offset=0&limit=5");
+        assertThat(requests.get(4).getOffsetNanos()).isEqualTo(300_000_000L);
+        for (Operation operation : List.of(Operation.BROWSE_ITEMS, Operation.PLACE_ORDER, Operation.SEARCH_ORDERS, Operation.CANCEL_ORDER, Operation.API_ORDERS)) {
+            assertThat(report.getCount(operation)).as(operation.name()).isEqualTo(1);
+        }
+        assertThat(report.getTotalErrors()).isZero();
+    }
+
+    @Test
+    public void common_형식_시각() throws Exception {
+        List<RecordedRequest> requests = AccessLogReplay.read(new BufferedReader(new StringReader(
+                "10.0.0.1 - - [19/Oct/2026:06:44:57 +0900] \"GET /items HTTP/1.1\" 200 10\n"
+                        + "10.0.0.1 - - [19/Oct/2026:06:44:55 +0900] \"GET /orders HTTP/1.1\" 200 10 \"-\" \"curl\"")));
+
+        assertThat(requests).extracting(RecordedRequest::getMethod, RecordedRequest::getPath, RecordedRequest::getOffsetNanos)
+                .containsExactly(tuple("GET", "/orders", 0L), tuple("GET", "/items", 2_000_000_000L));
+    }
+}
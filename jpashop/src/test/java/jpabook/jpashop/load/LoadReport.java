@@ -0,0 +1,135 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.load.Workload.Operation;
+import jpabook.jpashop.monitoring.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 부하 종류별 처리량과 지연시간
+ * - service: 요청을 실제로 보낸 시점부터 응답까지
+ * - corrected: 요청을 보냈어야 하는 시점(도착 일정, 고정 간격)부터 응답까지 -> 앞 요청이 밀려서 늦게 보낸 시간까지 들어간다
+ * 일정 없이 돌리는 closed loop 는 워밍업 평균 응답시간을 기대 간격으로 보고 LatencyHistogram.recordCorrected 로 보정한다.
+ */
+public class LoadReport {
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    public LoadReport() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public void record(Operation operation, int status, long serviceNanos, long correctedNanos) {
+        Stats s = stats.get(operation);
+        s.service.record(serviceNanos);
+        s.corrected.record(correctedNanos);
+        s.count(status);
+    }
+
+    public void recordWithExpectedInterval(Operation operation, int status, long serviceNanos, long expectedIntervalNanos) {
+        Stats s = stats.get(operation);
+        s.service.record(serviceNanos);
+        s.corrected.recordCorrected(serviceNanos, expectedIntervalNanos);
+        s.count(status);
+    }
+
+    /**
+     * 연결 실패, 타임아웃은 상태 코드 0 으로 센다
+     */
+    public void recordFailure(Operation operation, long serviceNanos, long correctedNanos) {
+        record(operation, 0, serviceNanos, correctedNanos);
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getCount(Operation operation) {
+        return stats.get(operation).service.getCount();
+    }
+
+    public long getErrors(Operation operation) {
+        return stats.get(operation).errors.get();
+    }
+
+    public long getTotalCount() {
+        return stats.values().stream().mapToLong(s -> s.service.getCount()).sum();
+    }
+
+    public long getTotalErrors() {
+        return stats.values().stream().mapToLong(s -> s.errors.get()).sum();
+    }
+
+    /**
+     * 전체 요청의 평균 응답시간 (closed loop 보정 간격)
+     */
+    public long meanServiceNanos() {
+        long count = getTotalCount();
+        return count == 0 ? 0 : stats.values().stream().mapToLong(s -> s.service.getTotalNanos()).sum() / count;
+    }
+
+    public LatencyHistogram corrected(Operation operation) {
+        return stats.get(operation).corrected;
+    }
+
+    public LatencyHistogram service(Operation operation) {
+        return stats.get(operation).service;
+    }
+
+    public Map<Integer, Long> statuses(Operation operation) {
+        Map<Integer, Long> map = new TreeMap<>();
+        stats.get(operation).statuses.forEach((status, count) -> map.put(status, count.get()));
+        return map;
+    }
+
+    public String format() {
+        double seconds = ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-14s %8s %7s %9s | %-37s | %-37s | %s%n", "operation", "count", "errors", "req/s",
+                "service p50/p99/p999/max ms", "corrected p50/p99/p999/max ms", "status"));
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            long count = s.service.getCount();
+            if (count == 0) {
+                continue;
+            }
+            sb.append(String.format("%-14s %8d %7d %9.1f | %-37s | %-37s | %s%n", entry.getKey(), count, s.errors.get(),
+                    count / seconds, percentiles(s.service), percentiles(s.corrected), statuses(entry.getKey())));
+        }
+        sb.append(String.format("total %d requests, %d errors in %.1fs, %.1f req/s%n",
+                getTotalCount(), getTotalErrors(), seconds, getTotalCount() / seconds));
+        return sb.toString();
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format("%.1f / %.1f / %.1f / %.1f", millis(histogram.percentile(50)), millis(histogram.percentile(99)),
+                millis(histogram.percentile(99.9)), millis(histogram.getMaxNanos()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static class Stats {
+        final LatencyHistogram service = new LatencyHistogram();
+        final LatencyHistogram corrected = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+        void count(int status) {
+            statuses.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+            // 200, 302(주문/취소 후 redirect) 외에는 실패
+            if (status < 200 || status >= 400) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
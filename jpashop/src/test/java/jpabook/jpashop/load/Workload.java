@@ -0,0 +1,217 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.springframework.context.ApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 부하 종류별 요청 만들기 + 요청에 넣을 회원/상품/주문 id
+ * 기동한 앱에 서비스로 회원, 상품, 주문을 미리 넣어두고 그 id 로 요청을 만든다.
+ * 취소는 미리 넣은 주문을 한번씩만 쓴다 (다 쓰면 취소 대신 주문 검색을 보낸다).
+ */
+public class Workload {
+
+    public enum Operation {
+        BROWSE_ITEMS, PLACE_ORDER, SEARCH_ORDERS, CANCEL_ORDER, API_ORDERS, OTHER
+    }
+
+    /**
+     * 기본 비율: 상품 목록 40, 주문 20, 주문 검색 20, 취소 5, 주문 조회 api 15
+     */
+    public static final String DEFAULT_MIX = "browse=40,order=20,search=20,cancel=5,api=15";
+
+    public static final List<String> DEFAULT_API_PATHS = List.of(
+            "/api/v3.1/orders?offset=0&limit=20",
+            "/api/v3.3/orders?page=0&size=20",
+            "/api/v5/orders",
+            "/api/v6/orders",
+            "/api/v7/orders");
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final List<String> apiPaths;
+
+    private final List<Long> memberIds = new ArrayList<>();
+    private final List<String> memberNames = new ArrayList<>();
+    private final List<Long> itemIds = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Long> cancelableOrderIds = new ConcurrentLinkedQueue<>();
+
+    public Workload(URI baseUri, String mix, List<String> apiPaths) {
+        this.baseUri = baseUri;
+        this.apiPaths = apiPaths;
+        Map<Operation, Integer> weights = parseMix(mix);
+        this.operations = weights.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("비율 합이 0: " + mix);
+        }
+    }
+
+    /**
+     * 회원, 상품(재고는 부하 중에 떨어지지 않게 넉넉히), 주문을 서비스로 넣는다
+     */
+    public void seed(ApplicationContext context, int members, int items, int orders) {
+        MemberService memberService = context.getBean(MemberService.class);
+        ItemService itemService = context.getBean(ItemService.class);
+        OrderService orderService = context.getBean(OrderService.class);
+        String run = Long.toString(System.nanoTime(), 36); // 같은 db 에 여러번 넣어도 회원 이름이 겹치지 않게
+        for (int i = 0; i < members; i++) {
+            Member member = new Member();
+            member.setName("load-member-" + run + "-" + i);
+            member.setAddress(new Address("서울", "강가 " + i, "123-" + i));
+            memberIds.add(memberService.join(member));
+            memberNames.add(member.getName());
+        }
+        for (int i = 0; i < items; i++) {
+            Book book = new Book();
+            book.setName("load-book-" + run + "-" + i);
+            book.setPrice(1000 + i * 10);
+            book.setStockQuantity(1_000_000);
+            itemService.saveItem(book);
+            itemIds.add(book.getId());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < orders; i++) {
+            cancelableOrderIds.add(orderService.order(pick(memberIds, random), pick(itemIds, random), 1 + random.nextInt(3)));
+        }
+    }
+
+    public Operation next(ThreadLocalRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (value >= cumulativeWeights[i]) {
+            i++;
+        }
+        if (operations[i] == Operation.CANCEL_ORDER && cancelableOrderIds.isEmpty()) {
+            return Operation.SEARCH_ORDERS;
+        }
+        return operations[i];
+    }
+
+    public HttpRequest request(Operation operation, ThreadLocalRandom random) {
+        switch (operation) {
+            case BROWSE_ITEMS:
+                return get("/items");
+            case PLACE_ORDER:
+                return postForm("/order", "memberId=" + pick(memberIds, random)
+                        + "&itemId=" + pick(itemIds, random) + "&count=" + (1 + random.nextInt(3)));
+            case SEARCH_ORDERS:
+                return get(random.nextBoolean()
+                        ? "/orders?memberName=" + encode(pick(memberNames, random))
+                        : "/orders?orderStatus=ORDER");
+            case CANCEL_ORDER:
+                Long orderId = cancelableOrderIds.poll();
+                return orderId == null ? get("/orders") : postForm("/orders/" + orderId + "/cancel", "");
+            case API_ORDERS:
+                return get(pick(apiPaths, random));
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    /**
+     * 기록된 요청을 다시 보낼 때: 경로로 종류를 나누고 본문이 필요한 요청(주문, 취소)은 시드 데이터로 다시 만든다
+     */
+    public Operation classify(String method, String path) {
+        String bare = path.contains("?") ? path.substring(0, path.indexOf('?')) : path;
+        if (method.equals("GET") && bare.equals("/items")) {
+            return Operation.BROWSE_ITEMS;
+        }
+        if (method.equals("POST") && bare.equals("/order")) {
+            return Operation.PLACE_ORDER;
+        }
+        if (method.equals("GET") && bare.equals("/orders")) {
+            return Operation.SEARCH_ORDERS;
+        }
+        if (method.equals("POST") && bare.matches("/orders/\\d+/cancel")) {
+            return Operation.CANCEL_ORDER;
+        }
+        if (method.equals("GET") && bare.matches("/api/v[\\d.]+/(simple-)?orders")) {
+            return Operation.API_ORDERS;
+        }
+        return Operation.OTHER;
+    }
+
+    public HttpRequest replayRequest(Operation operation, String method, String path, ThreadLocalRandom random) {
+        if (operation == Operation.PLACE_ORDER || operation == Operation.CANCEL_ORDER) {
+            return request(operation, random);
+        }
+        if (method.equals("GET")) {
+            return get(path);
+        }
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(TIMEOUT)
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private HttpRequest postForm(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static <T> T pick(List<T> values, ThreadLocalRandom random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("비율 형식은 이름=가중치: " + entry);
+            }
+            weights.put(operationOf(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    private static Operation operationOf(String name) {
+        switch (name) {
+            case "browse":
+                return Operation.BROWSE_ITEMS;
+            case "order":
+                return Operation.PLACE_ORDER;
+            case "search":
+                return Operation.SEARCH_ORDERS;
+            case "cancel":
+                return Operation.CANCEL_ORDER;
+            case "api":
+                return Operation.API_ORDERS;
+            default:
+                throw new IllegalArgumentException("알 수 없는 부하 종류: " + name + " (browse, order, search, cancel, api)");
+        }
+    }
+}
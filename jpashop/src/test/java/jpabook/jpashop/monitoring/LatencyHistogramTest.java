@@ -0,0 +1,70 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    public void 퍼센타일_상대오차() throws Exception {
+        //given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //when 1us ~ 100ms 균등분포
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        //then
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat((double) histogram.percentile(50)).isCloseTo(50_000_000, withinPercentage(3.5));
+        assertThat((double) histogram.percentile(99)).isCloseTo(99_000_000, withinPercentage(3.5));
+        assertThat((double) histogram.percentile(99.9)).isCloseTo(99_900_000, withinPercentage(3.5));
+        assertThat(histogram.percentile(100)).isEqualTo(100_000_000);
+    }
+
+    @Test
+    public void 버킷경계() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (random.nextInt(63) + 1);
+            int index = LatencyHistogram.bucketIndex(value);
+            if (value < (1L << 41)) {
+                assertThat(LatencyHistogram.bucketUpperBound(index)).isGreaterThanOrEqualTo(value);
+                assertThat(LatencyHistogram.bucketUpperBound(index) - value).isLessThanOrEqualTo(Math.max(1, value / 32));
+            }
+        }
+    }
+
+    @Test
+    public void 코디네이티드_오미션_보정() throws Exception {
+        //given 10ms 마다 보내는데 1번이 100ms 멈춤
+        LatencyHistogram raw = new LatencyHistogram();
+        LatencyHistogram corrected = new LatencyHistogram();
+
+        //when
+        for (int i = 0; i < 99; i++) {
+            raw.record(1_000_000);
+            corrected.recordCorrected(1_000_000, 10_000_000);
+        }
+        raw.record(100_000_000);
+        corrected.recordCorrected(100_000_000, 10_000_000);
+
+        //then 멈춘 동안 못 보낸 9건(90ms, 80ms ... 10ms)이 보정값으로 들어간다
+        assertThat(raw.getCount()).isEqualTo(100);
+        assertThat(corrected.getCount()).isEqualTo(109);
+        assertThat((double) raw.percentile(95)).isCloseTo(1_000_000, withinPercentage(3.5));
+        assertThat((double) corrected.percentile(95)).isCloseTo(50_000_000, withinPercentage(3.5));
+    }
+
+    @Test
+    public void 빈_히스토그램() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.percentile(99)).isEqualTo(0);
+        assertThat(histogram.summary().get("count")).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,41 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsIntegrationTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MetricsRegistry metricsRegistry;
+
+    @Test
+    public void 엔드포인트_repository_트랜잭션_커넥션_기록() throws Exception {
+        //when
+        mockMvc.perform(get("/api/v5/orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v2/members")).andExpect(status().isOk());
+
+        //then
+        assertThat(metricsRegistry.snapshot(null)).containsKeys(
+                "http.OrderApiController.ordersV5",
+                "http.MemberApiController.membersV2",
+                "repository.OrderQueryRepository.findAllByDto_optimization",
+                "repository.MemberRepository.findAllNames",
+                "transaction.MemberService.findMemberNames",
+                "jdbc.connection.acquire");
+
+        mockMvc.perform(get("/internal/metrics").param("prefix", "http."))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['http.OrderApiController.ordersV5'].count").value(1))
+                .andExpect(jsonPath("$['http.OrderApiController.ordersV5'].p999Millis").isNumber());
+    }
+}
@@ -0,0 +1,125 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SessionStatisticsTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired SessionStatistics sessionStatistics;
+    @Autowired OrderService orderService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 엔드포인트별_엔티티_로딩과_컬렉션_초기화() throws Exception {
+        //given
+        long before = (long) row("endpoint", "OrderApiController.ordersV2").getOrDefault("count", 0L);
+
+        //when 주문 엔티티 조회 후 dto 변환에서 orderItems 지연로딩
+        mockMvc.perform(get("/api/v2/orders")).andExpect(status().isOk());
+
+        //then
+        Map<String, Object> row = row("endpoint", "OrderApiController.ordersV2");
+        assertThat((long) row.get("count")).isEqualTo(before + 1);
+        assertThat((long) row.get("entityLoads")).isPositive();
+        assertThat((long) row.get("collectionFetches")).isPositive();
+        assertThat((long) row.get("statements")).isPositive();
+
+        mockMvc.perform(get("/internal/session-stats").param("by", "endpoint").param("sort", "collectionFetches"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.by").value("endpoint"))
+                .andExpect(jsonPath("$.rows[?(@.name == 'OrderApiController.ordersV2')].entityLoads").isNotEmpty());
+    }
+
+    @Test
+    public void 비동기_응답은_한번만_기록하고_스레드를_비운다() throws Exception {
+        //given
+        long before = (long) row("endpoint", "OrderApiController.exportOrders").getOrDefault("count", 0L);
+
+        //when 요청 스레드 반납
+        MvcResult started = mockMvc.perform(get("/api/v1/orders/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then 반납한 스레드에는 카운터가 남지 않는다
+        assertThat(SessionCounters.isRequestSampled()).isNull();
+
+        //when 비동기 재디스패치
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        //then
+        assertThat((long) row("endpoint", "OrderApiController.exportOrders").get("count")).isEqualTo(before + 1);
+        assertThat(SessionCounters.isRequestSampled()).isNull();
+    }
+
+    @Test
+    public void 트랜잭션별_flush() throws Exception {
+        //given
+        Long memberId = jdbcTemplate.queryForObject("select min(member_id) from member", Long.class);
+        Long itemId = jdbcTemplate.queryForObject("select min(item_id) from item", Long.class);
+        long before = (long) row("transaction", "OrderService.order").getOrDefault("flushes", 0L);
+
+        //when
+        orderService.order(memberId, itemId, 1);
+
+        //then 커밋 flush 1번, 회원/상품 로딩
+        Map<String, Object> row = row("transaction", "OrderService.order");
+        assertThat((long) row.get("flushes")).isEqualTo(before + 1);
+        assertThat((long) row.get("entityLoads")).isPositive();
+        assertThat((long) row.get("flushedEntities")).isPositive();
+    }
+
+    @Test
+    public void 표본_비율_0이면_세지_않는다() throws Exception {
+        SessionStatistics off = new SessionStatistics(0, 10);
+
+        assertThat(off.startRequest("A.a")).isNull();
+        assertThat(off.startTransaction("A.a")).isNull();
+    }
+
+    @Test
+    public void 표_크기_제한() throws Exception {
+        //given
+        SessionStatistics statistics = new SessionStatistics(1.0, 2);
+
+        //when
+        for (String name : List.of("A.a", "B.b", "C.c", "D.d")) {
+            statistics.recordTransaction(statistics.startTransaction(name));
+        }
+
+        //then
+        List<Map<String, Object>> rows = rows(statistics.top("transaction", 10, "count"));
+        assertThat(rows).extracting(r -> r.get("name")).containsExactlyInAnyOrder("A.a", "B.b", SessionStatistics.OTHER);
+        assertThat(rows).filteredOn(r -> r.get("name").equals(SessionStatistics.OTHER)).extracting(r -> r.get("count")).containsExactly(2L);
+    }
+
+    private Map<String, Object> row(String by, String name) {
+        return rows(sessionStatistics.top(by, 500, "count")).stream()
+                .filter(r -> r.get("name").equals(name))
+                .findFirst()
+                .orElse(Map.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> rows(Map<String, Object> top) {
+        return (List<Map<String, Object>>) top.get("rows");
+    }
+}
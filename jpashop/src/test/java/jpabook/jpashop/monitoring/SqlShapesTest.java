@@ -0,0 +1,23 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SqlShapesTest {
+
+    @Test
+    public void 리터럴과_in절_정규화() throws Exception {
+        String a = SqlShapes.normalize("select order0_.order_id as order_id1_6_ from orders order0_\n where order0_.order_id in (?, ?, ?) and order0_.status='ORDER' limit 10");
+        String b = SqlShapes.normalize("SELECT order0_.order_id as order_id1_6_ from orders order0_ where order0_.order_id in (?,?) and order0_.status = 'CANCEL' limit 1000");
+
+        assertThat(a).isEqualTo("select order0_.order_id as order_id1_6_ from orders order0_ where order0_.order_id in (?...) and order0_.status=? limit ?");
+        assertThat(b).isEqualTo("select order0_.order_id as order_id1_6_ from orders order0_ where order0_.order_id in (?...) and order0_.status = ? limit ?");
+    }
+
+    @Test
+    public void 다중_values_정규화() throws Exception {
+        assertThat(SqlShapes.normalize("insert into item (a, b) values (?, ?), (?, ?), (?, ?)"))
+                .isEqualTo("insert into item (a, b) values (?, ?)...");
+    }
+}
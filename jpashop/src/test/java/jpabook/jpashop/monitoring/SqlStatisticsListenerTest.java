@@ -0,0 +1,86 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.StatementInformation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 느린 쿼리 기준을 0ms 로 두고 모든 sql 을 샘플로 남겨서 확인
+ */
+@SpringBootTest(properties = {"jpashop.sql.slow-threshold-ms=0", "jpashop.sql.max-shapes=3"})
+@AutoConfigureMockMvc
+class SqlStatisticsListenerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired SqlStatisticsListener sqlStatisticsListener;
+
+    @BeforeEach
+    void reset() {
+        sqlStatisticsListener.reset();
+    }
+
+    @Test
+    public void 모양별_집계와_느린쿼리_바인딩값() throws Exception {
+        //when
+        mockMvc.perform(get("/api/v5/orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v5/orders")).andExpect(status().isOk());
+
+        //then
+        List<Map<String, Object>> top = sqlStatisticsListener.top(10, "count");
+        assertThat(top).hasSize(2);
+        assertThat(top).allSatisfy(m -> assertThat(m.get("count")).isEqualTo(2L));
+        assertThat(top).anySatisfy(m -> assertThat((String) m.get("shape")).contains("in (?...)"));
+
+        // 바인딩 값이 들어간 원본 sql
+        assertThat(sqlStatisticsListener.slowQueries())
+                .anySatisfy(q -> {
+                    assertThat(q.getSqlWithValues()).doesNotContain("?");
+                    assertThat(q.getEndpoint()).isEqualTo("OrderApiController.ordersV5");
+                });
+    }
+
+    @Test
+    public void 모양수_제한을_넘으면_other로_합침() throws Exception {
+        //when
+        mockMvc.perform(get("/api/v5/orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v2/members")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v3/orders")).andExpect(status().isOk());
+
+        //then
+        List<Map<String, Object>> top = sqlStatisticsListener.top(10, "total");
+        assertThat(top).hasSize(4);
+        assertThat(top).anySatisfy(m -> assertThat(m.get("shape")).isEqualTo(SqlStatisticsListener.OTHER));
+
+        mockMvc.perform(get("/internal/sql/top").param("n", "1").param("sort", "max"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void 샘플수_0이면_느린쿼리를_남기지_않음() throws Exception {
+        //given
+        SqlStatisticsListener listener = new SqlStatisticsListener(3, 0, 0);
+        StatementInformation statement = new StatementInformation(ConnectionInformation.fromTestConnection(null));
+        statement.setStatementQuery("select 1");
+
+        //when
+        listener.onAfterAnyExecute(statement, 1_000_000L, null);
+
+        //then
+        assertThat(listener.slowQueries()).isEmpty();
+        assertThat(listener.top(10, "count")).hasSize(1);
+    }
+}
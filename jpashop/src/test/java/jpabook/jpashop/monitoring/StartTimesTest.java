@@ -0,0 +1,35 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class StartTimesTest {
+
+    @Test
+    public void 중첩은_안쪽부터_기록() throws Exception {
+        //given 배열 크기(8)보다 깊게 중첩
+        StartTimes startTimes = new StartTimes();
+        LatencyHistogram outer = new LatencyHistogram();
+        LatencyHistogram inner = new LatencyHistogram();
+        startTimes.push(outer, 1_000);
+        for (int i = 0; i < 10; i++) {
+            startTimes.push(inner, 2_000);
+        }
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            startTimes.popAndRecord(5_000);
+        }
+        startTimes.push(inner, 6_000);
+        startTimes.discard();
+        startTimes.popAndRecord(9_000);
+
+        //then
+        assertThat(inner.getCount()).isEqualTo(10);
+        assertThat(inner.getMaxNanos()).isEqualTo(3_000);
+        assertThat(outer.getCount()).isEqualTo(1);
+        assertThat(outer.getTotalNanos()).isEqualTo(8_000);
+        assertThat(startTimes.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,55 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.JpashopApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 테스트 컨텍스트는 기동 단계를 기록하지 않으므로 JpashopApplication 처럼 버퍼를 붙여서 직접 띄운다
+ */
+class StartupReportTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 기동_단계와_느린_빈() throws Exception {
+        //given
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .applicationStartup(new BufferingApplicationStartup(10000))
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:startup-report",
+                        "jpashop.archive.enabled=false",
+                        "jpashop.outbox.enabled=false",
+                        "logging.level.org.hibernate.SQL=info",
+                        "logging.level.org.hibernate.type=info",
+                        "decorator.datasource.p6spy.enable-logging=false")
+                .run()) {
+
+            //when
+            Map<String, Object> snapshot = context.getBean(StartupReport.class).snapshot(5);
+
+            //then
+            assertThat(snapshot.get("recording")).isEqualTo(true);
+            assertThat((long) snapshot.get("readyMillis")).isPositive();
+            List<Map<String, Object>> phases = (List<Map<String, Object>>) snapshot.get("phases");
+            List<Object> names = phases.stream().map(row -> row.get("name")).collect(Collectors.toList());
+            assertThat(names).contains("spring.context.refresh", "jpashop.flyway.migrate", "jpashop.init-db");
+            // 시작 순서: flyway 가 InitDb 보다 먼저
+            assertThat(names.indexOf("jpashop.flyway.migrate")).isLessThan(names.indexOf("jpashop.init-db"));
+            List<Map<String, Object>> beans = (List<Map<String, Object>>) snapshot.get("slowestBeans");
+            assertThat(beans).hasSize(5);
+            // 자기 시간이 긴 순서
+            assertThat((long) beans.get(0).get("selfMillis")).isGreaterThanOrEqualTo((long) beans.get(4).get("selfMillis"));
+            assertThat(beans.get(0).get("tags").toString()).contains("beanName=");
+        }
+    }
+}
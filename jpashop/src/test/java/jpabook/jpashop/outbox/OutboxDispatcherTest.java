@@ -0,0 +1,267 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 스케줄러는 끄고 dispatch() 를 직접 호출한다.
+ */
+@SpringBootTest(properties = {
+        "jpashop.outbox.enabled=false",
+        "jpashop.outbox.gap-timeout-millis=0",
+        "jpashop.outbox.batch-size=2"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@Import(TestFixtures.class)
+class OutboxDispatcherTest {
+
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired OutboxDispatcher outboxDispatcher;
+    @Autowired OutboxProperties outboxProperties;
+    @Autowired LowStockAlertConsumer lowStockAlertConsumer;
+    @Autowired RecordingConsumer recordingConsumer;
+    @Autowired TestFixtures fixtures;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        // 앞 테스트에서 남은 이벤트를 비운다
+        recordingConsumer.failNext = false;
+        outboxDispatcher.dispatch();
+        recordingConsumer.received.clear();
+        recordingConsumer.batchSizes.clear();
+    }
+
+    @Test
+    public void 주문_취소_상품수정_이벤트_순서대로_전달() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("outbox-member");
+        Long itemId = fixtures.createBook("outbox-book", 20);
+
+        //when
+        Long orderId = orderService.order(memberId, itemId, 12);
+        orderService.cancelOrder(orderId);
+        itemService.updateItem(itemId, "outbox-book", 15000, 5);
+        int delivered = outboxDispatcher.dispatch();
+
+        //then
+        assertThat(delivered).isEqualTo(9); // 컨슈머 3개 x 이벤트 3개
+        assertThat(recordingConsumer.received).extracting(OutboxEvent::getType)
+                .containsExactly(OutboxEventType.ORDER_PLACED, OutboxEventType.ORDER_CANCELED, OutboxEventType.ITEM_UPDATED);
+        assertThat(recordingConsumer.received.get(0).getAggregateId()).isEqualTo(orderId);
+        assertThat(recordingConsumer.received.get(0).getPayload()).contains("\"stock\":8");
+        assertThat(lowStockAlertConsumer.getLowStockItems()).containsEntry(itemId, 5);
+        assertThat(outboxDispatcher.snapshot().get(RecordingConsumer.NAME).get("lagEvents")).isEqualTo(0L);
+    }
+
+    @Test
+    public void 주문이_롤백되면_이벤트도_없다() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("outbox-member");
+        Long itemId = fixtures.createBook("outbox-book", 1);
+
+        //when
+        assertThatThrownBy(() -> orderService.order(memberId, itemId, 2)).isInstanceOf(RuntimeException.class);
+        outboxDispatcher.dispatch();
+
+        //then
+        assertThat(recordingConsumer.received).isEmpty();
+    }
+
+    @Test
+    public void 컨슈머_실패시_같은_배치_다시전달() throws Exception {
+        //given
+        Long itemId = fixtures.createBook("outbox-book", 100);
+        itemService.updateItem(itemId, "retry-book", 10000, 100);
+        recordingConsumer.failNext = true;
+
+        //when
+        outboxDispatcher.dispatch();
+        List<OutboxEvent> afterFailure = new ArrayList<>(recordingConsumer.received);
+        Thread.sleep(150); // 첫 재시도 간격 100ms
+        outboxDispatcher.dispatch();
+
+        //then
+        assertThat(afterFailure).isEmpty();
+        assertThat(recordingConsumer.received).extracting(OutboxEvent::getAggregateId).containsExactly(itemId);
+        Map<String, Object> state = outboxDispatcher.snapshot().get(RecordingConsumer.NAME);
+        assertThat(state.get("failures")).isEqualTo(1L);
+        assertThat(state.get("lagEvents")).isEqualTo(0L);
+    }
+
+    @Test
+    public void 배치크기씩_나눠서_전달() throws Exception {
+        //given
+        Long itemId = fixtures.createBook("outbox-book", 100);
+        for (int i = 0; i < 5; i++) {
+            itemService.updateItem(itemId, "batch-book", 10000, 100 - i);
+        }
+
+        //when
+        outboxDispatcher.dispatch();
+
+        //then
+        assertThat(recordingConsumer.batchSizes).containsExactly(2, 2, 1);
+        assertThat(recordingConsumer.received.stream().map(OutboxEvent::getId).collect(Collectors.toList()))
+                .isSorted().hasSize(5);
+    }
+
+    @Test
+    public void 먼저_채번하고_늦게_커밋된_이벤트를_건너뛰지_않음() throws Exception {
+        //given: 번호를 먼저 받은 트랜잭션이 뒤 트랜잭션보다 늦게 커밋된다
+        Long slowItemId = fixtures.createBook("outbox-book", 100);
+        Long fastItemId = fixtures.createBook("outbox-book", 100);
+        outboxProperties.setGapTimeoutMillis(60_000);
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                itemService.updateItem(slowItemId, "slow-book", 10000, 99);
+                appended.countDown();
+                await(commit);
+            }));
+            assertThat(appended.await(10, TimeUnit.SECONDS)).isTrue();
+            itemService.updateItem(fastItemId, "fast-book", 10000, 99);
+
+            //when
+            outboxDispatcher.dispatch();
+            List<OutboxEvent> beforeCommit = new ArrayList<>(recordingConsumer.received);
+            commit.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            outboxDispatcher.dispatch();
+
+            //then
+            assertThat(beforeCommit).isEmpty();
+            assertThat(recordingConsumer.received).extracting(OutboxEvent::getAggregateId)
+                    .containsExactly(slowItemId, fastItemId);
+        } finally {
+            commit.countDown();
+            executor.shutdown();
+            outboxProperties.setGapTimeoutMillis(0);
+        }
+    }
+
+    @Test
+    public void 오래된_빈_번호는_롤백으로_보고_건너뜀() throws Exception {
+        //given: 롤백되어 번호만 쓰고 사라진 이벤트
+        Long itemId = fixtures.createBook("outbox-book", 100);
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            itemService.updateItem(itemId, "rollback-book", 10000, 100);
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+        itemService.updateItem(itemId, "after-rollback-book", 10000, 100);
+
+        //when: gap-timeout 0
+        outboxDispatcher.dispatch();
+
+        //then
+        assertThat(recordingConsumer.received).extracting(OutboxEvent::getPayload)
+                .singleElement().asString().contains("after-rollback-book");
+        assertThat(outboxDispatcher.snapshot().get(RecordingConsumer.NAME).get("lagEvents")).isEqualTo(0L);
+    }
+
+    @Test
+    public void 건너뛴_번호가_늦게_커밋되면_다음에_전달() throws Exception {
+        //given: gap-timeout(0) 보다 오래 걸린 트랜잭션, 앞 테스트에서 롤백된 번호는 빼고 센다
+        Long slowItemId = fixtures.createBook("outbox-book", 100);
+        Long fastItemId = fixtures.createBook("outbox-book", 100);
+        long skippedBefore = skippedIds();
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                itemService.updateItem(slowItemId, "late-book", 10000, 99);
+                appended.countDown();
+                await(commit);
+            }));
+            assertThat(appended.await(10, TimeUnit.SECONDS)).isTrue();
+            itemService.updateItem(fastItemId, "early-book", 10000, 99);
+            outboxDispatcher.dispatch();
+            List<OutboxEvent> beforeCommit = new ArrayList<>(recordingConsumer.received);
+            long skipped = skippedIds() - skippedBefore;
+
+            //when
+            commit.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            outboxDispatcher.dispatch();
+
+            //then
+            assertThat(beforeCommit).extracting(OutboxEvent::getAggregateId).containsExactly(fastItemId);
+            assertThat(skipped).isEqualTo(1);
+            assertThat(recordingConsumer.received).extracting(OutboxEvent::getAggregateId)
+                    .containsExactly(fastItemId, slowItemId);
+            assertThat(skippedIds()).isEqualTo(skippedBefore);
+        } finally {
+            commit.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private long skippedIds() {
+        return (Long) outboxDispatcher.snapshot().get(RecordingConsumer.NAME).get("skippedIds");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingConsumer recordingConsumer() {
+            return new RecordingConsumer();
+        }
+    }
+
+    static class RecordingConsumer implements OutboxConsumer {
+
+        static final String NAME = "recording";
+
+        final List<OutboxEvent> received = new ArrayList<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        volatile boolean failNext;
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public void consume(List<OutboxEvent> events) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("consumer down");
+            }
+            received.addAll(events);
+            batchSizes.add(events.size());
+        }
+    }
+}
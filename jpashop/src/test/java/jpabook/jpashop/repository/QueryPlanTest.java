@@ -0,0 +1,305 @@
+package jpabook.jpashop.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderSearch;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.archive.OrderArchiveRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.repository.order.view.OrderViewRepository;
+import jpabook.jpashop.service.archive.OrderArchiver;
+import jpabook.jpashop.service.view.OrderViewProjector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 리포지토리 쿼리 실행계획 회귀 테스트
+ * 쿼리마다 실제로 실행된 sql 을 바인딩 값과 함께 잡아서 EXPLAIN 하고, 테이블 전체 스캔(tableScan)이 있으면 실패한다.
+ * 조건 없이 전체를 보여주는 목록 쿼리는 처음 읽는 테이블 하나만 전체 스캔을 허용한다 (UNBOUNDED_LISTINGS).
+ * 인덱스를 안 타게 바뀐 쿼리나 인덱스를 지우는 마이그레이션은 여기서 깨진다.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class QueryPlanTest {
+
+    static final int ORDER_COUNT = 300;
+    static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+    // p6spy 가 날짜를 '2021-07-01T00:00:00.000+0900' 로 찍는다 -> h2 timestamp 리터럴로
+    static final Pattern P6SPY_TIMESTAMP = Pattern.compile("'(\\d{4}-\\d{2}-\\d{2})T([\\d:.]+)[+-]\\d{4}'");
+
+    /**
+     * 조건 없이 전체를 읽는 목록 쿼리 -> 처음 읽는 테이블 하나는 전체 스캔 허용, 조인되는 테이블은 인덱스로 찾아야 한다
+     */
+    static final Set<String> UNBOUNDED_LISTINGS = Set.of(
+            "ItemRepository.findAll",
+            "MemberRepository.findAll",
+            "OrderRepository.findAll(no condition)",
+            "OrderRepository.findListPage",
+            "OrderRepository.findAllWithMemberDelivery",
+            "OrderRepository.findAllWithMemberDelivery(paging)",
+            "OrderRepository.findAllWithItem",
+            "OrderSimpleQueryRepository.findOrderDtos",
+            "OrderQueryRepository.findOrderQueryDtos",
+            "OrderQueryRepository.findAllByDto_optimization",
+            "OrderQueryRepository.findAllByDto_flat",
+            "OrderViewRepository.findOrderQueryDtos",
+            "OrderViewRepository.findSimpleQueryDtos");
+
+    static boolean seeded;
+
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderSimpleQueryRepository orderSimpleQueryRepository;
+    @Autowired ItemRepository itemRepository;
+    @Autowired CategoryRepository categoryRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired OrderArchiveRepository orderArchiveRepository;
+    @Autowired OrderArchiver orderArchiver;
+    @Autowired OrderViewRepository orderViewRepository;
+    @Autowired OrderViewProjector orderViewProjector;
+    @Autowired SqlCapture sqlCapture;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+
+    @TestConfiguration
+    static class CaptureConfig {
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        seeded = true;
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ORDER_COUNT; i++) {
+                Member member = new Member();
+                member.setName("plan-member" + i);
+                member.setAddress(new Address("서울", "거리" + i, "123"));
+                em.persist(member);
+
+                Book book = new Book();
+                book.setName("plan-book" + i);
+                book.setPrice(1000);
+                book.setStockQuantity(100);
+                em.persist(book);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                delivery.setStatus(i % 3 == 0 ? DeliveryStatus.COMP : DeliveryStatus.READY);
+                Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 1000, 1));
+                order.setOrderDate(LocalDateTime.now().minusDays(i * 3L));
+                order.setStatus(i % 5 == 0 ? OrderStatus.CANCEL : OrderStatus.ORDER);
+                em.persist(order);
+            }
+        });
+        orderArchiver.archive(LocalDateTime.now().minusDays(600));
+        orderViewProjector.rebuild();
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    public void 리포지토리_쿼리는_전체스캔_없음() throws Exception {
+        //given
+        Long orderId = transactionTemplate.execute(status ->
+                em.createQuery("select max(o.id) from Order o", Long.class).getSingleResult());
+        Long memberId = transactionTemplate.execute(status ->
+                em.createQuery("select max(m.id) from Member m", Long.class).getSingleResult());
+        Long itemId = transactionTemplate.execute(status ->
+                em.createQuery("select max(i.id) from Item i", Long.class).getSingleResult());
+        OrderDateRange recent = OrderDateRange.lastDays(30);
+        OrderDateRange old = OrderDateRange.ofDates(LocalDate.now().minusDays(800), LocalDate.now().minusDays(700));
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("OrderRepository.findOne", () -> orderRepository.findOne(orderId));
+        queries.put("OrderRepository.findAll(no condition)", () -> orderRepository.findAll(new OrderSearch()));
+        queries.put("OrderRepository.findAll(status)", () -> orderRepository.findAll(search(null, OrderStatus.CANCEL, null)));
+        queries.put("OrderRepository.findAll(name)", () -> orderRepository.findAll(search("plan-member7", null, null)));
+        queries.put("OrderRepository.findAll(date)", () -> orderRepository.findAll(search(null, null, LocalDate.now().minusDays(30))));
+        queries.put("OrderRepository.findAll(status, DETAIL)", () -> orderRepository.findAll(search(null, OrderStatus.CANCEL, null), OrderFetchPlan.DETAIL, 0, 20));
+        queries.put("OrderRepository.findOne(DETAIL)", () -> orderRepository.findOne(orderId, OrderFetchPlan.DETAIL));
+        queries.put("OrderRepository.findAll(item)", () -> orderRepository.findAll(search(o -> o.setItemId(itemId)), OrderFetchPlan.NONE, 0, 20));
+        queries.put("OrderRepository.findAll(item name)", () -> orderRepository.findAll(search(o -> o.setItemName("plan-book7")), OrderFetchPlan.NONE, 0, 20));
+        queries.put("OrderRepository.findAll(min total)", () -> orderRepository.findAll(search(o -> o.setMinTotalPrice(100_000)), OrderFetchPlan.NONE, 0, 20));
+        queries.put("OrderRepository.findAll(statuses, date)", () -> orderRepository.findAll(search(o -> {
+            o.setOrderStatuses(Set.of(OrderStatus.ORDER, OrderStatus.CANCEL));
+            o.setOrderDateFrom(LocalDate.now().minusDays(30));
+        }), OrderFetchPlan.NONE, 0, 20));
+        queries.put("OrderRepository.count(item)", () -> orderRepository.count(search(o -> o.setItemId(itemId))));
+        queries.put("OrderRepository.count(status, date)", () -> orderRepository.count(search(null, OrderStatus.ORDER, LocalDate.now().minusDays(30))));
+        queries.put("OrderRepository.findAll(status, date)", () -> orderRepository.findAll(search(null, OrderStatus.ORDER, LocalDate.now().minusDays(30))));
+        queries.put("OrderRepository.findListPage", () -> orderRepository.findListPage(new OrderSearch(), null, 21));
+        queries.put("OrderRepository.findListPage(before, status)", () -> orderRepository.findListPage(search(null, OrderStatus.ORDER, null), orderId, 21));
+        queries.put("OrderRepository.findAllByString(status, name)", () -> orderRepository.findAllByString(search("plan-member7", OrderStatus.ORDER, null)));
+        queries.put("OrderRepository.findAllWithMemberDelivery", () -> orderRepository.findAllWithMemberDelivery());
+        queries.put("OrderRepository.findAllWithMemberDelivery(paging)", () -> orderRepository.findAllWithMemberDelivery(0, 20));
+        queries.put("OrderRepository.findAllWithMemberDelivery(date)", () -> orderRepository.findAllWithMemberDelivery(OrderDateRange.lastDays(30)));
+        queries.put("OrderRepository.findAllWithItem", () -> orderRepository.findAllWithItem());
+        queries.put("OrderQueryRepository.findOrderQueryDtos", () -> orderQueryRepository.findOrderQueryDtos());
+        queries.put("OrderQueryRepository.findOrderQueryDtos(recent)", () -> orderQueryRepository.findOrderQueryDtos(recent));
+        queries.put("OrderQueryRepository.findAllByDto_optimization", () -> orderQueryRepository.findAllByDto_optimization());
+        queries.put("OrderQueryRepository.findAllByDto_optimization(recent)", () -> orderQueryRepository.findAllByDto_optimization(recent));
+        queries.put("OrderQueryRepository.findAllByDto_optimization(archive)", () -> orderQueryRepository.findAllByDto_optimization(old));
+        queries.put("OrderQueryRepository.findAllByDto_flat", () -> orderQueryRepository.findAllByDto_flat());
+        queries.put("OrderQueryRepository.findAllByDto_flat(recent)", () -> orderQueryRepository.findAllByDto_flat(recent));
+        queries.put("OrderQueryRepository.findAllByDto_flat(archive)", () -> orderQueryRepository.findAllByDto_flat(old));
+        queries.put("OrderSimpleQueryRepository.findOrderDtos", () -> orderSimpleQueryRepository.findOrderDtos());
+        queries.put("OrderViewRepository.findOrderQueryDtos", () -> orderViewRepository.findOrderQueryDtos(OrderDateRange.all()));
+        queries.put("OrderViewRepository.findOrderQueryDtos(recent)", () -> orderViewRepository.findOrderQueryDtos(recent));
+        queries.put("OrderViewRepository.findFlatDtos(archive)", () -> orderViewRepository.findFlatDtos(old));
+        queries.put("OrderViewRepository.findSimpleQueryDtos", () -> orderViewRepository.findSimpleQueryDtos());
+        queries.put("OrderViewRepository.findOrderIdsContainingItems", () -> orderViewRepository.findOrderIdsContainingItems(List.of(itemId), 0, 500));
+        queries.put("OrderViewRepository.findArchivedOrderIdsContainingItems", () -> orderViewRepository.findArchivedOrderIdsContainingItems(List.of(itemId), 0, 500));
+        queries.put("ItemRepository.findOne", () -> itemRepository.findOne(itemId));
+        queries.put("ItemRepository.findAll", () -> itemRepository.findAll());
+        queries.put("ItemRepository.findRowsBySku", () -> itemRepository.findRowsBySku(List.of("plan-sku1", "plan-sku2")));
+        queries.put("CategoryRepository.findIdsByNames", () -> categoryRepository.findIdsByNames(List.of("plan-category")));
+        queries.put("MemberRepository.findById", () -> memberRepository.findById(memberId));
+        queries.put("MemberRepository.findByName", () -> memberRepository.findByName("plan-member7"));
+        queries.put("MemberRepository.findAll", () -> memberRepository.findAll());
+        queries.put("MemberRepository.findListAfter", () -> memberRepository.findListAfter(memberId, PageRequest.of(0, 20)));
+        queries.put("OrderArchiveRepository.findArchivableOrderIds", () -> orderArchiveRepository.findArchivableOrderIds(LocalDateTime.now().minusDays(600), 100));
+        queries.put("OrderArchiveRepository.findOrderDateBounds", () -> orderArchiveRepository.findOrderDateBounds());
+
+        //when
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            List<String> sqls = capture(query.getValue());
+            assertThat(sqls).as(query.getKey()).isNotEmpty();
+
+            int allowedScans = UNBOUNDED_LISTINGS.contains(query.getKey()) ? 1 : 0;
+            for (String sql : sqls) {
+                String plan = explain(sql);
+                Set<String> scanned = scannedTables(plan);
+                if (scanned.size() > allowedScans) {
+                    violations.add(query.getKey() + " -> " + scanned + "\n" + plan);
+                }
+            }
+        }
+
+        //then
+        assertThat(violations).as("전체 스캔하는 쿼리").isEmpty();
+    }
+
+    @Test
+    public void 인덱스가_없으면_실패() throws Exception {
+        //given
+        jdbcTemplate.execute("drop index idx_member_name");
+        try {
+            //when
+            List<String> sqls = capture(() -> memberRepository.findByName("plan-member7"));
+
+            //then
+            assertThat(scannedTables(explain(sqls.get(0)))).contains("MEMBER");
+        } finally {
+            jdbcTemplate.execute("create index idx_member_name on member (name)");
+        }
+    }
+
+    private OrderSearch search(Consumer<OrderSearch> conditions) {
+        OrderSearch orderSearch = new OrderSearch();
+        conditions.accept(orderSearch);
+        return orderSearch;
+    }
+
+    private OrderSearch search(String memberName, OrderStatus status, LocalDate from) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(memberName);
+        orderSearch.setOrderStatus(status);
+        orderSearch.setOrderDateFrom(from);
+        return orderSearch;
+    }
+
+    private List<String> capture(Runnable query) {
+        sqlCapture.start();
+        try {
+            transactionTemplate.executeWithoutResult(status -> query.run());
+        } finally {
+            sqlCapture.stop();
+        }
+        return sqlCapture.getSqls();
+    }
+
+    private String explain(String sql) {
+        String literalSql = P6SPY_TIMESTAMP.matcher(sql).replaceAll("'$1 $2'");
+        return jdbcTemplate.queryForObject("explain " + literalSql, String.class);
+    }
+
+    private Set<String> scannedTables(String plan) {
+        Set<String> tables = new TreeSet<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(1));
+        }
+        return tables;
+    }
+
+    /**
+     * 테스트 스레드에서 실행된 select 를 바인딩 값이 채워진 sql 로 모은다
+     */
+    static class SqlCapture extends SimpleJdbcEventListener {
+
+        private final ThreadLocal<List<String>> sqls = new ThreadLocal<>();
+        private List<String> last = List.of();
+
+        void start() {
+            sqls.set(new ArrayList<>());
+        }
+
+        void stop() {
+            last = sqls.get();
+            sqls.remove();
+        }
+
+        List<String> getSqls() {
+            return last;
+        }
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            List<String> current = sqls.get();
+            String sql = statementInformation.getSqlWithValues();
+            if (current != null && sql.trim().toLowerCase().startsWith("select")) {
+                current.add(sql);
+            }
+        }
+    }
+}
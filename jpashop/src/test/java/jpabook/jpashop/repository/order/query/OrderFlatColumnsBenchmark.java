@@ -0,0 +1,68 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.Benchmark;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 주문당 4행, 회원 1000명, 상품 500개인 행을 행마다 dto(조회 결과처럼 문자열도 행마다 새 객체)로 들고 있을 때와 열로 들고 있을 때 힙 사용량
+ * 행 수는 -Dflat.rows=1000000 으로 바꾼다
+ * ./gradlew benchmark --tests '*OrderFlatColumnsBenchmark'
+ */
+@Benchmark
+class OrderFlatColumnsBenchmark {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2026, 10, 19, 6, 44, 55, 123_456_000);
+
+    @Test
+    public void 힙_사용량() throws Exception {
+        int rows = Integer.getInteger("flat.rows", 200_000);
+
+        long flatBytes = retained(() -> rows(rows));
+        long columnBytes = retained(() -> OrderFlatColumns.of(rows(rows)));
+
+        System.out.printf("order-flat-heap rows=%d dto=%dKB columns=%dKB ratio=%.1f%n",
+                rows, flatBytes / 1024, columnBytes / 1024, (double) flatBytes / Math.max(columnBytes, 1));
+        assertThat(columnBytes).isLessThan(flatBytes / 5);
+    }
+
+    private static List<OrderFlatDto> rows(int n) {
+        List<OrderFlatDto> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long orderId = i / 4;
+            int member = (int) (orderId % 1000);
+            rows.add(new OrderFlatDto(orderId, new String("member" + member), DATE.plusSeconds(orderId), OrderStatus.ORDER,
+                    new Address(new String("city" + member), new String("street" + member), new String("zip" + member)),
+                    new String("item" + (i * 7 % 500)), 10000 + i % 100, 1 + i % 5));
+        }
+        return rows;
+    }
+
+    /**
+     * 값이 살아 있을 때와 놓은 직후의 차이 (두 측정 사이를 짧게 해서 다른 스레드의 할당 영향을 줄인다)
+     */
+    private static long retained(Supplier<Object> supplier) {
+        Object value = supplier.get();
+        long alive = usedAfterGc();
+        Reference.reachabilityFence(value);
+        value = null;
+        return alive - usedAfterGc();
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
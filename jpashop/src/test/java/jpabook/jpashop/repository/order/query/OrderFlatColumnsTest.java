@@ -0,0 +1,68 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OrderFlatColumnsTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2026, 10, 19, 6, 44, 55, 123_456_000);
+
+    @Test
+    public void 섞여_들어온_행도_주문별로_모은다() throws Exception {
+        //given 주문 1, 2 의 행이 번갈아 온다
+        List<OrderFlatDto> rows = List.of(
+                row(1L, "userA", "서울", "JPA1 BOOK", 10000, 1),
+                row(2L, "userA", "서울", "JPA1 BOOK", 20000, 3),
+                row(1L, "userA", "서울", "JPA2 BOOK", 20000, 2),
+                new OrderFlatDto(3L, null, null, null, null, null, 0, 0));
+
+        //when
+        OrderFlatColumns columns = OrderFlatColumns.of(rows);
+
+        //then
+        assertThat(columns.orderCount()).isEqualTo(3);
+        assertThat(columns.lineCount()).isEqualTo(4);
+        assertThat(columns.toFlatDtos()).extracting(OrderFlatDto::getOrderId, OrderFlatDto::getItemName, OrderFlatDto::getCount)
+                .containsExactly(tuple(1L, "JPA1 BOOK", 1), tuple(1L, "JPA2 BOOK", 2), tuple(2L, "JPA1 BOOK", 3), tuple(3L, null, 0));
+        assertThat(columns.orderDate(0)).isEqualTo(DATE);
+        assertThat(columns.orderStatus(1)).isEqualTo(OrderStatus.ORDER);
+        // 같은 값은 사전의 객체 하나
+        assertThat(columns.name(1)).isSameAs(columns.name(0));
+        assertThat(columns.address(1)).isSameAs(columns.address(0));
+        assertThat(columns.itemName(columns.lineStart(1))).isSameAs(columns.itemName(0));
+        assertThat(columns.name(2)).isNull();
+        assertThat(columns.orderDate(2)).isNull();
+        assertThat(columns.orderStatus(2)).isNull();
+        assertThat(columns.address(2)).isNull();
+    }
+
+    @Test
+    public void json_은_주문_dto_목록과_같다() throws Exception {
+        //given
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        OrderFlatColumns columns = OrderFlatColumns.of(List.of(
+                row(1L, "userA", "서울", "JPA1 BOOK", 10000, 1),
+                row(1L, "userA", "서울", "JPA2 BOOK", 20000, 2),
+                row(2L, "userB", "진주", "SPRING1 BOOK", 20000, 3)));
+
+        //when
+        String json = objectMapper.writeValueAsString(columns);
+
+        //then
+        assertThat(objectMapper.readTree(json)).isEqualTo(objectMapper.readTree(objectMapper.writeValueAsString(columns.toOrderQueryDtos())));
+        assertThat(objectMapper.readTree(json).get(0).get("orderItems")).hasSize(2);
+    }
+
+    private static OrderFlatDto row(Long orderId, String name, String city, String itemName, int orderPrice, int count) {
+        return new OrderFlatDto(orderId, new String(name), DATE, OrderStatus.ORDER, new Address(new String(city), "1", "1111"),
+                new String(itemName), orderPrice, count);
+    }
+}
@@ -0,0 +1,58 @@
+package jpabook.jpashop.repository.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CountCacheTest {
+
+    @Test
+    public void ttl_안에서는_다시_세지_않는다() throws Exception {
+        //given
+        CountCache countCache = new CountCache(60_000, 1000);
+        AtomicLong counted = new AtomicLong();
+
+        //when
+        long first = countCache.count("member", () -> counted.incrementAndGet() * 100);
+        long second = countCache.count("member", () -> counted.incrementAndGet() * 100);
+
+        //then
+        assertThat(first).isEqualTo(100);
+        assertThat(second).isEqualTo(100);
+        assertThat(counted.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void 등록하면_바로_더하고_ttl_이_지나면_다시_센다() throws Exception {
+        //given
+        CountCache countCache = new CountCache(0, 1000);
+        countCache.count("member", () -> 10);
+
+        //when
+        countCache.adjust("member", 1);
+
+        //then
+        assertThat(countCache.snapshot().get("member")).containsEntry("value", 11L);
+        Thread.sleep(1);
+        assertThat(countCache.count("member", () -> 42)).isEqualTo(42);
+    }
+
+    @Test
+    public void 키가_가득차면_캐시없이_센다() throws Exception {
+        //given
+        CountCache countCache = new CountCache(60_000, 2);
+        countCache.count("a", () -> 1);
+        countCache.count("b", () -> 2);
+        AtomicLong counted = new AtomicLong();
+
+        //when
+        countCache.count("c", counted::incrementAndGet);
+        countCache.count("c", counted::incrementAndGet);
+
+        //then
+        assertThat(counted.get()).isEqualTo(2);
+        assertThat(countCache.snapshot()).containsOnlyKeys("a", "b");
+    }
+}
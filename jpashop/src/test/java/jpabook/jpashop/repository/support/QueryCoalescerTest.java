@@ -0,0 +1,179 @@
+package jpabook.jpashop.repository.support;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QueryCoalescerTest {
+
+    QueryCoalescer queryCoalescer = new QueryCoalescer();
+
+    @Test
+    public void 동시_같은조회_한번만실행() throws Exception {
+        //given
+        int concurrency = 20;
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+
+        //when
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(executor.submit(() -> queryCoalescer.coalesce("orders", () -> {
+                executions.incrementAndGet();
+                await(release);
+                return List.of("order1", "order2");
+            }, UnaryOperator.identity(), "ORDER", "userA")));
+        }
+        // leader 가 실행중인 동안 나머지가 모두 합류할때까지 기다린다
+        while (queryCoalescer.stats("orders").getShared().sum() < concurrency - 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        //then
+        List<String> first = futures.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<List<String>> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo(first);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(queryCoalescer.stats("orders").coalescingRatio()).isEqualTo((concurrency - 1) / (double) concurrency);
+        assertThatThrownBy(() -> first.add("order3")).isInstanceOf(UnsupportedOperationException.class);
+        executor.shutdown();
+    }
+
+    @Test
+    public void 최근에_쓴_클라이언트는_합치지_않음() throws Exception {
+        //given primary 에서 읽어야 하는 호출
+        QueryCoalescer readsOwnWrites = new QueryCoalescer(() -> true);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<List<String>> leader = executor.submit(() -> readsOwnWrites.coalesce("orders", () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return List.of("order1");
+        }, UnaryOperator.identity(), "ORDER"));
+        started.await(5, TimeUnit.SECONDS);
+
+        //when 실행 중인 같은 조회
+        List<String> mine = readsOwnWrites.coalesce("orders", () -> {
+            executions.incrementAndGet();
+            return List.of("order1", "order2");
+        }, UnaryOperator.identity(), "ORDER");
+        release.countDown();
+
+        //then
+        assertThat(mine).containsExactly("order1", "order2");
+        assertThat(leader.get(5, TimeUnit.SECONDS)).containsExactly("order1");
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(readsOwnWrites.stats("orders").getBypassed().sum()).isEqualTo(2);
+        executor.shutdown();
+    }
+
+    @Test
+    public void 조회가_끝나면_다시실행() throws Exception {
+        //given
+        AtomicInteger executions = new AtomicInteger();
+
+        //when
+        queryCoalescer.coalesce("orders", () -> List.of(executions.incrementAndGet()), UnaryOperator.identity());
+        queryCoalescer.coalesce("orders", () -> List.of(executions.incrementAndGet()), UnaryOperator.identity());
+
+        //then
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void 다른조건은_따로실행() throws Exception {
+        //when
+        List<String> a = queryCoalescer.coalesce("orders", () -> List.of("a"), UnaryOperator.identity(), "ORDER");
+        List<String> b = queryCoalescer.coalesce("orders", () -> List.of("b"), UnaryOperator.identity(), "CANCEL");
+
+        //then
+        assertThat(a).containsExactly("a");
+        assertThat(b).containsExactly("b");
+        assertThat(queryCoalescer.stats("orders").getExecutions().sum()).isEqualTo(2);
+    }
+
+    @Test
+    public void 실패도_같이전달() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //when
+        Future<List<Object>> leader = executor.submit(() -> queryCoalescer.coalesce("fail", () -> {
+            await(release);
+            throw new IllegalStateException("db down");
+        }, UnaryOperator.identity()));
+        while (queryCoalescer.stats("fail").getExecutions().sum() < 1) {
+            Thread.sleep(1);
+        }
+        Future<List<Object>> follower = executor.submit(() -> queryCoalescer.coalesce("fail", () -> List.of(), UnaryOperator.identity()));
+        while (queryCoalescer.stats("fail").getShared().sum() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        //then
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        executor.shutdown();
+    }
+
+    @Test
+    public void 받아간_dto_는_호출마다_따로() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<List<OrderQueryDto>> leader = executor.submit(() -> queryCoalescer.coalesce("dtos", () -> {
+            await(release);
+            return List.of(new OrderQueryDto(1L, "userA", null, OrderStatus.ORDER, null,
+                    new ArrayList<>(List.of(new OrderItemQueryDto(1L, "JPA1 BOOK", 10000, 1)))));
+        }, OrderQueryDto::copy));
+        while (queryCoalescer.stats("dtos").getExecutions().sum() < 1) {
+            Thread.sleep(1);
+        }
+        Future<List<OrderQueryDto>> follower = executor.submit(() -> queryCoalescer.coalesce("dtos", () -> List.of(), OrderQueryDto::copy));
+        while (queryCoalescer.stats("dtos").getShared().sum() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        //when leader 가 결과를 바꾼다
+        OrderQueryDto mine = leader.get(5, TimeUnit.SECONDS).get(0);
+        mine.setName("changed");
+        mine.getOrderItems().clear();
+
+        //then
+        OrderQueryDto other = follower.get(5, TimeUnit.SECONDS).get(0);
+        assertThat(other).isNotSameAs(mine);
+        assertThat(other.getName()).isEqualTo("userA");
+        assertThat(other.getOrderItems()).extracting(OrderItemQueryDto::getItemName).containsExactly("JPA1 BOOK");
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
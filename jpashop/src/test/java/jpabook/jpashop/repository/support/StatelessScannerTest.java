@@ -0,0 +1,150 @@
+package jpabook.jpashop.repository.support;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "jpashop.scan.fetch-size=100",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class StatelessScannerTest {
+
+    static final int ORDER_COUNT = 2000;
+    static boolean seeded;
+
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired MockMvc mockMvc;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        seeded = true;
+        for (int chunk = 0; chunk < ORDER_COUNT / 500; chunk++) {
+            int start = chunk * 500;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = start; i < start + 500; i++) {
+                    Member member = new Member();
+                    member.setName("scan-member" + i);
+                    member.setAddress(new Address("서울", "거리" + i, "123"));
+                    em.persist(member);
+
+                    Book book = new Book();
+                    book.setName("scan-book" + i);
+                    book.setPrice(1000);
+                    book.setStockQuantity(100);
+                    em.persist(book);
+
+                    Delivery delivery = new Delivery();
+                    delivery.setAddress(member.getAddress());
+                    em.persist(Order.createOrder(member, delivery,
+                            OrderItem.createOrderItem(book, 1000, 1),
+                            OrderItem.createOrderItem(book, 1000, 2)));
+                }
+                em.flush();
+                em.clear();
+            });
+        }
+    }
+
+    @Test
+    public void 전체_주문_스캔() throws Exception {
+        //given
+        long total = transactionTemplate.execute(status ->
+                em.createQuery("select count(o) from Order o", Long.class).getSingleResult());
+        List<String> names = new ArrayList<>();
+
+        //when
+        long rows = orderRepository.scan(OrderDateRange.all(), 0, o -> names.add(o.getMember().getName() + "/" + o.getDelivery().getAddress().getCity()));
+
+        //then
+        assertThat(rows).isEqualTo(total);
+        assertThat(names).contains("scan-member0/서울", "scan-member" + (ORDER_COUNT - 1) + "/서울");
+    }
+
+    @Test
+    public void 읽은_주문은_붙잡지_않는다() throws Exception {
+        //given
+        AtomicLong seen = new AtomicLong();
+        List<WeakReference<Order>> first = new ArrayList<>();
+        List<Boolean> releasedDuringScan = new ArrayList<>();
+
+        //when: 첫 주문의 약한 참조를 들고 나머지를 스캔한 뒤 GC
+        orderRepository.scan(OrderDateRange.all(), 50, o -> {
+            if (seen.incrementAndGet() == 1) {
+                first.add(new WeakReference<>(o));
+            }
+            if (seen.get() == ORDER_COUNT / 2) {
+                System.gc();
+                releasedDuringScan.add(first.get(0).get() == null);
+            }
+        });
+
+        //then: 영속성 컨텍스트가 없어서 스캔 도중에도 이미 지나간 주문은 수거된다
+        assertThat(releasedDuringScan).containsExactly(true);
+
+        // 비교: 일반 EntityManager 는 트랜잭션이 끝날 때까지 영속성 컨텍스트가 붙잡고 있다
+        Boolean releasedByEntityManager = transactionTemplate.execute(status -> {
+            WeakReference<Order> ref = new WeakReference<>(
+                    em.createQuery("select o from Order o order by o.id", Order.class).setMaxResults(1).getSingleResult());
+            System.gc();
+            return ref.get() == null;
+        });
+        assertThat(releasedByEntityManager).isFalse();
+    }
+
+    @Test
+    public void csv_내보내기() throws Exception {
+        //given
+        long flatRows = orderQueryRepository.scanFlat(OrderDateRange.all(), 0, o -> { });
+
+        //when
+        MvcResult async = mockMvc.perform(get("/api/v1/orders/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //then
+        String[] lines = csv.split("\n");
+        assertThat(lines).hasSize((int) flatRows + 1);
+        assertThat(lines[0]).startsWith("orderId,name,orderDate");
+        assertThat(csv).contains(",scan-member0,");
+    }
+}
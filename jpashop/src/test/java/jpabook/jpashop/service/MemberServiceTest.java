@@ -1,13 +1,21 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberListDto;
 import jpabook.jpashop.repository.MemberRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,7 +41,7 @@ class MemberServiceTest {
 
 
         //then
-        assertThat(member).isEqualTo(memberRepository.findById(savedId).get());s
+        assertThat(member).isEqualTo(memberRepository.findById(savedId).get());
 
     }
 
@@ -54,4 +62,67 @@ class MemberServiceTest {
         assertEquals("이미 존재하는 회원입니다.", exception.getMessage());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void keyset_페이징으로_전체를_순서대로() throws Exception {
+        //given
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Member member = new Member();
+            member.setName("page" + i);
+            member.setAddress(new Address("서울", "거리" + i, "123"));
+            ids.add(memberService.join(member));
+        }
+        Long start = ids.get(0) - 1;
+
+        //when
+        List<Long> seen = new ArrayList<>();
+        Slice<MemberListDto> slice;
+        Long afterId = start;
+        do {
+            slice = memberService.findMembersAfter(afterId, 10);
+            slice.forEach(m -> seen.add(m.getId()));
+            afterId = slice.getContent().get(slice.getNumberOfElements() - 1).getId();
+        } while (slice.hasNext());
+
+        //then
+        assertThat(seen.stream().filter(ids::contains).collect(Collectors.toList())).isEqualTo(ids);
+        MemberListDto first = memberService.findMembersAfter(start, 1).getContent().get(0);
+        assertThat(first.getName()).isEqualTo("page0");
+        assertThat(first.getStreet()).isEqualTo("거리0");
+    }
+
+    @Test
+    public void slice_는_다음페이지_여부만() throws Exception {
+        //given
+        for (int i = 0; i < 3; i++) {
+            Member member = new Member();
+            member.setName("slice" + i);
+            memberService.join(member);
+        }
+
+        //when
+        Slice<MemberListDto> slice = memberService.findMemberSlice(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        //then
+        assertThat(slice.getContent()).extracting(MemberListDto::getName).containsExactly("slice2", "slice1");
+        assertThat(slice.hasNext()).isTrue();
+    }
+
+    @Test
+    public void 이름_목록은_최대_페이지_크기까지만() throws Exception {
+        //given
+        for (int i = 0; i <= MemberService.MAX_PAGE_SIZE; i++) {
+            Member member = new Member();
+            member.setName("names" + i);
+            memberService.join(member);
+        }
+
+        //when
+        Slice<String> names = memberService.findMemberNames(Integer.MAX_VALUE);
+
+        //then
+        assertThat(names.getContent()).hasSize(MemberService.MAX_PAGE_SIZE);
+        assertThat(names.hasNext()).isTrue();
+    }
+}
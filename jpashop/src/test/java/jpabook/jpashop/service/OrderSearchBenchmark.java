@@ -0,0 +1,129 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.SpringBenchmark;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderSearch;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderFetchPlan;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 주문 검색 첫 페이지 시간 (주문 100만건, -Dbench.orders 로 조절)
+ * 주문은 jdbc 로 id 대역을 정해서 넣는다. 메모리 h2 는 컨텍스트가 닫혀도 남아있으므로 끝나면 db 를 닫는다.
+ * ./gradlew benchmark --tests '*OrderSearchBenchmark'
+ */
+@SpringBenchmark(properties = "jpashop.archive.enabled=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderSearchBenchmark {
+
+    static final long FIRST_ID = 30_000_000L;
+    static final int ORDERS = Integer.getInteger("bench.orders", 1_000_000);
+    static final int MEMBERS = 1000;
+    static final int ITEMS = 1000;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired OrderService orderService;
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.execute("shutdown");
+    }
+
+    @Test
+    public void 검색_첫페이지_시간() throws Exception {
+        //given
+        seed();
+        LocalDate lastDay = LocalDate.of(2026, 1, 1).plusDays(ORDERS / 1440);
+        Map<String, Consumer<OrderSearch>> searches = new LinkedHashMap<>();
+        searches.put("no condition", s -> { });
+        searches.put("statuses + last 30 days", s -> {
+            s.setOrderStatuses(Set.of(OrderStatus.ORDER, OrderStatus.CANCEL));
+            s.setOrderDateFrom(lastDay.minusDays(30));
+        });
+        searches.put("item id", s -> s.setItemId(FIRST_ID + 7));
+        // 상품 하나(주문 0.1%)에 맞는 상품명 검색. 'bench-book7' 처럼 주문 10% 에 맞는 짧은 앞부분은 주문 id 10만개를 정렬하게 된다.
+        searches.put("item name prefix", s -> s.setItemName("bench-book777"));
+        searches.put("min total", s -> s.setMinTotalPrice(99_000));
+        searches.put("delivery status", s -> s.setDeliveryStatus(DeliveryStatus.READY));
+        searches.put("member + cancel", s -> {
+            s.setMemberName("bench-member7");
+            s.setOrderStatus(OrderStatus.CANCEL);
+        });
+
+        //when
+        Map<String, Long> firstPage = new LinkedHashMap<>();
+        for (Map.Entry<String, Consumer<OrderSearch>> entry : searches.entrySet()) {
+            long[] page = new long[11];
+            long[] count = new long[11];
+            for (int i = 0; i < 5; i++) {
+                orderService.searchOrders(search(entry.getValue()), OrderFetchPlan.DETAIL, 0, 20);
+            }
+            long coldCount = time(() -> orderService.countOrders(search(entry.getValue())));
+            for (int i = 0; i < page.length; i++) {
+                page[i] = time(() -> orderService.searchOrders(search(entry.getValue()), OrderFetchPlan.DETAIL, 0, 20));
+                count[i] = time(() -> orderService.countOrders(search(entry.getValue())));
+            }
+            firstPage.put(entry.getKey(), median(page));
+            System.out.printf("order search, %d orders, %-24s first page %.2fms, count %.2fms (cached %.3fms)%n",
+                    ORDERS, entry.getKey(), median(page) / 1e6, coldCount / 1e6, median(count) / 1e6);
+        }
+
+        //then
+        assertThat(firstPage.values()).allMatch(nanos -> nanos < 100_000_000L);
+    }
+
+    private OrderSearch search(Consumer<OrderSearch> conditions) {
+        OrderSearch search = new OrderSearch();
+        conditions.accept(search);
+        return search;
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * 주문 1분에 1건, 주문상품 1개, 10건마다 1건 취소, 4건마다 1건 배송 준비중(나머지 완료)
+     */
+    private void seed() {
+        jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode)"
+                + " select ? + x, 'bench-member' || x, '서울', '거리', '123' from system_range(1, ?)", FIRST_ID, MEMBERS);
+        jdbcTemplate.update("insert into item (dtype, item_id, name, price, stock_quantity)"
+                + " select 'B', ? + x, 'bench-book' || x, 100 * x, 100 from system_range(1, ?)", FIRST_ID, ITEMS);
+        for (int from = 1; from <= ORDERS; from += 100_000) {
+            int to = Math.min(from + 99_999, ORDERS);
+            jdbcTemplate.update("insert into delivery (delivery_id, city, street, zipcode, status)"
+                    + " select ? + x, '서울', '거리', '123', case when mod(x, 4) = 0 then 'READY' else 'COMP' end"
+                    + " from system_range(?, ?)", FIRST_ID, from, to);
+            jdbcTemplate.update("insert into orders (order_id, member_id, delivery_id, order_date, status, version, total_price)"
+                    + " select ? + x, ? + mod(x, ?) + 1, ? + x, dateadd('MINUTE', x, timestamp '2026-01-01 00:00:00'),"
+                    + " case when mod(x, 10) = 0 then 'CANCEL' else 'ORDER' end, 0, 100 * (mod(x, ?) + 1)"
+                    + " from system_range(?, ?)", FIRST_ID, FIRST_ID, MEMBERS, FIRST_ID, ITEMS, from, to);
+            jdbcTemplate.update("insert into order_item (order_item_id, order_id, item_id, order_price, count)"
+                    + " select ? + x, ? + x, ? + mod(x, ?) + 1, 100 * (mod(x, ?) + 1), 1 from system_range(?, ?)",
+                    FIRST_ID * 2, FIRST_ID, FIRST_ID, ITEMS, ITEMS, from, to);
+        }
+        jdbcTemplate.execute("analyze");
+    }
+}
@@ -1,18 +1,28 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSearch;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.OrderFetchPlan;
 import jpabook.jpashop.repository.OrderRepository;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -85,6 +95,128 @@ class OrderServiceTest {
 
     }
 
+    @Test
+    public void 조회계획별_연관관계_로딩() throws Exception {
+        //given
+        Member member = createMember();
+        member.setName("plan-member");
+        Book book = createBook("시골 jpa", 10000, 10);
+        for (int i = 0; i < 3; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+        OrderSearch search = new OrderSearch();
+        search.setMemberName("plan-member");
+
+        //when
+        List<Order> summary = orderService.findOrders(search, OrderFetchPlan.SUMMARY, 0, 2);
+        em.clear();
+        List<Order> detail = orderService.findOrders(search, OrderFetchPlan.DETAIL, 2, 2);
+
+        //then: 페이징은 db 에서, 그래프는 xToOne 만, 주문상품은 DETAIL 에서만 미리 올라온다
+        assertThat(summary).hasSize(2);
+        assertThat(summary).allMatch(o -> Hibernate.isInitialized(o.getMember()) && Hibernate.isInitialized(o.getDelivery()));
+        assertThat(summary).noneMatch(o -> Hibernate.isInitialized(o.getOrderItems()));
+        assertThat(detail).hasSize(1);
+        assertThat(detail).allMatch(o -> Hibernate.isInitialized(o.getOrderItems())
+                && Hibernate.isInitialized(o.getOrderItems().get(0).getItem()));
+    }
+
+    @Test
+    public void 조회계획_경로_조합() throws Exception {
+        //given
+        Member member = createMember();
+        member.setName("compose-member");
+        Book book = createBook("시골 jpa", 10000, 10);
+        orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+        em.clear();
+        OrderSearch search = new OrderSearch();
+        search.setMemberName("compose-member");
+
+        //when
+        OrderFetchPlan plan = OrderFetchPlan.valueOf("member, orderItems");
+        List<Order> orders = orderService.findOrders(search, plan, 0, 10);
+
+        //then: 고른 경로만 미리 올라온다
+        assertThat(plan).isEqualTo(OrderFetchPlan.of("orderItems", "member"));
+        assertThat(OrderFetchPlan.valueOf("SUMMARY,orderItems.item")).isEqualTo(OrderFetchPlan.DETAIL);
+        assertThat(orders).hasSize(1);
+        Order order = orders.get(0);
+        assertThat(Hibernate.isInitialized(order.getMember())).isTrue();
+        assertThat(Hibernate.isInitialized(order.getDelivery())).isFalse();
+        assertThat(Hibernate.isInitialized(order.getOrderItems())).isTrue();
+        assertThat(Hibernate.isInitialized(order.getOrderItems().get(0).getItem())).isFalse();
+        assertThatThrownBy(() -> OrderFetchPlan.of("orderItems.item.category"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void 검색조건_조합() throws Exception {
+        //given: 1000원 x1, 5000원 x2(배송완료), 1000원 x3(취소)
+        Member member = createMember();
+        member.setName("search-member");
+        Book bookA = createBook("search-book-a", 1000, 10);
+        Book bookB = createBook("search-book-b", 5000, 10);
+        Long o1 = orderService.order(member.getId(), bookA.getId(), 1);
+        Long o2 = orderService.order(member.getId(), bookB.getId(), 2);
+        Long o3 = orderService.order(member.getId(), bookA.getId(), 3);
+        orderRepository.findOne(o2).getDelivery().setStatus(DeliveryStatus.COMP);
+        orderService.cancelOrder(o3);
+        em.flush();
+        em.clear();
+
+        //then: 최신 주문부터
+        assertThat(ids(search(s -> s.setItemId(bookA.getId())))).containsExactly(o3, o1);
+        assertThat(ids(search(s -> s.setItemName("search-book-b")))).containsExactly(o2);
+        assertThat(ids(search(s -> s.setMinTotalPrice(3000)))).containsExactly(o3, o2);
+        assertThat(ids(search(s -> s.setOrderStatuses(Set.of(OrderStatus.CANCEL))))).containsExactly(o3);
+        assertThat(ids(search(s -> s.setDeliveryStatus(DeliveryStatus.COMP)))).containsExactly(o2);
+        assertThat(ids(search(s -> {
+            s.setItemId(bookA.getId());
+            s.setOrderStatuses(Set.of(OrderStatus.ORDER));
+        }))).containsExactly(o1);
+        assertThat(orderService.countOrders(search(s -> s.setItemId(bookA.getId())))).isEqualTo(2);
+        assertThat(orderService.searchOrders(search(s -> { }), OrderFetchPlan.NONE, 0, 2).hasNext()).isTrue();
+    }
+
+    @Test
+    public void 같은_검색조건이면_건수캐시를_같이씀() throws Exception {
+        //given
+        Member member = createMember();
+        member.setName("count-member");
+        Book book = createBook("count-book", 1000, 10);
+        orderService.order(member.getId(), book.getId(), 1);
+        OrderSearch first = new OrderSearch();
+        first.setMemberName("count-member");
+        first.setOrderDateFrom(LocalDate.now());
+        first.setOrderStatuses(new LinkedHashSet<>(List.of(OrderStatus.ORDER, OrderStatus.CANCEL)));
+        assertThat(orderService.countOrders(first)).isEqualTo(1);
+
+        //when: 주문을 하나 더 하고 같은 조건(다른 객체, 상태 순서도 다르게)으로 다시 센다
+        orderService.order(member.getId(), book.getId(), 1);
+        OrderSearch second = new OrderSearch();
+        second.setMemberName("count-member");
+        second.setOrderDateFrom(LocalDate.now());
+        second.setOrderStatuses(new LinkedHashSet<>(List.of(OrderStatus.CANCEL, OrderStatus.ORDER)));
+
+        //then: 같은 키라 ttl 동안은 캐시값 (검색조건이 있는 건수는 주문을 바로 반영하지 않는다)
+        assertThat(orderService.countOrders(second)).isEqualTo(1);
+    }
+
+    private OrderSearch search(Consumer<OrderSearch> conditions) {
+        OrderSearch search = new OrderSearch();
+        search.setMemberName("search-member");
+        conditions.accept(search);
+        return search;
+    }
+
+    private List<Long> ids(OrderSearch search) {
+        return orderService.searchOrders(search, OrderFetchPlan.NONE, 0, 20).getContent().stream()
+                .map(Order::getId)
+                .collect(Collectors.toList());
+    }
 
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
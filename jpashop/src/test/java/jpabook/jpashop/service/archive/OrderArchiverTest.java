@@ -0,0 +1,156 @@
+package jpabook.jpashop.service.archive;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderSearch;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.RequestStatements;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = "jpashop.archive.batch-size=1")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class OrderArchiverTest {
+
+    @Autowired OrderArchiver orderArchiver;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderService orderService;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void 오래된_완료_취소주문만_보관() throws Exception {
+        //given
+        LocalDateTime old = LocalDateTime.now().minusDays(400);
+        Long canceled = createOrder("archive-canceled", old, OrderStatus.CANCEL, DeliveryStatus.READY);
+        Long delivered = createOrder("archive-delivered", old, OrderStatus.ORDER, DeliveryStatus.COMP);
+        Long oldActive = createOrder("archive-active", old, OrderStatus.ORDER, DeliveryStatus.READY);
+        Long recentCanceled = createOrder("archive-recent", LocalDateTime.now(), OrderStatus.CANCEL, DeliveryStatus.READY);
+
+        //when
+        int moved = orderArchiver.archive(LocalDateTime.now().minusDays(90));
+
+        //then
+        assertThat(moved).isEqualTo(2);
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(orderRepository.findOne(canceled)).isNull();
+            assertThat(orderRepository.findOne(delivered)).isNull();
+            assertThat(orderRepository.findOne(oldActive)).isNotNull();
+            assertThat(orderRepository.findOne(recentCanceled)).isNotNull();
+        });
+
+        // 오래된 기간 조회 -> 보관 테이블까지
+        OrderDateRange lastYear = OrderDateRange.ofDates(LocalDate.now().minusDays(500), LocalDate.now().minusDays(300));
+        List<OrderQueryDto> archived = orderQueryRepository.findAllByDto_optimization(lastYear);
+        assertThat(ids(archived)).containsExactlyInAnyOrder(canceled, delivered, oldActive);
+        assertThat(archived).allSatisfy(o -> assertThat(o.getOrderItems()).hasSize(1));
+        assertThat(ids(orderQueryRepository.findOrderQueryDtos(lastYear))).containsExactlyInAnyOrder(canceled, delivered, oldActive);
+        assertThat(orderQueryRepository.findAllByDto_flat(lastYear)).extracting(OrderFlatDto::getOrderId)
+                .containsExactlyInAnyOrder(canceled, delivered, oldActive);
+    }
+
+    @Test
+    public void 최근기간_조회는_보관테이블_조회안함() throws Exception {
+        //given
+        createOrder("prune-old", LocalDateTime.now().minusDays(700), OrderStatus.CANCEL, DeliveryStatus.READY);
+        Long recent = createOrder("prune-recent", LocalDateTime.now(), OrderStatus.ORDER, DeliveryStatus.READY);
+        orderArchiver.archive(LocalDateTime.now().minusDays(90));
+
+        //when
+        RequestStatements.begin("test", Integer.MAX_VALUE, false);
+        List<OrderQueryDto> result;
+        List<OrderFlatDto> flats;
+        try {
+            result = orderQueryRepository.findAllByDto_optimization(OrderDateRange.lastDays(30));
+            flats = orderQueryRepository.findAllByDto_flat(OrderDateRange.lastDays(30));
+        } finally {
+            RequestStatements statements = RequestStatements.end();
+            //then
+            assertThat(statements.getShapes().keySet()).noneMatch(sql -> sql.contains("archive"));
+        }
+        assertThat(ids(result)).contains(recent);
+        assertThat(flats).extracting(OrderFlatDto::getOrderId).contains(recent);
+
+        // 엔티티 검색도 주문일 범위로
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderDateFrom(LocalDate.now().minusDays(30));
+        List<Order> orders = transactionTemplate.execute(status -> orderRepository.findAll(orderSearch));
+        assertThat(orders).extracting(Order::getId).contains(recent);
+    }
+
+    @Test
+    public void 보관주문과_겹치는_검색은_빠졌다고_알려줌() throws Exception {
+        //given
+        Long archived = createOrder("search-old", LocalDateTime.now().minusDays(600), OrderStatus.CANCEL, DeliveryStatus.READY);
+        orderArchiver.archive(LocalDateTime.now().minusDays(90));
+
+        //when
+        OrderSearch old = new OrderSearch();
+        old.setOrderDateFrom(LocalDate.now().minusDays(610));
+        old.setOrderDateTo(LocalDate.now().minusDays(590));
+        OrderSearch recent = new OrderSearch();
+        recent.setOrderDateFrom(LocalDate.now().minusDays(30));
+
+        List<Order> found = transactionTemplate.execute(status -> orderService.findOrders(old));
+
+        //then
+        assertThat(found).extracting(Order::getId).doesNotContain(archived);
+        assertThat(orderService.excludesArchive(old)).isTrue();
+        assertThat(orderService.excludesArchive(new OrderSearch())).isTrue();
+        assertThat(orderService.excludesArchive(recent)).isFalse();
+    }
+
+    private List<Long> ids(List<OrderQueryDto> orders) {
+        return orders.stream()
+                .map(OrderQueryDto::getOrderId)
+                .filter(id -> id != null)
+                .collect(Collectors.toList());
+    }
+
+    private Long createOrder(String name, LocalDateTime orderDate, OrderStatus status, DeliveryStatus deliveryStatus) {
+        return transactionTemplate.execute(tx -> {
+            Member member = new Member();
+            member.setName(name);
+            member.setAddress(new Address("서울", "거리", "123"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName(name + "-book");
+            book.setPrice(10000);
+            book.setStockQuantity(10);
+            em.persist(book);
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            delivery.setStatus(deliveryStatus);
+            Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 10000, 1));
+            order.setOrderDate(orderDate);
+            order.setStatus(status);
+            em.persist(order);
+            return order.getId();
+        });
+    }
+}
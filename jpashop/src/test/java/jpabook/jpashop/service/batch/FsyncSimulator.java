@@ -0,0 +1,24 @@
+package jpabook.jpashop.service.batch;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+/**
+ * 커밋마다 로그 fsync 가 있는 DB 를 흉내낸다: 로그 장치 하나를 커밋마다 차례로 millis 씩 쓰는 것처럼
+ * 테스트에서 @Import 해서 쓴다.
+ */
+class FsyncSimulator extends JdbcEventListener {
+
+    static volatile long millis = 2;
+
+    @Override
+    public void onBeforeCommit(ConnectionInformation connectionInformation) {
+        synchronized (FsyncSimulator.class) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
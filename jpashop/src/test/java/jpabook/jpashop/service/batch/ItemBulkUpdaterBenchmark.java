@@ -0,0 +1,50 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.SpringBenchmark;
+import jpabook.jpashop.domain.item.ItemChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 상품 일괄 변경 처리량 (청크 1000건)
+ * 상품 수는 -Dbulk.items=100000 으로 바꾼다
+ * ./gradlew benchmark --tests '*ItemBulkUpdaterBenchmark'
+ */
+@SpringBenchmark(properties = {
+        "jpashop.item.bulk-update.chunk-size=1000",
+        "jpashop.outbox.enabled=false"})
+class ItemBulkUpdaterBenchmark {
+
+    // 시퀀스와 겹치지 않는 id 대역
+    static final long FIRST_ID = 10_000_000L;
+
+    @Autowired ItemBulkUpdater itemBulkUpdater;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 일괄변경_처리량() throws Exception {
+        //given
+        int count = Integer.getInteger("bulk.items", 20_000);
+        List<Object[]> args = new ArrayList<>();
+        List<ItemChange> changes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            args.add(new Object[]{FIRST_ID + i, "bulk-book" + i});
+            changes.add(new ItemChange(FIRST_ID + i, 2000 + i, i % 2 == 0 ? null : 5));
+        }
+        jdbcTemplate.batchUpdate("insert into item (dtype, item_id, name, price, stock_quantity) values ('B', ?, ?, 1000, 100)", args);
+
+        //when
+        ItemBulkUpdater.Result result = itemBulkUpdater.update(changes);
+
+        //then
+        System.out.printf("bulk update %d items: %dms, %.0f items/sec%n",
+                count, result.getElapsedMillis(), result.getItemsPerSecond());
+        assertThat(result.getUpdated()).isEqualTo(count);
+    }
+}
@@ -0,0 +1,132 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemChange;
+import jpabook.jpashop.outbox.LowStockAlertConsumer;
+import jpabook.jpashop.outbox.OutboxDispatcher;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "jpashop.item.bulk-update.chunk-size=100",
+        "jpashop.outbox.enabled=false",
+        "jpashop.outbox.gap-timeout-millis=0",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ItemBulkUpdaterTest {
+
+    // 시퀀스와 겹치지 않는 id 대역
+    static final long FIRST_ID = 10_000_000L;
+    static final int ITEM_COUNT = 1_000;
+
+    @Autowired ItemBulkUpdater itemBulkUpdater;
+    @Autowired OutboxDispatcher outboxDispatcher;
+    @Autowired LowStockAlertConsumer lowStockAlertConsumer;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MockMvc mockMvc;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void 청크로_나눠서_일괄변경() throws Exception {
+        //given
+        insertBooks(FIRST_ID, ITEM_COUNT);
+        List<ItemChange> changes = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            // 짝수는 가격만, 홀수는 가격과 재고
+            changes.add(new ItemChange(FIRST_ID + i, 2000 + i, i % 2 == 0 ? null : 5));
+        }
+        changes.add(new ItemChange(-1L, 1000, 1));
+
+        //when
+        ItemBulkUpdater.Result result = itemBulkUpdater.update(changes);
+
+        //then
+        assertThat(result.getUpdated()).isEqualTo(ITEM_COUNT);
+        assertThat(result.getChunks()).isEqualTo(11);
+        assertThat(result.getMissingItemIds()).containsExactly(-1L);
+        assertThat(item(FIRST_ID)).extracting(Item::getPrice, Item::getStockQuantity).containsExactly(2000, 100);
+        assertThat(item(FIRST_ID + 1)).extracting(Item::getPrice, Item::getStockQuantity).containsExactly(2001, 5);
+    }
+
+    @Test
+    public void 건수를_모르는_batch_결과는_반영된_것으로() throws Exception {
+        //given
+        ItemBulkUpdater.Result result = new ItemBulkUpdater.Result(3);
+        List<ItemChange> chunk = List.of(new ItemChange(1L, 1000, null), new ItemChange(2L, 1000, null), new ItemChange(3L, 1000, null));
+
+        //when
+        result.chunkDone(chunk, new int[]{1, Statement.SUCCESS_NO_INFO, 0});
+
+        //then
+        assertThat(result.getUpdated()).isEqualTo(2);
+        assertThat(result.getMissingItemIds()).containsExactly(3L);
+    }
+
+    @Test
+    public void 재고변경이_아웃박스로_전달() throws Exception {
+        //given
+        long itemId = FIRST_ID + ITEM_COUNT + 1;
+        insertBooks(itemId, 1);
+        outboxDispatcher.dispatch();
+
+        //when
+        itemBulkUpdater.update(List.of(new ItemChange(itemId, null, 3)));
+        outboxDispatcher.dispatch();
+
+        //then
+        assertThat(lowStockAlertConsumer.getLowStockItems()).containsEntry(itemId, 3);
+    }
+
+    @Test
+    public void api_일괄변경과_검증() throws Exception {
+        //given
+        long itemId = FIRST_ID + ITEM_COUNT + 2;
+        insertBooks(itemId, 1);
+
+        //then
+        mockMvc.perform(put("/api/v1/items/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"itemId\":" + itemId + ",\"price\":3000}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1));
+        assertThat(item(itemId).getPrice()).isEqualTo(3000);
+
+        mockMvc.perform(put("/api/v1/items/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"itemId\":" + itemId + ",\"price\":-1}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Item item(long itemId) {
+        return transactionTemplate.execute(status -> em.find(Item.class, itemId));
+    }
+
+    private void insertBooks(long firstId, int count) {
+        List<Object[]> args = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            args.add(new Object[]{firstId + i, "bulk-book" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into item (dtype, item_id, name, price, stock_quantity) values ('B', ?, ?, 1000, 100)", args);
+    }
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.SpringBenchmark;
+import jpabook.jpashop.service.batch.ItemCatalogImporter.ErrorMode;
+import jpabook.jpashop.service.batch.ItemCatalogReader.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 상품 카탈로그 대량 등록 처리량, 목표는 분당 100만행 (초당 약 16,700행)
+ * 행 수는 -Dimport.rows=200000 으로 바꾼다
+ * ./gradlew benchmark --tests '*ItemCatalogImporterBenchmark'
+ */
+@SpringBenchmark(properties = {
+        "jpashop.item.import.chunk-size=5000",
+        "jpashop.outbox.enabled=false"})
+class ItemCatalogImporterBenchmark {
+
+    static final double TARGET_ROWS_PER_SECOND = 1_000_000 / 60.0;
+
+    @Autowired ItemCatalogImporter itemCatalogImporter;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 대량등록_처리량() throws Exception {
+        //given
+        int count = Integer.getInteger("import.rows", 1_000_000);
+        itemCatalogImporter.importCatalog(generated("warmup-", 20_000), Format.CSV, ErrorMode.PER_ROW);
+
+        //when
+        ItemCatalogImporter.Result result = itemCatalogImporter.importCatalog(generated("bulk-", count), Format.CSV, ErrorMode.PER_ROW);
+
+        //then
+        System.out.printf("catalog import %d rows: %dms, %.0f rows/sec (target %.0f)%n",
+                count, result.getElapsedMillis(), result.getRowsPerSecond(), TARGET_ROWS_PER_SECOND);
+        assertThat(result.getInserted()).isEqualTo(count);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from item where sku like 'bulk-%'", Integer.class)).isEqualTo(count);
+        assertThat(result.getRowsPerSecond()).isGreaterThan(TARGET_ROWS_PER_SECOND);
+    }
+
+    /**
+     * 파일 없이 행을 만들어내는 스트림, 책/음반/영화를 돌아가며 카테고리 10개에 나눠 넣는다
+     */
+    private static InputStream generated(String skuPrefix, int rows) {
+        return new InputStream() {
+            int row = -1;
+            byte[] line = "type,sku,name,price,stockQuantity,author,isbn,artist,director,categories\n".getBytes(StandardCharsets.UTF_8);
+            int pos;
+
+            @Override
+            public int read() {
+                if (pos == line.length) {
+                    if (row + 1 >= rows) {
+                        return -1;
+                    }
+                    row++;
+                    String type = row % 3 == 0 ? "book" : row % 3 == 1 ? "album" : "movie";
+                    line = (type + "," + skuPrefix + row + ",상품" + row + "," + (1000 + row % 500) + "," + (row % 100)
+                            + ",저자,isbn,가수,감독,카테고리" + (row % 10) + "\n").getBytes(StandardCharsets.UTF_8);
+                    pos = 0;
+                }
+                return line[pos++] & 0xff;
+            }
+        };
+    }
+}
@@ -0,0 +1,188 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.exception.ItemImportException;
+import jpabook.jpashop.outbox.OutboxDispatcher;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.batch.ItemCatalogImporter.ErrorMode;
+import jpabook.jpashop.service.batch.ItemCatalogReader.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "jpashop.item.import.chunk-size=5000",
+        "jpashop.outbox.enabled=false",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ItemCatalogImporterTest {
+
+    @Autowired ItemCatalogImporter itemCatalogImporter;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MockMvc mockMvc;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired OutboxDispatcher outboxDispatcher;
+
+    @Test
+    public void csv_등록후_같은_sku_는_변경() throws Exception {
+        //given
+        String csv = "type,sku,name,price,stockQuantity,author,isbn,artist,director,actor,categories\n"
+                + "book,,\"JPA, 기본편\",20000,10,김영한,isbn-0001,,,,도서|IT\n"
+                + "album,album-0001,앨범1,15000,5,,,아이유,,,음반\n"
+                + "movie,movie-0001,영화1,9000,3,,,,감독1,배우1,\n";
+
+        //when
+        ItemCatalogImporter.Result first = itemCatalogImporter.importCatalog(csv(csv), Format.CSV, ErrorMode.PER_ROW);
+        ItemCatalogImporter.Result second = itemCatalogImporter.importCatalog(csv(
+                "type,sku,name,price,stock_quantity,isbn,categories\n"
+                        + "book,,JPA 기본편 2판,25000,7,isbn-0001,IT\n"), Format.CSV, ErrorMode.PER_ROW);
+
+        //then
+        assertThat(first.getInserted()).isEqualTo(3);
+        assertThat(second.getInserted()).isEqualTo(0);
+        assertThat(second.getUpdated()).isEqualTo(1);
+        Map<String, Object> book = jdbcTemplate.queryForMap("select * from item where sku = 'isbn-0001'");
+        assertThat(book).containsEntry("DTYPE", "B").containsEntry("NAME", "JPA 기본편 2판")
+                .containsEntry("PRICE", 25000).containsEntry("STOCK_QUANTITY", 7);
+        assertThat(categoriesOf("isbn-0001")).containsExactly("IT");
+        assertThat(categoriesOf("album-0001")).containsExactly("음반");
+        assertThat(jdbcTemplate.queryForObject("select director from item where sku = 'movie-0001'", String.class)).isEqualTo("감독1");
+    }
+
+    @Test
+    public void 잘못된_행만_건너뛴다() throws Exception {
+        //given
+        String csv = "type,sku,name,price,stockQuantity\n"
+                + "book,row-0001,책1,1000,1\n"
+                + "cd,row-0002,음반,1000,1\n"
+                + "book,row-0003,책3,-5,1\n"
+                + "book,,책4,1000,1\n"
+                + "movie,row-0005,영화5,1000,1\n";
+
+        //when
+        ItemCatalogImporter.Result result = itemCatalogImporter.importCatalog(csv(csv), Format.CSV, ErrorMode.PER_ROW);
+
+        //then
+        assertThat(result.getRows()).isEqualTo(5);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getErrors()).hasSize(3);
+        assertThat(result.getErrors().get(0)).startsWith("3행");
+        assertThat(countBySkuPrefix("row-")).isEqualTo(2);
+    }
+
+    @Test
+    public void atomic_이면_파일전체를_되돌린다() throws Exception {
+        //given
+        StringBuilder csv = new StringBuilder("type,sku,name,price,stockQuantity\n");
+        for (int i = 0; i < 12_000; i++) {
+            csv.append("book,atomic-").append(i).append(",책,1000,1\n");
+        }
+        csv.append("book,atomic-bad,책,비싸요,1\n");
+
+        //then
+        assertThatThrownBy(() -> itemCatalogImporter.importCatalog(csv(csv.toString()), Format.CSV, ErrorMode.ATOMIC))
+                .isInstanceOf(ItemImportException.class)
+                .hasMessageContaining("12002행");
+        assertThat(countBySkuPrefix("atomic-")).isEqualTo(0);
+    }
+
+    @Test
+    public void jsonl_api_등록() throws Exception {
+        //given
+        String jsonl = "{\"type\":\"movie\",\"sku\":\"json-0001\",\"name\":\"영화\",\"price\":9000,\"stockQuantity\":2,\"categories\":[\"영화\",\"신작\"]}\n"
+                + "\n"
+                + "{\"type\":\"album\",\"sku\":\"json-0002\",\"name\":\"앨범\",\"price\":8000,\"stockQuantity\":4,\"artist\":\"가수\"}\n"
+                + "{broken\n";
+
+        //then
+        mockMvc.perform(post("/api/v1/items/import").param("format", "jsonl").content(jsonl))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1));
+        assertThat(categoriesOf("json-0001")).containsExactlyInAnyOrder("영화", "신작");
+        mockMvc.perform(post("/api/v1/items/import").param("format", "xml").content(jsonl))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void db_오류가_난_행만_거절() throws Exception {
+        //given: 다른 요청이 같은 sku 를 먼저 넣은 것처럼 db 에서만 거절되는 행
+        jdbcTemplate.execute("alter table item add constraint chk_import_test check (name <> 'db-reject')");
+        String csv = "type,sku,name,price,stockQuantity,categories\n"
+                + "book,dberr-0001,책1,1000,1,db-오류-카테고리\n"
+                + "book,dberr-0002,db-reject,1000,1,db-오류-카테고리\n"
+                + "book,dberr-0003,책3,1000,1,db-오류-카테고리\n";
+
+        //when
+        ItemCatalogImporter.Result result;
+        try {
+            result = itemCatalogImporter.importCatalog(csv(csv), Format.CSV, ErrorMode.PER_ROW);
+        } finally {
+            jdbcTemplate.execute("alter table item drop constraint chk_import_test");
+        }
+
+        //then
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().startsWith("sku dberr-0002");
+        assertThat(countBySkuPrefix("dberr-")).isEqualTo(2);
+        assertThat(categoriesOf("dberr-0003")).containsExactly("db-오류-카테고리");
+    }
+
+    @Test
+    public void 이름이_바뀐_상품은_컨슈머가_order_view_에_반영() throws Exception {
+        //given
+        itemCatalogImporter.importCatalog(csv("type,sku,name,price,stockQuantity\nbook,rename-0001,바꾸기 전,1000,10\n"), Format.CSV, ErrorMode.PER_ROW);
+        Long itemId = jdbcTemplate.queryForObject("select item_id from item where sku = 'rename-0001'", Long.class);
+        Member member = new Member();
+        member.setName("rename-member");
+        Long orderId = orderService.order(memberService.join(member), itemId, 1);
+
+        //when
+        itemCatalogImporter.importCatalog(csv("type,sku,name,price,stockQuantity\nbook,rename-0001,바꾼 후,1000,10\n"), Format.CSV, ErrorMode.PER_ROW);
+        String beforeDispatch = orderLines(orderId);
+        outboxDispatcher.dispatch();
+
+        //then
+        assertThat(beforeDispatch).contains("바꾸기 전");
+        assertThat(orderLines(orderId)).contains("바꾼 후");
+    }
+
+    private String orderLines(Long orderId) {
+        return jdbcTemplate.queryForObject("select order_lines from order_view where order_id = ?", String.class, orderId);
+    }
+
+    private List<String> categoriesOf(String sku) {
+        return jdbcTemplate.queryForList("select c.name from category c join category_item ci on ci.category_id = c.category_id"
+                + " join item i on i.item_id = ci.item_id where i.sku = ? order by c.category_id", String.class, sku);
+    }
+
+    private int countBySkuPrefix(String prefix) {
+        return jdbcTemplate.queryForObject("select count(*) from item where sku like ?", Integer.class, prefix + "%");
+    }
+
+    private static InputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
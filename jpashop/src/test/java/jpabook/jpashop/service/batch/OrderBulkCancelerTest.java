@@ -0,0 +1,120 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.domain.OrderSearch;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "jpashop.order.bulk-cancel.chunk-size=4",
+        "jpashop.outbox.enabled=false"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@Import(TestFixtures.class)
+class OrderBulkCancelerTest {
+
+    @Autowired OrderBulkCanceler orderBulkCanceler;
+    @Autowired OrderService orderService;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MockMvc mockMvc;
+    @Autowired TestFixtures fixtures;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void 청크로_나눠서_일괄취소() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("bulk-cancel-member");
+        List<Long> bookIds = List.of(fixtures.createBook("bulk-cancel-a", 100), fixtures.createBook("bulk-cancel-b", 100), fixtures.createBook("bulk-cancel-c", 100));
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            orderIds.add(orderService.order(memberId, bookIds.get(i % 3), 2));
+        }
+        orderService.cancelOrder(orderIds.get(0));
+        jdbcTemplate.update("update delivery set status = 'COMP' where delivery_id = (select delivery_id from orders where order_id = ?)", orderIds.get(1));
+        List<Long> request = new ArrayList<>(orderIds);
+        request.add(-1L);
+        int events = countBulkCanceledEvents();
+
+        //when
+        OrderBulkCanceler.Result result = orderBulkCanceler.cancel(request);
+
+        //then
+        assertThat(result.getRequested()).isEqualTo(11);
+        assertThat(result.getCanceled()).isEqualTo(8);
+        assertThat(result.getAlreadyCanceled()).isEqualTo(1);
+        assertThat(result.getShippedOrderIds()).containsExactly(orderIds.get(1));
+        assertThat(result.getMissingOrderIds()).containsExactly(-1L);
+        assertThat(result.getChunks()).isEqualTo(3);
+        // 배송 완료라 취소되지 않은 주문의 재고만 빠져 있다
+        assertThat(stock(bookIds.get(0))).isEqualTo(100);
+        assertThat(stock(bookIds.get(1))).isEqualTo(98);
+        assertThat(stock(bookIds.get(2))).isEqualTo(100);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from orders where order_id in (" + join(orderIds)
+                + ") and status = 'CANCEL' and version > 0", Integer.class)).isEqualTo(9);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from order_view where order_id in (" + join(orderIds)
+                + ") and status = 'CANCEL'", Integer.class)).isEqualTo(9);
+        assertThat(countBulkCanceledEvents()).isGreaterThan(events);
+    }
+
+    @Test
+    public void api_검색조건으로_일괄취소() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("bulk-cancel-search-member");
+        Long target = fixtures.createBook("bulk-cancel-target", 100);
+        Long other = fixtures.createBook("bulk-cancel-other", 100);
+        for (int i = 0; i < 5; i++) {
+            orderService.order(memberId, target, 1);
+            orderService.order(memberId, other, 1);
+        }
+
+        //when
+        mockMvc.perform(post("/api/v1/orders/cancel/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"itemId\":" + target + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.canceled").value(5))
+                .andExpect(jsonPath("$.chunks").value(2));
+
+        //then
+        assertThat(stock(target)).isEqualTo(100);
+        assertThat(stock(other)).isEqualTo(95);
+    }
+
+    @Test
+    public void 조건없는_일괄취소는_거절() throws Exception {
+        assertThatThrownBy(() -> orderBulkCanceler.cancel(new OrderSearch()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private int countBulkCanceledEvents() {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event where type = 'ORDERS_BULK_CANCELED'", Integer.class);
+    }
+
+    private int stock(Long itemId) {
+        return transactionTemplate.execute(status -> em.find(Item.class, itemId).getStockQuantity());
+    }
+
+    private static String join(List<Long> ids) {
+        return ids.stream().map(String::valueOf).reduce((a, b) -> a + "," + b).orElse("");
+    }
+}
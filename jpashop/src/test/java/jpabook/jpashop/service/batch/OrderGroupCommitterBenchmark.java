@@ -0,0 +1,110 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.SpringBenchmark;
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.exception.OverloadedException;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.limit.ConcurrencyLimiters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 주문마다 커밋 vs 묶음 커밋 처리량
+ * 커밋마다 2ms 씩 줄을 세우는 FsyncSimulator 로 로그 fsync 가 있는 DB 를 흉내낸다.
+ * ./gradlew benchmark --tests '*OrderGroupCommitterBenchmark'
+ */
+@SpringBenchmark(properties = {
+        "jpashop.order.group-commit.enabled=true",
+        "jpashop.order.group-commit.batch-size=32",
+        "jpashop.order.group-commit.max-wait-ms=2"})
+@Import({FsyncSimulator.class, TestFixtures.class})
+class OrderGroupCommitterBenchmark {
+
+    static final int CLIENTS = 16;
+    static final long WARMUP_MILLIS = 300;
+    static final long DURATION_MILLIS = 1500;
+
+    @Autowired OrderGroupCommitter orderGroupCommitter;
+    @Autowired OrderService orderService;
+    @Autowired ConcurrencyLimiters concurrencyLimiters;
+    @Autowired TestFixtures fixtures;
+
+    @BeforeEach
+    public void setUp() {
+        FsyncSimulator.millis = 2;
+    }
+
+    @Test
+    public void 묶음커밋_처리량_비교() throws Exception {
+        //given: 클라이언트마다 다른 회원, 다른 상품 (상품 행 락 경합은 빼고 커밋 비용만 비교)
+        List<Long> memberIds = new ArrayList<>();
+        List<Long> itemIds = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            memberIds.add(fixtures.createMember("bench-member" + i));
+            itemIds.add(fixtures.createBook("group-book", 1_000_000));
+        }
+
+        BiConsumer<Long, Long> perRequestOrder = (memberId, itemId) -> orderService.order(memberId, itemId, 1);
+        BiConsumer<Long, Long> groupedOrder = (memberId, itemId) -> orderGroupCommitter.order(memberId, itemId, 1);
+        // 두 방식이 "order" 동시 실행 한도를 같이 쓴다: 주문마다 커밋이 줄인 한도가 묶음 크기를 줄이지 않게 묶음 커밋부터
+        run(memberIds, itemIds, groupedOrder, WARMUP_MILLIS);
+
+        //when
+        double grouped = run(memberIds, itemIds, groupedOrder, DURATION_MILLIS);
+        run(memberIds, itemIds, perRequestOrder, WARMUP_MILLIS);
+        double perRequest = run(memberIds, itemIds, perRequestOrder, DURATION_MILLIS);
+
+        //then
+        System.out.printf("orders/sec: per-request=%.0f, group-commit=%.0f, %s, limiter=%s%n",
+                perRequest, grouped, orderGroupCommitter.snapshot(), concurrencyLimiters.get("order").snapshot());
+        assertThat(grouped).isGreaterThan(perRequest * 2);
+    }
+
+    /**
+     * closed-loop 클라이언트 CLIENTS 개로 durationMillis 동안 주문하고 초당 성공 주문 수를 반환
+     */
+    private double run(List<Long> memberIds, List<Long> itemIds, BiConsumer<Long, Long> order, long durationMillis) throws InterruptedException {
+        AtomicLong orders = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            Long memberId = memberIds.get(i);
+            Long itemId = itemIds.get(i);
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    try {
+                        order.accept(memberId, itemId);
+                        orders.incrementAndGet();
+                    } catch (OverloadedException e) {
+                        // 동시 실행 한도에 걸리면 잠깐 쉬었다가 다시
+                        sleepQuietly(1);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return orders.get() * 1000.0 / durationMillis;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
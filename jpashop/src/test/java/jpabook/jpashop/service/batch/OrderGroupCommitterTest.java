@@ -0,0 +1,162 @@
+package jpabook.jpashop.service.batch;
+
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OverloadedException;
+import jpabook.jpashop.service.limit.ConcurrencyLimiters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 처리량 비교는 OrderGroupCommitterBenchmark
+ * 커밋을 느리게 하는 FsyncSimulator 는 평소에는 0ms
+ */
+@SpringBootTest(properties = {
+        "jpashop.order.group-commit.enabled=true",
+        "jpashop.order.group-commit.batch-size=32",
+        "jpashop.order.group-commit.max-wait-ms=2",
+        "jpashop.order.group-commit.timeout-ms=300"})
+@Import({FsyncSimulator.class, TestFixtures.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class OrderGroupCommitterTest {
+
+    @Autowired OrderGroupCommitter orderGroupCommitter;
+    @Autowired ConcurrencyLimiters concurrencyLimiters;
+    @Autowired TestFixtures fixtures;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        FsyncSimulator.millis = 0;
+    }
+
+    @Test
+    public void 나쁜주문은_그것만_실패() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("group-member");
+        Long itemId = fixtures.createBook("group-book", 5);
+        List<OrderGroupCommitter.OrderRequest> batch = List.of(
+                new OrderGroupCommitter.OrderRequest(memberId, itemId, 2),
+                new OrderGroupCommitter.OrderRequest(memberId, itemId, 2),
+                new OrderGroupCommitter.OrderRequest(memberId, itemId, 2), // 앞 주문들이 재고 4개를 뺐다
+                new OrderGroupCommitter.OrderRequest(-1L, itemId, 1),
+                new OrderGroupCommitter.OrderRequest(memberId, itemId, 1));
+
+        //when
+        orderGroupCommitter.commit(batch);
+
+        //then
+        assertThat(batch.get(0).future.get()).isNotNull();
+        assertThat(batch.get(1).future.get()).isNotNull();
+        assertThatThrownBy(() -> batch.get(2).future.get()).hasCauseInstanceOf(NotEnoughStockException.class);
+        assertThatThrownBy(() -> batch.get(3).future.get()).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(batch.get(4).future.get()).isNotNull();
+        assertThat(stock(itemId)).isEqualTo(0);
+    }
+
+    @Test
+    public void 동시주문은_묶어서_커밋() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("group-member-concurrent");
+        Long itemId = fixtures.createBook("group-book", 100);
+        long batchesBefore = (long) orderGroupCommitter.snapshot().get("batches");
+
+        //when
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(orderGroupCommitter.submit(memberId, itemId, 1));
+        }
+        for (CompletableFuture<Long> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        //then
+        assertThat(stock(itemId)).isEqualTo(80);
+        assertThat((long) orderGroupCommitter.snapshot().get("batches") - batchesBefore).isLessThan(20);
+    }
+
+    @Test
+    public void 동시실행_한도를_거친다() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("group-member-limited");
+        Long itemId = fixtures.createBook("group-book", 10);
+        long acceptedBefore = (long) concurrencyLimiters.get("order").snapshot().get("accepted");
+
+        //when
+        Long orderId = orderGroupCommitter.order(memberId, itemId, 1);
+
+        //then
+        assertThat(orderId).isNotNull();
+        assertThat((long) concurrencyLimiters.get("order").snapshot().get("accepted") - acceptedBefore).isEqualTo(1L);
+        assertThat(concurrencyLimiters.get("order").getInFlight()).isZero();
+    }
+
+    @Test
+    public void 기다리다_포기한_주문은_저장하지_않음() throws Exception {
+        //given: 앞 묶음의 커밋이 timeout-ms(300) 보다 오래 걸린다
+        Long memberId = fixtures.createMember("group-member-timeout");
+        Long itemId = fixtures.createBook("group-book", 10);
+        long timedOutBefore = (long) orderGroupCommitter.snapshot().get("timedOut");
+        FsyncSimulator.millis = 1000;
+        try {
+            CompletableFuture<Long> slow = orderGroupCommitter.submit(memberId, itemId, 1);
+            Thread.sleep(50);
+
+            //when
+            assertThatThrownBy(() -> orderGroupCommitter.order(memberId, itemId, 2))
+                    .isInstanceOf(OverloadedException.class);
+            slow.get(5, TimeUnit.SECONDS);
+        } finally {
+            FsyncSimulator.millis = 0;
+        }
+        Thread.sleep(50); // 취소된 주문이 큐에서 빠질 시간
+
+        //then
+        assertThat(stock(itemId)).isEqualTo(9);
+        assertThat((long) orderGroupCommitter.snapshot().get("timedOut") - timedOutBefore).isEqualTo(1L);
+        assertThat(concurrencyLimiters.get("order").getInFlight()).isZero();
+    }
+
+    @Test
+    public void 커밋중인_묶음에_들어간_주문은_시간이_넘어도_결과를_기다림() throws Exception {
+        //given: 묶음에 들어간 뒤 커밋이 timeout-ms(300) 보다 오래 걸린다
+        Long memberId = fixtures.createMember("group-member-late");
+        Long itemId = fixtures.createBook("group-book", 10);
+        long timedOutBefore = (long) orderGroupCommitter.snapshot().get("timedOut");
+        long lateBefore = (long) orderGroupCommitter.snapshot().get("lateCommits");
+        FsyncSimulator.millis = 1000;
+        Long orderId;
+        try {
+            //when
+            orderId = orderGroupCommitter.order(memberId, itemId, 3);
+        } finally {
+            FsyncSimulator.millis = 0;
+        }
+
+        //then: 저장된 주문을 503 으로 알리지 않는다
+        assertThat(orderId).isNotNull();
+        assertThat(stock(itemId)).isEqualTo(7);
+        assertThat((long) orderGroupCommitter.snapshot().get("timedOut") - timedOutBefore).isZero();
+        assertThat((long) orderGroupCommitter.snapshot().get("lateCommits") - lateBefore).isEqualTo(1L);
+        assertThat(concurrencyLimiters.get("order").getInFlight()).isZero();
+    }
+
+    private int stock(Long itemId) {
+        return transactionTemplate.execute(status -> em.find(Item.class, itemId).getStockQuantity());
+    }
+}
@@ -0,0 +1,101 @@
+package jpabook.jpashop.service.limit;
+
+import jpabook.jpashop.Benchmark;
+import jpabook.jpashop.exception.OverloadedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 처리용량(capacity) 이 정해진 자원에 용량의 3배 부하를 걸었을때 goodput 비교
+ * 자원은 item 락/커넥션 풀처럼 capacity 개만 동시에 처리하고 나머지는 줄서서 기다린다.
+ * 클라이언트는 deadline 안에 응답받지 못하면 실패로 본다.
+ * ./gradlew benchmark --tests '*AdaptiveConcurrencyLimiterBenchmark'
+ */
+@Benchmark
+class AdaptiveConcurrencyLimiterBenchmark {
+
+    static final int CAPACITY = 8;
+    static final long SERVICE_MILLIS = 5;
+    static final long DEADLINE_MILLIS = 12;
+    static final long DURATION_MILLIS = 2000;
+
+    @Test
+    public void 용량3배_부하에서_goodput_유지() throws Exception {
+        //given
+        Semaphore resource = new Semaphore(CAPACITY, true);
+        double peak = run(CAPACITY, resource, null);
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("order", 4, 1, 100, 1.5, 0.9, 1000);
+
+        //when
+        double unlimited = run(CAPACITY * 3, resource, null);
+        double limited = run(CAPACITY * 3, resource, limiter);
+
+        //then
+        System.out.printf("peak=%.0f/s, unlimited(3x)=%.0f/s, limited(3x)=%.0f/s, limit=%d%n",
+                peak, unlimited, limited, limiter.getLimit());
+        assertThat(limited).isGreaterThanOrEqualTo(peak * 0.7);
+        assertThat(limited).isGreaterThan(unlimited);
+        assertThat(limiter.snapshot().get("rejected")).isNotEqualTo(0L);
+    }
+
+    /**
+     * closed-loop 클라이언트 clients 개로 DURATION 동안 부하를 주고 초당 goodput 을 반환
+     */
+    private double run(int clients, Semaphore resource, AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        AtomicLong goodput = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    AdaptiveConcurrencyLimiter.Permit permit = null;
+                    try {
+                        if (limiter != null) {
+                            permit = limiter.acquire();
+                        }
+                        resource.acquire();
+                        try {
+                            Thread.sleep(SERVICE_MILLIS);
+                        } finally {
+                            resource.release();
+                        }
+                        if (permit != null) {
+                            permit.success();
+                        }
+                        if (System.nanoTime() - start <= TimeUnit.MILLISECONDS.toNanos(DEADLINE_MILLIS)) {
+                            goodput.incrementAndGet();
+                        }
+                    } catch (OverloadedException e) {
+                        // 거절된 클라이언트는 잠깐 쉬었다가 재시도
+                        sleepQuietly(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return goodput.get() * 1000.0 / DURATION_MILLIS;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.service.limit;
+
+import jpabook.jpashop.exception.OverloadedException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void 한도초과시_바로거절() throws Exception {
+        //given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("order", 2, 1, 10, 2.0, 0.9, 1000);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire();
+
+        //then
+        assertThrows(limiter);
+        first.ignore();
+        limiter.acquire().ignore();
+        second.ignore();
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void 타임아웃이면_한도감소() throws Exception {
+        //given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("order", 10, 1, 10, 2.0, 0.5, 1000);
+
+        //when
+        limiter.acquire().dropped();
+
+        //then
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    public void 같이_느려진_요청은_한번만_감소() throws Exception {
+        //given 기준 처리시간 1ms
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("order", 10, 1, 10, 2.0, 0.5, 1000);
+        limiter.onSample(1_000_000, 1, System.nanoTime());
+        long start = System.nanoTime();
+
+        //when 같은 때 시작한 요청 4개가 모두 느리게 끝난다
+        for (int i = 0; i < 4; i++) {
+            limiter.onSample(50_000_000, 4, start);
+        }
+
+        //then
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        //when 줄인 뒤에 시작한 요청도 느리면 다시 줄인다
+        limiter.onSample(50_000_000, 4, System.nanoTime());
+
+        //then
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 기준_처리시간은_구간_최소값으로_다시_잰다() throws Exception {
+        //given 4개마다 다시 잰다, 첫 구간은 10ms
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("order", 10, 1, 10, 100.0, 0.5, 4);
+        for (int i = 0; i < 4; i++) {
+            limiter.onSample(10_000_000, 1, System.nanoTime());
+        }
+
+        //when 처리시간이 늘어난 구간, 마지막 표본이 가장 느리다
+        for (long millis : new long[]{50, 30, 40, 60}) {
+            limiter.onSample(millis * 1_000_000, 1, System.nanoTime());
+        }
+
+        //then 마지막 표본(60ms)이 아니라 구간 최소값
+        assertThat(limiter.snapshot().get("minRttMillis")).isEqualTo(30.0);
+    }
+
+    private void assertThrows(AdaptiveConcurrencyLimiter limiter) {
+        assertThatThrownBy(limiter::acquire).isInstanceOf(OverloadedException.class);
+    }
+}
@@ -0,0 +1,71 @@
+package jpabook.jpashop.service.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OrderLoadCostModelTest {
+
+    static final Set<OrderLoadStrategy> JOINS = EnumSet.of(OrderLoadStrategy.BATCH, OrderLoadStrategy.IN_QUERY, OrderLoadStrategy.FLAT);
+    static final Set<OrderLoadStrategy> NO_BATCH = EnumSet.of(OrderLoadStrategy.IN_QUERY, OrderLoadStrategy.FLAT);
+
+    OrderLoadCostModel model = new OrderLoadCostModel(300, 2, 8, 100);
+
+    @Test
+    public void fan_out에_따라_방식선택() throws Exception {
+        //given: 주문당 상품 1개 20건, 주문당 상품 20개 1000건 (예상만큼 걸렸다고 기록)
+        observeAsEstimated("small", OrderLoadStrategy.FLAT, 20, 20);
+        observeAsEstimated("large", OrderLoadStrategy.IN_QUERY, 1000, 20_000);
+
+        //then: 중복 행이 적으면 조인 1번, 많으면 in 쿼리
+        assertThat(model.choose("small", JOINS, false).getStrategy()).isEqualTo(OrderLoadStrategy.FLAT);
+        assertThat(model.choose("large", JOINS, false).getStrategy()).isEqualTo(OrderLoadStrategy.IN_QUERY);
+    }
+
+    @Test
+    public void 실제가_예상보다_느리면_다른방식() throws Exception {
+        //given
+        observeAsEstimated("small", OrderLoadStrategy.FLAT, 20, 20);
+
+        //when: FLAT 이 예상의 10배씩 걸린다
+        for (int i = 0; i < 20; i++) {
+            long nanos = (long) (model.estimateMicros(OrderLoadStrategy.FLAT, 20, 1) * 10_000);
+            model.observe("small", OrderLoadStrategy.FLAT, 20, 20, nanos);
+        }
+
+        //then: 보정은 범위 종류별이라 다른 범위의 선택은 그대로
+        assertThat(model.choose("small", JOINS, false).getStrategy()).isEqualTo(OrderLoadStrategy.IN_QUERY);
+        assertThat(model.choose("other", JOINS, false).getStrategy()).isEqualTo(OrderLoadStrategy.FLAT);
+    }
+
+    @Test
+    public void order_view_는_후보일_때만() throws Exception {
+        //given
+        observeAsEstimated("large", OrderLoadStrategy.IN_QUERY, 1000, 20_000);
+
+        //then: 주문당 1행이라 켜져 있으면 싸다
+        assertThat(model.choose("large", EnumSet.allOf(OrderLoadStrategy.class), false).getStrategy()).isEqualTo(OrderLoadStrategy.VIEW);
+        assertThat(model.choose("large", JOINS, false).getStrategy()).isEqualTo(OrderLoadStrategy.IN_QUERY);
+    }
+
+    @Test
+    public void 탐색이면_두번째로_싼방식() throws Exception {
+        //given
+        observeAsEstimated("small", OrderLoadStrategy.FLAT, 20, 20);
+
+        //then
+        assertThat(model.choose("small", JOINS, true).getStrategy()).isEqualTo(OrderLoadStrategy.IN_QUERY);
+        assertThat(model.choose("small", NO_BATCH, true).getStrategy()).isEqualTo(OrderLoadStrategy.IN_QUERY);
+        assertThat(model.choose("small", NO_BATCH, false).getStrategy()).isEqualTo(OrderLoadStrategy.FLAT);
+    }
+
+    private void observeAsEstimated(String rangeKey, OrderLoadStrategy strategy, int orders, int items) {
+        for (int i = 0; i < 30; i++) {
+            long nanos = (long) (model.estimateMicros(strategy, orders, (double) items / orders) * 1000);
+            model.observe(rangeKey, strategy, orders, items, nanos);
+        }
+    }
+}
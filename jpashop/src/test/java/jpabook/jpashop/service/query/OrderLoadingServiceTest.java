@@ -0,0 +1,122 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.view.OrderViewProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class OrderLoadingServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderLoadingService orderLoadingService;
+    @Autowired OrderViewProperties orderViewProperties;
+
+    @Test
+    public void 방식과_상관없이_같은결과() throws Exception {
+        //given: 주문상품 1개, 3개인 주문
+        createOrder("loading-member1", 1);
+        createOrder("loading-member2", 3);
+        em.flush();
+        em.clear();
+
+        //when
+        List<String> batch = describe(orderLoadingService.findOrders(OrderDateRange.all(), OrderLoadStrategy.BATCH));
+        List<String> in = describe(orderLoadingService.findOrders(OrderDateRange.all(), OrderLoadStrategy.IN_QUERY));
+        List<String> flat = describe(orderLoadingService.findOrders(OrderDateRange.all(), OrderLoadStrategy.FLAT));
+
+        //then
+        assertThat(batch).contains("loading-member1:[loading-book0]", "loading-member2:[loading-book0, loading-book1, loading-book2]");
+        assertThat(in).isEqualTo(batch);
+        assertThat(flat).isEqualTo(batch);
+    }
+
+    @Test
+    public void order_view_읽기가_켜져도_조인방식은_원본을_읽음() throws Exception {
+        //given: order_view 를 거치지 않고 넣은 주문 (order_view 에는 없다)
+        createOrder("loading-member1", 2);
+        em.flush();
+        em.clear();
+        orderViewProperties.setReadEnabled(true);
+        try {
+            //when
+            List<String> in = describe(orderLoadingService.findOrders(OrderDateRange.all(), OrderLoadStrategy.IN_QUERY));
+            List<String> flat = describe(orderLoadingService.findOrders(OrderDateRange.all(), OrderLoadStrategy.FLAT));
+            List<String> view = describe(orderLoadingService.findOrders(OrderDateRange.all(), OrderLoadStrategy.VIEW));
+
+            //then: 고른 방식 그대로 실행된다
+            assertThat(in).contains("loading-member1:[loading-book0, loading-book1]");
+            assertThat(flat).isEqualTo(in);
+            assertThat(view).doesNotContain("loading-member1:[loading-book0, loading-book1]");
+        } finally {
+            orderViewProperties.setReadEnabled(false);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 고른방식과_시간기록() throws Exception {
+        //given
+        createOrder("loading-member1", 2);
+        em.flush();
+        em.clear();
+
+        //when
+        orderLoadingService.findOrders(OrderDateRange.all());
+
+        //then
+        Map<String, Map<String, Object>> strategies = (Map<String, Map<String, Object>>) orderLoadingService.snapshot().get("strategies");
+        long chosen = strategies.values().stream().mapToLong(s -> (long) s.get("chosen")).sum();
+        assertThat(chosen).isGreaterThanOrEqualTo(1);
+        assertThat(((Map<String, Object>) orderLoadingService.snapshot().get("model")).get("ranges")).asString().contains("all");
+    }
+
+    /**
+     * 회원이름:[상품이름...]
+     */
+    private List<String> describe(List<OrderQueryDto> orders) {
+        return orders.stream()
+                .map(o -> o.getName() + ":" + (o.getOrderItems() == null ? List.of() : o.getOrderItems().stream()
+                        .map(oi -> oi.getItemName())
+                        .sorted()
+                        .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+    }
+
+    private void createOrder(String memberName, int itemCount) {
+        Member member = new Member();
+        member.setName(memberName);
+        member.setAddress(new Address("서울", "거리", "123"));
+        em.persist(member);
+
+        OrderItem[] orderItems = new OrderItem[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            Book book = new Book();
+            book.setName("loading-book" + i);
+            book.setPrice(1000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            orderItems[i] = OrderItem.createOrderItem(book, 1000, 1);
+        }
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        em.persist(Order.createOrder(member, delivery, orderItems));
+    }
+}
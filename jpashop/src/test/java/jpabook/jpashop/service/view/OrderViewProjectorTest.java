@@ -0,0 +1,285 @@
+package jpabook.jpashop.service.view;
+
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderDateRange;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.view.OrderView;
+import jpabook.jpashop.monitoring.StatementBudgetInterceptor;
+import jpabook.jpashop.outbox.OutboxDispatcher;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.repository.order.view.OrderViewProperties;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.archive.OrderArchiver;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * order_view 조회 결과가 원본 조인 조회 결과와 같은지 확인한다.
+ */
+@SpringBootTest(properties = "jpashop.order-view.read-enabled=true")
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@Import(TestFixtures.class)
+class OrderViewProjectorTest {
+
+    @Autowired OrderViewProjector orderViewProjector;
+    @Autowired OrderViewProperties orderViewProperties;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderSimpleQueryRepository orderSimpleQueryRepository;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired OrderArchiver orderArchiver;
+    @Autowired OutboxDispatcher outboxDispatcher;
+    @Autowired MockMvc mockMvc;
+    @Autowired TestFixtures fixtures;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void 주문_취소_이름변경이_바로_반영() throws Exception {
+        //given
+        Long memberId = fixtures.createMember("view-member");
+        Long itemId = fixtures.createBook("view-book", 100);
+        Long orderId = orderService.order(memberId, itemId, 2);
+        Long canceledId = orderService.order(memberId, itemId, 1);
+
+        //when
+        orderService.cancelOrder(canceledId);
+        memberService.update(memberId, "view-member-renamed");
+        itemService.updateItem(itemId, "view-book-renamed", 10000, 100);
+        outboxDispatcher.dispatch(); // 상품명은 아웃박스 컨슈머가 반영
+
+        //then
+        OrderQueryDto order = find(orderId);
+        assertThat(order.getName()).isEqualTo("view-member-renamed");
+        assertThat(order.getOrderItems()).extracting("itemName").containsExactly("view-book-renamed");
+        assertThat(find(canceledId).getOrderStatus()).isEqualTo(OrderStatus.CANCEL);
+        assertSameAsJoin();
+    }
+
+    @Test
+    public void 재생성하면_원본과_같다() throws Exception {
+        //given: order_view 를 거치지 않고 저장한 주문, 보관된 주문, 원본이 없는 행
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                persistOrder("rebuild-member" + i, LocalDateTime.now().minusDays(500 + i),
+                        i % 2 == 0 ? OrderStatus.CANCEL : OrderStatus.ORDER);
+            }
+            em.persist(new OrderView(-1L, -1L, "orphan", LocalDateTime.now(), OrderStatus.ORDER, null, "[]", false));
+        });
+        orderArchiver.archive(LocalDateTime.now().minusDays(400));
+
+        //when
+        int rebuilt = orderViewProjector.rebuild();
+
+        //then
+        assertThat(rebuilt).isGreaterThanOrEqualTo(5);
+        assertThat(orderViewProjector.snapshot().get("lastRebuild")).hasFieldOrPropertyWithValue("removed", 1);
+        assertSameAsJoin();
+    }
+
+    @Test
+    public void 재생성중_끝난_취소를_덮어쓰지_않음() throws Exception {
+        //given: 취소 트랜잭션이 order_view 를 바꾸고 아직 커밋 전
+        Long memberId = fixtures.createMember("race-member");
+        Long orderId = orderService.order(memberId, fixtures.createBook("race-book", 100), 1);
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> cancel = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                orderService.cancelOrder(orderId);
+                em.flush();
+                updated.countDown();
+                await(commit);
+            }));
+            assertThat(updated.await(10, TimeUnit.SECONDS)).isTrue();
+
+            //when: 재생성이 원본(아직 ORDER)을 읽으려는 중에 취소가 커밋된다
+            Future<Integer> rebuild = executor.submit(() -> orderViewProjector.rebuild());
+            Thread.sleep(200);
+            commit.countDown();
+            cancel.get(10, TimeUnit.SECONDS);
+            rebuild.get(30, TimeUnit.SECONDS);
+
+            //then
+            assertThat(find(orderId).getOrderStatus()).isEqualTo(OrderStatus.CANCEL);
+        } finally {
+            commit.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void 주문상품이_많아도_잘리지_않음() throws Exception {
+        //given: order_lines json 이 4000자를 넘는 주문
+        Long orderId = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("many-lines-member");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            OrderItem[] orderItems = new OrderItem[80];
+            for (int i = 0; i < orderItems.length; i++) {
+                Book book = new Book();
+                book.setName("many-lines-book-" + i + "-" + "x".repeat(40));
+                book.setPrice(1000);
+                book.setStockQuantity(10);
+                em.persist(book);
+                orderItems[i] = OrderItem.createOrderItem(book, 1000, 1);
+            }
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            delivery.setStatus(DeliveryStatus.READY);
+            Order order = Order.createOrder(member, delivery, orderItems);
+            em.persist(order);
+            return order.getId();
+        });
+
+        //when
+        orderViewProjector.rebuild();
+
+        //then
+        assertThat(find(orderId).getOrderItems()).hasSize(80);
+        assertSameAsJoin();
+    }
+
+    @Test
+    public void 조회는_sql_한번() throws Exception {
+        for (String url : List.of("/api/v4/orders", "/api/v5/orders", "/api/v6/orders", "/api/v4/simple-orders")) {
+            //when
+            int count = (int) mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andReturn().getRequest()
+                    .getAttribute(StatementBudgetInterceptor.STATEMENT_COUNT_ATTRIBUTE);
+
+            //then
+            assertThat(count).as(url).isEqualTo(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void assertSameAsJoin() {
+        OrderDateRange old = OrderDateRange.ofDates(LocalDate.now().minusDays(600), LocalDate.now().minusDays(450));
+        for (OrderDateRange range : List.of(OrderDateRange.all(), old)) {
+            assertThat(sorted(compare(() -> orderQueryRepository.findAllByDto_optimization(range))))
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .isEqualTo(sorted(join(() -> orderQueryRepository.findAllByDto_optimization(range))));
+            assertThat(flatKeys(compare(() -> orderQueryRepository.findAllByDto_flat(range))))
+                    .isEqualTo(flatKeys(join(() -> orderQueryRepository.findAllByDto_flat(range))));
+            // 열 단위 결과도 두 방식 모두 같은 행
+            assertThat(flatKeys(compare(() -> orderQueryRepository.findFlatColumns(range)).toFlatDtos()))
+                    .isEqualTo(flatKeys(join(() -> orderQueryRepository.findAllByDto_flat(range))));
+            assertThat(flatKeys(join(() -> orderQueryRepository.findFlatColumns(range)).toFlatDtos()))
+                    .isEqualTo(flatKeys(join(() -> orderQueryRepository.findAllByDto_flat(range))));
+        }
+        assertThat(simpleKeys(compare(() -> orderSimpleQueryRepository.findOrderDtos())))
+                .isEqualTo(simpleKeys(join(() -> orderSimpleQueryRepository.findOrderDtos())));
+    }
+
+    private <T> T compare(Supplier<T> query) {
+        return query.get();
+    }
+
+    /**
+     * 같은 조회를 조인 조회로 실행
+     */
+    private <T> T join(Supplier<T> query) {
+        orderViewProperties.setReadEnabled(false);
+        try {
+            return query.get();
+        } finally {
+            orderViewProperties.setReadEnabled(true);
+        }
+    }
+
+    private OrderQueryDto find(Long orderId) {
+        return orderQueryRepository.findOrderQueryDtos().stream()
+                .filter(o -> o.getOrderId().equals(orderId))
+                .findFirst().orElseThrow();
+    }
+
+    private List<OrderQueryDto> sorted(List<OrderQueryDto> orders) {
+        return orders.stream()
+                .sorted(Comparator.comparing(OrderQueryDto::getOrderId))
+                .collect(Collectors.toList());
+    }
+
+    private List<String> flatKeys(List<OrderFlatDto> flats) {
+        return flats.stream()
+                .map(f -> f.getOrderId() + "/" + f.getName() + "/" + f.getOrderStatus() + "/" + f.getItemName() + "/" + f.getCount())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private List<String> simpleKeys(List<OrderSimpleQueryDto> orders) {
+        return orders.stream()
+                .map(o -> o.getOrderId() + "/" + o.getName() + "/" + o.getOrderStatus() + "/" + o.getAddress().getCity())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private void persistOrder(String memberName, LocalDateTime orderDate, OrderStatus orderStatus) {
+        Member member = new Member();
+        member.setName(memberName);
+        member.setAddress(new Address("부산", "해운대", "456"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName(memberName + "-book");
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        em.persist(book);
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        delivery.setStatus(DeliveryStatus.READY);
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 1000, 2));
+        order.setOrderDate(orderDate);
+        order.setStatus(orderStatus);
+        em.persist(order);
+    }
+}